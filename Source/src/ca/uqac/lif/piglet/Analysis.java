@@ -22,6 +22,9 @@ import static ca.uqac.lif.piglet.util.Paths.getPathOfFile;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.IdentityHashMap;
@@ -31,6 +34,7 @@ import java.util.Map;
 import java.util.Scanner;
 import java.util.Set;
 import java.util.concurrent.Future;
+import java.util.function.Consumer;
 
 import ca.uqac.lif.fs.FilePath;
 import ca.uqac.lif.fs.FileSystemException;
@@ -38,15 +42,17 @@ import ca.uqac.lif.fs.FileUtils;
 import ca.uqac.lif.fs.HardDisk;
 import ca.uqac.lif.piglet.find.FactoryCache;
 import ca.uqac.lif.piglet.find.FileFilter;
+import ca.uqac.lif.piglet.find.FilePipelineCallable;
 import ca.uqac.lif.piglet.find.FoundToken;
 import ca.uqac.lif.piglet.find.PassthroughFileFilter;
 import ca.uqac.lif.piglet.find.SubstringFileFilter;
 import ca.uqac.lif.piglet.find.TokenFinderCallable;
+import ca.uqac.lif.piglet.find.TokenFinderContext;
 import ca.uqac.lif.piglet.find.TokenFinderFactory;
 import ca.uqac.lif.piglet.find.TokenFinderFactory.TokenFinderFactoryException;
-import ca.uqac.lif.piglet.find.sparql.SparqlTokenFinderCallable;
+import ca.uqac.lif.piglet.find.sparql.ProjectDataset;
+import ca.uqac.lif.piglet.find.sparql.SparqlQueryBatch;
 import ca.uqac.lif.piglet.find.sparql.SparqlTokenFinderFactory;
-import ca.uqac.lif.piglet.find.visitor.VisitorAssertionFinderCallable;
 import ca.uqac.lif.piglet.find.visitor.VisitorAssertionFinderFactory;
 import ca.uqac.lif.piglet.provider.FileProvider;
 import ca.uqac.lif.piglet.provider.FileSource;
@@ -243,6 +249,31 @@ public class Analysis implements Comparable<Analysis>
 				.withDescription("Only analyze files whose code contains the given substring");
 			cli.addArgument(arg);
 		}
+		{
+			Argument arg = new Argument().withLongName("parse-cache-size").withArgument("mb")
+				.withDescription("Size of the parsed file cache in MB (default: 1024, 0 to disable); only used with --lean-parse when no finder needs the source text");
+			cli.addArgument(arg);
+		}
+		{
+			Argument arg = new Argument().withLongName("lean-parse")
+				.withDescription("Only attribute comments and preserve lexical info if a finder needs them; also enables the parsed file cache when no finder needs the source text");
+			cli.addArgument(arg);
+		}
+		{
+			Argument arg = new Argument().withLongName("charset").withArgument("name")
+				.withDescription("Character encoding of source files (default: UTF-8)");
+			cli.addArgument(arg);
+		}
+		{
+			Argument arg = new Argument().withLongName("virtual-model")
+				.withDescription("Query the ASTs directly instead of building RDF models (ignored with --follow)");
+			cli.addArgument(arg);
+		}
+		{
+			Argument arg = new Argument().withLongName("dataset")
+				.withDescription("Keep RDF models in a persistent dataset and query all files at once");
+			cli.addArgument(arg);
+		}
 		return cli;
 	}
 
@@ -400,6 +431,40 @@ public class Analysis implements Comparable<Analysis>
 			String[] roots = map.getOptionValue("root").split(":");
 			a.setRoots(roots);
 		}
+		if (map.containsKey("lean-parse"))
+		{
+			a.setLeanParse(true);
+		}
+		if (map.containsKey("parse-cache-size"))
+		{
+			try
+			{
+				a.setParseCacheSize(Long.parseLong(map.getOptionValue("parse-cache-size").trim()));
+			}
+			catch (NumberFormatException e)
+			{
+				throw new AnalysisCliException(e);
+			}
+		}
+		if (map.containsKey("charset"))
+		{
+			try
+			{
+				a.setCharset(Charset.forName(map.getOptionValue("charset").trim()));
+			}
+			catch (IllegalArgumentException e)
+			{
+				throw new AnalysisCliException("Unsupported charset: " + map.getOptionValue("charset"));
+			}
+		}
+		if (map.containsKey("virtual-model"))
+		{
+			a.setVirtualModel(true);
+		}
+		if (map.containsKey("dataset"))
+		{
+			a.setDataset(true);
+		}
 		if (map.containsKey("help"))
 		{
 			a.showUsage(cli);
@@ -545,6 +610,49 @@ public class Analysis implements Comparable<Analysis>
 	 */
 	protected String m_cacheFolder = ".cache";
 
+	/**
+	 * The maximum size of the cache of parsed files (in megabytes). A value of
+	 * 0 disables this cache. The cache is only used with lean parsing, when no
+	 * finder needs the source text.
+	 */
+	protected long m_parseCacheSize = 1024;
+
+	/**
+	 * Whether the parser only attributes comments and preserves lexical info when a
+	 * finder declares that it needs them. This is off by default; since units
+	 * parsed with lexical preservation cannot be cached, the cache of parsed
+	 * files is only used when this is on.
+	 */
+	protected boolean m_leanParse = false;
+
+	/**
+	 * The character encoding of source files, used unless a file starts with
+	 * a byte order mark.
+	 */
+	protected Charset m_charset = StandardCharsets.UTF_8;
+
+	/**
+	 * Whether the SPARQL queries are evaluated on the ASTs of the files, rather
+	 * than on RDF models built from them.
+	 */
+	protected boolean m_virtualModel = false;
+
+	/**
+	 * Whether to keep the RDF models of the files in a persistent dataset, on
+	 * which the SPARQL queries are evaluated once for the whole project.
+	 */
+	protected boolean m_dataset = false;
+
+	/**
+	 * The dataset of the current analysis, or <tt>null</tt> if there is none.
+	 */
+	protected ProjectDataset m_projectDataset = null;
+
+	/**
+	 * The SPARQL finders evaluated on the dataset rather than on each file.
+	 */
+	protected Set<SparqlTokenFinderFactory> m_datasetFinders = new HashSet<>();
+
 	/**
 	 * The set of assertion finders working on the AST using
 	 * the visitor pattern
@@ -727,7 +835,24 @@ public class Analysis implements Comparable<Analysis>
 	 */
 	public String getFileForFuture(Future<TokenFinderCallable.CallableFuture> f)
 	{
-		return m_futureToFile.get(f);
+		synchronized (m_futureToFile)
+		{
+			return m_futureToFile.get(f);
+		}
+	}
+
+	/**
+	 * Associates a future with the file processed by its task.
+	 *
+	 * @param f the future
+	 * @param file the file name
+	 */
+	public void setFileForFuture(Future<TokenFinderCallable.CallableFuture> f, String file)
+	{
+		synchronized (m_futureToFile)
+		{
+			m_futureToFile.put(f, file);
+		}
 	}
 
 	/**
@@ -971,6 +1096,191 @@ public class Analysis implements Comparable<Analysis>
 		this.m_cacheFolder = cacheFolder;
 	}
 
+	/**
+	 * Returns the maximum size of the cache of parsed files.
+	 *
+	 * @return the size in megabytes; 0 means the cache is disabled
+	 */
+	public long getParseCacheSize()
+	{
+		return m_parseCacheSize;
+	}
+
+	/**
+	 * Sets the maximum size of the cache of parsed files.
+	 *
+	 * @param size the size in megabytes; 0 disables the cache
+	 */
+	public void setParseCacheSize(long size)
+	{
+		this.m_parseCacheSize = size;
+	}
+
+	/**
+	 * Returns whether the parser only attributes comments and sets up lexical
+	 * preservation when a finder needs them.
+	 *
+	 * @return true if lean parsing is enabled, false otherwise
+	 */
+	public boolean isLeanParse()
+	{
+		return m_leanParse;
+	}
+
+	/**
+	 * Enables or disables lean parsing. When enabled, comments are only
+	 * attributed to AST nodes, and lexical preservation is only set up, if at
+	 * least one of the finders declares that it needs them. Lean parsing is
+	 * also what makes the cache of parsed files usable (see
+	 * {@link #getParseCacheSize()}), as long as no finder needs the source
+	 * text.
+	 *
+	 * @param lean true to enable lean parsing, false to disable
+	 */
+	public void setLeanParse(boolean lean)
+	{
+		this.m_leanParse = lean;
+	}
+
+	/**
+	 * Returns the character encoding of source files.
+	 *
+	 * @return the charset
+	 */
+	public Charset getCharset()
+	{
+		return m_charset;
+	}
+
+	/**
+	 * Sets the character encoding of source files.
+	 *
+	 * @param charset the charset
+	 */
+	public void setCharset(Charset charset)
+	{
+		this.m_charset = charset;
+	}
+
+	/**
+	 * Returns whether the SPARQL queries are evaluated on the ASTs of the
+	 * files, rather than on RDF models built from them.
+	 *
+	 * @return true if no RDF model is built, false otherwise
+	 */
+	public boolean isVirtualModel()
+	{
+		return m_virtualModel;
+	}
+
+	/**
+	 * Sets whether the SPARQL queries are evaluated on the ASTs of the files,
+	 * rather than on RDF models built from them. This has no effect when
+	 * method calls are followed.
+	 *
+	 * @param virtual true to query the ASTs directly, false otherwise
+	 */
+	public void setVirtualModel(boolean virtual)
+	{
+		this.m_virtualModel = virtual;
+	}
+
+	/**
+	 * Returns whether the RDF models of the files are kept in a persistent
+	 * dataset.
+	 *
+	 * @return true if a dataset is used, false otherwise
+	 */
+	public boolean isDataset()
+	{
+		return m_dataset;
+	}
+
+	/**
+	 * Sets whether the RDF models of the files are kept in a persistent
+	 * dataset, on which the SPARQL queries are evaluated once for the whole
+	 * project.
+	 *
+	 * @param dataset true to use a dataset, false otherwise
+	 */
+	public void setDataset(boolean dataset)
+	{
+		this.m_dataset = dataset;
+	}
+
+	/**
+	 * Returns the dataset of the current analysis.
+	 *
+	 * @return the dataset, or null if the analysis does not use one
+	 */
+	public ProjectDataset getProjectDataset()
+	{
+		return m_projectDataset;
+	}
+
+	/**
+	 * Determines whether the parser must attribute comments to AST nodes.
+	 *
+	 * @return true if comments are needed by some finder, if lean parsing
+	 * is disabled, or if the models are written to the dataset
+	 */
+	public boolean needsComments()
+	{
+		if (!m_leanParse)
+		{
+			return true;
+		}
+		if (m_dataset && !m_sparqlFinders.isEmpty() && m_follow <= 0)
+		{
+			// The graphs of the dataset must serve the queries of later analyses
+			return true;
+		}
+		for (TokenFinderFactory f : m_visitorFinders)
+		{
+			if (f.needsComments())
+			{
+				return true;
+			}
+		}
+		for (TokenFinderFactory f : m_sparqlFinders)
+		{
+			if (f.needsComments())
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Determines whether the parser must set up lexical preservation.
+	 *
+	 * @return true if the exact source text is needed by some finder, or if
+	 * lean parsing is disabled
+	 */
+	public boolean needsSourceText()
+	{
+		if (!m_leanParse)
+		{
+			return true;
+		}
+		for (TokenFinderFactory f : m_visitorFinders)
+		{
+			if (f.needsSourceText())
+			{
+				return true;
+			}
+		}
+		for (TokenFinderFactory f : m_sparqlFinders)
+		{
+			if (f.needsSourceText())
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
 	/**
 	 * Returns the set of AST-based assertion finder factories configured.
 	 *
@@ -1089,6 +1399,29 @@ public class Analysis implements Comparable<Analysis>
 	 */
 	public Set<TokenFinderCallable> processBatch(FileProvider provider,
 				Set<FoundToken> found) throws IOException, FileSystemException, TokenFinderFactoryException
+	{
+		Set<TokenFinderCallable> tasks = new HashSet<>();
+		processBatch(provider, found, tasks::add);
+		return tasks;
+	}
+
+	/**
+	 * Processes a batch of files provided by a FileProvider and hands each
+	 * corresponding TokenFinderCallable task to a consumer as soon as it is
+	 * created. This makes it possible to start executing tasks while the
+	 * provider is still discovering files. This also incorporates any cached
+	 * found tokens from cached finders.
+	 *
+	 * @param provider the FileProvider supplying files to analyze
+	 * @param found    a set to which found tokens from caches will be added
+	 * @param sink     the consumer receiving the tasks to execute
+	 * @return the number of tasks created
+	 * @throws IOException when an I/O error occurs
+	 * @throws FileSystemException when filesystem operations fail
+	 * @throws TokenFinderFactoryException when finder factory operations fail
+	 */
+	public int processBatch(FileProvider provider, Set<FoundToken> found,
+				Consumer<TokenFinderCallable> sink) throws IOException, FileSystemException, TokenFinderFactoryException
 	{
 		List<FactoryCache> caches = checkCachedFinders();
 		m_caches.addAll(caches);
@@ -1096,8 +1429,10 @@ public class Analysis implements Comparable<Analysis>
 		{
 			found.addAll(fc.getFoundTokens());
 		}
+		// The queries are analyzed once for all the files
+		SparqlQueryBatch sparql_batch = new SparqlQueryBatch(openDataset(), m_virtualModel);
 		int count = 0;
-		Set<TokenFinderCallable> tasks = new HashSet<>();
+		int tasks = 0;
 		while (provider.hasNext() && (m_limit == -1 || count < m_limit))
 		{
 			count++;
@@ -1107,20 +1442,97 @@ public class Analysis implements Comparable<Analysis>
 				getStdout().println("Ignoring file " + f_source.getFilename());
 				continue;
 			}
-			if (!m_visitorFinders.isEmpty())
+			if (m_visitorFinders.isEmpty() && m_sparqlFinders.isEmpty())
 			{
-				VisitorAssertionFinderCallable r = new VisitorAssertionFinderCallable(m_projectName, f_source,
-						m_visitorFinders, m_quiet, m_callback);
-				tasks.add(r);
+				continue;
 			}
-			if (!m_sparqlFinders.isEmpty())
+			// A single task per file: the file is parsed once for all engines
+			FilePipelineCallable r = new FilePipelineCallable(m_projectName, f_source,
+					m_visitorFinders, sparql_batch, m_projectDataset, m_quiet, m_callback, m_follow);
+			sink.accept(r);
+			tasks++;
+		}
+		return tasks;
+	}
+
+	/**
+	 * Opens the dataset of the project, if the analysis uses one, and decides
+	 * which SPARQL finders are evaluated on it. Finders that resolve the type of
+	 * AST nodes need the nodes themselves, and are still evaluated on each
+	 * file. If the dataset cannot be opened, all the finders are evaluated on
+	 * each file.
+	 *
+	 * @return the SPARQL finders to evaluate on each file
+	 */
+	protected Set<SparqlTokenFinderFactory> openDataset()
+	{
+		if (!m_dataset || m_sparqlFinders.isEmpty())
+		{
+			return m_sparqlFinders;
+		}
+		if (m_follow > 0)
+		{
+			// The graphs of the dataset do not include the methods called
+			getStderr().println("The dataset is not used when following method calls");
+			return m_sparqlFinders;
+		}
+		try
+		{
+			m_projectDataset = new ProjectDataset(Path.of(m_cacheFolder, "tdb",
+					m_projectName.isEmpty() ? "project" : m_projectName));
+		}
+		catch (IOException | RuntimeException e)
+		{
+			getStderr().println("Cannot open the dataset: " + e.getMessage());
+			return m_sparqlFinders;
+		}
+		Set<SparqlTokenFinderFactory> per_file = new HashSet<>();
+		for (SparqlTokenFinderFactory f : m_sparqlFinders)
+		{
+			if (f.getFootprint().resolvesTypes())
+			{
+				per_file.add(f);
+			}
+			else
 			{
-				SparqlTokenFinderCallable r = new SparqlTokenFinderCallable(m_projectName, f_source,
-						m_sparqlFinders, m_quiet, m_callback, m_follow);
-				tasks.add(r);
+				m_datasetFinders.add(f);
 			}
 		}
-		return tasks;
+		return per_file;
+	}
+
+	/**
+	 * Evaluates the SPARQL finders of the dataset, once all the files of the
+	 * analysis have been handed to it, and closes the dataset. Graphs of files
+	 * that are no longer part of the project are deleted, unless the analysis
+	 * did not go through all its files.
+	 *
+	 * @param found    a set to which found tokens are added
+	 * @param context  the context of the calling thread
+	 * @param complete whether the analysis went through all its files
+	 */
+	public void processDataset(Set<FoundToken> found, TokenFinderContext context, boolean complete)
+	{
+		if (m_projectDataset == null)
+		{
+			return;
+		}
+		try
+		{
+			if (complete && m_limit == -1)
+			{
+				m_projectDataset.prune();
+			}
+			m_projectDataset.process(m_datasetFinders, context, found);
+		}
+		catch (RuntimeException e)
+		{
+			getStderr().println("Cannot query the dataset: " + e.getMessage());
+		}
+		finally
+		{
+			m_projectDataset.close();
+		}
 	}
 
 	/**
@@ -24,9 +24,9 @@ import java.io.IOException;
 import java.io.PrintStream;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -39,7 +39,6 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -65,7 +64,7 @@ import ca.uqac.lif.piglet.find.TokenFinderContext;
 import ca.uqac.lif.piglet.find.TokenFinderFactory;
 import ca.uqac.lif.piglet.find.TokenFinderCallable.CallableFuture;
 import ca.uqac.lif.piglet.find.TokenFinderFactory.TokenFinderFactoryException;
-import ca.uqac.lif.piglet.provider.FileSystemProvider;
+import ca.uqac.lif.piglet.provider.StreamingFileProvider;
 import ca.uqac.lif.piglet.provider.UnionProvider;
 import ca.uqac.lif.piglet.report.CliReporter;
 import ca.uqac.lif.piglet.report.HtmlReporter;
@@ -73,8 +72,15 @@ import ca.uqac.lif.piglet.report.Report;
 import ca.uqac.lif.piglet.report.Report.MapReport;
 import ca.uqac.lif.piglet.report.Report.ObjectReport;
 import ca.uqac.lif.piglet.report.Reporter.ReporterException;
-import ca.uqac.lif.piglet.util.Solvers;
+import ca.uqac.lif.piglet.util.LargestFirstExecutor;
+import ca.uqac.lif.piglet.util.ParseCache;
+import ca.uqac.lif.piglet.util.SharedSolvers;
 import ca.uqac.lif.piglet.util.StatusCallback;
+import ca.uqac.lif.piglet.util.SubtypeCache;
+import ca.uqac.lif.piglet.util.TaskCompletionService;
+import ca.uqac.lif.piglet.util.TaskHistory;
+import ca.uqac.lif.piglet.util.TypeHierarchy;
+import ca.uqac.lif.piglet.util.UnresolvedSymbols;
 import ca.uqac.lif.piglet.util.AnsiCallback;
 import ca.uqac.lif.piglet.util.PrintoutCallback;
 import ca.uqac.lif.util.AnsiPrinter;
@@ -238,7 +244,7 @@ public class Main
 				Analysis a = CURRENT_ANALYSIS;
 				if (fs != null && a != null)
 				{
-					for (Future<CallableFuture> f : fs)
+					for (Future<CallableFuture> f : new ArrayList<>(fs))
 					{
 						if (f.isDone() && !f.isCancelled())
 						{
@@ -314,14 +320,16 @@ public class Main
 	InterruptedException, ExecutionException, PrintException
 	{
 		/* Setup the file provider */
-		FileSystemProvider[] providers = new FileSystemProvider[analysis.getSourcePaths().size()];
+		StreamingFileProvider[] providers = new StreamingFileProvider[analysis.getSourcePaths().size()];
 		int i = 0;
 		for (String path : analysis.getSourcePaths())
 		{
 			FilePath fold_path = analysis.getHomePath().chdir(new FilePath(path));
 			try
 			{
-				providers[i] = new FileSystemProvider(new HardDisk(fold_path.toString()));
+				// Files are discovered in the background while they are analyzed
+				providers[i] = new StreamingFileProvider(new HardDisk(fold_path.toString()),
+						Paths.get(fold_path.toString()), analysis.getCharset(), analysis.getThreads());
 			}
 			catch (FileSystemException e)
 			{
@@ -330,29 +338,43 @@ public class Main
 			i++;
 		}
 		UnionProvider fsp = new UnionProvider(providers);
-		int total = fsp.filesProvided();
 		Report.MapReport categorized = new Report.MapReport();
 		categorized.put(analysis.getProjectName(), new MapReport());
-		final List<String> source_paths = analysis.getSourcePaths();
-		final String[] root = analysis.getRoots();
-		final Set<String> jar_paths = analysis.getJarPaths();
+		// Jar indexes and parsed dependencies are shared by all threads
+		final SharedSolvers solvers;
+		try
+		{
+			solvers = new SharedSolvers(analysis.getSourcePaths(), analysis.getRoots(), analysis.getJarPaths(),
+					Paths.get(analysis.getCacheFolder(), "jars"));
+		}
+		catch (FileSystemException e)
+		{
+			return handleException(e);
+		}
+		catch (IOException e)
+		{
+			return handleException(e);
+		}
 		final long resolution_timeout = analysis.getResolutionTimeout();
+		final ParseCache parse_cache = createParseCache(analysis);
+		final boolean need_comments = analysis.needsComments();
+		final boolean need_text = analysis.needsSourceText();
 		CTX = ThreadLocal.withInitial(() -> {
 			try
 			{
-				CombinedTypeSolver ts = Solvers.buildSolver(source_paths, root, jar_paths);
+				CombinedTypeSolver ts = solvers.newSolver();
 
 				// Wire parser to THIS thread’s solver
 				ParserConfiguration threadPc = new ParserConfiguration()
 						.setLanguageLevel(ParserConfiguration.LanguageLevel.JAVA_17)
-						.setLexicalPreservationEnabled(true)
+						.setLexicalPreservationEnabled(need_text)
 						.setStoreTokens(true)
-						.setAttributeComments(true)
+						.setAttributeComments(need_comments)
 						.setSymbolResolver(new com.github.javaparser.symbolsolver.JavaSymbolSolver(ts));
 
 				return new TokenFinderContext(ts, new JavaParser(threadPc),
 						com.github.javaparser.symbolsolver.javaparsermodel.JavaParserFacade.get(ts),
-						resolution_timeout, analysis.getFilter());
+						resolution_timeout, analysis.getFilter(), parse_cache);
 			}
 			catch (Exception e)
 			{
@@ -360,18 +382,17 @@ public class Main
 			}
 		});
 
-		// Read file(s)
+		// Read file(s); the total is refined as files are discovered
 		StatusCallback status;
 		if (analysis.m_printout)
 		{
-			status = new PrintoutCallback(s_stdout,
-					(analysis.getLimit() >= 0 ? Math.min(total, analysis.getLimit()) : total), analysis.getThreads(), analysis.m_filterSubstring != null ? analysis.m_filterSubstring : "");
+			status = new PrintoutCallback(s_stdout, 0, analysis.getThreads(), analysis.m_filterSubstring != null ? analysis.m_filterSubstring : "");
 		}
 		else
 		{
-			status = new AnsiCallback(s_stdout,
-					(analysis.getLimit() >= 0 ? Math.min(total, analysis.getLimit()) : total), analysis.getThreads(), analysis.m_filterSubstring != null ? analysis.m_filterSubstring : "");
+			status = new AnsiCallback(s_stdout, 0, analysis.getThreads(), analysis.m_filterSubstring != null ? analysis.m_filterSubstring : "");
 		}
+		status.setTotal(0, false);
 		analysis.setCallback(status);
 		if (analysis.m_globalTimeout > 0)
 		{
@@ -388,21 +409,25 @@ public class Main
 			return t;
 		};
 
-		ExecutorService executor = Executors.newFixedThreadPool(analysis.getThreads(), tf);
+		// Files with the largest estimated cost are processed first
+		LargestFirstExecutor executor = new LargestFirstExecutor(analysis.getThreads(), tf);
+		// Each file's timeout starts when the file starts being processed
+		executor.setTaskTimeout(analysis.m_fileTimeout, TimeUnit.SECONDS);
+		TaskCompletionService<CallableFuture> service = new TaskCompletionService<>(executor);
+		TaskHistory history = new TaskHistory(Paths.get(analysis.getCacheFolder(),
+				(analysis.getProjectName().isEmpty() ? "project" : analysis.getProjectName()) + ".durations"));
+		long[] durations = new long[0];
 		long start_time = System.currentTimeMillis();
 		long end_time = -1;
+		int total = 0;
 		s_stdout.hideCursor();
 		status_thread.start();
 		try
 		{
-			Set<TokenFinderCallable> tasks = analysis.processBatch(fsp, found);
-			// Submit tasks one by one so we can expose futures *immediately*
-			List<Future<CallableFuture>> futures = new java.util.ArrayList<>(tasks.size());
-			for (TokenFinderCallable task : tasks)
-			{
-				futures.add(executor.submit(task));
-			}
-			// Expose futures so the hook can harvest completed ones
+			// Tasks start running while files are still being discovered: the
+			// futures are exposed so the hook can harvest completed ones, and the
+			// global window starts now
+			List<Future<CallableFuture>> futures = Collections.synchronizedList(new ArrayList<>());
 			CURRENT_EXECUTOR = executor;
 			CURRENT_ANALYSIS = analysis;
 			CURRENT_FUTURES = futures;
@@ -410,16 +435,54 @@ public class Main
 			{
 				// Cancels any still-running futures after the global window
 				Executors.newSingleThreadScheduledExecutor().schedule(() -> {
-					for (Future<?> f : futures)
+					synchronized (futures)
 					{
-						if (!f.isDone())
-							f.cancel(true);
+						for (Future<?> f : futures)
+						{
+							if (!f.isDone())
+								f.cancel(true);
+						}
+						executor.shutdownNow();
 					}
-					executor.shutdownNow();
 				}, analysis.m_globalTimeout, TimeUnit.SECONDS);
 			}
-			waitForEnd(status, analysis, futures, found);
+			// Submit tasks one by one as files are discovered, and harvest
+			// those already done in the meantime
+			AtomicInteger harvested = new AtomicInteger(0);
+			analysis.processBatch(fsp, found, task -> {
+				double cost = history.estimate(task.getFileName(), task.getSource().getSize());
+				synchronized (futures)
+				{
+					if (executor.isShutdown())
+					{
+						// The global window is over; the task is not run
+						return;
+					}
+					Future<CallableFuture> f = service.submit(task, cost);
+					analysis.setFileForFuture(f, task.getFileName());
+					futures.add(f);
+					status.setTotal(futures.size(), false);
+				}
+				for (Future<CallableFuture> done = service.poll(); done != null; done = service.poll())
+				{
+					harvest(status, analysis, done, found);
+					harvested.incrementAndGet();
+				}
+			});
+			int num_tasks = futures.size();
+			status.setTotal(num_tasks, true);
+			for (StreamingFileProvider p : providers)
+			{
+				// Discovery may have been cut short by the file limit
+				p.close();
+			}
+			total = fsp.filesProvided();
+			waitForEnd(status, analysis, service, num_tasks - harvested.get(), found);
 			executor.shutdown();
+			durations = recordDurations(history, futures);
+			// The queries on the dataset see the graphs of all the files
+			analysis.processDataset(found, analysis.getProjectDataset() == null ? null : CTX.get(),
+					futures.stream().noneMatch(Future::isCancelled));
 		}
 		catch (IOException e)
 		{
@@ -464,10 +527,170 @@ public class Main
 		s_stdout.println(found.size() + " token" + (found.size() > 1 ? "s" : "") + " found");
 		s_stdout.clearLine();
 		s_stdout.println("Analysis time: " + AnsiPrinter.formatDuration(duration));
+		if (parse_cache != null)
+		{
+			s_stdout.println("Parse cache: " + parse_cache.getHits() + " hit(s), "
+					+ parse_cache.getMisses() + " miss(es)");
+		}
+		if (analysis.getProjectDataset() != null)
+		{
+			s_stdout.println("Dataset: " + analysis.getProjectDataset().getTranslatedCount() + " file(s) translated, "
+					+ analysis.getProjectDataset().getReusedCount() + " reused, " + analysis.getProjectDataset().getRemovedCount() + " removed");
+		}
+		if (solvers.getHits() + solvers.getMisses() > 0)
+		{
+			s_stdout.println("Type solver: " + solvers.getHits() + " shared file(s), "
+					+ solvers.getMisses() + " parsed file(s)");
+		}
+		SubtypeCache subtypes = solvers.getSubtypeCache();
+		if (subtypes.getHits() + subtypes.getMisses() > 0)
+		{
+			s_stdout.println("Subtype checks: " + subtypes.getHits() + " hit(s), "
+					+ subtypes.getMisses() + " miss(es)");
+		}
+		TypeHierarchy hierarchy = solvers.getTypeHierarchy();
+		if (hierarchy.getTypeCount() > 0)
+		{
+			s_stdout.println("Type hierarchy: " + hierarchy.getTypeCount() + " type(s), "
+					+ hierarchy.getHits() + " hit(s)");
+		}
+		if (analysis.getUnresolved())
+		{
+			List<UnresolvedSymbols.Entry> entries = solvers.getUnresolvedSymbols().getEntries();
+			s_stdout.println("Unresolved symbols: " + solvers.getUnresolvedSymbols().size() + " symbol(s), "
+					+ entries.size() + " missing name(s)");
+			for (UnresolvedSymbols.Entry e : entries)
+			{
+				s_stdout.println("  " + e.name() + ": " + e.occurrences() + " occurrence(s), "
+						+ AnsiPrinter.formatDuration(e.time()));
+			}
+		}
+		if (solvers.getJarCount() > 0)
+		{
+			s_stdout.println("Jars: " + solvers.getOpenedJarCount() + " of " + solvers.getJarCount() + " opened");
+		}
+		if (durations.length > 0)
+		{
+			printSchedule(durations, analysis.getThreads(), executor.getMakespan());
+		}
+		try
+		{
+			history.save();
+		}
+		catch (IOException e)
+		{
+			s_stderr.println("Cannot save task durations: " + e.getMessage());
+		}
 		s_stdout.println();
 		return RET_OK;
 	}
 
+	/**
+	 * Records in the history the time taken to process each file whose task
+	 * completed normally.
+	 * 
+	 * @param history
+	 *          The history of task durations
+	 * @param futures
+	 *          The futures of the tasks, in submission order
+	 * @return The durations of the completed tasks, in submission order
+	 */
+	protected static long[] recordDurations(TaskHistory history, List<Future<CallableFuture>> futures)
+	{
+		List<Long> durations = new ArrayList<Long>(futures.size());
+		for (Future<CallableFuture> f : futures)
+		{
+			if (!f.isDone() || f.isCancelled())
+			{
+				continue;
+			}
+			try
+			{
+				CallableFuture cf = f.get();
+				history.record(cf.getFileName(), cf.getDuration());
+				durations.add(cf.getDuration());
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+				break;
+			}
+			catch (ExecutionException e)
+			{
+				// Already reported
+			}
+		}
+		long[] out = new long[durations.size()];
+		for (int i = 0; i < out.length; i++)
+		{
+			out[i] = durations.get(i);
+		}
+		return out;
+	}
+
+	/**
+	 * Prints the makespan measured for the run, followed by makespans
+	 * simulated from the measured duration of each task: with tasks run
+	 * largest first, with tasks run in submission order, and in the ideal case
+	 * where the total processing time is evenly spread across threads. The
+	 * simulations tell what the schedule could achieve; only the first value
+	 * tells what it did achieve.
+	 * 
+	 * @param durations
+	 *          The durations of the tasks, in submission order
+	 * @param threads
+	 *          The number of threads
+	 * @param measured
+	 *          The makespan measured by the executor, in milliseconds
+	 */
+	protected static void printSchedule(long[] durations, int threads, long measured)
+	{
+		long total = 0, longest = 0;
+		for (long d : durations)
+		{
+			total += d;
+			longest = Math.max(longest, d);
+		}
+		long ideal = Math.max(longest, total / Math.max(1, threads));
+		long lpt = TaskHistory.makespanLargestFirst(durations, threads);
+		long fifo = TaskHistory.makespan(durations, threads);
+		s_stdout.println("Schedule: " + AnsiPrinter.formatDuration(measured) + " measured; simulated: "
+				+ AnsiPrinter.formatDuration(lpt) + " largest first, "
+				+ AnsiPrinter.formatDuration(fifo) + " in submission order, "
+				+ AnsiPrinter.formatDuration(ideal) + " ideal");
+	}
+
+	/**
+	 * Creates the cache of parsed files for an analysis. The cache is stored
+	 * in a subfolder of the analysis' cache folder. Since the units read from
+	 * the cache have no tokens, the cache is only created if the parser does
+	 * not set up lexical preservation, that is, with lean parsing when no
+	 * finder needs the source text; otherwise, units would be written to it
+	 * and never read back.
+	 * 
+	 * @param analysis
+	 *          The analysis
+	 * @return The cache, or <tt>null</tt> if it is disabled, cannot be used
+	 *         by the parser or cannot be created
+	 */
+	protected static ParseCache createParseCache(Analysis analysis)
+	{
+		if (analysis.getParseCacheSize() <= 0 || analysis.needsSourceText())
+		{
+			return null;
+		}
+		try
+		{
+			return new ParseCache(Paths.get(analysis.getCacheFolder(), "ast"),
+					analysis.getParseCacheSize() * 1024 * 1024);
+		}
+		catch (IOException e)
+		{
+			s_stderr.println("Cannot use the parse cache: " + e.getMessage());
+			return null;
+		}
+	}
+
 	/**
 	 * Takes care of the final steps of the analysis: categorization of results,
 	 * report generation, and serialization of results. This step is done even if
@@ -738,60 +961,88 @@ public class Main
 	}
 
 	/**
-	 * Waits for the completion of a list of futures, handling exceptions and
-	 * interruptions properly.
+	 * Waits for the completion of the tasks submitted to a completion
+	 * service, and harvests their results in the order in which they finish.
+	 * Timeouts are enforced by the executor, which cancels each task at its
+	 * own deadline.
 	 * 
-	 * @param futures
-	 *          The list of futures to wait for
+	 * @param callback
+	 *          The callback to report status
+	 * @param a
+	 *          The analysis
+	 * @param service
+	 *          The completion service running the tasks
+	 * @param pending
+	 *          The number of tasks whose results have not been harvested yet
+	 * @param found
+	 *          The set to which found tokens are added
 	 */
 	public static boolean waitForEnd(StatusCallback callback, Analysis a,
-			List<Future<CallableFuture>> futures, Set<FoundToken> found)
+			TaskCompletionService<CallableFuture> service, int pending, Set<FoundToken> found)
 	{
-		Iterator<Future<CallableFuture>> it = futures.iterator();
-		while (it.hasNext())
+		for (int i = 0; i < pending; i++)
 		{
-			Future<CallableFuture> f = it.next();
 			try
 			{
-				CallableFuture cf = f.get(a.m_fileTimeout, TimeUnit.SECONDS);
-				found.addAll(cf.getFoundTokens());
-			}
-			catch (TimeoutException te)
-			{
-				System.err.println("Timeout processing " + a.getFileForFuture(f));
-				f.cancel(true);
-				it.remove();
-				callback.resolutionTimeout();
+				harvest(callback, a, service.take(), found);
 			}
 			catch (InterruptedException ie)
 			{
 				Thread.currentThread().interrupt();
-				// If interrupted, you can choose to cancel outstanding tasks:
-				for (Future<?> other : futures)
-				{
-					other.cancel(true);
-				}
-				break;
-			}
-			catch (CancellationException ce)
-			{
-				// Task was cancelled, probably due to global timeout
-				// This should trigger the shutdown hook, which will do the final reporting
-				System.exit(RET_TIMEOUT);
-			}
-			catch (QueryParseException qpe)
-			{
-				s_stderr.println("Cannot parse query: " + qpe.getMessage());
+				return false;
 			}
-			catch (ExecutionException ee)
+		}
+		return true;
+	}
+
+	/**
+	 * Harvests the result of a task that is done, handling exceptions,
+	 * timeouts and cancellations.
+	 * 
+	 * @param callback
+	 *          The callback to report status
+	 * @param a
+	 *          The analysis
+	 * @param f
+	 *          The future of the task, which must be done
+	 * @param found
+	 *          The set to which found tokens are added
+	 */
+	protected static void harvest(StatusCallback callback, Analysis a, Future<CallableFuture> f,
+			Set<FoundToken> found)
+	{
+		try
+		{
+			CallableFuture cf = f.get();
+			found.addAll(cf.getFoundTokens());
+		}
+		catch (InterruptedException ie)
+		{
+			Thread.currentThread().interrupt();
+		}
+		catch (CancellationException ce)
+		{
+			if (LargestFirstExecutor.isTimedOut(f))
 			{
-				// The task threw; unwrap and either log or fail fast
-				s_stderr.println("Error in task: " + a.getFileForFuture(f));
-				s_stderr.println("Cause: " + ee.getCause().getMessage());
-				ee.printStackTrace(s_stderr);
+				System.err.println("Timeout processing " + a.getFileForFuture(f));
+				callback.resolutionTimeout();
+				return;
 			}
+			// Task was cancelled, probably due to global timeout
+			// This should trigger the shutdown hook, which will do the final reporting
+			System.exit(RET_TIMEOUT);
+		}
+		catch (QueryParseException qpe)
+		{
+			s_stderr.println("Cannot parse query: " + qpe.getMessage());
+		}
+		catch (ExecutionException ee)
+		{
+			// The task threw; unwrap and either log or fail fast
+			s_stderr.println("Error in task: " + a.getFileForFuture(f));
+			s_stderr.println("Cause: " + ee.getCause().getMessage());
+			ee.printStackTrace(s_stderr);
 		}
-		return true;
 	}
 
 	private static void finalizeAndReport(Set<Analysis> analyses, Report.MapReport global, Map<String,Long> timeouts, boolean summary)
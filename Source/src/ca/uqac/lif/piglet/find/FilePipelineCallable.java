@@ -0,0 +1,163 @@
+/*
+    Analysis of assertions in Java programs
+    Copyright (C) 2025 Sylvain Hallé, Sarika Machhindra Kadam
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.piglet.find;
+
+import java.util.HashSet;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import com.github.javaparser.ParseProblemException;
+import com.github.javaparser.ast.CompilationUnit;
+
+import ca.uqac.lif.piglet.find.TokenFinder.TokenFinderException;
+import ca.uqac.lif.piglet.find.sparql.ProjectDataset;
+import ca.uqac.lif.piglet.find.sparql.SparqlQueryBatch;
+import ca.uqac.lif.piglet.find.sparql.SparqlTokenFinderCallable;
+import ca.uqac.lif.piglet.find.sparql.SparqlTokenFinderFactory;
+import ca.uqac.lif.piglet.find.visitor.VisitorAssertionFinderCallable;
+import ca.uqac.lif.piglet.find.visitor.VisitorAssertionFinderFactory;
+import ca.uqac.lif.piglet.provider.FileSource;
+import ca.uqac.lif.piglet.util.StatusCallback;
+
+/**
+ * A callable that processes a single file with all the finder engines. The
+ * file is read and parsed once, and the resulting compilation unit is handed
+ * in turn to the visitor and the SPARQL engines. Each factory is still
+ * registered as expected and finished individually, so that timeouts are
+ * reported per finder as before.
+ */
+public class FilePipelineCallable extends TokenFinderCallable
+{
+	/** The visitor finders to run on the file */
+	protected final Set<VisitorAssertionFinderFactory> m_visitorFinders;
+
+	/** The SPARQL finders to run on the file */
+	protected final Set<SparqlTokenFinderFactory> m_sparqlFinders;
+
+	/** The batch evaluating the queries of the SPARQL finders */
+	protected final SparqlQueryBatch m_sparqlBatch;
+
+	/**
+	 * The dataset to which the model of the file is written, or <tt>null</tt>
+	 * to only build models in memory
+	 */
+	protected final ProjectDataset m_dataset;
+
+	/** Whether to follow method calls when building the model */
+	protected final int m_follow;
+
+	/**
+	 * Creates a new callable.
+	 * @param project The project name
+	 * @param source The file source from which to read
+	 * @param visitor_finders The visitor finders to run on the file
+	 * @param sparql_batch The batch evaluating the queries of the SPARQL
+	 * finders to run on the file
+	 * @param dataset The dataset to which the model of the file is written,
+	 * or <tt>null</tt> to only build models in memory
+	 * @param quiet Whether to suppress warnings
+	 * @param status A callback to report status
+	 * @param follow Whether to follow method calls when building the model
+	 */
+	public FilePipelineCallable(String project, FileSource source, Set<VisitorAssertionFinderFactory> visitor_finders, SparqlQueryBatch sparql_batch, ProjectDataset dataset, boolean quiet, StatusCallback status, int follow)
+	{
+		super(project, source.getFilename(), source, quiet, status, union(visitor_finders, sparql_batch.getFactories()));
+		m_visitorFinders = visitor_finders;
+		m_sparqlFinders = sparql_batch.getFactories();
+		m_sparqlBatch = sparql_batch;
+		m_dataset = dataset;
+		m_follow = follow;
+	}
+
+	@Override
+	protected void doRun(TokenFinderContext context, String code, Set<FoundToken> found) throws TokenFinderException
+	{
+		// The file filter only applies to the SPARQL engine
+		boolean accepted = context.getFileFilter().accept(code);
+		boolean run_sparql = !m_sparqlFinders.isEmpty() && accepted;
+		String hash = null;
+		if (m_dataset != null && accepted)
+		{
+			hash = ProjectDataset.hash(code);
+			if (!m_dataset.needsUpdate(m_file, hash))
+			{
+				// Translated by an earlier analysis
+				hash = null;
+			}
+		}
+		if (m_visitorFinders.isEmpty() && !run_sparql && hash == null)
+		{
+			return;
+		}
+		for (VisitorAssertionFinderFactory fac : m_visitorFinders)
+		{
+			fac.registerExpected();
+		}
+		if (run_sparql)
+		{
+			for (SparqlTokenFinderFactory fac : m_sparqlFinders)
+			{
+				fac.registerExpected();
+			}
+		}
+		CompilationUnit u;
+		try
+		{
+			u = parse(context, code);
+		}
+		catch (ParseProblemException e)
+		{
+			throw new TokenFinderException("Error parsing " + m_file + ": " + e.getMessage(), e);
+		}
+		catch (NoSuchElementException e)
+		{
+			// Ignore this file
+			if (!m_quiet)
+			{
+				System.err.println("Could not parse " + m_file);
+			}
+			return;
+		}
+		if (!m_visitorFinders.isEmpty())
+		{
+			VisitorAssertionFinderCallable.processUnit(context, m_file, u, m_visitorFinders, found);
+		}
+		if (run_sparql && !Thread.currentThread().isInterrupted())
+		{
+			SparqlTokenFinderCallable.processUnit(context, m_file, u, m_sparqlBatch, m_follow, found);
+		}
+		if (hash != null && !Thread.currentThread().isInterrupted())
+		{
+			m_dataset.put(context, m_file, hash, code, u);
+		}
+	}
+
+	/**
+	 * Merges the finders of both engines into a single set.
+	 * @param visitor_finders The visitor finders
+	 * @param sparql_finders The SPARQL finders
+	 * @return The set of all finders
+	 */
+	protected static Set<TokenFinderFactory> union(Set<VisitorAssertionFinderFactory> visitor_finders, Set<SparqlTokenFinderFactory> sparql_finders)
+	{
+		Set<TokenFinderFactory> all = new HashSet<TokenFinderFactory>(visitor_finders.size() + sparql_finders.size());
+		all.addAll(visitor_finders);
+		all.addAll(sparql_finders);
+		return all;
+	}
+}
@@ -0,0 +1,169 @@
+/*
+    Analysis of assertions in Java programs
+    Copyright (C) 2025 Sylvain Hallé, Sarika Machhindra Kadam
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.piglet.find;
+
+import java.util.Optional;
+
+import com.github.javaparser.Position;
+import com.github.javaparser.Range;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.DataKey;
+import com.github.javaparser.ast.Node;
+
+/**
+ * The original source code of a compilation unit, from which the snippets of
+ * found tokens are extracted. The text is attached to the unit when it is
+ * parsed, and a snippet is only computed for the nodes that are actually
+ * reported, by slicing the source along the node's range. This produces the
+ * same text as lexical preservation, without requiring the parser to keep the
+ * tokens of the whole file.
+ */
+public class SourceText
+{
+	/**
+	 * The key under which the source text is stored in a compilation unit.
+	 */
+	public static final DataKey<SourceText> KEY = new DataKey<SourceText>() {};
+
+	/**
+	 * The source code.
+	 */
+	protected final String m_code;
+
+	/**
+	 * The offset of the first character of each line, computed on the first
+	 * call to {@link #slice(Range)}.
+	 */
+	protected int[] m_lineStarts;
+
+	/**
+	 * Creates a new source text.
+	 * @param code The source code
+	 */
+	public SourceText(String code)
+	{
+		super();
+		m_code = code;
+	}
+
+	/**
+	 * Attaches the source code of a compilation unit to it.
+	 * @param u The compilation unit
+	 * @param code The source code the unit was parsed from
+	 */
+	public static void attach(CompilationUnit u, String code)
+	{
+		u.setData(KEY, new SourceText(code));
+	}
+
+	/**
+	 * Gets the snippet of code corresponding to a node. The snippet is sliced
+	 * from the source text attached to the node's compilation unit; if there is
+	 * none, or if the node has no range, the node is pretty-printed instead.
+	 * @param n The node
+	 * @return The snippet
+	 */
+	public static String snippet(Node n)
+	{
+		Optional<Range> range = n.getRange();
+		if (range.isPresent())
+		{
+			Optional<CompilationUnit> u = n.findCompilationUnit();
+			if (u.isPresent() && u.get().containsData(KEY))
+			{
+				String s = u.get().getData(KEY).slice(range.get());
+				if (s != null)
+				{
+					return s;
+				}
+			}
+		}
+		return n.toString();
+	}
+
+	/**
+	 * Gets the portion of the source text delimited by a range.
+	 * @param r The range, whose end position is inclusive
+	 * @return The text, or <tt>null</tt> if the range lies outside the source
+	 */
+	public String slice(Range r)
+	{
+		int begin = offsetOf(r.begin);
+		int end = offsetOf(r.end);
+		if (begin < 0 || end < 0 || end < begin)
+		{
+			return null;
+		}
+		return m_code.substring(begin, Math.min(end + 1, m_code.length()));
+	}
+
+	/**
+	 * Gets the offset in the source text of a position.
+	 * @param p The position, whose line and column start at 1
+	 * @return The offset, or -1 if the position lies outside the source
+	 */
+	protected synchronized int offsetOf(Position p)
+	{
+		if (m_lineStarts == null)
+		{
+			m_lineStarts = computeLineStarts(m_code);
+		}
+		if (p.line < 1 || p.line > m_lineStarts.length || p.column < 1)
+		{
+			return -1;
+		}
+		int offset = m_lineStarts[p.line - 1] + p.column - 1;
+		return offset < m_code.length() ? offset : -1;
+	}
+
+	/**
+	 * Computes the offset of the first character of each line. Lines may be
+	 * terminated by <tt>\n</tt>, <tt>\r\n</tt> or <tt>\r</tt>, as in the
+	 * parser.
+	 * @param code The source code
+	 * @return The offsets
+	 */
+	protected static int[] computeLineStarts(String code)
+	{
+		int[] starts = new int[16];
+		int count = 0;
+		starts[count++] = 0;
+		for (int i = 0; i < code.length(); i++)
+		{
+			char c = code.charAt(i);
+			if (c == '\r' && i + 1 < code.length() && code.charAt(i + 1) == '\n')
+			{
+				i++;
+			}
+			else if (c != '\r' && c != '\n')
+			{
+				continue;
+			}
+			if (count == starts.length)
+			{
+				int[] bigger = new int[starts.length * 2];
+				System.arraycopy(starts, 0, bigger, 0, count);
+				starts = bigger;
+			}
+			starts[count++] = i + 1;
+		}
+		int[] out = new int[count];
+		System.arraycopy(starts, 0, out, 0, count);
+		return out;
+	}
+}
@@ -77,7 +77,7 @@ public interface TokenFinder extends Printable, Readable
 	 */
 	public default void addToken(Node n)
 	{
-		addToken(n.getBegin().get().line, n.getEnd().get().line, n.toString());
+		addToken(n.getBegin().get().line, n.getEnd().get().line, SourceText.snippet(n));
 	}
 
 	/**
@@ -18,16 +18,22 @@
 package ca.uqac.lif.piglet.find;
 
 import java.io.IOException;
-import java.io.InputStream;
 import java.util.HashSet;
+import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.concurrent.Callable;
 
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParseProblemException;
+import com.github.javaparser.ParserConfiguration;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.Node;
+
 import ca.uqac.lif.fs.FileSystemException;
-import ca.uqac.lif.fs.FileUtils;
 import ca.uqac.lif.piglet.Main;
 import ca.uqac.lif.piglet.find.TokenFinder.TokenFinderException;
 import ca.uqac.lif.piglet.provider.FileSource;
+import ca.uqac.lif.piglet.util.ParseCache;
 import ca.uqac.lif.piglet.util.StatusCallback;
 
 /**
@@ -95,13 +101,11 @@ public abstract class TokenFinderCallable implements Callable<TokenFinderCallabl
 			m_callback.setCurrentProject(m_project);
 		}
 		TokenFinderContext context = Main.CTX.get();
-		InputStream is;
+		long start = System.nanoTime();
 		String code = "";
 		try
 		{
-			is = m_fSource.getStream();
-			code = new String(FileUtils.toBytes(is));
-			is.close();
+			code = m_fSource.readCode();
 		}
 		catch (FileSystemException e)
 		{
@@ -125,13 +129,13 @@ public abstract class TokenFinderCallable implements Callable<TokenFinderCallabl
 			{
 				m_callback.error("Error processing " + m_file + ": " + e.getMessage());
 			}
-			return new CallableFuture(m_file, found);
+			return new CallableFuture(m_file, found, (System.nanoTime() - start) / 1000000);
 		}
 		if (m_callback != null)
 		{
 			m_callback.done();
 		}
-		return new CallableFuture(m_file, found);
+		return new CallableFuture(m_file, found, (System.nanoTime() - start) / 1000000);
 	}
 
 	/**
@@ -144,9 +148,69 @@ public abstract class TokenFinderCallable implements Callable<TokenFinderCallabl
 		return m_file;
 	}
 
+	/**
+	 * Gets the file source from which the callable reads.
+	 * 
+	 * @return The file source
+	 */
+	public FileSource getSource()
+	{
+		return m_fSource;
+	}
+
 	protected abstract void doRun(TokenFinderContext context, String code, Set<FoundToken> found)
 			throws TokenFinderException;
 
+	/**
+	 * Parses the contents of a file and prepares the resulting compilation unit
+	 * for use by the finders. This is the only place where a file is parsed, so
+	 * that all the engines working on the same file can share a single AST.
+	 * If the context has a parse cache, the unit is first looked up in it, and
+	 * a freshly parsed unit is added to it. Lexical preservation is set up by
+	 * the parser itself when its configuration requires it; since units coming
+	 * from the cache carry no tokens, the cache is neither read from nor
+	 * written to in that case, and every unit is parsed from the source. In
+	 * all cases,
+	 * the source code is attached to the unit so that snippets can be
+	 * extracted from it (see {@link SourceText}).
+	 * 
+	 * @param context
+	 *          The thread context providing the parser
+	 * @param code
+	 *          The contents of the file
+	 * @return The compilation unit
+	 * @throws ParseProblemException
+	 *           If the parser reports an error
+	 * @throws NoSuchElementException
+	 *           If the parser produces no compilation unit
+	 */
+	protected static CompilationUnit parse(TokenFinderContext context, String code)
+	{
+		JavaParser parser = context.getParser();
+		ParserConfiguration config = parser.getParserConfiguration();
+		ParseCache cache = config.isLexicalPreservationEnabled() ? null : context.getParseCache();
+		String key = cache == null ? null : ParseCache.getKey(code, config);
+		if (cache != null)
+		{
+			CompilationUnit u = cache.get(key);
+			if (u != null)
+			{
+				// Wire the unit to this thread's symbol resolver
+				config.getSymbolResolver()
+						.ifPresent(r -> u.setData(Node.SYMBOL_RESOLVER_KEY, r));
+				SourceText.attach(u, code);
+				return u;
+			}
+		}
+		CompilationUnit u = parser.parse(code).getResult().get();
+		if (cache != null)
+		{
+			cache.put(key, u);
+		}
+		SourceText.attach(u, code);
+		return u;
+	}
+
 	/**
 	 * The result of a callable.
 	 */
@@ -158,6 +222,9 @@ public abstract class TokenFinderCallable implements Callable<TokenFinderCallabl
 		/** The set of found tokens */
 		protected final Set<FoundToken> m_found;
 
+		/** The time taken to process the file (in milliseconds) */
+		protected final long m_duration;
+
 		/**
 		 * Creates a new callable future.
 		 * 
@@ -165,12 +232,15 @@ public abstract class TokenFinderCallable implements Callable<TokenFinderCallabl
 		 *          The file name
 		 * @param found
 		 *          The set of found tokens
+		 * @param duration
+		 *          The time taken to process the file (in milliseconds)
 		 */
-		CallableFuture(String filename, Set<FoundToken> found)
+		CallableFuture(String filename, Set<FoundToken> found, long duration)
 		{
 			super();
 			m_filename = filename;
 			m_found = found;
+			m_duration = duration;
 		}
 
 		/**
@@ -192,6 +262,16 @@ public abstract class TokenFinderCallable implements Callable<TokenFinderCallabl
 		{
 			return m_found;
 		}
+
+		/**
+		 * Gets the time taken to process the file.
+		 * 
+		 * @return The duration in milliseconds
+		 */
+		public long getDuration()
+		{
+			return m_duration;
+		}
 	}
 
 }
@@ -21,6 +21,8 @@ import com.github.javaparser.JavaParser;
 import com.github.javaparser.symbolsolver.javaparsermodel.JavaParserFacade;
 import com.github.javaparser.symbolsolver.resolution.typesolvers.CombinedTypeSolver;
 
+import ca.uqac.lif.piglet.util.ParseCache;
+
 /**
  * A context specific to a single thread, containing objects that
  * are not thread-safe and need to be duplicated for each thread.
@@ -51,6 +53,12 @@ public final class TokenFinderContext
 	
 	/** The file filter to use */
 	final FileFilter m_filter;
+	
+	/**
+	 * The cache of parsed compilation units, shared by all threads;
+	 * <tt>null</tt> if no such cache is used.
+	 */
+	final ParseCache m_parseCache;
 
 	/**
 	 * Creates a new thread context.
@@ -58,14 +66,31 @@ public final class TokenFinderContext
 	 * @param parser A Java parser instance
 	 * @param facade A Java parser facade
 	 * @param resolutionTimeout A timeout for type resolution operations (in milliseconds)
+	 * @param filter The file filter to use
 	 */
 	public TokenFinderContext(CombinedTypeSolver ts, JavaParser parser, JavaParserFacade facade, long resolutionTimeout, FileFilter filter)
+	{
+		this(ts, parser, facade, resolutionTimeout, filter, null);
+	}
+	
+	/**
+	 * Creates a new thread context.
+	 * @param ts The type solver
+	 * @param parser A Java parser instance
+	 * @param facade A Java parser facade
+	 * @param resolutionTimeout A timeout for type resolution operations (in milliseconds)
+	 * @param filter The file filter to use
+	 * @param cache The cache of parsed compilation units, or <tt>null</tt>
+	 * to parse every file
+	 */
+	public TokenFinderContext(CombinedTypeSolver ts, JavaParser parser, JavaParserFacade facade, long resolutionTimeout, FileFilter filter, ParseCache cache)
 	{
 		this.ts = ts;
 		this.parser = parser;
 		this.facade = facade;
 		m_resolutionTimeout = resolutionTimeout;
 		m_filter = filter;
+		m_parseCache = cache;
 	}
 	
 	/**
@@ -105,4 +130,13 @@ public final class TokenFinderContext
 		return parser;
 	}
 	
+	/**
+	 * Gets the cache of parsed compilation units.
+	 * @return The cache, or <tt>null</tt> if no cache is used
+	 */
+	public ParseCache getParseCache()
+	{
+		return m_parseCache;
+	}
+	
 }
\ No newline at end of file
@@ -130,6 +130,34 @@ public abstract class TokenFinderFactory
 	 */
 	public abstract TokenFinder newFinder();
 
+	/**
+	 * Determines whether the finders created by this factory need the comments
+	 * of a file to be attributed to the nodes of its AST. When no active finder
+	 * needs them, the parser can skip this step. The default is to assume
+	 * they do.
+	 * 
+	 * @return <tt>true</tt> if comments are needed, <tt>false</tt> otherwise
+	 */
+	public boolean needsComments()
+	{
+		return true;
+	}
+
+	/**
+	 * Determines whether the finders created by this factory need the exact
+	 * source text of the nodes they inspect, which requires the parser to set
+	 * up lexical preservation. This is not
+	 * needed for the snippets of found tokens, which are sliced from the source
+	 * code (see {@link SourceText}). The default is to assume they do.
+	 * 
+	 * @return <tt>true</tt> if the source text is needed, <tt>false</tt>
+	 *         otherwise
+	 */
+	public boolean needsSourceText()
+	{
+		return true;
+	}
+
 	/**
 	 * Reads a token finder from a cache file.
 	 * 
@@ -0,0 +1,422 @@
+/*
+    Analysis of assertions in Java programs
+    Copyright (C) 2025 Sylvain Hallé, Sarika Machhindra Kadam
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.piglet.find.sparql;
+
+import static ca.uqac.lif.piglet.find.sparql.Vocabulary.IN;
+import static ca.uqac.lif.piglet.find.sparql.Vocabulary.NEXT;
+import static ca.uqac.lif.piglet.find.sparql.Vocabulary.NODETYPE;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import org.apache.jena.atlas.iterator.Iter;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.graph.impl.GraphBase;
+import org.apache.jena.util.iterator.ExtendedIterator;
+import org.apache.jena.util.iterator.NullIterator;
+import org.apache.jena.util.iterator.WrappedIterator;
+
+import com.github.javaparser.ast.Node;
+
+import ca.uqac.lif.piglet.find.TokenFinderContext;
+import ca.uqac.lif.piglet.find.sparql.AstToRdfVisitor.Exploration;
+
+/**
+ * A read-only RDF graph whose triples are computed from the AST of a file
+ * when a query asks for them, instead of being stored. The graph has the
+ * same triples as the model built by {@link JavaAstToRdfVisitor} without
+ * following method calls, up to the IRIs given to the AST nodes and the
+ * labels of blank nodes.
+ * <p>
+ * The only thing built beforehand is the index of the AST nodes that the
+ * translation turns into RDF nodes, which gives them their IRI. The triples
+ * of a node are obtained by running the handler of the node in
+ * {@link JavaAstToRdfVisitor} on this node alone (see
+ * {@link AstToRdfVisitor#visitOnly(Node, List) visitOnly()}), and by adding
+ * the triples the translation would produce when descending to its children
+ * and to the sub-trees explored by its handler. The translation of a file
+ * therefore remains defined in a single place. Every triple is produced by
+ * exactly one AST node, its <em>owner</em>:
+ * <ul>
+ * <li>the triples whose subject is the node or one of the blank nodes its
+ * handler creates;</li>
+ * <li>the triples that link the node to the roots of its sub-trees, which
+ * include the <tt>:next</tt> triples between the statements of a block,
+ * owned by the block.</li>
+ * </ul>
+ * The triples whose object is an AST node are thus owned by the closest
+ * ancestor of that node that is itself translated. A triple pattern with a
+ * given subject or object only computes the triples of one or two owners;
+ * the triples of the most recently used owners are kept in a small cache,
+ * since a query typically matches several patterns on the same node in a
+ * row. A pattern giving the node type of its subject enumerates the nodes of
+ * that type from the index, and any other pattern goes through the owners
+ * one by one.
+ * <p>
+ * Like the models it stands for, a graph is used by a single thread.
+ */
+public class AstGraph extends GraphBase
+{
+	/** The number of owners whose triples are kept in the cache */
+	protected static final int CACHE_SIZE = 64;
+
+	/** The index of the AST nodes of the file */
+	protected final LazyNodeIndex<Node,String> m_index;
+
+	/** The ID of the file in the index */
+	protected final int m_file;
+
+	/** The visitor computing the triples of a single node */
+	protected final Describer m_describer;
+
+	/** The triples of the most recently used owners, by node ID */
+	protected final Map<Integer,List<Triple>> m_cache = new LinkedHashMap<Integer,List<Triple>>(CACHE_SIZE * 2, 0.75f, true)
+	{
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Integer,List<Triple>> eldest)
+		{
+			return size() > CACHE_SIZE;
+		}
+	};
+
+	/**
+	 * Creates a graph over the AST nodes of a file.
+	 * @param index The index of the AST nodes, built by a translation of the
+	 * file that does not follow method calls
+	 * @param context The context in which the token finder operates
+	 * @param filename The name of the file
+	 */
+	public AstGraph(LazyNodeIndex<Node,String> index, TokenFinderContext context, String filename)
+	{
+		super();
+		m_index = index;
+		m_file = index.getFileCount() == 0 ? -1 : 0;
+		m_describer = new Describer(context, filename);
+	}
+
+	@Override
+	protected ExtendedIterator<Triple> graphBaseFind(Triple t)
+	{
+		if (m_file < 0)
+		{
+			return NullIterator.instance();
+		}
+		org.apache.jena.graph.Node s = t.getSubject(), p = t.getPredicate(), o = t.getObject();
+		if (s.isConcrete())
+		{
+			int owner = ownerOf(s);
+			if (owner < 0)
+			{
+				return NullIterator.instance();
+			}
+			List<Triple> out = select(triplesOf(owner), t);
+			// The only triples whose subject is an AST node but that another node
+			// owns are the links between the statements of a block
+			if (s.isURI() && (!p.isConcrete() || p.equals(NEXT)))
+			{
+				int parent = parentOf(owner);
+				if (parent >= 0)
+				{
+					out.addAll(select(triplesOf(parent), t));
+				}
+			}
+			return WrappedIterator.create(out.iterator());
+		}
+		if (o.isURI() || o.isBlank())
+		{
+			int target = ownerOf(o);
+			int owner = target < 0 || o.isBlank() ? target : parentOf(target);
+			if (owner < 0)
+			{
+				return NullIterator.instance();
+			}
+			return WrappedIterator.create(select(triplesOf(owner), t).iterator());
+		}
+		if (NODETYPE.equals(p) && o.isLiteral())
+		{
+			List<Triple> out = new ArrayList<Triple>();
+			for (Class<?> kind : m_index.getKinds(m_file))
+			{
+				if (Vocabulary.nodeType(kind).equals(o))
+				{
+					for (int id : m_index.getNodes(m_file, kind))
+					{
+						out.add(Triple.create(iriOf(id), NODETYPE, o));
+					}
+				}
+			}
+			if (!out.isEmpty())
+			{
+				return WrappedIterator.create(out.iterator());
+			}
+			// The literal may be the type of a blank node
+		}
+		Iterator<Triple> all = Iter.flatMap(IntStream.range(0, m_index.getNodeCount(m_file)).iterator(), id -> select(triplesOf(id), t).iterator());
+		return WrappedIterator.create(all);
+	}
+
+	/**
+	 * Gets the triples owned by an AST node, computing them if they are not
+	 * in the cache.
+	 * @param id The ID of the node
+	 * @return The triples
+	 */
+	protected List<Triple> triplesOf(int id)
+	{
+		List<Triple> triples = m_cache.get(id);
+		if (triples == null)
+		{
+			triples = describe(id);
+			m_cache.put(id, triples);
+		}
+		return triples;
+	}
+
+	/**
+	 * Computes the triples owned by an AST node.
+	 * @param id The ID of the node
+	 * @return The triples
+	 */
+	protected List<Triple> describe(int id)
+	{
+		Node n = m_index.get(m_file, id);
+		List<Exploration> explorations = new ArrayList<Exploration>();
+		boolean children = m_describer.describe(n, id, explorations);
+		Set<Triple> out = new LinkedHashSet<Triple>();
+		m_describer.getGraph().find().forEachRemaining(out::add);
+		m_describer.getGraph().clear();
+		org.apache.jena.graph.Node self = iriOf(id);
+		if (children)
+		{
+			for (Node child : n.getChildNodes())
+			{
+				link(self, child, out);
+			}
+		}
+		for (Exploration e : explorations)
+		{
+			if (e.m_parent != null)
+			{
+				link(e.m_parent, e.m_node, out);
+			}
+			org.apache.jena.graph.Node subject = e.m_previous != null ? rootOf(e.m_previous) : e.m_subject;
+			org.apache.jena.graph.Node root = rootOf(e);
+			if (subject != null && root != null)
+			{
+				out.add(Triple.create(subject, e.m_predicate, root));
+			}
+		}
+		return new ArrayList<Triple>(out);
+	}
+
+	/**
+	 * Adds the triples linking an RDF node to the topmost translated nodes of
+	 * a sub-tree, that is, the sub-tree itself if its root is translated, or
+	 * else the topmost translated nodes of each of its children.
+	 * @param parent The RDF node
+	 * @param n The root of the sub-tree
+	 * @param out The set to which the triples are added
+	 */
+	protected void link(org.apache.jena.graph.Node parent, Node n, Set<Triple> out)
+	{
+		String iri = m_index.getIri(n);
+		if (iri != null)
+		{
+			out.add(Triple.create(parent, IN, NodeFactory.createURI(iri)));
+			return;
+		}
+		for (Node child : n.getChildNodes())
+		{
+			link(parent, child, out);
+		}
+	}
+
+	/**
+	 * Gets the root of the translation of an explored sub-tree: the parent
+	 * given to the exploration, if any, or else the first translated node of
+	 * the sub-tree.
+	 * @param e The exploration
+	 * @return The root, or <tt>null</tt> if the sub-tree has no translated node
+	 */
+	protected org.apache.jena.graph.Node rootOf(Exploration e)
+	{
+		if (e.m_parent != null)
+		{
+			return e.m_parent;
+		}
+		Node first = firstTranslated(e.m_node);
+		return first == null ? null : NodeFactory.createURI(m_index.getIri(first));
+	}
+
+	/**
+	 * Finds the first translated node of a sub-tree, in the order of the
+	 * translation.
+	 * @param n The root of the sub-tree
+	 * @return The node, or <tt>null</tt> if the sub-tree has no translated node
+	 */
+	protected Node firstTranslated(Node n)
+	{
+		if (m_index.getIri(n) != null)
+		{
+			return n;
+		}
+		for (Node child : n.getChildNodes())
+		{
+			Node first = firstTranslated(child);
+			if (first != null)
+			{
+				return first;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Gets the AST node that owns an RDF node: the AST node itself, or the AST
+	 * node whose handler created a blank node.
+	 * @param n The RDF node
+	 * @return The ID of the owner, or -1 if the RDF node is not in this graph
+	 */
+	protected int ownerOf(org.apache.jena.graph.Node n)
+	{
+		int id = -1;
+		if (n.isURI())
+		{
+			if (AstIds.fileOf(n.getURI()) == m_file)
+			{
+				id = AstIds.nodeOf(n.getURI());
+			}
+		}
+		else if (n.isBlank())
+		{
+			String label = n.getBlankNodeLabel();
+			int pos = label.indexOf('.');
+			id = pos < 0 ? -1 : AstIds.parse(label, 0, pos);
+		}
+		return id < m_index.getNodeCount(m_file) ? id : -1;
+	}
+
+	/**
+	 * Gets the closest ancestor of an AST node that is translated, which owns
+	 * the triples whose object is that node.
+	 * @param id The ID of the node
+	 * @return The ID of the ancestor, or -1 if the node is the root
+	 */
+	protected int parentOf(int id)
+	{
+		Node n = m_index.get(m_file, id).getParentNode().orElse(null);
+		while (n != null)
+		{
+			String iri = m_index.getIri(n);
+			if (iri != null)
+			{
+				return AstIds.nodeOf(iri);
+			}
+			n = n.getParentNode().orElse(null);
+		}
+		return -1;
+	}
+
+	/**
+	 * Gets the RDF node of an AST node.
+	 * @param id The ID of the node
+	 * @return The RDF node
+	 */
+	protected org.apache.jena.graph.Node iriOf(int id)
+	{
+		return NodeFactory.createURI(AstIds.iriFor(m_file, id));
+	}
+
+	/**
+	 * Keeps the triples matching a pattern.
+	 * @param triples The triples
+	 * @param pattern The pattern
+	 * @return A new list with the matching triples
+	 */
+	protected static List<Triple> select(List<Triple> triples, Triple pattern)
+	{
+		List<Triple> out = new ArrayList<Triple>();
+		for (Triple t : triples)
+		{
+			if (pattern.matches(t))
+			{
+				out.add(t);
+			}
+		}
+		return out;
+	}
+
+	/**
+	 * The visitor computing the triples of a single node. It takes the IRIs of
+	 * the nodes from the index of the graph, and names the blank nodes created
+	 * by the handler of a node after this node, so that they are the same
+	 * every time its triples are computed.
+	 */
+	protected class Describer extends JavaAstToRdfVisitor
+	{
+		/** The ID of the node being described */
+		protected int m_owner;
+
+		/** The number of blank nodes created for this node so far */
+		protected int m_blanks;
+
+		public Describer(TokenFinderContext context, String filename)
+		{
+			super(0, context, filename);
+		}
+
+		/**
+		 * Computes the triples produced by the visit of a node, which are put
+		 * in the graph of this visitor.
+		 * @param n The node
+		 * @param id The ID of the node
+		 * @param explorations A list to which the explorations requested by
+		 * the handler of the node are added
+		 * @return <tt>true</tt> if the translation would go on with the
+		 * children of the node
+		 */
+		public boolean describe(Node n, int id, List<Exploration> explorations)
+		{
+			m_owner = id;
+			m_blanks = 0;
+			return visitOnly(n, explorations);
+		}
+
+		@Override
+		protected String register(Node n)
+		{
+			// The index of the graph, not the one of the visitor
+			return AstGraph.this.m_index.getIri(n);
+		}
+
+		@Override
+		protected org.apache.jena.graph.Node blank()
+		{
+			return NodeFactory.createBlankNode(m_owner + "." + m_blanks++);
+		}
+	}
+}
@@ -1,55 +1,90 @@
 package ca.uqac.lif.piglet.find.sparql;
 
-import com.github.javaparser.ast.Node;
-
 /**
- * Utility class to generate stable IRIs for AST nodes.
- * The IRIs are based on a hash of the filename, the node's range, and its kind.
+ * Utility class to generate IRIs for AST nodes.
+ * Each node of a model is identified by the number of the file it comes from
+ * and by its number within that file, both assigned densely from 0 by a
+ * {@link LazyNodeIndex}. The IRI of a node is therefore cheap to build, and
+ * can be turned back into the position of the node in the index without any
+ * lookup.
  */
 class AstIds
 {
 	/** Namespace for AST node IRIs */
 	public static final String NS = "urn:ast:";
 
+	/** The separator between the file ID and the node ID */
+	protected static final char SEPARATOR = ':';
+
+	/**
+	 * Generates the IRI of an AST node.
+	 *
+	 * @param file The ID of the file containing the node
+	 * @param node The ID of the node within its file
+	 * @return The IRI
+	 */
+	public static String iriFor(int file, int node)
+	{
+		return NS + file + SEPARATOR + node;
+	}
+
+	/**
+	 * Gets the file ID contained in an IRI.
+	 *
+	 * @param iri The IRI
+	 * @return The file ID, or -1 if the string is not the IRI of an AST node
+	 */
+	public static int fileOf(String iri)
+	{
+		if (!iri.startsWith(NS))
+		{
+			return -1;
+		}
+		int sep = iri.indexOf(SEPARATOR, NS.length());
+		return sep < 0 ? -1 : parse(iri, NS.length(), sep);
+	}
+
 	/**
-	 * Generates a stable IRI for a given AST node.
-	 * The IRI is based on a hash of the filename, the node's range, and its kind.
-	 * 
-	 * @param filename The name of the file containing the AST node
-	 * @param n The AST node
-	 * @return A stable IRI for the AST node
+	 * Gets the node ID contained in an IRI.
+	 *
+	 * @param iri The IRI
+	 * @return The node ID, or -1 if the string is not the IRI of an AST node
 	 */
-	public static String iriFor(String filename, Node n)
+	public static int nodeOf(String iri)
 	{
-		String range = n.getRange()
-				.map(r -> r.begin.line + "." + r.begin.column + "-" + r.end.line + "." + r.end.column)
-				.orElse("no-range");
-		String kind = n.getClass().getSimpleName();
-		String payload = filename + "#" + range + "#" + kind;
-		String hash = sha1Hex(payload).substring(0, 16);
-		return NS + hash;
+		if (!iri.startsWith(NS))
+		{
+			return -1;
+		}
+		int sep = iri.indexOf(SEPARATOR, NS.length());
+		return sep < 0 ? -1 : parse(iri, sep + 1, iri.length());
 	}
 
 	/**
-	 * Computes the SHA-1 hash of a string and returns it as a hexadecimal string.
-	 * 
-	 * @param s The input string
-	 * @return The SHA-1 hash as a hexadecimal string
+	 * Parses a non-negative decimal integer in a portion of a string.
+	 *
+	 * @param s The string
+	 * @param from The index of the first digit
+	 * @param to The index after the last digit
+	 * @return The integer, or -1 if the portion is empty, contains something
+	 * else than digits or overflows
 	 */
-	public static String sha1Hex(String s)
+	protected static int parse(String s, int from, int to)
 	{
-		try
+		if (from >= to || to - from > 9)
 		{
-			var md = java.security.MessageDigest.getInstance("SHA-1");
-			var b = md.digest(s.getBytes(java.nio.charset.StandardCharsets.UTF_8));
-			var sb = new StringBuilder();
-			for (byte x : b)
-				sb.append(String.format("%02x", x));
-			return sb.toString();
+			return -1;
 		}
-		catch (Exception e)
+		int value = 0;
+		for (int i = from; i < to; i++)
 		{
-			throw new RuntimeException(e);
+			char c = s.charAt(i);
+			if (c < '0' || c > '9')
+			{
+				return -1;
+			}
+			value = value * 10 + (c - '0');
 		}
+		return value;
 	}
 }
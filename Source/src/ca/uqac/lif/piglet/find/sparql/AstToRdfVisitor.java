@@ -1,15 +1,23 @@
 package ca.uqac.lif.piglet.find.sparql;
 
+import static ca.uqac.lif.piglet.find.sparql.Vocabulary.ANNOTATIONS;
+import static ca.uqac.lif.piglet.find.sparql.Vocabulary.IN;
+import static ca.uqac.lif.piglet.find.sparql.Vocabulary.JAVADOC;
+import static ca.uqac.lif.piglet.find.sparql.Vocabulary.MODIFIERS;
+import static ca.uqac.lif.piglet.find.sparql.Vocabulary.NAME;
+import static ca.uqac.lif.piglet.find.sparql.Vocabulary.NODETYPE;
+import static ca.uqac.lif.piglet.find.sparql.Vocabulary.TYPE;
+
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
-import java.util.Stack;
 
-import org.apache.jena.rdf.model.Literal;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.GraphMemFactory;
+import org.apache.jena.graph.NodeFactory;
 import org.apache.jena.rdf.model.Model;
 import org.apache.jena.rdf.model.ModelFactory;
-import org.apache.jena.rdf.model.Property;
-import org.apache.jena.rdf.model.Resource;
-import org.apache.jena.rdf.model.ResourceFactory;
 
 import com.github.javaparser.ast.ArrayCreationLevel;
 import com.github.javaparser.ast.CompilationUnit;
@@ -125,93 +133,389 @@ import ca.uqac.lif.piglet.find.TokenFinderContext;
 import ca.uqac.lif.piglet.find.visitor.PushPopVisitableNode;
 import ca.uqac.lif.piglet.find.visitor.PushPopVisitor;
 
+/**
+ * Translates a Java AST into an RDF graph. The translation is a single
+ * traversal of the AST, driven by {@link #translate(Node) translate()} with
+ * an explicit stack of pending operations rather than by recursion. When the
+ * handler of a node needs the RDF node of one of its sub-trees (for example,
+ * the condition of an <tt>if</tt>), it does not visit the sub-tree right away
+ * but calls one of the <tt>explore()</tt> methods; the sub-tree is then
+ * translated by the same visitor, right after the node itself, and the
+ * triple linking the node to the root of the sub-tree is added once the
+ * sub-tree is done. The visitor must therefore be run through
+ * {@link #translate(Node) translate()}, and not by a
+ * {@link PushPopVisitableNode}.
+ */
 public abstract class AstToRdfVisitor implements PushPopVisitor
 {
-	public static final Property ANNOTATIONS = ResourceFactory.createProperty(ModelBuilder.NS, "annotations");
-	
-	public static final Property NAME = ResourceFactory.createProperty(ModelBuilder.NS, "name");
-	
-	public static final Property IN = ResourceFactory.createProperty(ModelBuilder.NS, "in");
+	/** Operation on the work stack: visit a node and schedule its children */
+	private static final int ENTER = 0;
 
-	public static final Property NODETYPE = ResourceFactory.createProperty(ModelBuilder.NS,	"nodetype");
+	/** Operation on the work stack: leave a node */
+	private static final int LEAVE = 1;
 
-	public static final Property JAVADOC = ResourceFactory.createProperty(ModelBuilder.NS, "javadoc");
-	
-	public static final Property TYPE = ResourceFactory.createProperty(ModelBuilder.NS, "type");
-	
-	public static final Property MODIFIERS = ResourceFactory.createProperty(ModelBuilder.NS, "modifiers");
+	/** Operation on the work stack: start the exploration of a sub-tree */
+	private static final int BEGIN = 2;
+
+	/** Operation on the work stack: end the exploration of a sub-tree */
+	private static final int END = 3;
 
 	/** An index of AST nodes to RDF resources */
 	protected final LazyNodeIndex<Node, String> m_index;
 
-	/** The RDF model being built */
-	protected final Model m_model;
+	/** The RDF graph being built */
+	protected final Graph m_graph;
+
+	/**
+	 * A stack of parent RDF nodes. The elements below {@link #m_base} belong to
+	 * the explorations that enclose the current one.
+	 */
+	private org.apache.jena.graph.Node[] m_parents = new org.apache.jena.graph.Node[32];
+
+	/** The number of elements in {@link #m_parents} */
+	private int m_depth = 0;
+
+	/** The size of the parent stack when the current exploration started */
+	private int m_base = 0;
+
+	/** The operations still to perform */
+	private int[] m_ops = new int[64];
+
+	/** The argument of each operation: an AST node or an exploration */
+	private Object[] m_args = new Object[64];
 
-	/** A stack of parent RDF resources */
-	protected final Stack<Resource> m_parents = new Stack<>();
+	/** The number of operations in the work stack */
+	private int m_work = 0;
+
+	/** The explorations requested by the handler of the current node */
+	private final List<Exploration> m_pending = new ArrayList<Exploration>();
 
 	/** The root of the AST in RDF */
-	protected Resource m_root = null;
+	protected org.apache.jena.graph.Node m_root = null;
 
 	/** Whether the visitor should stop */
 	protected boolean m_shouldStop = false;
 
 	/** How many levels of class declarations to follow */
-	protected final int m_follow;
+	protected int m_follow;
 
 	/** The context in which the token finder operates */
 	protected final TokenFinderContext m_context;
 
 	/** The name of the file being processed */
-	protected final String m_filename;
+	protected String m_filename;
+
+	/** The part of the model that the queries can observe */
+	protected final QueryFootprint m_footprint;
 
 	/**
-	 * Creates a new visitor.
+	 * Creates a new visitor that produces the whole model.
 	 */
 	public AstToRdfVisitor(int follow, TokenFinderContext context, String filename)
+	{
+		this(follow, context, filename, QueryFootprint.ALL);
+	}
+
+	/**
+	 * Creates a new visitor that only produces the part of the model that a
+	 * set of queries can observe.
+	 * 
+	 * @param follow
+	 *          How many levels of class declarations to follow
+	 * @param context
+	 *          The context in which the token finder operates
+	 * @param filename
+	 *          The name of the file being processed
+	 * @param footprint
+	 *          The footprint of the queries
+	 */
+	public AstToRdfVisitor(int follow, TokenFinderContext context, String filename, QueryFootprint footprint)
 	{
 		super();
+		m_footprint = footprint;
 		m_follow = follow;
 		m_index = new JavaAstNodeIndex();
-		m_model = ModelFactory.createDefaultModel();
+		// A graph only ever holds the triples of a single file and is used by a
+		// single thread, which suits the fastest in-memory implementation
+		m_graph = GraphMemFactory.createGraphMem2();
 		m_context = context;
 		m_filename = filename;
 	}
 
-	protected AstToRdfVisitor(Model m, LazyNodeIndex<Node, String> index, Resource parent, int follow,
-			TokenFinderContext context, String filename)
+	/**
+	 * Translates an AST into RDF triples, which are added to the graph of
+	 * this visitor.
+	 * 
+	 * @param root
+	 *          The root of the AST
+	 */
+	public void translate(Node root)
 	{
-		super();
-		m_context = context;
-		m_follow = follow;
-		m_index = index;
-		m_model = m;
-		if (parent != null)
+		push(ENTER, root);
+		while (m_work > 0)
 		{
-			m_parents.push(parent);
-			m_root = parent;
+			m_work--;
+			int op = m_ops[m_work];
+			Object arg = m_args[m_work];
+			m_args[m_work] = null;
+			switch (op)
+			{
+			case ENTER:
+				enter((Node) arg);
+				break;
+			case LEAVE:
+				PushPopVisitableNode.leaveWithType((Node) arg, this);
+				break;
+			case BEGIN:
+				begin((Exploration) arg);
+				break;
+			default:
+				end((Exploration) arg);
+				break;
+			}
 		}
-		m_filename = filename;
 	}
 
 	/**
-	 * Creates a new visitor.
+	 * Visits a node and schedules the operations that follow: the
+	 * explorations requested by its handler, then its children unless the
+	 * handler stopped the visit, and finally leaving the node.
 	 * 
-	 * @param m
-	 *          The RDF model to populate
-	 * @param index
-	 *          The index of AST nodes to RDF resources
+	 * @param n
+	 *          The node
+	 */
+	private void enter(Node n)
+	{
+		if (!m_footprint.translates(n.getClass()))
+		{
+			// No query can match this node: only look for matching nodes below it
+			pushChildren(n);
+			return;
+		}
+		PushPopVisitableNode.visitWithType(n, this);
+		boolean stopped = m_shouldStop;
+		m_shouldStop = false;
+		push(LEAVE, n);
+		if (!stopped)
+		{
+			pushChildren(n);
+		}
+		for (int i = m_pending.size() - 1; i >= 0; i--)
+		{
+			Exploration e = m_pending.get(i);
+			push(END, e);
+			push(ENTER, e.m_node);
+			push(BEGIN, e);
+		}
+		m_pending.clear();
+	}
+
+	/**
+	 * Schedules the visit of the children of a node, in their order.
+	 * 
+	 * @param n
+	 *          The node
+	 */
+	private void pushChildren(Node n)
+	{
+		List<Node> children = n.getChildNodes();
+		for (int i = children.size() - 1; i >= 0; i--)
+		{
+			push(ENTER, children.get(i));
+		}
+	}
+
+	/**
+	 * Starts the exploration of a sub-tree. The state of the enclosing
+	 * exploration is saved, and the sub-tree starts with an empty stack of
+	 * parents, or with only the parent given to the exploration.
+	 * 
+	 * @param e
+	 *          The exploration
+	 */
+	private void begin(Exploration e)
+	{
+		e.m_outerRoot = m_root;
+		e.m_outerFollow = m_follow;
+		e.m_outerFilename = m_filename;
+		e.m_outerBase = m_base;
+		m_base = m_depth;
+		m_follow = e.m_follow;
+		m_filename = e.m_filename;
+		m_root = e.m_parent;
+		if (e.m_parent != null)
+		{
+			pushParent(e.m_parent);
+		}
+		m_shouldStop = false;
+	}
+
+	/**
+	 * Ends the exploration of a sub-tree, restores the state of the enclosing
+	 * exploration and links the root of the sub-tree to its subject, if any.
+	 * 
+	 * @param e
+	 *          The exploration
+	 */
+	private void end(Exploration e)
+	{
+		e.m_root = m_root;
+		while (m_depth > m_base)
+		{
+			m_parents[--m_depth] = null;
+		}
+		m_base = e.m_outerBase;
+		m_follow = e.m_outerFollow;
+		m_filename = e.m_outerFilename;
+		m_root = e.m_outerRoot;
+		if (e.m_previous != null)
+		{
+			add(e.m_previous.m_root, e.m_predicate, e.m_root);
+		}
+		else if (e.m_subject != null)
+		{
+			add(e.m_subject, e.m_predicate, e.m_root);
+		}
+	}
+
+	/**
+	 * Pushes an operation on the work stack.
+	 * 
+	 * @param op
+	 *          The operation
+	 * @param arg
+	 *          Its argument
+	 */
+	private void push(int op, Object arg)
+	{
+		if (m_work == m_ops.length)
+		{
+			m_ops = Arrays.copyOf(m_ops, m_work * 2);
+			m_args = Arrays.copyOf(m_args, m_work * 2);
+		}
+		m_ops[m_work] = op;
+		m_args[m_work] = arg;
+		m_work++;
+	}
+
+	/**
+	 * Visits a single node as the translation would, but translates neither
+	 * its children nor the sub-trees requested by its handler. The stack of
+	 * parents is empty during the visit, so that the triple linking the node
+	 * to its parent is not produced either.
+	 * 
+	 * @param n
+	 *          The node
+	 * @param explorations
+	 *          A list to which the explorations requested by the handler of
+	 *          the node are added
+	 * @return <tt>true</tt> if the translation would go on with the children
+	 *         of the node, <tt>false</tt> if its handler stopped it
+	 */
+	protected final boolean visitOnly(Node n, List<Exploration> explorations)
+	{
+		m_root = null;
+		PushPopVisitableNode.visitWithType(n, this);
+		boolean stopped = m_shouldStop;
+		m_shouldStop = false;
+		while (m_depth > 0)
+		{
+			m_parents[--m_depth] = null;
+		}
+		m_base = 0;
+		explorations.addAll(m_pending);
+		m_pending.clear();
+		return !stopped;
+	}
+
+	/**
+	 * Requests the translation of a sub-tree, whose root is then linked to a
+	 * subject.
+	 * 
+	 * @param n
+	 *          The root of the sub-tree
+	 * @param subject
+	 *          The subject of the triple linking to the sub-tree
+	 * @param predicate
+	 *          The predicate of the triple linking to the sub-tree
+	 * @return The exploration
+	 */
+	protected final Exploration explore(Node n, org.apache.jena.graph.Node subject, org.apache.jena.graph.Node predicate)
+	{
+		return explore(n, null, m_follow, m_filename, subject, predicate);
+	}
+
+	/**
+	 * Requests the translation of a sub-tree, whose root is then linked to the
+	 * root of a previous sub-tree.
+	 * 
+	 * @param n
+	 *          The root of the sub-tree
+	 * @param previous
+	 *          The exploration of the previous sub-tree, which must have been
+	 *          requested before this one
+	 * @param predicate
+	 *          The predicate of the triple linking to the sub-tree
+	 * @return The exploration
+	 */
+	protected final Exploration explore(Node n, Exploration previous, org.apache.jena.graph.Node predicate)
+	{
+		Exploration e = explore(n, null, m_follow, m_filename, null, predicate);
+		e.m_previous = previous;
+		return e;
+	}
+
+	/**
+	 * Requests the translation of a sub-tree.
+	 * 
+	 * @param n
+	 *          The root of the sub-tree
+	 * @param parent
+	 *          The RDF node to use as the parent of the sub-tree, and as its
+	 *          root; <tt>null</tt> to use the RDF node of <tt>n</tt> as the root
 	 * @param follow
-	 *          How many levels of class declarations to follow
-	 * @param context
-	 *          The context in which the token finder operates
+	 *          How many levels of class declarations to follow in the sub-tree
 	 * @param filename
-	 *          The name of the file being processed
+	 *          The name of the file containing the sub-tree
+	 * @param subject
+	 *          The subject of the triple linking to the sub-tree, or
+	 *          <tt>null</tt> to add no triple
+	 * @param predicate
+	 *          The predicate of the triple linking to the sub-tree
+	 * @return The exploration
+	 */
+	protected final Exploration explore(Node n, org.apache.jena.graph.Node parent, int follow, String filename,
+			org.apache.jena.graph.Node subject, org.apache.jena.graph.Node predicate)
+	{
+		Exploration e = new Exploration(n, parent, follow, filename, subject, predicate);
+		m_pending.add(e);
+		return e;
+	}
+
+	/**
+	 * Pushes an RDF node on the stack of parents.
+	 * 
+	 * @param n
+	 *          The node
+	 */
+	private void pushParent(org.apache.jena.graph.Node n)
+	{
+		if (m_depth == m_parents.length)
+		{
+			m_parents = Arrays.copyOf(m_parents, m_depth * 2);
+		}
+		m_parents[m_depth++] = n;
+	}
+
+	/**
+	 * Gets the RDF node at the top of the stack of parents.
+	 * 
+	 * @return The node, or <tt>null</tt> if the stack of the current
+	 *         exploration is empty
 	 */
-	protected AstToRdfVisitor(Model m, LazyNodeIndex<Node, String> index, int follow,
-			TokenFinderContext context, String filename)
+	protected final org.apache.jena.graph.Node peekParent()
 	{
-		this(m, index, null, follow, context, filename);
+		return m_depth > m_base ? m_parents[m_depth - 1] : null;
 	}
 
 	/**
@@ -225,13 +529,79 @@ public abstract class AstToRdfVisitor implements PushPopVisitor
 	}
 
 	/**
-	 * Gets the RDF model being built.
+	 * Gets the RDF graph being built.
+	 * 
+	 * @return The RDF graph
+	 */
+	public Graph getGraph()
+	{
+		return m_graph;
+	}
+
+	/**
+	 * Gets the RDF model being built. The model is a view over the graph
+	 * returned by {@link #getGraph()}.
 	 * 
 	 * @return The RDF model
 	 */
 	public Model getModel()
 	{
-		return m_model;
+		return ModelFactory.createModelForGraph(m_graph);
+	}
+
+	/**
+	 * Adds a triple to the graph being built, unless no query can observe its
+	 * predicate.
+	 * 
+	 * @param s
+	 *          The subject
+	 * @param p
+	 *          The predicate
+	 * @param o
+	 *          The object
+	 */
+	protected final void add(org.apache.jena.graph.Node s, org.apache.jena.graph.Node p, org.apache.jena.graph.Node o)
+	{
+		if (m_footprint.emits(p))
+		{
+			m_graph.add(s, p, o);
+		}
+	}
+
+	/**
+	 * Gives an IRI to an AST node about to be translated.
+	 * 
+	 * @param n
+	 *          The node
+	 * @return The IRI, or <tt>null</tt> if the node has already been
+	 *         translated with as many levels of method calls left to follow
+	 */
+	protected String register(Node n)
+	{
+		return m_index.add(m_filename, n, m_follow);
+	}
+
+	/**
+	 * Creates a blank node, for the RDF nodes that do not stand for an AST
+	 * node.
+	 * 
+	 * @return The blank node
+	 */
+	protected org.apache.jena.graph.Node blank()
+	{
+		return NodeFactory.createBlankNode();
+	}
+
+	/**
+	 * Creates a string literal.
+	 * 
+	 * @param s
+	 *          The value of the literal
+	 * @return The literal
+	 */
+	protected static org.apache.jena.graph.Node literal(String s)
+	{
+		return NodeFactory.createLiteralString(s);
 	}
 
 	@Override
@@ -1657,29 +2027,25 @@ public abstract class AstToRdfVisitor implements PushPopVisitor
 
 	protected boolean genericVisit(Node n)
 	{
-		String iri = AstIds.iriFor(m_filename, n);
-		if (m_index.containsIri(iri))
+		String iri = register(n);
+		if (iri == null)
 		{
 			// Node already visited
 			return false;
 		}
-		Resource rdf_node = m_model.createResource(iri);
-		Resource rdf_parent = m_parents.isEmpty() ? null : m_parents.peek();
+		org.apache.jena.graph.Node rdf_node = NodeFactory.createURI(iri);
+		org.apache.jena.graph.Node rdf_parent = peekParent();
 		// If this is the first node, set it as root
 		if (m_root == null)
 		{
 			m_root = rdf_parent != null ? rdf_parent : rdf_node;
 		}
-		m_parents.push(rdf_node);
-		m_index.put(iri, n);
+		pushParent(rdf_node);
 		if (rdf_parent != null)
 		{
-			m_model.add(rdf_parent, IN, rdf_node);
-		}
-		{
-			Literal namenode = m_model.createLiteral(n.getClass().getSimpleName());
-			m_model.add(rdf_node, NODETYPE, namenode);
+			add(rdf_parent, IN, rdf_node);
 		}
+		add(rdf_node, NODETYPE, Vocabulary.nodeType(n.getClass()));
 		handleJavadoc(n);
 		handleAnnotations(n);
 		handleModifiers(n);
@@ -1690,17 +2056,17 @@ public abstract class AstToRdfVisitor implements PushPopVisitor
 
 	protected void genericleave(Node n)
 	{
-		if (m_parents.isEmpty())
+		if (m_depth == m_base)
 		{
 			// This is possible in the case genericVisit
 			// returns false (and thus we do not push anything
 			// onto the stack)
 			return;
 		}
-		m_parents.pop();
+		m_parents[--m_depth] = null;
 	}
 
-	public Resource getRoot()
+	public org.apache.jena.graph.Node getRoot()
 	{
 		return m_root;
 	}
@@ -1768,15 +2134,14 @@ public abstract class AstToRdfVisitor implements PushPopVisitor
 	 */
 	private void handleJavadoc(Node n)
 	{
-		if (!(n instanceof NodeWithJavadoc<?>))
+		if (!(n instanceof NodeWithJavadoc<?>) || !m_footprint.emits(JAVADOC))
 		{
 			return;
 		}
 		if (n.getComment().isPresent())
 		{
 			String comment = n.getComment().get().getContent();
-			Literal comment_node = m_model.createLiteral(comment);
-			m_model.add(m_parents.peek(), JAVADOC, comment_node);
+			add(peekParent(), JAVADOC, literal(comment));
 		}
 	}
 
@@ -1786,19 +2151,16 @@ public abstract class AstToRdfVisitor implements PushPopVisitor
 	 */
 	private void handleAnnotations(Node n)
 	{
-		if (!(n instanceof NodeWithAnnotations<?>))
+		if (!(n instanceof NodeWithAnnotations<?>) || !m_footprint.emits(ANNOTATIONS))
 		{
 			return;
 		}
 		List<AnnotationExpr> annotations = ((NodeWithAnnotations<?>) n).getAnnotations();
 		if (annotations.size() > 0)
 		{
-			Resource ann_node = m_model.createResource();
-			m_model.add(m_parents.peek(), ANNOTATIONS, ann_node);
-			annotations.forEach(a -> {
-				Literal ann_name = m_model.createLiteral(a.getName().asString());
-				m_model.add(ann_node, NAME, ann_name);
-			});
+			org.apache.jena.graph.Node ann_node = blank();
+			add(peekParent(), ANNOTATIONS, ann_node);
+			annotations.forEach(a -> add(ann_node, NAME, literal(a.getName().asString())));
 		}
 	}
 
@@ -1808,19 +2170,16 @@ public abstract class AstToRdfVisitor implements PushPopVisitor
 	 */
 	private void handleModifiers(Node n)
 	{
-		if (!(n instanceof NodeWithModifiers<?>))
+		if (!(n instanceof NodeWithModifiers<?>) || !m_footprint.emits(MODIFIERS))
 		{
 			return;
 		}
 		NodeList<Modifier> modifiers = ((NodeWithModifiers<?>) n).getModifiers();
 		if (modifiers.size() > 0)
 		{
-			Resource mod_node = m_model.createResource();
-			m_model.add(m_parents.peek(), MODIFIERS, mod_node);
-			modifiers.forEach(m -> {
-				Literal mod_name = m_model.createLiteral(m.getKeyword().asString());
-				m_model.add(mod_node, NAME, mod_name);
-			});
+			org.apache.jena.graph.Node mod_node = blank();
+			add(peekParent(), MODIFIERS, mod_node);
+			modifiers.forEach(m -> add(mod_node, NAME, literal(m.getKeyword().asString())));
 		}
 	}
 	
@@ -1830,11 +2189,10 @@ public abstract class AstToRdfVisitor implements PushPopVisitor
 	 */
 	private void handleComments(Node n)
 	{
-		if (n.getComment().isPresent())
+		if (m_footprint.emits(NAME) && n.getComment().isPresent())
 		{
 			String comment = n.getComment().get().getContent();
-			Literal comment_node = m_model.createLiteral(comment);
-			m_model.add(m_parents.peek(), NAME, comment_node);
+			add(peekParent(), NAME, literal(comment));
 		}
 	}
 	
@@ -1844,15 +2202,73 @@ public abstract class AstToRdfVisitor implements PushPopVisitor
 	 */
 	private void handleDeclaredType(Node n)
 	{
-		if (!(n instanceof NodeWithType<?,?>))
+		if (!(n instanceof NodeWithType<?,?>) || !m_footprint.emits(TYPE))
 		{
 			return;
 		}
 		String type = ((NodeWithType<?,?>)n).getTypeAsString();
 		if (type != null && !type.isEmpty())
 		{
-			Literal type_name = m_model.createLiteral(type);
-			m_model.add(m_parents.peek(), TYPE, type_name);
+			add(peekParent(), TYPE, literal(type));
+		}
+	}
+	/**
+	 * The translation of a sub-tree requested by the handler of a node. It
+	 * takes the place of the separate visitor that would otherwise be created
+	 * for the sub-tree, and holds the state of the enclosing exploration while
+	 * the sub-tree is translated.
+	 */
+	protected static final class Exploration
+	{
+		/** The root of the sub-tree */
+		protected final Node m_node;
+
+		/** The RDF node to use as the parent of the sub-tree, if any */
+		protected final org.apache.jena.graph.Node m_parent;
+
+		/** How many levels of class declarations to follow in the sub-tree */
+		protected final int m_follow;
+
+		/** The name of the file containing the sub-tree */
+		protected final String m_filename;
+
+		/** The subject of the triple linking to the sub-tree, if any */
+		protected final org.apache.jena.graph.Node m_subject;
+
+		/** The predicate of the triple linking to the sub-tree */
+		protected final org.apache.jena.graph.Node m_predicate;
+
+		/**
+		 * The exploration whose root is the subject of the triple linking to the
+		 * sub-tree, if any
+		 */
+		protected Exploration m_previous;
+
+		/** The root of the sub-tree in RDF, once it has been translated */
+		protected org.apache.jena.graph.Node m_root;
+
+		/** The root of the enclosing exploration */
+		protected org.apache.jena.graph.Node m_outerRoot;
+
+		/** The follow depth of the enclosing exploration */
+		protected int m_outerFollow;
+
+		/** The file name of the enclosing exploration */
+		protected String m_outerFilename;
+
+		/** The size of the parent stack when the enclosing exploration started */
+		protected int m_outerBase;
+
+		protected Exploration(Node n, org.apache.jena.graph.Node parent, int follow, String filename,
+				org.apache.jena.graph.Node subject, org.apache.jena.graph.Node predicate)
+		{
+			super();
+			m_node = n;
+			m_parent = parent;
+			m_follow = follow;
+			m_filename = filename;
+			m_subject = subject;
+			m_predicate = predicate;
 		}
 	}
 }
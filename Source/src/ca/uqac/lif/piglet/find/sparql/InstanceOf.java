@@ -5,10 +5,13 @@ import org.apache.jena.sparql.engine.ExecutionContext;
 import org.apache.jena.sparql.engine.QueryIterator;
 import org.apache.jena.sparql.engine.binding.Binding;
 import org.apache.jena.sparql.pfunction.PFuncSimple;
+import org.apache.jena.sparql.pfunction.PropFuncArg;
 import org.apache.jena.sparql.util.IterLib;
 
 import com.github.javaparser.resolution.TypeSolver;
 
+import ca.uqac.lif.piglet.util.ResolutionDeadline;
+import ca.uqac.lif.piglet.util.ResolutionTimeoutException;
 import ca.uqac.lif.piglet.util.TypeRdf;
 
 /**
@@ -18,12 +21,43 @@ import ca.uqac.lif.piglet.util.TypeRdf;
  */
 public class InstanceOf extends PFuncSimple
 {
-	private final TypeSolver m_ts;
+	private TypeSolver m_ts;
+
+	/**
+	 * The time in milliseconds a subtype check may take, or 0 if there is no
+	 * limit.
+	 */
+	private long m_timeout;
 
 	public InstanceOf(TypeSolver ts)
 	{
 		super();
 		m_ts = ts;
+		m_timeout = 0;
+	}
+
+	/**
+	 * Creates a function that takes its type solver from the context of the
+	 * query execution.
+	 */
+	public InstanceOf()
+	{
+		this(null);
+	}
+
+	@Override
+	public void build(PropFuncArg argSubject, Node predicate, PropFuncArg argObject, ExecutionContext execCxt)
+	{
+		super.build(argSubject, predicate, argObject, execCxt);
+		if (m_ts == null)
+		{
+			m_ts = execCxt.getContext().get(SparqlTokenFinder.TYPE_SOLVER);
+		}
+		Long timeout = execCxt.getContext().get(SparqlTokenFinder.RESOLUTION_TIMEOUT);
+		if (timeout != null)
+		{
+			m_timeout = timeout;
+		}
 	}
 
 	@Override
@@ -32,7 +66,18 @@ public class InstanceOf extends PFuncSimple
 		// Resolve RDF node -> internal Type
 		String t_subject = trimQuotes(subject.toString());
 		String t_object = trimQuotes(object.toString());
-		if (TypeRdf.isSubtypeOf(t_object, t_subject, m_ts)) {
+		boolean subtype;
+		try (ResolutionDeadline d = ResolutionDeadline.start(m_ts, m_timeout))
+		{
+			// The fallbacks of TypeRdf may have swallowed the timeout
+			subtype = TypeRdf.isSubtypeOf(t_object, t_subject, m_ts) && !d.isExpired();
+		}
+		catch (ResolutionTimeoutException e)
+		{
+			// Not cached, so that the check can succeed elsewhere
+			subtype = false;
+		}
+		if (subtype) {
 			return IterLib.result(binding, execCxt);
 		} else {
 			return IterLib.noResults(execCxt);
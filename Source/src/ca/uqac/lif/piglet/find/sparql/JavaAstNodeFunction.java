@@ -8,4 +8,9 @@ public abstract class JavaAstNodeFunction extends LazyNodeFunction<Node,String>
 	{
 		super(idx);
 	}
+
+	public JavaAstNodeFunction()
+	{
+		super();
+	}
 }
@@ -17,13 +17,30 @@
  */
 package ca.uqac.lif.piglet.find.sparql;
 
-import org.apache.jena.rdf.model.Literal;
-import org.apache.jena.rdf.model.Model;
-import org.apache.jena.rdf.model.Property;
-import org.apache.jena.rdf.model.Resource;
-import org.apache.jena.rdf.model.ResourceFactory;
+import static ca.uqac.lif.piglet.find.sparql.Vocabulary.ARG_1;
+import static ca.uqac.lif.piglet.find.sparql.Vocabulary.ARG_2;
+import static ca.uqac.lif.piglet.find.sparql.Vocabulary.CONDITION;
+import static ca.uqac.lif.piglet.find.sparql.Vocabulary.DECLARATION;
+import static ca.uqac.lif.piglet.find.sparql.Vocabulary.ELSE_EXPR;
+import static ca.uqac.lif.piglet.find.sparql.Vocabulary.IN;
+import static ca.uqac.lif.piglet.find.sparql.Vocabulary.INITIALIZER;
+import static ca.uqac.lif.piglet.find.sparql.Vocabulary.LITERAL_NULL;
+import static ca.uqac.lif.piglet.find.sparql.Vocabulary.NAME;
+import static ca.uqac.lif.piglet.find.sparql.Vocabulary.NEXT;
+import static ca.uqac.lif.piglet.find.sparql.Vocabulary.NODETYPE;
+import static ca.uqac.lif.piglet.find.sparql.Vocabulary.OPERATOR;
+import static ca.uqac.lif.piglet.find.sparql.Vocabulary.PARAMETERS;
+import static ca.uqac.lif.piglet.find.sparql.Vocabulary.RETURNS;
+import static ca.uqac.lif.piglet.find.sparql.Vocabulary.SCOPE;
+import static ca.uqac.lif.piglet.find.sparql.Vocabulary.THEN_EXPR;
+import static ca.uqac.lif.piglet.find.sparql.Vocabulary.TYPE;
+import static ca.uqac.lif.piglet.find.sparql.Vocabulary.TYPE_BOOLEAN;
+import static ca.uqac.lif.piglet.find.sparql.Vocabulary.TYPE_INTEGER;
+import static ca.uqac.lif.piglet.find.sparql.Vocabulary.TYPE_STRING;
+import static ca.uqac.lif.piglet.find.sparql.Vocabulary.VARIABLES;
+
+import org.apache.jena.graph.Node;
 
-import com.github.javaparser.ast.Node;
 import com.github.javaparser.ast.NodeList;
 import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
 import com.github.javaparser.ast.body.FieldDeclaration;
@@ -51,72 +68,43 @@ import com.github.javaparser.resolution.model.SymbolReference;
 import com.github.javaparser.symbolsolver.javaparsermodel.JavaParserFacade;
 
 import ca.uqac.lif.piglet.find.TokenFinderContext;
-import ca.uqac.lif.piglet.find.visitor.PushPopVisitableNode;
+import ca.uqac.lif.piglet.util.ResolutionDeadline;
+import ca.uqac.lif.piglet.util.ResolutionTimeoutException;
 
 public class JavaAstToRdfVisitor extends AstToRdfVisitor
 {
-	public static final Property PARAMETERS = ResourceFactory.createProperty(ModelBuilder.NS, "params");
-
-	public static final Property VALUE = ResourceFactory.createProperty(ModelBuilder.NS, "value");
-
-	public static final Property RETURNS = ResourceFactory.createProperty(ModelBuilder.NS, "returns");
-
-	public static final Property VARIABLES = ResourceFactory.createProperty(ModelBuilder.NS, "variables");
-
-	public static final Property CONDITION = ResourceFactory.createProperty(ModelBuilder.NS, "condition");
-
-	public static final Property INITIALIZER = ResourceFactory.createProperty(ModelBuilder.NS, "initializer");
-
-	public static final Property SCOPE = ResourceFactory.createProperty(ModelBuilder.NS, "scope");
-
-	public static final Property NEXT = ResourceFactory.createProperty(ModelBuilder.NS, "next");
-
-	public static final Property ARG_1 = ResourceFactory.createProperty(ModelBuilder.NS, "arg1");
-
-	public static final Property ARG_2 = ResourceFactory.createProperty(ModelBuilder.NS, "arg2");
-
-	public static final Property OPERATOR = ResourceFactory.createProperty(ModelBuilder.NS, "operator");
-
-	public static final Property DECLARATION = ResourceFactory.createProperty(ModelBuilder.NS, "declaration");
-
 	public JavaAstToRdfVisitor(int follow, TokenFinderContext context, String filename)
 	{
 		super(follow, context, filename);
 	}
 
-	public JavaAstToRdfVisitor(Model m_model, LazyNodeIndex<Node,String> m_index, Resource method_node, int follow, TokenFinderContext context, String filename)
+	public JavaAstToRdfVisitor(int follow, TokenFinderContext context, String filename, QueryFootprint footprint)
 	{
-		super(m_model, m_index, method_node, follow, context, filename);
+		super(follow, context, filename, footprint);
 	}
 
 	@Override
 	public void visit(BlockStmt n)
 	{
 		if (!genericVisit(n)) { stop(); return; }
-		Resource block_node = m_parents.peek();
+		Node block_node = peekParent();
 		NodeList<Statement> statements = n.getStatements();
 		if (statements.size() == 0)
 		{
 			stop();
 			return;
 		}
-		Resource prev_node = null;
+		Exploration prev = null;
 		for (Statement s : statements)
 		{
-
-			JavaAstToRdfVisitor stmt_visitor = new JavaAstToRdfVisitor(m_model, m_index, null, m_follow, m_context, m_filename);
-			PushPopVisitableNode to_explore = new PushPopVisitableNode(s);
-			to_explore.accept(stmt_visitor);
-			Resource stmt_node = stmt_visitor.getRoot();
-			if (prev_node == null)
+			if (prev == null)
 			{
-				m_model.add(block_node, IN, stmt_node);
+				prev = explore(s, block_node, IN);
 			}
 			else
 			{
-				m_model.add(prev_node, NEXT, stmt_node);
+				prev = explore(s, prev, NEXT);
 			}
-			prev_node = stmt_node;
 		}
 		stop();
 	}
@@ -125,32 +113,22 @@ public class JavaAstToRdfVisitor extends AstToRdfVisitor
 	public void visit(MethodCallExpr n)
 	{
 		if (!genericVisit(n)) { stop(); return; }
-		Resource method_node = m_parents.peek();
-		Literal name_node = m_model.createLiteral(n.getName().asString());
-		m_model.add(method_node, NAME, name_node);
+		Node method_node = peekParent();
+		add(method_node, NAME, literal(n.getName().asString()));
 		{
 			// Method arguments
-			Resource arg_node = m_model.createResource();
-			m_model.add(method_node, PARAMETERS, arg_node);
-			m_parents.push(arg_node); 
+			Node arg_node = blank();
+			add(method_node, PARAMETERS, arg_node);
 			for (int i = 0; i < n.getArguments().size(); i++)
 			{
-				Expression a = n.getArgument(i);
-				JavaAstToRdfVisitor arg_visitor = new JavaAstToRdfVisitor(m_model, m_index, null, m_follow, m_context, m_filename);
-				PushPopVisitableNode to_explore = new PushPopVisitableNode(a);
-				to_explore.accept(arg_visitor);
-				m_model.add(arg_node, ResourceFactory.createProperty(ModelBuilder.NS, "arg" + (i + 1)), arg_visitor.getRoot());
+				explore(n.getArgument(i), arg_node, Vocabulary.arg(i + 1));
 			}
-			m_parents.pop();
 		}
 		{
 			// Scope
 			if (n.getScope().isPresent())
 			{
-				JavaAstToRdfVisitor arg_visitor = new JavaAstToRdfVisitor(m_model, m_index, null, m_follow, m_context, m_filename);
-				PushPopVisitableNode to_explore = new PushPopVisitableNode(n.getScope().get());
-				to_explore.accept(arg_visitor);
-				m_model.add(method_node, SCOPE, arg_visitor.getRoot());
+				explore(n.getScope().get(), method_node, SCOPE);
 			}
 		}
 		if (m_follow > 0)
@@ -158,18 +136,21 @@ public class JavaAstToRdfVisitor extends AstToRdfVisitor
 			// Try to resolve the method declaration and explore it
 			try
 			{
-				SymbolReference<ResolvedMethodDeclaration> rmd = JavaParserFacade.get(m_context.getTypeSolver()).solve(n);
+				SymbolReference<ResolvedMethodDeclaration> rmd;
+				try (ResolutionDeadline d = ResolutionDeadline.start(m_context.getTypeSolver(), m_context.getResolutionTimeout()))
+				{
+					rmd = JavaParserFacade.get(m_context.getTypeSolver()).solve(n);
+					// The facade may have swallowed the timeout
+					d.check();
+				}
 				if (rmd.isSolved())
 				{
 					ResolvedMethodDeclaration md = rmd.getCorrespondingDeclaration();
 					if (md.toAst().isPresent())
 					{
 						String target_filename = getDeclaringFileName(n).orElse("");
-						Node root = md.toAst().get();
-						PushPopVisitableNode to_explore = new PushPopVisitableNode(root);
-						JavaAstToRdfVisitor method_visitor = new JavaAstToRdfVisitor(m_model, m_index, method_node, m_follow - 1, m_context, target_filename);
-						to_explore.accept(method_visitor);
-						m_model.add(method_node, DECLARATION, method_visitor.getRoot());
+						com.github.javaparser.ast.Node root = md.toAst().get();
+						explore(root, method_node, m_follow - 1, target_filename, method_node, DECLARATION);
 					}
 				}
 			}
@@ -184,6 +165,10 @@ public class JavaAstToRdfVisitor extends AstToRdfVisitor
 				// Ignored
 				e.printStackTrace();
 			}
+			catch (ResolutionTimeoutException e)
+			{
+				// The declaration is not explored
+			}
 		}
 		stop();
 	}
@@ -192,14 +177,12 @@ public class JavaAstToRdfVisitor extends AstToRdfVisitor
 	public void visit(FieldAccessExpr n)
 	{
 		if (!genericVisit(n)) { stop(); return; }
-		Resource field_node = m_parents.peek();
-		Literal name_node = m_model.createLiteral(n.getName().asString());
-		m_model.add(field_node, NAME, name_node);
+		Node field_node = peekParent();
+		add(field_node, NAME, literal(n.getName().asString()));
 		{
 			// Scope
 			Expression e = n.getScope();
-			Literal scope_node = m_model.createLiteral(e.toString());
-			m_model.add(field_node, SCOPE, scope_node);
+			add(field_node, SCOPE, literal(e.toString()));
 		}
 		stop();
 	}
@@ -208,28 +191,22 @@ public class JavaAstToRdfVisitor extends AstToRdfVisitor
 	public void visit(VariableDeclarationExpr n)
 	{
 		if (!genericVisit(n)) { stop(); return; }
-		Resource var_node = m_parents.peek();
+		Node var_node = peekParent();
 		NodeList<VariableDeclarator> n_vars = n.getVariables();
 		if (n_vars.size() == 0)
 		{
 			stop();
 			return;
 		}
-		Resource vars = m_model.createResource();
-		m_model.add(var_node, VARIABLES, vars);
+		Node vars = blank();
+		add(var_node, VARIABLES, vars);
 		n_vars.forEach(v -> {
 			Type t = v.getType();
-			Literal type_name = m_model.createLiteral(t.asString());
-			m_model.add(vars, TYPE, type_name);
-			Literal name_node = m_model.createLiteral(v.getNameAsString());
-			m_model.add(vars, NAME, name_node);
+			add(vars, TYPE, literal(t.asString()));
+			add(vars, NAME, literal(v.getNameAsString()));
 			if (v.getInitializer().isPresent())
 			{
-				Expression e = v.getInitializer().get();
-				JavaAstToRdfVisitor init_visitor = new JavaAstToRdfVisitor(m_model, m_index, null, m_follow, m_context, m_filename);
-				PushPopVisitableNode to_explore = new PushPopVisitableNode(e);
-				to_explore.accept(init_visitor);
-				m_model.add(vars, INITIALIZER, init_visitor.getRoot());
+				explore(v.getInitializer().get(), vars, INITIALIZER);
 			}
 		});
 		stop();
@@ -239,28 +216,22 @@ public class JavaAstToRdfVisitor extends AstToRdfVisitor
 	public void visit(FieldDeclaration n)
 	{
 		if (!genericVisit(n)) { stop(); return; }
-		Resource field_node = m_parents.peek();
+		Node field_node = peekParent();
 		NodeList<VariableDeclarator> n_vars = n.getVariables();
 		if (n_vars.size() == 0)
 		{
 			stop();
 			return;
 		}
-		Resource vars = m_model.createResource();
-		m_model.add(field_node, VARIABLES, vars);
+		Node vars = blank();
+		add(field_node, VARIABLES, vars);
 		n_vars.forEach(v -> {
 			Type t = v.getType();
-			Literal type_name = m_model.createLiteral(t.asString());
-			m_model.add(vars, TYPE, type_name);
-			Literal name_node = m_model.createLiteral(v.getNameAsString());
-			m_model.add(vars, NAME, name_node);
+			add(vars, TYPE, literal(t.asString()));
+			add(vars, NAME, literal(v.getNameAsString()));
 			if (v.getInitializer().isPresent())
 			{
-				Expression e = v.getInitializer().get();
-				JavaAstToRdfVisitor init_visitor = new JavaAstToRdfVisitor(m_model, m_index, null, m_follow, m_context, m_filename);
-				PushPopVisitableNode to_explore = new PushPopVisitableNode(e);
-				to_explore.accept(init_visitor);
-				m_model.add(vars, INITIALIZER, init_visitor.getRoot());
+				explore(v.getInitializer().get(), vars, INITIALIZER);
 			}
 		});
 		stop();
@@ -270,38 +241,28 @@ public class JavaAstToRdfVisitor extends AstToRdfVisitor
 	public void visit(IfStmt n)
 	{
 		if (!genericVisit(n)) { stop(); return; }
-		Resource if_node = m_parents.peek();
+		Node if_node = peekParent();
 		// Condition
 		{
-			Expression e = n.getCondition();
-			JavaAstToRdfVisitor cond_visitor = new JavaAstToRdfVisitor(m_model, m_index, null, m_follow, m_context, m_filename);
-			PushPopVisitableNode to_explore = new PushPopVisitableNode(e);
-			to_explore.accept(cond_visitor);
-			m_model.add(if_node, CONDITION, cond_visitor.getRoot());
+			explore(n.getCondition(), if_node, CONDITION);
 		}
 		{
 			// Then branch
 			Statement b = n.getThenStmt();
-			Resource then_node = m_model.createResource();
-			m_model.add(if_node, IN, then_node);
-			m_model.add(then_node, NODETYPE, m_model.createLiteral("ThenExpr"));
-			JavaAstToRdfVisitor then_visitor = new JavaAstToRdfVisitor(m_model, m_index, null, m_follow, m_context, m_filename);
-			PushPopVisitableNode to_explore = new PushPopVisitableNode(b);
-			to_explore.accept(then_visitor);
-			m_model.add(then_node, IN, then_visitor.getRoot());
+			Node then_node = blank();
+			add(if_node, IN, then_node);
+			add(then_node, NODETYPE, THEN_EXPR);
+			explore(b, then_node, IN);
 		}
 		{
 			// Else branch
 			if (n.getElseStmt().isPresent())
 			{
 				Statement b = n.getElseStmt().get();
-				Resource else_node = m_model.createResource();
-				m_model.add(if_node, IN, else_node);
-				m_model.add(else_node, NODETYPE, m_model.createLiteral("ElseExpr"));
-				JavaAstToRdfVisitor else_visitor = new JavaAstToRdfVisitor(m_model, m_index, null, m_follow, m_context, m_filename);
-				PushPopVisitableNode to_explore = new PushPopVisitableNode(b);
-				to_explore.accept(else_visitor);
-				m_model.add(else_node, IN, else_visitor.getRoot());
+				Node else_node = blank();
+				add(if_node, IN, else_node);
+				add(else_node, NODETYPE, ELSE_EXPR);
+				explore(b, else_node, IN);
 			}
 		}
 		stop();
@@ -311,24 +272,15 @@ public class JavaAstToRdfVisitor extends AstToRdfVisitor
 	public void visit(BinaryExpr n)
 	{
 		if (!genericVisit(n)) { stop(); return; }
-		Resource bin_node = m_parents.peek();
-		Literal name_node = m_model.createLiteral(n.getOperator().asString());
-		m_model.add(bin_node, OPERATOR, name_node);
+		Node bin_node = peekParent();
+		add(bin_node, OPERATOR, literal(n.getOperator().asString()));
 		{
 			// Left operand
-			Expression left = n.getLeft();
-			JavaAstToRdfVisitor left_visitor = new JavaAstToRdfVisitor(m_model, m_index, null, m_follow, m_context, m_filename);
-			PushPopVisitableNode to_explore = new PushPopVisitableNode(left);
-			to_explore.accept(left_visitor);
-			m_model.add(bin_node, ARG_1, left_visitor.getRoot());
+			explore(n.getLeft(), bin_node, ARG_1);
 		}
 		{
 			// Right operand
-			Expression right = n.getRight();
-			JavaAstToRdfVisitor right_visitor = new JavaAstToRdfVisitor(m_model, m_index, null, m_follow, m_context, m_filename);
-			PushPopVisitableNode to_explore = new PushPopVisitableNode(right);
-			to_explore.accept(right_visitor);
-			m_model.add(bin_node, ARG_2, right_visitor.getRoot());
+			explore(n.getRight(), bin_node, ARG_2);
 		}
 		stop();
 	}
@@ -337,16 +289,11 @@ public class JavaAstToRdfVisitor extends AstToRdfVisitor
 	public void visit(UnaryExpr n)
 	{
 		if (!genericVisit(n)) { stop(); return; }
-		Resource bin_node = m_parents.peek();
-		Literal name_node = m_model.createLiteral(n.getOperator().asString());
-		m_model.add(bin_node, OPERATOR, name_node);
+		Node bin_node = peekParent();
+		add(bin_node, OPERATOR, literal(n.getOperator().asString()));
 		{
 			// Left operand
-			Expression left = n.getExpression();
-			JavaAstToRdfVisitor left_visitor = new JavaAstToRdfVisitor(m_model, m_index, null, m_follow, m_context, m_filename);
-			PushPopVisitableNode to_explore = new PushPopVisitableNode(left);
-			to_explore.accept(left_visitor);
-			m_model.add(bin_node, ARG_1, left_visitor.getRoot());
+			explore(n.getExpression(), bin_node, ARG_1);
 		}
 		stop();
 	}
@@ -357,51 +304,37 @@ public class JavaAstToRdfVisitor extends AstToRdfVisitor
 	public void visit(ClassOrInterfaceDeclaration n)
 	{
 		if (!genericVisit(n)) { stop(); return; }
-		Resource class_node = m_parents.peek();
-		Literal name_node = m_model.createLiteral(n.getNameAsString());
-		m_model.add(class_node, NAME, name_node);
+		Node class_node = peekParent();
+		add(class_node, NAME, literal(n.getNameAsString()));
 	}				
 
 	@Override
 	public void visit(MethodDeclaration n)
 	{
 		if (!genericVisit(n)) { stop(); return; }
-		Resource method_node;
-		if (m_parents.isEmpty())
-		{
-			method_node = null;
-		}
-		else
-		{
-			method_node = m_parents.peek();
-		}
-		Literal name_node = m_model.createLiteral(n.getNameAsString());
+		Node method_node = peekParent();
+		Node name_node = literal(n.getNameAsString());
 		if (method_node != null)
 		{
-			m_model.add(method_node, NAME, name_node);
+			add(method_node, NAME, name_node);
 		}
 		{
 			// Method parameters
 			NodeList<com.github.javaparser.ast.body.Parameter> params = n.getParameters();
 			if (params.size() > 0)
 			{
-				Resource param_node = m_model.createResource();
-				m_model.add(method_node, PARAMETERS, param_node);
-				m_parents.push(param_node);
+				Node param_node = blank();
+				add(method_node, PARAMETERS, param_node);
 				for (com.github.javaparser.ast.body.Parameter p : params)
 				{
-					JavaAstToRdfVisitor param_visitor = new JavaAstToRdfVisitor(m_model, m_index, param_node, m_follow, m_context, m_filename);
-					PushPopVisitableNode to_explore = new PushPopVisitableNode(p);
-					to_explore.accept(param_visitor);
+					explore(p, param_node, m_follow, m_filename, null, null);
 				}
-				m_parents.pop();
 			}
 		}
 		{
 			// Return type
 			Type t = n.getType();
-			Literal ret_name = m_model.createLiteral(t.asString());
-			m_model.add(method_node, RETURNS, ret_name);
+			add(method_node, RETURNS, literal(t.asString()));
 		}
 		{
 			// Method body
@@ -411,10 +344,7 @@ public class JavaAstToRdfVisitor extends AstToRdfVisitor
 				stop();
 				return;
 			}
-			JavaAstToRdfVisitor body_visitor = new JavaAstToRdfVisitor(m_model, m_index, null, m_follow, m_context, m_filename);
-			PushPopVisitableNode to_explore = new PushPopVisitableNode(b);
-			to_explore.accept(body_visitor);
-			m_model.add(method_node, IN, body_visitor.getRoot());
+			explore(b, method_node, IN);
 		}
 		stop();
 	}
@@ -423,9 +353,8 @@ public class JavaAstToRdfVisitor extends AstToRdfVisitor
 	public void visit(LineComment n)
 	{
 		if (!genericVisit(n)) { stop(); return; }
-		Resource lc_node = m_parents.peek();
-		Literal name_node = m_model.createLiteral(n.asString());
-		m_model.add(lc_node, NAME, name_node);
+		Node lc_node = peekParent();
+		add(lc_node, NAME, literal(n.asString()));
 		stop();
 	}
 
@@ -433,20 +362,19 @@ public class JavaAstToRdfVisitor extends AstToRdfVisitor
 	public void visit(IntegerLiteralExpr n)
 	{
 		if (!genericVisit(n)) { stop(); return; }
-		Resource int_node = m_parents.peek();
-		Literal name_node = m_model.createLiteral(n.getValue());
-		m_model.add(int_node, NAME, name_node);
-		m_model.add(int_node, TYPE, m_model.createLiteral("Integer"));
+		Node int_node = peekParent();
+		add(int_node, NAME, literal(n.getValue()));
+		add(int_node, TYPE, TYPE_INTEGER);
 	}
 
 	@Override
 	public void visit(BooleanLiteralExpr n)
 	{
 		if (!genericVisit(n)) { stop(); return; }
-		Resource bool_node = m_parents.peek();
-		Literal name_node = m_model.createLiteral(Boolean.toString(n.getValue()));
-		m_model.add(bool_node, NAME, name_node);
-		m_model.add(bool_node, TYPE, m_model.createLiteral("Boolean"));
+		Node bool_node = peekParent();
+		Node name_node = Vocabulary.literal(n.getValue());
+		add(bool_node, NAME, name_node);
+		add(bool_node, TYPE, TYPE_BOOLEAN);
 		stop();
 	}
 
@@ -454,10 +382,9 @@ public class JavaAstToRdfVisitor extends AstToRdfVisitor
 	public void visit(StringLiteralExpr n)
 	{
 		if (!genericVisit(n)) { stop(); return; }
-		Resource str_node = m_parents.peek();
-		Literal name_node = m_model.createLiteral(n.getValue());
-		m_model.add(str_node, NAME, name_node);
-		m_model.add(str_node, TYPE, m_model.createLiteral("String"));
+		Node str_node = peekParent();
+		add(str_node, NAME, literal(n.getValue()));
+		add(str_node, TYPE, TYPE_STRING);
 		stop();
 	}
 
@@ -465,9 +392,9 @@ public class JavaAstToRdfVisitor extends AstToRdfVisitor
 	public void visit(NullLiteralExpr n)
 	{
 		if (!genericVisit(n)) { stop(); return; }
-		Resource null_node = m_parents.peek();
-		Literal name_node = m_model.createLiteral("null");
-		m_model.add(null_node, NAME, name_node);
+		Node null_node = peekParent();
+		Node name_node = LITERAL_NULL;
+		add(null_node, NAME, name_node);
 		stop();
 	}
 
@@ -475,8 +402,7 @@ public class JavaAstToRdfVisitor extends AstToRdfVisitor
 	public void visit(NameExpr n)
 	{
 		if (!genericVisit(n)) { stop(); return; }
-		Literal name_node = m_model.createLiteral(n.getName().asString());
-		m_model.add(m_parents.peek(), NAME, name_node);
+		add(peekParent(), NAME, literal(n.getName().asString()));
 		stop();
 	}
 }
@@ -18,7 +18,9 @@
 package ca.uqac.lif.piglet.find.sparql;
 
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 
 import org.apache.jena.graph.Node;
 import org.apache.jena.graph.NodeFactory;
@@ -30,88 +32,240 @@ import org.apache.jena.sparql.engine.binding.BindingBuilder;
 import org.apache.jena.sparql.engine.binding.BindingFactory;
 import org.apache.jena.sparql.engine.iterator.QueryIterPlainWrapper;
 import org.apache.jena.sparql.pfunction.PFuncSimple;
+import org.apache.jena.sparql.pfunction.PropFuncArg;
 import org.apache.jena.sparql.util.IterLib;
 
 public abstract class LazyNodeFunction<T,U> extends PFuncSimple
 {
-	private final LazyNodeIndex<T,U> idx;
+	private LazyNodeIndex<T,U> idx;
 	
 	public LazyNodeFunction(LazyNodeIndex<T,U> idx)
 	{
 		this.idx = idx;
 	}
+
+	/**
+	 * Creates a function that takes its index from the context of the query
+	 * execution, under the symbol {@link SparqlTokenFinder#INDEX}. This allows
+	 * a single registration of the function to serve the model of any file.
+	 */
+	public LazyNodeFunction()
+	{
+		this(null);
+	}
+
+	@Override
+	public void build(PropFuncArg argSubject, Node predicate, PropFuncArg argObject, ExecutionContext execCxt)
+	{
+		super.build(argSubject, predicate, argObject, execCxt);
+		if (idx == null)
+		{
+			idx = execCxt.getContext().get(SparqlTokenFinder.INDEX);
+		}
+	}
 	
-  @Override
-  public QueryIterator execEvaluated(Binding input,
-                                     Node subject,
-                                     Node predicate,
-                                     Node object,
-                                     ExecutionContext execCxt) {
-    // Subject may be a Var or a concrete IRI
-    final Var sVar = subject.isVariable() ? Var.alloc(subject) : null;
-    final Var oVar = object.isVariable() ? Var.alloc(object) : null;
-
-    final List<Binding> out = new ArrayList<>();
-
-    // Helper: attempt a single (iri, maybeObjectVar)/(iri, constantObject) case
-    java.util.function.BiConsumer<String, Binding> handleOne = (iri, in) -> {
-      U value = calculate(iri);
-      if (value == null) return; // unknown subject or failed compute
-
-      // What to do with the object position?
-      if (oVar != null) {
-        // Object is a variable: bind it to a literal of the computed value
-        Node valNode = NodeFactory.createLiteralString(value.toString());
-        // Respect existing binding compatibility
-        if (in.contains(oVar) && !in.get(oVar).equals(valNode)) return;
-        BindingBuilder bb = BindingFactory.builder(in);
-        bb.add(oVar, valNode);
-        out.add(bb.build());
-      } else {
-        // Object is a constant: compare
-        if (!object.isLiteral()) return; // only literal supported here
-        String want = object.getLiteralLexicalForm();
-        if (!want.equals(value.toString())) return; // no match ⇒ no binding
-        // Match: keep binding as-is
-        out.add(in);
-      }
-    };
-
-    if (sVar != null) {
-      // Subject is a variable: iterate all known IRIs
-      for (String iri : idx.allIris()) {
-        // Respect existing binding compatibility
-        if (input.contains(sVar) && !input.get(sVar).toString().equals(iri)) continue;
-        BindingBuilder bb = BindingFactory.builder(input);
-        Node iriNode = NodeFactory.createURI(iri);
-        bb.add(sVar, iriNode);
-        handleOne.accept(iri, bb.build());
-      }
-    } else {
-      // Subject is concrete
-      if (!subject.isURI()) return IterLib.noResults(execCxt);
-      String iri = subject.getURI();
-      handleOne.accept(iri, input);
-    }
-
-    if (out.isEmpty()) return IterLib.noResults(execCxt);
-    return QueryIterPlainWrapper.create(out.iterator(), execCxt);
-  }
-  
+	@Override
+	public QueryIterator execEvaluated(Binding input, Node subject, Node predicate, Node object, ExecutionContext execCxt)
+	{
+		// Variables bound by the input have already been replaced by their value
+		if (!object.isVariable() && !object.isLiteral())
+		{
+			return IterLib.noResults(execCxt);
+		}
+		if (!subject.isVariable())
+		{
+			if (!subject.isURI())
+			{
+				return IterLib.noResults(execCxt);
+			}
+			U value = calculate(subject.getURI());
+			if (value == null)
+			{
+				return IterLib.noResults(execCxt);
+			}
+			if (object.isVariable())
+			{
+				return IterLib.oneResult(input, Var.alloc(object), NodeFactory.createLiteralString(value.toString()), execCxt);
+			}
+			return object.getLiteralLexicalForm().equals(value.toString()) ? IterLib.result(input, execCxt) : IterLib.noResults(execCxt);
+		}
+		if (subject.equals(object))
+		{
+			// A node IRI is never equal to a literal
+			return IterLib.noResults(execCxt);
+		}
+		return QueryIterPlainWrapper.create(new NodeIterator(input, Var.alloc(subject), object), execCxt);
+	}
+
+	/**
+	 * Determines whether the function computes a value for the nodes of a given
+	 * class. The nodes of other classes all have the
+	 * {@linkplain #getDefaultValue() default value}, and enumerating the
+	 * subjects of the function skips them when that value cannot match.
+	 * @param kind The class of the nodes
+	 * @return <tt>true</tt> if the function computes a value for these nodes,
+	 * <tt>false</tt> otherwise
+	 */
+	protected boolean appliesTo(Class<?> kind)
+	{
+		return true;
+	}
+
+	/**
+	 * Gets the value of the nodes the function does not
+	 * {@linkplain #appliesTo(Class) apply to}.
+	 * @return The value, or <tt>null</tt> if these nodes have no value
+	 */
+	protected U getDefaultValue()
+	{
+		return null;
+	}
+
   protected U calculate(String iri)
 	{
-  	// First check cache
-  	if (idx.typeCache.containsKey(iri))
-			return idx.typeCache.get(iri);
-  	// Not in cache, compute it
-		T astNode = idx.get(iri);
+		int file = AstIds.fileOf(iri), node = AstIds.nodeOf(iri);
+		T astNode = idx.get(file, node);
 		if (astNode == null)
 			return null;
-		U value = calculateValue(astNode);
+		if (!appliesTo(astNode.getClass()))
+			return getDefaultValue();
+  	// First check cache
+		U value = idx.getValue(file, node);
+		if (value != null)
+			return value;
+  	// Not in cache, compute it
+		value = calculateValue(astNode);
 		// Store in cache
-		idx.typeCache.put(iri, value);
+		idx.setValue(file, node, value);
 		return value;
 	}
 	
 	protected abstract U calculateValue(T astNode);
+
+	/**
+	 * Enumerates the bindings of the function when its subject is a variable.
+	 * The candidate nodes are taken from the index of the nodes by class, and
+	 * the value of each node is only computed when the iterator reaches it; a
+	 * query that stops consuming solutions therefore stops computing values.
+	 */
+	protected class NodeIterator implements Iterator<Binding>
+	{
+		/** The binding the solutions extend */
+		protected final Binding m_input;
+
+		/** The variable in the subject position */
+		protected final Var m_subject;
+
+		/** The variable in the object position, or <tt>null</tt> */
+		protected final Var m_object;
+
+		/** The literal in the object position, or <tt>null</tt> */
+		protected final String m_constant;
+
+		/** The groups of candidate nodes */
+		protected final List<Candidates> m_groups = new ArrayList<Candidates>();
+
+		/** The position of the current group */
+		protected int m_group = 0;
+
+		/** The position of the next node in the current group */
+		protected int m_position = 0;
+
+		/** The next binding to return, or <tt>null</tt> if not computed yet */
+		protected Binding m_next = null;
+
+		/**
+		 * Creates a new iterator.
+		 * @param input The binding the solutions extend
+		 * @param subject The variable in the subject position
+		 * @param object The node in the object position, either a variable or
+		 * a literal
+		 */
+		public NodeIterator(Binding input, Var subject, Node object)
+		{
+			super();
+			m_input = input;
+			m_subject = subject;
+			m_object = object.isVariable() ? Var.alloc(object) : null;
+			m_constant = object.isVariable() ? null : object.getLiteralLexicalForm();
+			U def = getDefaultValue();
+			// Nodes the function does not apply to are only listed if their value can match
+			boolean others = def != null && (m_constant == null || m_constant.equals(def.toString()));
+			for (int file = 0; file < idx.getFileCount(); file++)
+			{
+				for (Class<?> kind : idx.getKinds(file))
+				{
+					boolean applies = appliesTo(kind);
+					if (applies || others)
+					{
+						m_groups.add(new Candidates(file, idx.getNodes(file, kind), applies));
+					}
+				}
+			}
+		}
+
+		@Override
+		public boolean hasNext()
+		{
+			while (m_next == null && m_group < m_groups.size())
+			{
+				Candidates group = m_groups.get(m_group);
+				if (m_position >= group.m_nodes.length)
+				{
+					m_group++;
+					m_position = 0;
+					continue;
+				}
+				String iri = AstIds.iriFor(group.m_file, group.m_nodes[m_position++]);
+				U value = group.m_applies ? calculate(iri) : getDefaultValue();
+				if (value == null || (m_constant != null && !m_constant.equals(value.toString())))
+				{
+					continue;
+				}
+				BindingBuilder bb = BindingFactory.builder(m_input);
+				bb.add(m_subject, NodeFactory.createURI(iri));
+				if (m_object != null)
+				{
+					bb.add(m_object, NodeFactory.createLiteralString(value.toString()));
+				}
+				m_next = bb.build();
+			}
+			return m_next != null;
+		}
+
+		@Override
+		public Binding next()
+		{
+			if (!hasNext())
+			{
+				throw new NoSuchElementException();
+			}
+			Binding b = m_next;
+			m_next = null;
+			return b;
+		}
+	}
+
+	/**
+	 * A group of nodes of the same file and of the same class.
+	 */
+	protected static class Candidates
+	{
+		/** The ID of the file */
+		protected final int m_file;
+
+		/** The IDs of the nodes */
+		protected final int[] m_nodes;
+
+		/** Whether the function applies to the nodes */
+		protected final boolean m_applies;
+
+		public Candidates(int file, int[] nodes, boolean applies)
+		{
+			super();
+			m_file = file;
+			m_nodes = nodes;
+			m_applies = applies;
+		}
+	}
 }
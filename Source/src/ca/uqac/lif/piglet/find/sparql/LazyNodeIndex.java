@@ -17,30 +17,236 @@
  */
 package ca.uqac.lif.piglet.find.sparql;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * An index of the AST nodes represented in an RDF model. Each node is given
+ * a dense integer ID within the file it comes from, and each file a dense
+ * integer ID within the index; the IRI of the node is built from both (see
+ * {@link AstIds}). Looking up a node from its IRI therefore amounts to
+ * reading two array positions.
+ * <p>
+ * The index also keeps the values computed for its nodes by property
+ * functions (see {@link LazyNodeFunction}), so that they are computed at most
+ * once per node.
+ * <p>
+ * The nodes of each file are further indexed by their class, so that a
+ * property function whose subject is unbound can enumerate only the nodes
+ * it applies to, rather than every node of the file.
+ * <p>
+ * A node is identified by the node object itself and by the number of levels
+ * of method calls that remain to be followed in its translation. When
+ * calls are followed, the same declaration can be translated once from a
+ * call, with fewer levels left, and once more by the traversal of its own
+ * file; each translation gets its own IRI, so that the calls inside the
+ * declaration are followed as deep as each path allows.
+ * <p>
+ * An index belongs to a single model, which is built and queried by a single
+ * thread; it is not thread-safe.
+ * @param <T> The type of the nodes
+ * @param <U> The type of the values computed for each node
+ */
 public class LazyNodeIndex<T,U>
 {
-	Map<String, T> nodesByIri = new ConcurrentHashMap<>();
-	Map<String, U> typeCache = new ConcurrentHashMap<>(); // iri -> type IRI
-	
-	public void put(String iri, T node)
+	/** The IDs of the files, in the order they were first seen */
+	protected final Map<String,Integer> m_fileIds = new HashMap<String,Integer>();
+
+	/** The nodes of each file, indexed by file ID and then node ID */
+	protected final List<List<T>> m_nodes = new ArrayList<List<T>>();
+
+	/**
+	 * The values computed for the nodes of each file, indexed like
+	 * {@link #m_nodes}; a <tt>null</tt> entry means no value was computed
+	 */
+	protected final List<List<U>> m_values = new ArrayList<List<U>>();
+
+	/**
+	 * The nodes already in the index, associated with the IRI they were first
+	 * given. Nodes are compared by identity, as distinct nodes can be equal.
+	 */
+	protected final Map<T,String> m_iris = new IdentityHashMap<T,String>();
+
+	/**
+	 * The number of levels of method calls left to follow when each node was
+	 * added, indexed like {@link #m_nodes}
+	 */
+	protected final List<NodeIds> m_depths = new ArrayList<NodeIds>();
+
+	/**
+	 * The IRIs of the nodes added again with another number of levels left to
+	 * follow than the first time, indexed by that number. This only happens
+	 * when method calls are followed.
+	 */
+	protected final Map<T,Map<Integer,String>> m_others = new IdentityHashMap<T,Map<Integer,String>>();
+
+	/**
+	 * The IDs of the nodes of each file, indexed by file ID and then by the
+	 * class of the nodes. The classes of a file are kept in the order they were
+	 * first seen.
+	 */
+	protected final List<Map<Class<?>,NodeIds>> m_kinds = new ArrayList<Map<Class<?>,NodeIds>>();
+
+	/**
+	 * Adds a node translated without following method calls to the index,
+	 * unless it is already present.
+	 * @param filename The name of the file containing the node
+	 * @param node The node
+	 * @return The IRI given to the node, or <tt>null</tt> if the node was
+	 * already in the index
+	 */
+	public String add(String filename, T node)
 	{
-		nodesByIri.put(iri, node);
+		return add(filename, node, 0);
 	}
-	
+
+	/**
+	 * Adds a node to the index, unless it is already present with the same
+	 * number of levels of method calls left to follow.
+	 * @param filename The name of the file containing the node
+	 * @param node The node
+	 * @param follow The number of levels of method calls left to follow in
+	 * the translation of the node
+	 * @return The IRI given to the node, or <tt>null</tt> if the node was
+	 * already in the index with that number of levels
+	 */
+	public String add(String filename, T node, int follow)
+	{
+		String first = m_iris.get(node);
+		if (first != null)
+		{
+			if (m_depths.get(AstIds.fileOf(first)).m_ids[AstIds.nodeOf(first)] == follow)
+			{
+				return null;
+			}
+			Map<Integer,String> others = m_others.computeIfAbsent(node, k -> new HashMap<Integer,String>());
+			if (others.containsKey(follow))
+			{
+				return null;
+			}
+			String iri = newIri(filename, node, follow);
+			others.put(follow, iri);
+			return iri;
+		}
+		String iri = newIri(filename, node, follow);
+		m_iris.put(node, iri);
+		return iri;
+	}
+
+	/**
+	 * Gives a new IRI to a node and adds it to the lists of its file.
+	 * @param filename The name of the file containing the node
+	 * @param node The node
+	 * @param follow The number of levels of method calls left to follow in
+	 * the translation of the node
+	 * @return The IRI
+	 */
+	protected String newIri(String filename, T node, int follow)
+	{
+		Integer file = m_fileIds.get(filename);
+		if (file == null)
+		{
+			file = m_nodes.size();
+			m_fileIds.put(filename, file);
+			m_nodes.add(new ArrayList<T>());
+			m_values.add(new ArrayList<U>());
+			m_kinds.add(new LinkedHashMap<Class<?>,NodeIds>());
+			m_depths.add(new NodeIds());
+		}
+		List<T> nodes = m_nodes.get(file);
+		String iri = AstIds.iriFor(file, nodes.size());
+		m_kinds.get(file).computeIfAbsent(node.getClass(), k -> new NodeIds()).add(nodes.size());
+		nodes.add(node);
+		m_values.get(file).add(null);
+		m_depths.get(file).add(follow);
+		return iri;
+	}
+
+	/**
+	 * Gets the node with a given IRI.
+	 * @param iri The IRI
+	 * @return The node, or <tt>null</tt> if the index has no such node
+	 */
 	public T get(String iri)
 	{
-		return nodesByIri.get(iri);
+		return get(AstIds.fileOf(iri), AstIds.nodeOf(iri));
 	}
-	
-	public Set<String> allIris()
+
+	/**
+	 * Gets the node with given IDs.
+	 * @param file The ID of the file
+	 * @param node The ID of the node within the file
+	 * @return The node, or <tt>null</tt> if the index has no such node
+	 */
+	public T get(int file, int node)
 	{
-		return nodesByIri.keySet();
+		if (file < 0 || file >= m_nodes.size())
+		{
+			return null;
+		}
+		List<T> nodes = m_nodes.get(file);
+		return node < 0 || node >= nodes.size() ? null : nodes.get(node);
 	}
-	
+
+	/**
+	 * Gets the IRI of a node. If the node was translated more than once, this
+	 * is the IRI of its first translation.
+	 * @param node The node
+	 * @return The IRI, or <tt>null</tt> if the node is not in the index
+	 */
+	public String getIri(T node)
+	{
+		return m_iris.get(node);
+	}
+
+	/**
+	 * Gets the number of files in the index.
+	 * @return The number of files
+	 */
+	public int getFileCount()
+	{
+		return m_nodes.size();
+	}
+
+	/**
+	 * Gets the number of nodes of a file in the index.
+	 * @param file The ID of the file
+	 * @return The number of nodes
+	 */
+	public int getNodeCount(int file)
+	{
+		return m_nodes.get(file).size();
+	}
+
+	/**
+	 * Gets the classes of the nodes of a file in the index.
+	 * @param file The ID of the file
+	 * @return The classes
+	 */
+	public Set<Class<?>> getKinds(int file)
+	{
+		return m_kinds.get(file).keySet();
+	}
+
+	/**
+	 * Gets the IDs of the nodes of a file that are instances of a given class.
+	 * Subclasses are not included.
+	 * @param file The ID of the file
+	 * @param kind The class of the nodes
+	 * @return The IDs of the nodes, in increasing order
+	 */
+	public int[] getNodes(int file, Class<?> kind)
+	{
+		NodeIds ids = m_kinds.get(file).get(kind);
+		return ids == null ? new int[0] : Arrays.copyOf(ids.m_ids, ids.m_size);
+	}
+
 	/**
 	 * Determines whether the index contains a node with the given IRI.
 	 * @param key The IRI to look for
@@ -48,6 +254,56 @@ public class LazyNodeIndex<T,U>
 	 */
 	public boolean containsIri(String key)
 	{
-		return nodesByIri.containsKey(key);
+		return get(key) != null;
+	}
+
+	/**
+	 * Gets the value computed for a node.
+	 * @param file The ID of the file
+	 * @param node The ID of the node within the file
+	 * @return The value, or <tt>null</tt> if none was computed
+	 */
+	public U getValue(int file, int node)
+	{
+		return get(file, node) == null ? null : m_values.get(file).get(node);
+	}
+
+	/**
+	 * Sets the value computed for a node.
+	 * @param file The ID of the file
+	 * @param node The ID of the node within the file
+	 * @param value The value
+	 */
+	public void setValue(int file, int node, U value)
+	{
+		if (get(file, node) != null)
+		{
+			m_values.get(file).set(node, value);
+		}
+	}
+
+	/**
+	 * A growable list of node IDs, which avoids boxing each of them.
+	 */
+	protected static class NodeIds
+	{
+		/** The IDs */
+		protected int[] m_ids = new int[8];
+
+		/** The number of IDs in the list */
+		protected int m_size = 0;
+
+		/**
+		 * Adds an ID at the end of the list.
+		 * @param id The ID
+		 */
+		protected void add(int id)
+		{
+			if (m_size == m_ids.length)
+			{
+				m_ids = Arrays.copyOf(m_ids, m_size * 2);
+			}
+			m_ids[m_size++] = id;
+		}
 	}
 }
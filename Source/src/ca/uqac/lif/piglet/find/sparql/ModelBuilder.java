@@ -18,6 +18,7 @@
 package ca.uqac.lif.piglet.find.sparql;
 
 import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
 
 import com.github.javaparser.ast.Node;
 
@@ -27,7 +28,8 @@ import ca.uqac.lif.piglet.find.visitor.PushPopVisitableNode;
 /**
  * A utility class to build an RDF model from a Java AST.
  * It uses the {@link JavaAstToRdfVisitor} to traverse the AST and populate
- * the model.
+ * the model, in a single traversal that does not create a visitor for each
+ * sub-tree.
  */
 public class ModelBuilder
 {
@@ -36,11 +38,44 @@ public class ModelBuilder
 
 	public static ModelBuilderResult buildModel(PushPopVisitableNode n, int follow, TokenFinderContext context, String filename)
 	{
-		JavaAstToRdfVisitor visitor = new JavaAstToRdfVisitor(follow, context, filename);
-		n.accept(visitor);
+		return buildModel(n, follow, context, filename, QueryFootprint.ALL);
+	}
+
+	/**
+	 * Builds the part of the RDF model of an AST that a set of queries can
+	 * observe.
+	 * @param n The root of the AST
+	 * @param follow How many levels of method declarations to follow
+	 * @param context The context in which the token finder operates
+	 * @param filename The name of the file the AST comes from
+	 * @param footprint The footprint of the queries
+	 * @return The model and the index of its AST nodes
+	 */
+	public static ModelBuilderResult buildModel(PushPopVisitableNode n, int follow, TokenFinderContext context, String filename, QueryFootprint footprint)
+	{
+		JavaAstToRdfVisitor visitor = new JavaAstToRdfVisitor(follow, context, filename, footprint);
+		visitor.translate(n.getNode());
 		return new ModelBuilderResult(visitor.getModel(), visitor.getIndex());
 	}
 
+	/**
+	 * Builds a model of an AST whose triples are computed when a query asks
+	 * for them, instead of being stored. Only the index of the AST nodes is
+	 * built beforehand. Method calls are not followed.
+	 * @param n The root of the AST
+	 * @param context The context in which the token finder operates
+	 * @param filename The name of the file the AST comes from
+	 * @return The model and the index of its AST nodes
+	 * @see AstGraph
+	 */
+	public static ModelBuilderResult buildVirtualModel(PushPopVisitableNode n, TokenFinderContext context, String filename)
+	{
+		JavaAstToRdfVisitor visitor = new JavaAstToRdfVisitor(0, context, filename, QueryFootprint.NODES);
+		visitor.translate(n.getNode());
+		AstGraph graph = new AstGraph(visitor.getIndex(), context, filename);
+		return new ModelBuilderResult(ModelFactory.createModelForGraph(graph), visitor.getIndex());
+	}
+
 	public static class ModelBuilderResult
 	{
 		protected final Model m_model;
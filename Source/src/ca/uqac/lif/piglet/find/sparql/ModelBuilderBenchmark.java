@@ -0,0 +1,116 @@
+/*
+    Analysis of assertions in Java programs
+    Copyright (C) 2025 Sylvain Hallé, Sarika Machhindra Kadam
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.piglet.find.sparql;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParseResult;
+import com.github.javaparser.ParserConfiguration;
+import com.github.javaparser.ast.CompilationUnit;
+
+import ca.uqac.lif.fs.FileSystemException;
+import ca.uqac.lif.fs.HardDisk;
+import ca.uqac.lif.piglet.find.TokenFinderFactory.TokenFinderFactoryException;
+import ca.uqac.lif.piglet.find.visitor.PushPopVisitableNode;
+
+/**
+ * Measures the time and the memory allocated to build the RDF model of Java
+ * files, without resolving any symbol (i.e. with a follow depth of 0). The
+ * files are parsed beforehand, so that only the construction of the model
+ * is measured.
+ * <p>
+ * Usage: <tt>ModelBuilderBenchmark folder [rounds [query...]]</tt>, where
+ * <tt>folder</tt> is searched recursively for <tt>.java</tt> files. When
+ * SPARQL query files are given, only the part of the model that these queries
+ * can observe is built (see {@link QueryFootprint}). The
+ * first round only warms up the JVM; the figures reported are the averages
+ * of the other rounds. The memory allocated is measured per thread, which
+ * requires a HotSpot-based JVM.
+ */
+public class ModelBuilderBenchmark
+{
+	public static void main(String[] args) throws IOException, FileSystemException, TokenFinderFactoryException
+	{
+		if (args.length < 1)
+		{
+			System.err.println("Usage: ModelBuilderBenchmark folder [rounds [query...]]");
+			System.exit(1);
+		}
+		int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+		QueryFootprint footprint = args.length > 2 ? QueryFootprint.NONE : QueryFootprint.ALL;
+		for (int i = 2; i < args.length; i++)
+		{
+			Path query = Paths.get(args[i]).toAbsolutePath();
+			HardDisk hd = new HardDisk(query.getParent().toString()).open();
+			SparqlTokenFinderFactory fac = SparqlTokenFinderFactory.readSparql(hd, query.getFileName().toString());
+			hd.close();
+			footprint = footprint.union(fac.getFootprint());
+		}
+		List<Path> files;
+		try (Stream<Path> s = Files.walk(Paths.get(args[0])))
+		{
+			files = s.filter(p -> p.toString().endsWith(".java")).sorted().collect(Collectors.toList());
+		}
+		JavaParser parser = new JavaParser(new ParserConfiguration()
+				.setLanguageLevel(ParserConfiguration.LanguageLevel.JAVA_17).setStoreTokens(true));
+		List<CompilationUnit> units = new ArrayList<>();
+		for (Path p : files)
+		{
+			ParseResult<CompilationUnit> r = parser.parse(new String(Files.readAllBytes(p), StandardCharsets.UTF_8));
+			r.getResult().ifPresent(units::add);
+		}
+		com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long tid = Thread.currentThread().getId();
+		long triples = 0, bytes = 0, nanos = 0;
+		for (int round = 0; round <= rounds; round++)
+		{
+			long round_triples = 0;
+			long start_bytes = bean.getThreadAllocatedBytes(tid);
+			long start = System.nanoTime();
+			for (int i = 0; i < units.size(); i++)
+			{
+				ModelBuilder.ModelBuilderResult r = ModelBuilder.buildModel(new PushPopVisitableNode(units.get(i)), 0, null, files.get(i).toString(), footprint);
+				round_triples += r.getModel().size();
+			}
+			long end = System.nanoTime();
+			long end_bytes = bean.getThreadAllocatedBytes(tid);
+			if (round > 0)
+			{
+				triples += round_triples;
+				bytes += end_bytes - start_bytes;
+				nanos += end - start;
+			}
+		}
+		int n = Math.max(1, units.size());
+		System.out.println("Footprint: " + footprint);
+		System.out.println(units.size() + " file(s), " + (triples / rounds) + " triple(s) per round");
+		System.out.printf("Time:      %.2f ms per file%n", nanos / 1e6 / rounds / n);
+		System.out.printf("Allocated: %.1f KiB per file, %.1f bytes per triple%n",
+				bytes / 1024d / rounds / n, (double) bytes / Math.max(1, triples));
+	}
+}
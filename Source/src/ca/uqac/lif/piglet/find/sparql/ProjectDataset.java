@@ -0,0 +1,729 @@
+/*
+    Analysis of assertions in Java programs
+    Copyright (C) 2025 Sylvain Hallé, Sarika Machhindra Kadam
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.piglet.find.sparql;
+
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.query.Dataset;
+import org.apache.jena.query.Query;
+import org.apache.jena.query.QueryExecution;
+import org.apache.jena.query.QueryFactory;
+import org.apache.jena.query.QueryParseException;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.core.Quad;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.exec.RowSet;
+import org.apache.jena.sparql.util.Context;
+import org.apache.jena.system.Txn;
+import org.apache.jena.tdb2.DatabaseMgr;
+import org.apache.jena.tdb2.TDB2Factory;
+
+import com.github.javaparser.Position;
+import com.github.javaparser.Range;
+import com.github.javaparser.ast.CompilationUnit;
+
+import ca.uqac.lif.piglet.find.FoundToken;
+import ca.uqac.lif.piglet.find.SourceText;
+import ca.uqac.lif.piglet.find.TokenFinderContext;
+import ca.uqac.lif.piglet.find.visitor.PushPopVisitableNode;
+
+/**
+ * A persistent RDF dataset holding the models of all the files of a project,
+ * stored with Jena TDB2 in a local folder. The model of each file is a named
+ * graph, whose name is the IRI <tt>urn:file:</tt> followed by the (encoded)
+ * name of the file. SPARQL queries are evaluated once on the graphs of all
+ * the files of the current analysis: their default graph is the union of
+ * these graphs, so that queries written for a single file see every file,
+ * and <tt>GRAPH ?file { ... }</tt> tells them apart.
+ * <p>
+ * Besides the triples of the model, the graph of a file records the name of
+ * the file (<tt>:filename</tt>), its source code (<tt>:source</tt>) and the
+ * range of each AST node (<tt>:range</tt>), which turn the nodes found by a
+ * query into tokens without parsing the file again. The IRI of an AST node is
+ * the name of its graph followed by <tt>#</tt> and its position in the
+ * translation.
+ * <p>
+ * The dataset is maintained incrementally. A manifest, kept in a graph of its
+ * own, associates the name of the graph of each file with a hash of the
+ * contents it was translated from (<tt>:hash</tt>); only the graphs of the
+ * files whose hash changed are deleted and written again, along with their
+ * entry in the manifest and in the same transaction, and the graphs of all
+ * the other files are left untouched. TDB2 does not reuse the space of
+ * deleted triples: the manifest also counts the graphs replaced since the
+ * dataset was last compacted, and the dataset is compacted when closed once
+ * this count exceeds the number of graphs. Compaction copies the live graphs
+ * only, and its cost is therefore bounded by the writes that made it
+ * necessary.
+ * <p>
+ * Models are translated in full, without following method calls and from
+ * units parsed with their comments, since they must serve whatever queries
+ * later analyses run. Queries that resolve the type of AST nodes with
+ * <tt>:resolvedtype</tt> need the nodes themselves, and cannot be evaluated
+ * on the dataset.
+ * <p>
+ * Writing to the dataset is done by a single thread of its own. Analysis
+ * threads can be interrupted when a file times out, and an interruption
+ * during an I/O operation closes the files of the dataset; the threads
+ * therefore only hand the graphs they build to the writer, which writes all
+ * the graphs waiting for it in a single transaction.
+ */
+public class ProjectDataset
+{
+	/**
+	 * The version of the contents of the graphs. It is recorded in the
+	 * manifest, and must be incremented whenever the translation changes: a
+	 * dataset of another version is emptied when opened, so that all its files
+	 * are translated again.
+	 */
+	protected static final int FORMAT_VERSION = 3;
+
+	/** The prefix of the names of the graphs */
+	public static final String FILE_NS = "urn:file:";
+
+	/** The name of the graph holding the manifest of the dataset */
+	public static final Node MANIFEST = NodeFactory.createURI("urn:piglet:manifest");
+
+	/** The dataset */
+	protected final Dataset m_dataset;
+
+	/**
+	 * The hash of each file whose graph is in the dataset, as of the last
+	 * write to the dataset.
+	 */
+	protected final Map<String,String> m_hashes = new ConcurrentHashMap<String,String>();
+
+	/**
+	 * The hash of the current contents of each file seen during the current
+	 * analysis
+	 */
+	protected final Map<String,String> m_seen = new ConcurrentHashMap<String,String>();
+
+	/** The thread writing graphs to the dataset */
+	protected final ExecutorService m_writer;
+
+	/** The changes waiting to be written by the writer thread */
+	protected final Queue<Update> m_pending = new ConcurrentLinkedQueue<Update>();
+
+	/**
+	 * The number of graphs replaced or deleted since the dataset was last
+	 * compacted. Only accessed by the writer thread.
+	 */
+	protected long m_replaced = 0;
+
+	/** The number of files translated during the current analysis */
+	protected final LongAdder m_translated = new LongAdder();
+
+	/**
+	 * The number of files of the current analysis whose graph was already in
+	 * the dataset
+	 */
+	protected final LongAdder m_reused = new LongAdder();
+
+	/** The number of graphs deleted during the current analysis */
+	protected final LongAdder m_removed = new LongAdder();
+
+	/** The first error that occurred while writing to the dataset */
+	protected volatile RuntimeException m_error = null;
+
+	/**
+	 * Opens a dataset, creating it if it does not exist.
+	 * @param folder The folder where the dataset is stored
+	 * @throws IOException If the folder cannot be created
+	 */
+	public ProjectDataset(Path folder) throws IOException
+	{
+		super();
+		Files.createDirectories(folder);
+		m_dataset = TDB2Factory.connectDataset(folder.toString());
+		Txn.executeWrite(m_dataset, () -> {
+			DatasetGraph dsg = m_dataset.asDatasetGraph();
+			if (!Integer.toString(FORMAT_VERSION).equals(value(dsg, MANIFEST, MANIFEST, Vocabulary.VERSION)))
+			{
+				// New dataset, or graphs translated differently
+				dsg.clear();
+				dsg.add(MANIFEST, MANIFEST, Vocabulary.VERSION, NodeFactory.createLiteralString(Integer.toString(FORMAT_VERSION)));
+				return;
+			}
+			Iterator<Quad> it = dsg.find(MANIFEST, Node.ANY, Vocabulary.HASH, Node.ANY);
+			while (it.hasNext())
+			{
+				Quad q = it.next();
+				m_hashes.put(filenameOf(q.getSubject()), q.getObject().getLiteralLexicalForm());
+			}
+			String replaced = value(dsg, MANIFEST, MANIFEST, Vocabulary.REPLACED);
+			m_replaced = replaced == null ? 0 : Long.parseLong(replaced);
+		});
+		m_writer = Executors.newSingleThreadExecutor(r -> {
+			Thread t = new Thread(r);
+			t.setName("dataset-writer");
+			return t;
+		});
+	}
+
+	/**
+	 * Computes the hash of the contents of a file.
+	 * @param code The contents of the file
+	 * @return The hash, as a string of hexadecimal digits
+	 */
+	public static String hash(String code)
+	{
+		try
+		{
+			MessageDigest md = MessageDigest.getInstance("SHA-256");
+			md.update(code.getBytes(StandardCharsets.UTF_8));
+			byte[] digest = md.digest();
+			StringBuilder out = new StringBuilder(digest.length * 2);
+			for (byte b : digest)
+			{
+				out.append(Character.forDigit((b >> 4) & 0xF, 16));
+				out.append(Character.forDigit(b & 0xF, 16));
+			}
+			return out.toString();
+		}
+		catch (NoSuchAlgorithmException e)
+		{
+			// Cannot happen, SHA-256 is mandatory in every JVM
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Records that a file is part of the current analysis, and determines
+	 * whether its graph must be written.
+	 * @param filename The name of the file
+	 * @param hash The hash of the contents of the file, as computed by
+	 * {@link #hash(String)}
+	 * @return <tt>true</tt> if the dataset has no graph for this file, or a
+	 * graph for other contents
+	 */
+	public boolean needsUpdate(String filename, String hash)
+	{
+		m_seen.put(filename, hash);
+		if (hash.equals(m_hashes.get(filename)))
+		{
+			m_reused.increment();
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Translates a compilation unit and replaces the graph of its file with the
+	 * result. The translation is done by the calling thread; the graph is
+	 * written to the dataset later, by the writer thread.
+	 * @param context The thread context
+	 * @param filename The name of the file
+	 * @param hash The hash of the contents of the file
+	 * @param code The contents of the file
+	 * @param u The compilation unit parsed from these contents, with comments
+	 * attributed to its nodes
+	 */
+	public void put(TokenFinderContext context, String filename, String hash, String code, CompilationUnit u)
+	{
+		ModelBuilder.ModelBuilderResult r = ModelBuilder.buildModel(new PushPopVisitableNode(u), 0, context, filename, QueryFootprint.ALL);
+		Node graph = graphOf(filename);
+		String prefix = graph.getURI() + "#";
+		List<Triple> triples = new ArrayList<Triple>((int) r.getModel().size() + r.getIndex().getNodeCount(0) + 3);
+		Map<Node,Node> renamed = new HashMap<Node,Node>();
+		Iterator<Triple> it = r.getModel().getGraph().find();
+		while (it.hasNext())
+		{
+			Triple t = it.next();
+			triples.add(Triple.create(rename(t.getSubject(), prefix, renamed), t.getPredicate(), rename(t.getObject(), prefix, renamed)));
+		}
+		for (int i = 0; i < r.getIndex().getNodeCount(0); i++)
+		{
+			Range range = r.getIndex().get(0, i).getRange().orElse(null);
+			if (range != null)
+			{
+				triples.add(Triple.create(NodeFactory.createURI(prefix + i), Vocabulary.RANGE, NodeFactory.createLiteralString(toString(range))));
+			}
+		}
+		triples.add(Triple.create(graph, Vocabulary.FILENAME, NodeFactory.createLiteralString(filename)));
+		triples.add(Triple.create(graph, Vocabulary.SOURCE, NodeFactory.createLiteralString(code)));
+		submit(new Update(filename, hash, triples));
+	}
+
+	/**
+	 * Hands a change to the writer thread.
+	 * @param u The change
+	 */
+	protected void submit(Update u)
+	{
+		m_pending.add(u);
+		m_writer.execute(this::write);
+	}
+
+	/**
+	 * Writes all the pending changes in one transaction. Called by the writer
+	 * thread; a call finding no pending change does nothing, as the changes
+	 * it was scheduled for were written by an earlier call.
+	 */
+	protected void write()
+	{
+		List<Update> updates = new ArrayList<Update>();
+		Update u;
+		while ((u = m_pending.poll()) != null)
+		{
+			updates.add(u);
+		}
+		if (updates.isEmpty())
+		{
+			return;
+		}
+		// The hash of each file of the batch after its change, null if deleted
+		Map<String,String> changed = new HashMap<String,String>();
+		try
+		{
+			m_replaced = Txn.calculateWrite(m_dataset, () -> {
+				DatasetGraph dsg = m_dataset.asDatasetGraph();
+				long count = m_replaced;
+				for (Update up : updates)
+				{
+					Node graph = graphOf(up.m_filename);
+					if (changed.containsKey(up.m_filename) ? changed.get(up.m_filename) != null : m_hashes.containsKey(up.m_filename))
+					{
+						dsg.deleteAny(graph, Node.ANY, Node.ANY, Node.ANY);
+						dsg.deleteAny(MANIFEST, graph, Vocabulary.HASH, Node.ANY);
+						count++;
+					}
+					changed.put(up.m_filename, up.m_hash);
+					if (up.m_triples == null)
+					{
+						continue;
+					}
+					for (Triple t : up.m_triples)
+					{
+						dsg.add(graph, t.getSubject(), t.getPredicate(), t.getObject());
+					}
+					dsg.add(MANIFEST, graph, Vocabulary.HASH, NodeFactory.createLiteralString(up.m_hash));
+				}
+				setCount(dsg, count);
+				return count;
+			});
+		}
+		catch (RuntimeException e)
+		{
+			if (m_error == null)
+			{
+				m_error = e;
+			}
+			return;
+		}
+		for (Update up : updates)
+		{
+			if (up.m_triples == null)
+			{
+				m_removed.increment();
+			}
+			else
+			{
+				m_translated.increment();
+			}
+		}
+		for (Map.Entry<String,String> e : changed.entrySet())
+		{
+			if (e.getValue() == null)
+			{
+				m_hashes.remove(e.getKey());
+			}
+			else
+			{
+				m_hashes.put(e.getKey(), e.getValue());
+			}
+		}
+	}
+
+	/**
+	 * Compacts the dataset if the graphs replaced since it was last compacted
+	 * outnumber the graphs it holds. Called by the writer thread.
+	 */
+	protected void compact()
+	{
+		if (m_error != null || m_replaced <= m_hashes.size())
+		{
+			return;
+		}
+		try
+		{
+			Txn.executeWrite(m_dataset, () -> setCount(m_dataset.asDatasetGraph(), 0));
+			DatabaseMgr.compact(m_dataset.asDatasetGraph(), true);
+			m_replaced = 0;
+		}
+		catch (RuntimeException e)
+		{
+			m_error = e;
+		}
+	}
+
+	/**
+	 * Records in the manifest the number of graphs replaced since the dataset
+	 * was last compacted.
+	 * @param dsg The dataset, in a write transaction
+	 * @param count The number of graphs
+	 */
+	protected static void setCount(DatasetGraph dsg, long count)
+	{
+		dsg.deleteAny(MANIFEST, MANIFEST, Vocabulary.REPLACED, Node.ANY);
+		dsg.add(MANIFEST, MANIFEST, Vocabulary.REPLACED, NodeFactory.createLiteralString(Long.toString(count)));
+	}
+
+	/**
+	 * Waits until all the graphs handed to the dataset are written.
+	 * @throws RuntimeException The first error that occurred while writing
+	 */
+	public void flush()
+	{
+		try
+		{
+			m_writer.submit(() -> {}).get();
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+		catch (ExecutionException e)
+		{
+			// Cannot happen, the task does nothing
+		}
+		if (m_error != null)
+		{
+			throw m_error;
+		}
+	}
+
+	/**
+	 * Deletes the graphs of the files that were not seen during the current
+	 * analysis, such as files that were deleted since the last one. This must
+	 * only be called when the analysis went through all the files of the
+	 * project.
+	 * @return The number of graphs deleted
+	 */
+	public int prune()
+	{
+		flush();
+		Set<String> stale = new HashSet<String>(m_hashes.keySet());
+		stale.removeAll(m_seen.keySet());
+		if (stale.isEmpty())
+		{
+			return 0;
+		}
+		for (String filename : stale)
+		{
+			submit(new Update(filename, null, null));
+		}
+		flush();
+		return stale.size();
+	}
+
+	/**
+	 * Evaluates SPARQL finders on the graphs of the files seen during the
+	 * current analysis. The graphs of other files, such as files left out by
+	 * the file filter or files from earlier analyses that were not pruned, are
+	 * ignored, and so are the graphs of files whose contents changed but whose
+	 * new graph was not written, for example because of a timeout.
+	 * @param factories The factories of the finders
+	 * @param context The thread context, whose type solver is used by
+	 * <tt>:instanceof</tt>, or <tt>null</tt> if there is none
+	 * @param found The set to which found tokens are added
+	 */
+	public void process(Collection<SparqlTokenFinderFactory> factories, TokenFinderContext context, Set<FoundToken> found)
+	{
+		flush();
+		List<String> graphs = new ArrayList<String>();
+		for (Map.Entry<String,String> e : m_seen.entrySet())
+		{
+			if (e.getValue().equals(m_hashes.get(e.getKey())))
+			{
+				graphs.add(graphOf(e.getKey()).getURI());
+			}
+		}
+		if (graphs.isEmpty())
+		{
+			return;
+		}
+		Context ctx = SparqlTokenFinder.s_context.copy();
+		if (context != null)
+		{
+			ctx.set(SparqlTokenFinder.TYPE_SOLVER, context.getTypeSolver());
+			ctx.set(SparqlTokenFinder.RESOLUTION_TIMEOUT, context.getResolutionTimeout());
+		}
+		Txn.executeRead(m_dataset, () -> {
+			DatasetGraph dsg = m_dataset.asDatasetGraph();
+			Map<Node,SourceText> sources = new HashMap<Node,SourceText>();
+			for (SparqlTokenFinderFactory fac : factories)
+			{
+				if (Thread.currentThread().isInterrupted())
+				{
+					return;
+				}
+				try (QueryExecution qe = QueryExecution.dataset(m_dataset).query(restrict(fac.m_query, graphs)).context(ctx).build())
+				{
+					RowSet rows = RowSet.adapt(qe.execSelect());
+					while (rows.hasNext())
+					{
+						Binding b = rows.next();
+						FoundToken t = toToken(dsg, fac.getName(), b.get(SparqlTokenFinder.s_result), sources);
+						if (t != null)
+						{
+							found.add(t);
+						}
+					}
+				}
+				catch (QueryParseException e)
+				{
+					// Reported by the finders when the query is run on a single file
+				}
+			}
+		});
+	}
+
+	/**
+	 * Parses a query and restricts it to a list of graphs, which make up its
+	 * default graph and are the only named graphs it sees, as with
+	 * <tt>FROM</tt> and <tt>FROM NAMED</tt> clauses.
+	 * @param query The query, without its prefixes
+	 * @param graphs The IRIs of the graphs
+	 * @return The query
+	 * @throws QueryParseException If the query is not valid
+	 */
+	protected static Query restrict(String query, List<String> graphs) throws QueryParseException
+	{
+		Query q = QueryFactory.create(SparqlTokenFinder.prefixes + query);
+		for (String g : graphs)
+		{
+			q.addGraphURI(g);
+			q.addNamedGraphURI(g);
+		}
+		return q;
+	}
+
+	/**
+	 * Gets the number of files translated during the current analysis.
+	 * @return The number of files
+	 */
+	public int getTranslatedCount()
+	{
+		return m_translated.intValue();
+	}
+
+	/**
+	 * Gets the number of files of the current analysis whose graph was
+	 * already in the dataset.
+	 * @return The number of files
+	 */
+	public int getReusedCount()
+	{
+		return m_reused.intValue();
+	}
+
+	/**
+	 * Gets the number of graphs deleted during the current analysis, because
+	 * their file is no longer part of the project.
+	 * @return The number of graphs
+	 */
+	public int getRemovedCount()
+	{
+		return m_removed.intValue();
+	}
+
+	/**
+	 * Writes the pending graphs, compacts the dataset if needed and closes it.
+	 */
+	public void close()
+	{
+		try
+		{
+			m_writer.execute(this::compact);
+			flush();
+		}
+		finally
+		{
+			m_writer.shutdown();
+			m_dataset.close();
+		}
+	}
+
+	/**
+	 * A change to the dataset, waiting to be written.
+	 */
+	protected static class Update
+	{
+		/** The name of the file whose graph changes */
+		protected final String m_filename;
+
+		/** The hash of the new contents of the file */
+		protected final String m_hash;
+
+		/** The triples of the new graph, or <tt>null</tt> to delete the graph */
+		protected final List<Triple> m_triples;
+
+		public Update(String filename, String hash, List<Triple> triples)
+		{
+			super();
+			m_filename = filename;
+			m_hash = hash;
+			m_triples = triples;
+		}
+	}
+
+	/**
+	 * Turns a node found by a query into a token.
+	 * @param dsg The dataset
+	 * @param name The name of the finder
+	 * @param n The node, or <tt>null</tt>
+	 * @param sources The source code of the files already looked up
+	 * @return The token, or <tt>null</tt> if the node is not an AST node with a
+	 * range
+	 */
+	protected static FoundToken toToken(DatasetGraph dsg, String name, Node n, Map<Node,SourceText> sources)
+	{
+		if (n == null || !n.isURI() || !n.getURI().startsWith(FILE_NS))
+		{
+			return null;
+		}
+		int pos = n.getURI().indexOf('#');
+		if (pos < 0)
+		{
+			return null;
+		}
+		Node graph = NodeFactory.createURI(n.getURI().substring(0, pos));
+		Range range = parseRange(value(dsg, graph, n, Vocabulary.RANGE));
+		if (range == null)
+		{
+			return null;
+		}
+		SourceText source = sources.computeIfAbsent(graph, g -> {
+			String code = value(dsg, g, g, Vocabulary.SOURCE);
+			return new SourceText(code == null ? "" : code);
+		});
+		String snippet = source.slice(range);
+		return new FoundToken(name, filenameOf(graph), range.begin.line, range.end.line, snippet == null ? "" : snippet);
+	}
+
+	/**
+	 * Gets the lexical form of the object of a triple in a graph.
+	 * @param dsg The dataset
+	 * @param graph The name of the graph
+	 * @param s The subject of the triple
+	 * @param p The predicate of the triple
+	 * @return The lexical form, or <tt>null</tt> if there is no such triple
+	 */
+	protected static String value(DatasetGraph dsg, Node graph, Node s, Node p)
+	{
+		Iterator<Quad> it = dsg.find(graph, s, p, Node.ANY);
+		return it.hasNext() ? it.next().getObject().getLiteralLexicalForm() : null;
+	}
+
+	/**
+	 * Gets the name of the graph of a file.
+	 * @param filename The name of the file
+	 * @return The name of the graph
+	 */
+	public static Node graphOf(String filename)
+	{
+		return NodeFactory.createURI(FILE_NS + URLEncoder.encode(filename, StandardCharsets.UTF_8).replace("+", "%20"));
+	}
+
+	/**
+	 * Gets the name of the file of a graph.
+	 * @param graph The name of the graph
+	 * @return The name of the file
+	 */
+	public static String filenameOf(Node graph)
+	{
+		return URLDecoder.decode(graph.getURI().substring(FILE_NS.length()), StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Gives an AST node of a model the IRI it has in the dataset.
+	 * @param n A node of the model
+	 * @param prefix The prefix of the IRIs of the AST nodes of the file
+	 * @param renamed The nodes already renamed
+	 * @return The node in the dataset
+	 */
+	protected static Node rename(Node n, String prefix, Map<Node,Node> renamed)
+	{
+		if (!n.isURI() || !n.getURI().startsWith(AstIds.NS))
+		{
+			return n;
+		}
+		return renamed.computeIfAbsent(n, k -> NodeFactory.createURI(prefix + AstIds.nodeOf(k.getURI())));
+	}
+
+	/**
+	 * Writes a range as a string of the form <tt>l:c-l:c</tt>.
+	 * @param r The range
+	 * @return The string
+	 */
+	protected static String toString(Range r)
+	{
+		return r.begin.line + ":" + r.begin.column + "-" + r.end.line + ":" + r.end.column;
+	}
+
+	/**
+	 * Reads a range written by {@link #toString(Range)}.
+	 * @param s The string, or <tt>null</tt>
+	 * @return The range, or <tt>null</tt> if the string is not a range
+	 */
+	protected static Range parseRange(String s)
+	{
+		if (s == null)
+		{
+			return null;
+		}
+		String[] parts = s.split("[:-]");
+		if (parts.length != 4)
+		{
+			return null;
+		}
+		try
+		{
+			return new Range(new Position(Integer.parseInt(parts[0]), Integer.parseInt(parts[1])), new Position(Integer.parseInt(parts[2]), Integer.parseInt(parts[3])));
+		}
+		catch (NumberFormatException e)
+		{
+			return null;
+		}
+	}
+}
@@ -0,0 +1,541 @@
+/*
+    Analysis of assertions in Java programs
+    Copyright (C) 2025 Sylvain Hallé, Sarika Machhindra Kadam
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.piglet.find.sparql;
+
+import static ca.uqac.lif.piglet.find.sparql.Vocabulary.CONDITION;
+import static ca.uqac.lif.piglet.find.sparql.Vocabulary.DECLARATION;
+import static ca.uqac.lif.piglet.find.sparql.Vocabulary.ELSE_EXPR;
+import static ca.uqac.lif.piglet.find.sparql.Vocabulary.IN;
+import static ca.uqac.lif.piglet.find.sparql.Vocabulary.INITIALIZER;
+import static ca.uqac.lif.piglet.find.sparql.Vocabulary.NEXT;
+import static ca.uqac.lif.piglet.find.sparql.Vocabulary.NODETYPE;
+import static ca.uqac.lif.piglet.find.sparql.Vocabulary.SCOPE;
+import static ca.uqac.lif.piglet.find.sparql.Vocabulary.THEN_EXPR;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.query.Query;
+import org.apache.jena.query.QueryFactory;
+import org.apache.jena.sparql.algebra.Algebra;
+import org.apache.jena.sparql.algebra.Op;
+import org.apache.jena.sparql.algebra.op.Op1;
+import org.apache.jena.sparql.algebra.op.Op2;
+import org.apache.jena.sparql.algebra.op.OpBGP;
+import org.apache.jena.sparql.algebra.op.OpExtendAssign;
+import org.apache.jena.sparql.algebra.op.OpFilter;
+import org.apache.jena.sparql.algebra.op.OpJoin;
+import org.apache.jena.sparql.algebra.op.OpLeftJoin;
+import org.apache.jena.sparql.algebra.op.OpN;
+import org.apache.jena.sparql.algebra.op.OpPath;
+import org.apache.jena.sparql.algebra.op.OpSequence;
+import org.apache.jena.sparql.algebra.op.OpTriple;
+import org.apache.jena.sparql.algebra.op.OpUnion;
+import org.apache.jena.sparql.core.TriplePath;
+import org.apache.jena.sparql.expr.Expr;
+import org.apache.jena.sparql.expr.ExprFunction;
+import org.apache.jena.sparql.expr.ExprFunctionOp;
+import org.apache.jena.sparql.expr.ExprList;
+import org.apache.jena.sparql.path.P_Link;
+import org.apache.jena.sparql.path.P_Path1;
+import org.apache.jena.sparql.path.P_Path2;
+import org.apache.jena.sparql.path.P_ReverseLink;
+import org.apache.jena.sparql.path.Path;
+
+/**
+ * The part of the RDF vocabulary that a set of SPARQL queries can observe.
+ * It is obtained by a static analysis of the algebra of each query, and
+ * tells the {@link AstToRdfVisitor} which triples are worth producing:
+ * <ul>
+ * <li>only the triples whose predicate appears in a query, unless a query
+ * has a variable in predicate position;</li>
+ * <li>only the AST nodes whose type is mentioned by a query, when every
+ * query is <em>anchored</em>: each of its subjects is given a node type by a
+ * <tt>:nodetype</tt> pattern that must match, and it never goes from a node
+ * to another AST node (with <tt>:in</tt>, <tt>:next</tt>, <tt>:argN</tt>,
+ * etc.). Other nodes can then never be part of a solution, and the
+ * translation only descends through them.</li>
+ * </ul>
+ * The analysis is conservative: whatever it cannot make sense of makes the
+ * footprint keep the corresponding part of the model.
+ */
+public class QueryFootprint
+{
+	/** A footprint that keeps the whole model. */
+	public static final QueryFootprint ALL = new QueryFootprint(null, null, true);
+
+	/**
+	 * A footprint that translates every AST node but produces no triple, so
+	 * that only the index of the nodes is built.
+	 */
+	public static final QueryFootprint NODES = new QueryFootprint(Collections.<Node>emptySet(), null, false);
+
+	/** A footprint that keeps nothing, the neutral element of the union. */
+	public static final QueryFootprint NONE = new QueryFootprint(Collections.<Node>emptySet(), Collections.<Node>emptySet(), false);
+
+	/** The IRI of the property function resolving the type of a node */
+	protected static final String RESOLVED_TYPE = ModelBuilder.NS + "resolvedtype";
+
+	/** The IRI of the property function comparing two types */
+	protected static final String INSTANCE_OF = ModelBuilder.NS + "instanceof";
+
+	/** The predicates that link an AST node to another AST node */
+	protected static final Set<Node> s_structural = Set.of(IN, NEXT, SCOPE, DECLARATION, CONDITION, INITIALIZER);
+
+	/**
+	 * The predicates used by the queries, or <tt>null</tt> if any predicate
+	 * may be used.
+	 */
+	protected final Set<Node> m_predicates;
+
+	/**
+	 * The node type literals of the AST nodes the queries can match, or
+	 * <tt>null</tt> if they can match any node.
+	 */
+	protected final Set<Node> m_nodeTypes;
+
+	/**
+	 * Whether the queries resolve the type of AST nodes with
+	 * <tt>:resolvedtype</tt>, which is evaluated on the nodes themselves
+	 * rather than on the model.
+	 */
+	protected final boolean m_resolvesTypes;
+
+	/**
+	 * Creates a new footprint.
+	 * @param predicates The predicates used by the queries, or <tt>null</tt>
+	 * for all predicates
+	 * @param node_types The node type literals of the AST nodes the queries
+	 * can match, or <tt>null</tt> for all nodes
+	 * @param resolves_types Whether the queries resolve the type of AST nodes
+	 */
+	protected QueryFootprint(Set<Node> predicates, Set<Node> node_types, boolean resolves_types)
+	{
+		super();
+		m_predicates = predicates;
+		m_nodeTypes = node_types;
+		m_resolvesTypes = resolves_types;
+	}
+
+	/**
+	 * Computes the footprint of a SPARQL query.
+	 * @param query The query, including its prefixes
+	 * @return The footprint
+	 */
+	public static QueryFootprint of(String query)
+	{
+		return of(QueryFactory.create(query));
+	}
+
+	/**
+	 * Computes the footprint of a parsed SPARQL query.
+	 * @param query The query
+	 * @return The footprint
+	 */
+	public static QueryFootprint of(Query query)
+	{
+		Analyzer a = new Analyzer();
+		a.visit(Algebra.compile(query), true);
+		return a.getFootprint();
+	}
+
+	/**
+	 * Computes the footprint of this footprint and another one, that is, what
+	 * must be kept for both sets of queries.
+	 * @param f The other footprint
+	 * @return The union of the two footprints
+	 */
+	public QueryFootprint union(QueryFootprint f)
+	{
+		if (f == this || f == NONE)
+		{
+			return this;
+		}
+		if (this == NONE)
+		{
+			return f;
+		}
+		return new QueryFootprint(union(m_predicates, f.m_predicates), union(m_nodeTypes, f.m_nodeTypes), m_resolvesTypes || f.m_resolvesTypes);
+	}
+
+	/**
+	 * Determines if triples with a given predicate must be produced.
+	 * @param predicate The predicate
+	 * @return <tt>true</tt> if the triples must be produced
+	 */
+	public boolean emits(Node predicate)
+	{
+		return m_predicates == null || m_predicates.contains(predicate);
+	}
+
+	/**
+	 * Determines if AST nodes of a given class must be translated.
+	 * @param type The class of AST node
+	 * @return <tt>true</tt> if the nodes must be translated, <tt>false</tt> if
+	 * the translation can only descend to their children
+	 */
+	public boolean translates(Class<?> type)
+	{
+		return m_nodeTypes == null || m_nodeTypes.contains(Vocabulary.nodeType(type));
+	}
+
+	/**
+	 * Determines if the queries resolve the type of AST nodes. Such queries
+	 * can only be evaluated on a model whose index holds the AST nodes.
+	 * @return <tt>true</tt> if a query uses <tt>:resolvedtype</tt>
+	 */
+	public boolean resolvesTypes()
+	{
+		return m_resolvesTypes;
+	}
+
+	/**
+	 * Determines if this footprint keeps the whole model.
+	 * @return <tt>true</tt> if nothing is pruned
+	 */
+	public boolean isAll()
+	{
+		return m_predicates == null && m_nodeTypes == null;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "predicates: " + (m_predicates == null ? "all" : m_predicates) + ", node types: " + (m_nodeTypes == null ? "all" : m_nodeTypes);
+	}
+
+	/**
+	 * Computes the union of two sets, where <tt>null</tt> stands for the set
+	 * of everything.
+	 */
+	protected static Set<Node> union(Set<Node> s1, Set<Node> s2)
+	{
+		if (s1 == null || s2 == null)
+		{
+			return null;
+		}
+		Set<Node> s = new HashSet<Node>(s1);
+		s.addAll(s2);
+		return s;
+	}
+
+	/**
+	 * Determines if a predicate links an AST node to another AST node.
+	 * @param p The predicate
+	 * @return <tt>true</tt> if the predicate is structural
+	 */
+	protected static boolean isStructural(Node p)
+	{
+		if (s_structural.contains(p))
+		{
+			return true;
+		}
+		// The arguments of a call or of an operator: arg1, arg2, etc.
+		String uri = p.getURI();
+		String prefix = ModelBuilder.NS + "arg";
+		if (!uri.startsWith(prefix) || uri.length() == prefix.length())
+		{
+			return false;
+		}
+		for (int i = prefix.length(); i < uri.length(); i++)
+		{
+			if (!Character.isDigit(uri.charAt(i)))
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Walks the algebra of a query and collects what it refers to. An
+	 * operator is <em>mandatory</em> when each solution of the query must
+	 * match it; only node types given in mandatory operators anchor a
+	 * variable.
+	 */
+	protected static class Analyzer
+	{
+		/** The predicates found so far */
+		protected final Set<Node> m_predicates = new HashSet<Node>();
+
+		/** Whether the query has a predicate that is not a constant */
+		protected boolean m_allPredicates = false;
+
+		/** Whether the query can only match nodes of the types it names */
+		protected boolean m_anchored = true;
+
+		/** The node type literals found in the query */
+		protected final Set<Node> m_types = new HashSet<Node>();
+
+		/** The variables given a node type in a mandatory operator */
+		protected final Set<Node> m_typed = new HashSet<Node>();
+
+		/** The variables used as the subject of a pattern */
+		protected final Set<Node> m_subjects = new HashSet<Node>();
+
+		/** The variables used as the object of a pattern */
+		protected final Set<Node> m_objects = new HashSet<Node>();
+
+		/** Whether the query uses <tt>:resolvedtype</tt> */
+		protected boolean m_resolvesTypes = false;
+
+		/**
+		 * Gets the footprint of the query walked by this analyzer.
+		 * @return The footprint
+		 */
+		public QueryFootprint getFootprint()
+		{
+			Set<Node> predicates = m_allPredicates ? null : m_predicates;
+			boolean anchored = m_anchored && !m_types.contains(THEN_EXPR) && !m_types.contains(ELSE_EXPR);
+			for (Node v : m_subjects)
+			{
+				// A subject that is the object of another pattern is a blank node
+				// or a literal hanging from a node of its own
+				if (!m_typed.contains(v) && !m_objects.contains(v))
+				{
+					anchored = false;
+				}
+			}
+			return new QueryFootprint(predicates, anchored ? m_types : null, m_resolvesTypes);
+		}
+
+		/**
+		 * Visits an operator of the algebra.
+		 * @param op The operator
+		 * @param mandatory Whether the operator is mandatory
+		 */
+		public void visit(Op op, boolean mandatory)
+		{
+			if (op instanceof OpBGP)
+			{
+				for (Triple t : ((OpBGP) op).getPattern())
+				{
+					pattern(t.getSubject(), t.getPredicate(), t.getObject(), mandatory);
+				}
+			}
+			else if (op instanceof OpTriple)
+			{
+				Triple t = ((OpTriple) op).getTriple();
+				pattern(t.getSubject(), t.getPredicate(), t.getObject(), mandatory);
+			}
+			else if (op instanceof OpPath)
+			{
+				TriplePath tp = ((OpPath) op).getTriplePath();
+				path(tp.getPath());
+				subject(tp.getSubject());
+				if (tp.getObject().isVariable())
+				{
+					m_objects.add(tp.getObject());
+				}
+			}
+			else if (op instanceof OpFilter)
+			{
+				visit(((OpFilter) op).getExprs());
+				visit(((OpFilter) op).getSubOp(), mandatory);
+			}
+			else if (op instanceof OpExtendAssign)
+			{
+				for (Expr e : ((OpExtendAssign) op).getVarExprList().getExprs().values())
+				{
+					visit(e);
+				}
+				visit(((OpExtendAssign) op).getSubOp(), mandatory);
+			}
+			else if (op instanceof Op1)
+			{
+				visit(((Op1) op).getSubOp(), mandatory);
+			}
+			else if (op instanceof OpJoin)
+			{
+				visit(((OpJoin) op).getLeft(), mandatory);
+				visit(((OpJoin) op).getRight(), mandatory);
+			}
+			else if (op instanceof Op2)
+			{
+				// Optional, union, minus, etc.: the right side, at least, does not
+				// have to match
+				if (op instanceof OpLeftJoin && ((OpLeftJoin) op).getExprs() != null)
+				{
+					visit(((OpLeftJoin) op).getExprs());
+				}
+				boolean left = mandatory && !(op instanceof OpUnion);
+				visit(((Op2) op).getLeft(), left);
+				visit(((Op2) op).getRight(), false);
+			}
+			else if (op instanceof OpN)
+			{
+				boolean all = mandatory && op instanceof OpSequence;
+				for (Op sub : ((OpN) op).getElements())
+				{
+					visit(sub, all);
+				}
+			}
+			// Other operators (tables, etc.) do not match triples
+		}
+
+		/**
+		 * Visits a list of expressions, looking for graph patterns inside
+		 * <tt>EXISTS</tt> and <tt>NOT EXISTS</tt>.
+		 * @param list The expressions
+		 */
+		protected void visit(ExprList list)
+		{
+			for (Expr e : list)
+			{
+				visit(e);
+			}
+		}
+
+		/**
+		 * Visits an expression, looking for graph patterns inside
+		 * <tt>EXISTS</tt> and <tt>NOT EXISTS</tt>.
+		 * @param e The expression
+		 */
+		protected void visit(Expr e)
+		{
+			if (e instanceof ExprFunctionOp)
+			{
+				visit(((ExprFunctionOp) e).getGraphPattern(), false);
+			}
+			if (e instanceof ExprFunction)
+			{
+				for (Expr arg : ((ExprFunction) e).getArgs())
+				{
+					visit(arg);
+				}
+			}
+		}
+
+		/**
+		 * Takes into account a triple pattern.
+		 * @param s The subject
+		 * @param p The predicate
+		 * @param o The object
+		 * @param mandatory Whether the pattern must match
+		 */
+		protected void pattern(Node s, Node p, Node o, boolean mandatory)
+		{
+			if (!p.isURI())
+			{
+				m_allPredicates = true;
+				m_anchored = false;
+				return;
+			}
+			String uri = p.getURI();
+			if (uri.equals(INSTANCE_OF))
+			{
+				// Compares type names, not AST nodes
+				return;
+			}
+			if (uri.equals(RESOLVED_TYPE))
+			{
+				// Evaluated on the index, not on triples, but binds AST nodes
+				m_resolvesTypes = true;
+				subject(s);
+				return;
+			}
+			m_predicates.add(p);
+			if (isStructural(p))
+			{
+				m_anchored = false;
+			}
+			if (p.equals(NODETYPE) && o.isLiteral())
+			{
+				m_types.add(o);
+				if (!s.isVariable())
+				{
+					m_anchored = false;
+				}
+				else if (mandatory)
+				{
+					m_typed.add(s);
+				}
+				return;
+			}
+			subject(s);
+			if (o.isVariable())
+			{
+				m_objects.add(o);
+			}
+		}
+
+		/**
+		 * Takes into account a term in subject position.
+		 * @param s The term
+		 */
+		protected void subject(Node s)
+		{
+			if (s.isVariable())
+			{
+				m_subjects.add(s);
+			}
+			else
+			{
+				// A constant node, which the pruned model may not have
+				m_anchored = false;
+			}
+		}
+
+		/**
+		 * Takes into account a predicate of a property path.
+		 * @param p The predicate
+		 */
+		protected void link(Node p)
+		{
+			m_predicates.add(p);
+			if (isStructural(p) || p.getURI().equals(RESOLVED_TYPE))
+			{
+				m_anchored = false;
+			}
+		}
+
+		/**
+		 * Takes into account the predicates of a property path.
+		 * @param path The path
+		 */
+		protected void path(Path path)
+		{
+			if (path instanceof P_Link)
+			{
+				link(((P_Link) path).getNode());
+			}
+			else if (path instanceof P_ReverseLink)
+			{
+				link(((P_ReverseLink) path).getNode());
+			}
+			else if (path instanceof P_Path1)
+			{
+				path(((P_Path1) path).getSubPath());
+			}
+			else if (path instanceof P_Path2)
+			{
+				path(((P_Path2) path).getLeft());
+				path(((P_Path2) path).getRight());
+			}
+			else
+			{
+				// Negated property sets, etc.
+				m_allPredicates = true;
+				m_anchored = false;
+			}
+		}
+	}
+}
@@ -1,11 +1,16 @@
 package ca.uqac.lif.piglet.find.sparql;
 
+import org.apache.jena.sparql.engine.ExecutionContext;
+import org.apache.jena.sparql.pfunction.PropFuncArg;
+
 import com.github.javaparser.ast.Node;
 import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
 import com.github.javaparser.ast.expr.Expression;
 import com.github.javaparser.ast.nodeTypes.NodeWithType;
 import com.github.javaparser.resolution.TypeSolver;
 
+import ca.uqac.lif.piglet.util.ResolutionDeadline;
+import ca.uqac.lif.piglet.util.ResolutionTimeoutException;
 import ca.uqac.lif.piglet.util.TypeRdf;
 
 /**
@@ -15,16 +20,85 @@ import ca.uqac.lif.piglet.util.TypeRdf;
  */
 public class ResolveType extends JavaAstNodeFunction
 {
-	private final TypeSolver m_ts;
+	private TypeSolver m_ts;
+
+	/**
+	 * The time in milliseconds the resolution of a type may take, or 0 if
+	 * there is no limit.
+	 */
+	private long m_timeout;
 	
 	public ResolveType(LazyNodeIndex<Node,String> idx, TypeSolver ts)
 	{
 		super(idx);
 		m_ts = ts;
+		m_timeout = 0;
+	}
+
+	/**
+	 * Creates a function that takes its index and its type solver from the
+	 * context of the query execution.
+	 */
+	public ResolveType()
+	{
+		super();
+		m_ts = null;
+		m_timeout = 0;
+	}
+
+	@Override
+	public void build(PropFuncArg argSubject, org.apache.jena.graph.Node predicate, PropFuncArg argObject, ExecutionContext execCxt)
+	{
+		super.build(argSubject, predicate, argObject, execCxt);
+		if (m_ts == null)
+		{
+			m_ts = execCxt.getContext().get(SparqlTokenFinder.TYPE_SOLVER);
+		}
+		Long timeout = execCxt.getContext().get(SparqlTokenFinder.RESOLUTION_TIMEOUT);
+		if (timeout != null)
+		{
+			m_timeout = timeout;
+		}
+	}
+
+	@Override
+	protected boolean appliesTo(Class<?> kind)
+	{
+		return NodeWithType.class.isAssignableFrom(kind) || ClassOrInterfaceDeclaration.class.isAssignableFrom(kind) || Expression.class.isAssignableFrom(kind);
+	}
+
+	@Override
+	protected String getDefaultValue()
+	{
+		return "?";
 	}
 
+	/**
+	 * Resolves the type of a node. A resolution that runs past the
+	 * resolution timeout of the analysis is abandoned, and the type is then
+	 * unknown.
+	 */
 	@Override
 	protected String calculateValue(Node n)
+	{
+		try (ResolutionDeadline d = ResolutionDeadline.start(m_ts, m_timeout))
+		{
+			String type = resolve(n);
+			// The fallbacks of TypeRdf may have swallowed the timeout
+			return d.isExpired() ? "?" : type;
+		}
+		catch (ResolutionTimeoutException e)
+		{
+			return "?";
+		}
+	}
+
+	/**
+	 * Resolves the type of a node, without timeout.
+	 * @param n The node
+	 * @return The type, or <tt>?</tt> if it cannot be resolved
+	 */
+	protected String resolve(Node n)
 	{
 		if (n instanceof NodeWithType<?,?>)
 		{
@@ -35,15 +109,5 @@ public class ResolveType extends JavaAstNodeFunction
 			return TypeRdf.resolveTypeToString(n, m_ts);
 		}
 		return "?";
-		
-		/*
-		ResolveResult<ResolvedType> rr = Types.typeOfWithTimeout((Expression) n, m_ts, 100);
-		if (rr.reason == Types.ResolveReason.RESOLVED)
-		{
-			//System.out.println("Resolved type of " + n + " to " + rr.value.get().describe());
-			return rr.value.get().describe();
-		}
-		return "?";
-		*/
 	}
 }
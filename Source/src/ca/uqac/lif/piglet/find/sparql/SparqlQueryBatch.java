@@ -0,0 +1,769 @@
+/*
+    Analysis of assertions in Java programs
+    Copyright (C) 2025 Sylvain Hallé, Sarika Machhindra Kadam
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.piglet.find.sparql;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.jena.atlas.lib.Alarm;
+import org.apache.jena.atlas.lib.AlarmClock;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.query.QueryCancelledException;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.sparql.algebra.Op;
+import org.apache.jena.sparql.algebra.op.Op1;
+import org.apache.jena.sparql.algebra.op.Op2;
+import org.apache.jena.sparql.algebra.op.OpAssign;
+import org.apache.jena.sparql.algebra.op.OpBGP;
+import org.apache.jena.sparql.algebra.op.OpConditional;
+import org.apache.jena.sparql.algebra.op.OpDistinct;
+import org.apache.jena.sparql.algebra.op.OpExtend;
+import org.apache.jena.sparql.algebra.op.OpFilter;
+import org.apache.jena.sparql.algebra.op.OpGroup;
+import org.apache.jena.sparql.algebra.op.OpJoin;
+import org.apache.jena.sparql.algebra.op.OpLeftJoin;
+import org.apache.jena.sparql.algebra.op.OpMinus;
+import org.apache.jena.sparql.algebra.op.OpOrder;
+import org.apache.jena.sparql.algebra.op.OpProject;
+import org.apache.jena.sparql.algebra.op.OpPropFunc;
+import org.apache.jena.sparql.algebra.op.OpReduced;
+import org.apache.jena.sparql.algebra.op.OpSequence;
+import org.apache.jena.sparql.algebra.op.OpTable;
+import org.apache.jena.sparql.algebra.table.TableN;
+import org.apache.jena.sparql.core.BasicPattern;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.engine.ExecutionContext;
+import org.apache.jena.sparql.engine.QueryIterator;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.engine.binding.BindingBuilder;
+import org.apache.jena.sparql.engine.binding.BindingFactory;
+import org.apache.jena.sparql.engine.main.QC;
+import org.apache.jena.sparql.engine.optimizer.reorder.ReorderLib;
+import org.apache.jena.sparql.engine.optimizer.reorder.ReorderTransformation;
+
+import ca.uqac.lif.piglet.find.FoundToken;
+import ca.uqac.lif.piglet.find.TokenFinderContext;
+
+/**
+ * Evaluates the queries of a set of SPARQL finders on the model of a file in
+ * a single pass, sharing the work that is common to several queries.
+ * <p>
+ * Most queries start with the same few triple patterns (typically the type
+ * of the node they look for, and often its name) and differ only in the
+ * remaining patterns and filters. When the batch is created, the first
+ * basic graph pattern evaluated by each compiled query is located, and its
+ * triple patterns are put in the order in which Jena matches them. The
+ * leading patterns of each query are then compared to those of the other
+ * queries, up to a renaming of their variables. The last pattern of a
+ * prefix may also differ by the literal it expects, as in
+ * <tt>?n :name "assertTrue"</tt> and <tt>?n :name "assertFalse"</tt>; this
+ * literal is then replaced by a variable in the shared prefix. Each query is
+ * assigned the longest prefix it shares with at least one other query.
+ * <p>
+ * On each file, every shared prefix is matched once, and its solutions are
+ * put in a table; a query whose literal was replaced only receives the rows
+ * where the variable has the value of this literal. In the plan of each
+ * query, the basic graph pattern is replaced by the table followed by the
+ * remaining patterns, which Jena then matches for each row of the table, as
+ * it would have done after matching the prefix itself. The results are
+ * therefore the same as those of the original query, and the work spent on
+ * the prefix is done once instead of once per query.
+ * <p>
+ * The prefix is only looked for along the path of operators whose results
+ * come from their first operand. Queries without a basic graph pattern on
+ * that path, with a <tt>LIMIT</tt> or <tt>OFFSET</tt>, or that share no
+ * prefix with another query, are evaluated as usual.
+ * <p>
+ * A shared prefix is evaluated with the smallest timeout of the queries that
+ * share it. If it runs out of time, each of these queries is evaluated on
+ * its own, with its own timeout and budget, as if it shared nothing.
+ * <p>
+ * A batch is immutable once created, and can be used by any number of
+ * threads.
+ */
+public class SparqlQueryBatch
+{
+	/**
+	 * The reordering of triple patterns Jena applies when matching a basic
+	 * graph pattern on an in-memory graph.
+	 */
+	protected static final ReorderTransformation s_reorder = ReorderLib.fixed();
+
+	/**
+	 * A placeholder for the literal of a triple pattern replaced by a
+	 * variable.
+	 */
+	protected static final Var s_slot = Var.alloc("#slot");
+
+	/**
+	 * The factories whose queries are evaluated by this batch.
+	 */
+	protected final Set<SparqlTokenFinderFactory> m_factories;
+
+	/**
+	 * The part of the RDF model that the queries of the batch can observe.
+	 */
+	protected final QueryFootprint m_footprint;
+
+	/**
+	 * The groups of queries that start with the same triple patterns.
+	 */
+	protected final List<SharedPattern> m_shared;
+
+	/**
+	 * The factories whose queries share nothing with the others.
+	 */
+	protected final List<SparqlTokenFinderFactory> m_single;
+
+	/**
+	 * Whether the queries are evaluated on an {@link AstGraph} rather than on
+	 * a model built beforehand.
+	 */
+	protected final boolean m_virtual;
+
+	/**
+	 * Creates a new batch.
+	 * @param factories The factories whose queries are evaluated by this batch
+	 */
+	public SparqlQueryBatch(Set<SparqlTokenFinderFactory> factories)
+	{
+		this(factories, false);
+	}
+
+	/**
+	 * Creates a new batch.
+	 * @param factories The factories whose queries are evaluated by this batch
+	 * @param virtual Whether the queries are evaluated on an {@link AstGraph}
+	 * rather than on a model built beforehand
+	 */
+	public SparqlQueryBatch(Set<SparqlTokenFinderFactory> factories, boolean virtual)
+	{
+		super();
+		m_factories = factories;
+		m_virtual = virtual;
+		m_shared = new ArrayList<SharedPattern>();
+		m_single = new ArrayList<SparqlTokenFinderFactory>();
+		QueryFootprint footprint = QueryFootprint.NONE;
+		for (SparqlTokenFinderFactory fac : factories)
+		{
+			footprint = footprint.union(fac.getFootprint());
+		}
+		m_footprint = footprint;
+		// List the prefixes each query could share, from the longest
+		Map<SparqlTokenFinderFactory,List<List<Triple>>> candidates = new LinkedHashMap<>();
+		Map<List<Triple>,Integer> counts = new HashMap<>();
+		for (SparqlTokenFinderFactory fac : factories)
+		{
+			OpBGP bgp = fac.m_plan == null ? null : leadingPattern(fac.m_plan);
+			if (bgp == null)
+			{
+				m_single.add(fac);
+				continue;
+			}
+			List<List<Triple>> prefixes = prefixes(matchOrder(bgp));
+			candidates.put(fac, prefixes);
+			for (List<Triple> prefix : prefixes)
+			{
+				counts.merge(prefix, 1, Integer::sum);
+			}
+		}
+		// Assign each query the longest prefix it shares with another one; a
+		// query left alone with its prefix falls back to a shorter one
+		Map<List<Triple>,List<SparqlTokenFinderFactory>> groups;
+		boolean changed = true;
+		do
+		{
+			groups = new LinkedHashMap<>();
+			for (Map.Entry<SparqlTokenFinderFactory,List<List<Triple>>> e : candidates.entrySet())
+			{
+				for (List<Triple> prefix : e.getValue())
+				{
+					if (counts.get(prefix) >= 2)
+					{
+						groups.computeIfAbsent(prefix, x -> new ArrayList<>()).add(e.getKey());
+						break;
+					}
+				}
+			}
+			changed = false;
+			for (Map.Entry<List<Triple>,List<SparqlTokenFinderFactory>> e : groups.entrySet())
+			{
+				if (e.getValue().size() == 1)
+				{
+					candidates.get(e.getValue().get(0)).remove(e.getKey());
+					changed = true;
+				}
+			}
+		} while (changed);
+		for (Map.Entry<List<Triple>,List<SparqlTokenFinderFactory>> e : groups.entrySet())
+		{
+			m_shared.add(new SharedPattern(e.getKey(), e.getValue()));
+		}
+		for (SparqlTokenFinderFactory fac : candidates.keySet())
+		{
+			if (!isShared(fac))
+			{
+				m_single.add(fac);
+			}
+		}
+	}
+
+	/**
+	 * Gets the factories whose queries are evaluated by this batch.
+	 * @return The factories
+	 */
+	public Set<SparqlTokenFinderFactory> getFactories()
+	{
+		return m_factories;
+	}
+
+	/**
+	 * Gets the part of the RDF model that the queries of the batch can
+	 * observe.
+	 * @return The union of the footprints of the queries
+	 */
+	public QueryFootprint getFootprint()
+	{
+		return m_footprint;
+	}
+
+	/**
+	 * Determines whether the queries are evaluated on an {@link AstGraph}
+	 * rather than on a model built beforehand.
+	 * @return <tt>true</tt> if the model of a file is not built
+	 */
+	public boolean isVirtual()
+	{
+		return m_virtual;
+	}
+
+	/**
+	 * Gets the triple patterns matched once for several queries.
+	 * @return The list of patterns
+	 */
+	public List<BasicPattern> getSharedPatterns()
+	{
+		List<BasicPattern> list = new ArrayList<BasicPattern>(m_shared.size());
+		for (SharedPattern sp : m_shared)
+		{
+			list.add(sp.m_pattern.getPattern());
+		}
+		return list;
+	}
+
+	/**
+	 * Determines if the query of a factory shares its evaluation with other
+	 * queries of the batch.
+	 * @param fac The factory
+	 * @return <tt>true</tt> if part of the query is shared, <tt>false</tt>
+	 * otherwise
+	 */
+	public boolean isShared(SparqlTokenFinderFactory fac)
+	{
+		for (SharedPattern sp : m_shared)
+		{
+			for (Residual r : sp.m_residuals)
+			{
+				if (r.m_factory == fac)
+				{
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Evaluates the queries of the batch on the model of a file. Each factory
+	 * is marked as finished after its query has been evaluated, unless the
+	 * evaluation was stopped by the timeout or the budget of the query; the
+	 * tokens it found until then are kept, and the other queries are
+	 * evaluated as usual.
+	 * @param context The thread context
+	 * @param file The name of the file
+	 * @param model The model of the file
+	 * @param index The index of the AST nodes of the model
+	 * @param found The set to which found tokens are added
+	 */
+	public void process(TokenFinderContext context, String file, Model model, LazyNodeIndex<com.github.javaparser.ast.Node,String> index, Set<FoundToken> found)
+	{
+		ExecutionContext exec = SparqlTokenFinder.createExecutionContext(model, index, context);
+		for (SharedPattern sp : m_shared)
+		{
+			if (Thread.currentThread().isInterrupted())
+			{
+				return;
+			}
+			Solutions solutions = sp.evaluate(exec);
+			for (Residual r : sp.m_residuals)
+			{
+				if (Thread.currentThread().isInterrupted())
+				{
+					return;
+				}
+				SparqlTokenFinder f = newFinder(r.m_factory, context, file, model, index);
+				if (solutions == null)
+				{
+					// The prefix ran out of time
+					f.process();
+				}
+				else
+				{
+					f.process(r.plan(solutions), exec);
+				}
+				if (!f.isAborted())
+				{
+					r.m_factory.registerFinished();
+				}
+				found.addAll(f.getFoundTokens());
+			}
+		}
+		for (SparqlTokenFinderFactory fac : m_single)
+		{
+			if (Thread.currentThread().isInterrupted())
+			{
+				return;
+			}
+			SparqlTokenFinder f = newFinder(fac, context, file, model, index);
+			f.process();
+			if (!f.isAborted())
+			{
+				fac.registerFinished();
+			}
+			found.addAll(f.getFoundTokens());
+		}
+	}
+
+	/**
+	 * Creates a finder for the model of a file.
+	 * @param fac The factory of the finder
+	 * @param context The thread context
+	 * @param file The name of the file
+	 * @param model The model of the file
+	 * @param index The index of the AST nodes of the model
+	 * @return The finder
+	 */
+	protected static SparqlTokenFinder newFinder(SparqlTokenFinderFactory fac, TokenFinderContext context, String file, Model model, LazyNodeIndex<com.github.javaparser.ast.Node,String> index)
+	{
+		SparqlTokenFinder f = fac.newFinder();
+		f.setModel(model);
+		f.setIndex(index);
+		f.setFilename(file);
+		f.setContext(context);
+		return f;
+	}
+
+	/**
+	 * Finds the first basic graph pattern evaluated by a plan.
+	 * @param op The plan
+	 * @return The pattern, or <tt>null</tt> if there is none
+	 */
+	protected static OpBGP leadingPattern(Op op)
+	{
+		Op sub = firstOperand(op);
+		if (sub == null)
+		{
+			return op instanceof OpBGP && !((OpBGP) op).getPattern().isEmpty() ? (OpBGP) op : null;
+		}
+		return leadingPattern(sub);
+	}
+
+	/**
+	 * Replaces the first basic graph pattern evaluated by a plan.
+	 * @param op The plan
+	 * @param replacement The operator to put in place of the pattern
+	 * @return The new plan
+	 */
+	protected static Op replaceLeadingPattern(Op op, Op replacement)
+	{
+		Op sub = firstOperand(op);
+		if (sub == null)
+		{
+			return replacement;
+		}
+		Op new_sub = replaceLeadingPattern(sub, replacement);
+		if (op instanceof Op1)
+		{
+			return ((Op1) op).copy(new_sub);
+		}
+		if (op instanceof Op2)
+		{
+			return ((Op2) op).copy(new_sub, ((Op2) op).getRight());
+		}
+		List<Op> elements = new ArrayList<Op>(((OpSequence) op).getElements());
+		elements.set(0, new_sub);
+		return ((OpSequence) op).copy(elements);
+	}
+
+	/**
+	 * Gets the first operand of an operator, if the results of the operator
+	 * are computed from the solutions of that operand.
+	 * @param op The operator
+	 * @return The operand, or <tt>null</tt> if there is none
+	 */
+	protected static Op firstOperand(Op op)
+	{
+		if (op instanceof OpProject || op instanceof OpDistinct || op instanceof OpReduced
+				|| op instanceof OpFilter || op instanceof OpExtend || op instanceof OpAssign
+				|| op instanceof OpOrder || op instanceof OpGroup || op instanceof OpPropFunc)
+		{
+			return ((Op1) op).getSubOp();
+		}
+		if (op instanceof OpJoin || op instanceof OpLeftJoin || op instanceof OpConditional
+				|| op instanceof OpMinus)
+		{
+			return ((Op2) op).getLeft();
+		}
+		if (op instanceof OpSequence && ((OpSequence) op).size() > 0)
+		{
+			return ((OpSequence) op).get(0);
+		}
+		// Slices are excluded: which rows they keep depends on the order in
+		// which the solutions are produced
+		return null;
+	}
+
+	/**
+	 * Gets the triple patterns of a basic graph pattern in the order in which
+	 * Jena matches them.
+	 * @param bgp The basic graph pattern
+	 * @return The list of triple patterns
+	 */
+	protected static List<Triple> matchOrder(OpBGP bgp)
+	{
+		return s_reorder.reorder(bgp.getPattern()).getList();
+	}
+
+	/**
+	 * Lists the prefixes of a list of triple patterns that can be shared with
+	 * other queries, from the longest to the shortest. For each length, the
+	 * prefix is given as is, and then with the literal of its last pattern
+	 * replaced by a variable, when this pattern only looks up a property of a
+	 * node already matched by the previous ones. The first pattern, which
+	 * selects the nodes to start from, is never generalized in this way.
+	 * @param triples The triple patterns
+	 * @return The prefixes, with their variables renamed by
+	 * {@link #canonicalize(List)}
+	 */
+	protected static List<List<Triple>> prefixes(List<Triple> triples)
+	{
+		List<Triple> canonical = canonicalize(triples);
+		List<List<Triple>> prefixes = new ArrayList<List<Triple>>();
+		for (int k = canonical.size(); k > 0; k--)
+		{
+			List<Triple> prefix = canonical.subList(0, k);
+			prefixes.add(prefix);
+			Triple last = prefix.get(k - 1);
+			if (k > 1 && last.getObject().isLiteral() && last.getPredicate().isURI()
+					&& variables(prefix.subList(0, k - 1)).contains(last.getSubject()))
+			{
+				List<Triple> general = new ArrayList<Triple>(prefix.subList(0, k - 1));
+				general.add(Triple.create(last.getSubject(), last.getPredicate(), s_slot));
+				prefixes.add(canonicalize(general));
+			}
+		}
+		return prefixes;
+	}
+
+	/**
+	 * Renames the variables of a list of triple patterns in their order of
+	 * appearance, so that two lists that only differ by the name of their
+	 * variables become equal.
+	 * @param triples The triple patterns
+	 * @return The renamed patterns
+	 */
+	protected static List<Triple> canonicalize(List<Triple> triples)
+	{
+		Map<Var,Var> names = new HashMap<Var,Var>();
+		List<Triple> out = new ArrayList<Triple>(triples.size());
+		for (Triple t : triples)
+		{
+			out.add(Triple.create(rename(t.getSubject(), names), rename(t.getPredicate(), names), rename(t.getObject(), names)));
+		}
+		return out;
+	}
+
+	/**
+	 * Gives a variable the canonical name of its rank of appearance. These
+	 * names cannot be written in a query, and hence never clash with the
+	 * variables of the queries.
+	 * @param n The node to rename, which may not be a variable
+	 * @param names The names given so far
+	 * @return The renamed node
+	 */
+	protected static Node rename(Node n, Map<Var,Var> names)
+	{
+		if (!Var.isVar(n))
+		{
+			return n;
+		}
+		return names.computeIfAbsent(Var.alloc(n), v -> Var.alloc("#" + names.size()));
+	}
+
+	/**
+	 * Gets the variables of a list of triple patterns.
+	 * @param triples The triple patterns
+	 * @return The variables, in their order of appearance
+	 */
+	protected static List<Var> variables(List<Triple> triples)
+	{
+		Map<Var,Var> names = new LinkedHashMap<Var,Var>();
+		for (Triple t : triples)
+		{
+			rename(t.getSubject(), names);
+			rename(t.getPredicate(), names);
+			rename(t.getObject(), names);
+		}
+		return new ArrayList<Var>(names.keySet());
+	}
+
+	/**
+	 * Triple patterns matched once for a group of queries.
+	 */
+	protected static class SharedPattern
+	{
+		/** The triple patterns, with their canonical variable names */
+		protected final OpBGP m_pattern;
+
+		/** The variables of the patterns, in their order of appearance */
+		protected final List<Var> m_vars;
+
+		/** The queries starting with these patterns */
+		protected final List<Residual> m_residuals;
+
+		/**
+		 * The maximum time, in milliseconds, the patterns may take to match, or
+		 * -1 for no limit
+		 */
+		protected final long m_timeout;
+
+		/**
+		 * Whether some queries only take the rows where the last variable has
+		 * a given value
+		 */
+		protected final boolean m_sliced;
+
+		/**
+		 * Creates a new shared pattern.
+		 * @param triples The triple patterns, with their canonical variable
+		 * names
+		 * @param factories The factories whose queries start with these patterns
+		 */
+		public SharedPattern(List<Triple> triples, List<SparqlTokenFinderFactory> factories)
+		{
+			super();
+			m_pattern = new OpBGP(BasicPattern.wrap(new ArrayList<Triple>(triples)));
+			m_vars = variables(triples);
+			List<Residual> residuals = new ArrayList<Residual>(factories.size());
+			boolean sliced = false;
+			long timeout = -1;
+			for (SparqlTokenFinderFactory fac : factories)
+			{
+				Residual r = new Residual(fac, triples, m_vars);
+				sliced |= r.m_value != null;
+				residuals.add(r);
+				if (fac.getTimeout() >= 0 && (timeout < 0 || fac.getTimeout() < timeout))
+				{
+					timeout = fac.getTimeout();
+				}
+			}
+			m_residuals = Collections.unmodifiableList(residuals);
+			m_sliced = sliced;
+			m_timeout = timeout;
+		}
+
+		/**
+		 * Matches the patterns, within the smallest timeout of the queries
+		 * that share them.
+		 * @param exec The execution context
+		 * @return The solutions, or <tt>null</tt> if the matching ran out of
+		 * time or the thread was interrupted
+		 */
+		public Solutions evaluate(ExecutionContext exec)
+		{
+			List<Binding> rows = new ArrayList<Binding>();
+			Alarm alarm = null;
+			if (m_timeout >= 0)
+			{
+				AtomicBoolean cancel = new AtomicBoolean(false);
+				exec = SparqlTokenFinder.withCancelSignal(exec, cancel);
+				alarm = AlarmClock.get().add(() -> cancel.set(true), m_timeout);
+			}
+			QueryIterator it = null;
+			try
+			{
+				it = QC.execute(m_pattern, BindingFactory.root(), exec);
+				while (it.hasNext())
+				{
+					if (Thread.currentThread().isInterrupted())
+					{
+						return null;
+					}
+					rows.add(it.next());
+				}
+			}
+			catch (QueryCancelledException e)
+			{
+				return null;
+			}
+			finally
+			{
+				if (alarm != null)
+				{
+					AlarmClock.get().cancel(alarm);
+				}
+				if (it != null)
+				{
+					it.close();
+				}
+			}
+			Map<Node,List<Binding>> slices = null;
+			if (m_sliced)
+			{
+				Var last = m_vars.get(m_vars.size() - 1);
+				slices = new HashMap<Node,List<Binding>>();
+				for (Binding b : rows)
+				{
+					slices.computeIfAbsent(b.get(last), x -> new ArrayList<Binding>()).add(b);
+				}
+			}
+			return new Solutions(rows, slices);
+		}
+	}
+
+	/**
+	 * The solutions of shared triple patterns on the model of a file.
+	 */
+	protected static class Solutions
+	{
+		/** The solutions */
+		protected final List<Binding> m_rows;
+
+		/**
+		 * The solutions, grouped by the value of the last variable, or
+		 * <tt>null</tt> if no query needs them
+		 */
+		protected final Map<Node,List<Binding>> m_slices;
+
+		/**
+		 * Creates a new set of solutions.
+		 * @param rows The solutions
+		 * @param slices The solutions, grouped by the value of the last variable
+		 */
+		public Solutions(List<Binding> rows, Map<Node,List<Binding>> slices)
+		{
+			super();
+			m_rows = rows;
+			m_slices = slices;
+		}
+	}
+
+	/**
+	 * The part of a query that remains to be evaluated on the solutions of the
+	 * patterns it shares with other queries.
+	 */
+	protected static class Residual
+	{
+		/** The factory of the query */
+		protected final SparqlTokenFinderFactory m_factory;
+
+		/**
+		 * The triple patterns of the query that follow the shared ones, or
+		 * <tt>null</tt> if there are none
+		 */
+		protected final OpBGP m_rest;
+
+		/** The variables of the shared patterns */
+		protected final List<Var> m_from;
+
+		/** The variables of the query they correspond to */
+		protected final List<Var> m_to;
+
+		/**
+		 * The literal expected by the query where the shared patterns have a
+		 * variable, or <tt>null</tt> if the query takes all the rows
+		 */
+		protected final Node m_value;
+
+		/**
+		 * Creates a new residual.
+		 * @param fac The factory of the query
+		 * @param shared The shared triple patterns, with their canonical variable
+		 * names
+		 * @param from The variables of the shared patterns, in their order of
+		 * appearance
+		 */
+		public Residual(SparqlTokenFinderFactory fac, List<Triple> shared, List<Var> from)
+		{
+			super();
+			m_factory = fac;
+			List<Triple> triples = matchOrder(leadingPattern(fac.m_plan));
+			int k = shared.size();
+			m_from = from;
+			m_to = variables(triples.subList(0, k));
+			m_value = canonicalize(triples.subList(0, k)).equals(shared) ? null : triples.get(k - 1).getObject();
+			m_rest = k == triples.size() ? null : new OpBGP(BasicPattern.wrap(new ArrayList<Triple>(triples.subList(k, triples.size()))));
+		}
+
+		/**
+		 * Gets the plan of the query, where the shared patterns are replaced
+		 * by their solutions.
+		 * @param solutions The solutions of the shared patterns
+		 * @return The plan
+		 */
+		public Op plan(Solutions solutions)
+		{
+			List<Binding> rows = solutions.m_rows;
+			if (m_value != null)
+			{
+				rows = solutions.m_slices.getOrDefault(m_value, Collections.emptyList());
+			}
+			Op table = OpTable.create(rename(rows));
+			return replaceLeadingPattern(m_factory.m_plan, m_rest == null ? table : OpSequence.create(table, m_rest));
+		}
+
+		/**
+		 * Gives the variables of the solutions of the shared patterns the
+		 * names they have in this query. A variable standing for the literal
+		 * expected by the query is dropped.
+		 * @param rows The solutions
+		 * @return The renamed solutions
+		 */
+		protected TableN rename(List<Binding> rows)
+		{
+			TableN renamed = new TableN(m_to);
+			for (Binding b : rows)
+			{
+				BindingBuilder builder = BindingFactory.builder();
+				for (int i = 0; i < m_to.size(); i++)
+				{
+					builder.add(m_to.get(i), b.get(m_from.get(i)));
+				}
+				renamed.addBinding(builder.build());
+			}
+			return renamed;
+		}
+	}
+}
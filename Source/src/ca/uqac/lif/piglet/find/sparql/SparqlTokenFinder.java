@@ -17,21 +17,41 @@
  */
 package ca.uqac.lif.piglet.find.sparql;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import org.apache.jena.atlas.lib.Alarm;
+import org.apache.jena.atlas.lib.AlarmClock;
 import org.apache.jena.atlas.lib.StrUtils;
-import org.apache.jena.query.QueryExecution;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.query.ARQ;
+import org.apache.jena.query.Query;
+import org.apache.jena.query.QueryCancelledException;
+import org.apache.jena.query.QueryFactory;
 import org.apache.jena.query.QueryParseException;
-import org.apache.jena.query.QuerySolution;
-import org.apache.jena.query.ResultSet;
 import org.apache.jena.rdf.model.Model;
-import org.apache.jena.rdf.model.Resource;
 import org.apache.jena.sparql.ARQConstants;
+import org.apache.jena.sparql.algebra.Algebra;
+import org.apache.jena.sparql.algebra.Op;
+import org.apache.jena.sparql.algebra.TransformCopy;
+import org.apache.jena.sparql.algebra.Transformer;
+import org.apache.jena.sparql.algebra.op.OpBGP;
+import org.apache.jena.sparql.core.BasicPattern;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.engine.ExecutionContext;
+import org.apache.jena.sparql.engine.QueryIterator;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.engine.binding.BindingFactory;
+import org.apache.jena.sparql.engine.main.QC;
 import org.apache.jena.sparql.pfunction.PropertyFunctionRegistry;
 import org.apache.jena.sparql.util.Context;
+import org.apache.jena.sparql.util.Symbol;
 
 import com.github.javaparser.ast.Node;
 
@@ -40,6 +60,7 @@ import ca.uqac.lif.azrael.ObjectReader;
 import ca.uqac.lif.azrael.PrintException;
 import ca.uqac.lif.azrael.ReadException;
 import ca.uqac.lif.piglet.find.FoundToken;
+import ca.uqac.lif.piglet.find.SourceText;
 import ca.uqac.lif.piglet.find.TokenFinder;
 import ca.uqac.lif.piglet.find.TokenFinderContext;
 
@@ -70,11 +91,48 @@ public class SparqlTokenFinder implements TokenFinder
 					""
 					);
 
+	/**
+	 * The symbol under which the context of a query execution holds the index
+	 * of the AST nodes of the model.
+	 */
+	public static final Symbol INDEX = Symbol.create(ModelBuilder.NS + "index");
+
+	/**
+	 * The symbol under which the context of a query execution holds the type
+	 * solver of the current thread.
+	 */
+	public static final Symbol TYPE_SOLVER = Symbol.create(ModelBuilder.NS + "typesolver");
+
+	/**
+	 * The symbol under which the context of a query execution holds the time,
+	 * in milliseconds, that the resolution of a single type may take.
+	 */
+	public static final Symbol RESOLUTION_TIMEOUT = Symbol.create(ModelBuilder.NS + "resolutiontimeout");
+
+	/** The property function resolving the type of a node */
+	protected static final org.apache.jena.graph.Node s_resolvedType = NodeFactory.createURI(ModelBuilder.NS + "resolvedtype");
+
+	/**
+	 * The context in which queries are compiled and executed. Its registry of
+	 * property functions is filled once; the functions find the index and the
+	 * type solver of each execution in the context of that execution.
+	 */
+	protected static final Context s_context = createContext();
+
+	/** The variable holding the nodes found by a query */
+	protected static final Var s_result = Var.alloc("n");
+
 	/**
 	 * The SPARQL query to execute.
 	 */
 	protected final String m_query;
 
+	/**
+	 * The optimized algebra of the query, shared by the finders of all the
+	 * files.
+	 */
+	protected Op m_plan;
+
 	/**
 	 * The RDF model to query.
 	 */
@@ -83,20 +141,128 @@ public class SparqlTokenFinder implements TokenFinder
 	/** The set of found tokens */
 	protected Set<FoundToken> m_found;
 
+	/**
+	 * The maximum time, in milliseconds, the query may run on a file, or -1
+	 * if there is no limit.
+	 */
+	protected long m_timeout;
+
+	/**
+	 * The maximum number of solutions of the query read on a file, or -1 if
+	 * there is no limit.
+	 */
+	protected long m_budget;
+
+	/**
+	 * Whether the last evaluation of the query was stopped before all its
+	 * solutions were read.
+	 */
+	protected boolean m_aborted;
+
 	public SparqlTokenFinder(String name, String query, Model model)
+	{
+		this(name, query, null, model);
+	}
+
+	public SparqlTokenFinder(String name, String query)
+	{
+		this(name, query, null, null);
+	}
+
+	/**
+	 * Creates a new finder.
+	 * @param name The name of this finder
+	 * @param query The SPARQL query to execute, without its prefixes
+	 * @param plan The compiled query, as returned by {@link #compile(Query)},
+	 * or <tt>null</tt> to compile the query when it is first executed
+	 * @param model The RDF model to query
+	 */
+	public SparqlTokenFinder(String name, String query, Op plan, Model model)
 	{
 		super();
 		m_filename = null;
 		m_name = name;
 		m_model = model;
 		m_query = query;
+		m_plan = plan;
 		m_context = null;
 		m_found = new HashSet<FoundToken>();
+		m_timeout = -1;
+		m_budget = -1;
+		m_aborted = false;
 	}
 
-	public SparqlTokenFinder(String name, String query)
+	/**
+	 * Compiles a query into an optimized algebra expression, which can then be
+	 * evaluated on any number of models, by any number of threads.
+	 * @param q The query
+	 * @return The optimized algebra
+	 */
+	public static Op compile(Query q)
+	{
+		return Algebra.optimize(Transformer.transform(new NodeTypesFirst(), Algebra.compile(q)), s_context);
+	}
+
+	/**
+	 * Moves the triple patterns giving the node type of the subject of
+	 * <tt>:resolvedtype</tt> ahead of it in a basic graph pattern. Jena
+	 * evaluates a property function after the triple patterns that precede it
+	 * and before those that follow it; in this way, types are only resolved
+	 * for nodes of the expected type, instead of for every node of the model.
+	 * As the triple patterns of a basic graph pattern form a conjunction, this
+	 * does not change the solutions of the query.
+	 */
+	protected static class NodeTypesFirst extends TransformCopy
+	{
+		@Override
+		public Op transform(OpBGP op)
+		{
+			Set<org.apache.jena.graph.Node> subjects = new HashSet<org.apache.jena.graph.Node>();
+			for (Triple t : op.getPattern())
+			{
+				if (t.getPredicate().equals(s_resolvedType) && t.getSubject().isVariable())
+				{
+					subjects.add(t.getSubject());
+				}
+			}
+			if (subjects.isEmpty())
+			{
+				return op;
+			}
+			List<Triple> first = new ArrayList<Triple>();
+			List<Triple> rest = new ArrayList<Triple>();
+			for (Triple t : op.getPattern())
+			{
+				if (t.getPredicate().equals(Vocabulary.NODETYPE) && t.getObject().isConcrete() && subjects.contains(t.getSubject()))
+				{
+					first.add(t);
+				}
+				else
+				{
+					rest.add(t);
+				}
+			}
+			if (first.isEmpty())
+			{
+				return op;
+			}
+			first.addAll(rest);
+			return new OpBGP(BasicPattern.wrap(first));
+		}
+	}
+
+	/**
+	 * Creates the context in which queries are compiled and executed.
+	 * @return The context
+	 */
+	protected static Context createContext()
 	{
-		this(name, query, null);
+		Context ctx = ARQ.getContext().copy();
+		PropertyFunctionRegistry functions = PropertyFunctionRegistry.createFrom(PropertyFunctionRegistry.get());
+		functions.put(s_resolvedType.getURI(), uri -> new ResolveType());
+		functions.put(ModelBuilder.NS + "instanceof", uri -> new InstanceOf());
+		PropertyFunctionRegistry.set(ctx, functions);
+		return ctx;
 	}
 
 	public void setModel(Model model)
@@ -151,41 +317,150 @@ public class SparqlTokenFinder implements TokenFinder
 		m_index = index;
 	}
 
+	/**
+	 * Sets the maximum time the query may run on a file. When it elapses, the
+	 * evaluation is cancelled; the tokens found so far are kept.
+	 * @param timeout The time in milliseconds, or -1 for no limit
+	 */
+	public void setTimeout(long timeout)
+	{
+		m_timeout = timeout;
+	}
+
+	/**
+	 * Sets the maximum number of solutions of the query read on a file. The
+	 * evaluation stops when the query has more solutions than this.
+	 * @param budget The number of solutions, or -1 for no limit
+	 */
+	public void setBudget(long budget)
+	{
+		m_budget = budget;
+	}
+
+	/**
+	 * Determines whether the last evaluation of the query was stopped, because
+	 * it ran out of time or had more solutions than its budget.
+	 * @return <tt>true</tt> if the evaluation was stopped, <tt>false</tt> if
+	 * all its solutions were read
+	 */
+	public boolean isAborted()
+	{
+		return m_aborted;
+	}
+
 	public void process() throws QueryParseException
 	{
-		String PF = "http://liflab.uqac.ca/codefinder#resolvedtype";
-		String IO = "http://liflab.uqac.ca/codefinder#instanceof";
-		QueryExecution qe = QueryExecution.model(m_model).query(prefixes + m_query).build();
-		Context ctx = qe.getContext();
-		PropertyFunctionRegistry local = PropertyFunctionRegistry.get(ctx);
-		local.put(PF, uri -> new ResolveType(m_index, m_context.getTypeSolver()));
-		local.put(IO, uri -> new InstanceOf(m_context.getTypeSolver()));
-		ctx.set(ARQConstants.registryPropertyFunctions, local);
-		ResultSet resultSet1 = qe.execSelect();
-		if(Thread.currentThread().isInterrupted()) { 
-			return;
+		if (m_plan == null)
+		{
+			m_plan = compile(QueryFactory.create(prefixes + m_query));
 		}
-		while (resultSet1.hasNext())
+		process(m_plan, createExecutionContext(m_model, m_index, m_context));
+	}
+
+	/**
+	 * Evaluates a compiled query, and adds the AST nodes bound to the variable
+	 * <tt>?n</tt> in its results to the found tokens. If a
+	 * {@linkplain #setTimeout(long) timeout} is set, the evaluation gets its
+	 * own cancellation signal, so that cancelling it leaves the other queries
+	 * evaluated in the same context untouched.
+	 * @param plan The compiled query
+	 * @param exec The execution context, as returned by
+	 * {@link #createExecutionContext(Model, LazyNodeIndex, TokenFinderContext)}
+	 */
+	public void process(Op plan, ExecutionContext exec)
+	{
+		m_aborted = false;
+		Alarm alarm = null;
+		if (m_timeout >= 0)
+		{
+			// The iterators of the plan check this signal, and throw a
+			// QueryCancelledException once it is set
+			AtomicBoolean cancel = new AtomicBoolean(false);
+			exec = withCancelSignal(exec, cancel);
+			alarm = AlarmClock.get().add(() -> cancel.set(true), m_timeout);
+		}
+		QueryIterator it = null;
+		long solutions = 0;
+		try
 		{
-			if(Thread.currentThread().isInterrupted()) { 
-				return;
+			it = QC.execute(plan, BindingFactory.root(), exec);
+			while (it.hasNext())
+			{
+				if(Thread.currentThread().isInterrupted()) { 
+					return;
+				}
+				if (m_budget >= 0 && solutions >= m_budget)
+				{
+					m_aborted = true;
+					return;
+				}
+				solutions++;
+				Binding soln = it.next();
+				org.apache.jena.graph.Node n = soln.get(s_result);
+				if (n == null || !n.isURI())
+				{
+					continue;
+				}
+				Node ast_node = m_index.get(n.getURI());
+				if (ast_node == null)
+				{
+					continue;
+				}
+				FoundToken t = new FoundToken(m_name, m_filename, ast_node.getRange().get().begin.line, ast_node.getRange().get().end.line, SourceText.snippet(ast_node));
+				m_found.add(t);
 			}
-			QuerySolution soln = resultSet1.next();
-			Resource n = soln.getResource("n");
-			String iri = n.getURI();
-			if (iri == null)
+		}
+		catch (QueryCancelledException e)
+		{
+			m_aborted = true;
+		}
+		finally
+		{
+			if (alarm != null)
 			{
-				continue;
+				AlarmClock.get().cancel(alarm);
 			}
-			Node ast_node = m_index.get(iri);
-			if (ast_node == null)
+			if (it != null)
 			{
-				continue;
+				it.close();
 			}
-			FoundToken t = new FoundToken(m_name, m_filename, ast_node.getRange().get().begin.line, ast_node.getRange().get().end.line, ast_node.toString());
-			m_found.add(t);
 		}
 	}
+
+	/**
+	 * Copies an execution context, giving the copy its own cancellation
+	 * signal.
+	 * @param exec The execution context
+	 * @param cancel The signal, which cancels the evaluation once set
+	 * @return The new execution context
+	 */
+	protected static ExecutionContext withCancelSignal(ExecutionContext exec, AtomicBoolean cancel)
+	{
+		Context ctx = exec.getContext().copy();
+		ctx.set(ARQConstants.symCancelQuery, cancel);
+		return ExecutionContext.create(exec.getDataset(), exec.getActiveGraph(), ctx);
+	}
+
+	/**
+	 * Creates the context in which queries are evaluated on the model of a
+	 * file.
+	 * @param model The model of the file
+	 * @param index The index of the AST nodes of the model
+	 * @param context The thread context, or <tt>null</tt> if no type solver is
+	 * available
+	 * @return The execution context
+	 */
+	public static ExecutionContext createExecutionContext(Model model, LazyNodeIndex<Node,String> index, TokenFinderContext context)
+	{
+		Context ctx = s_context.copy();
+		ctx.set(INDEX, index);
+		if (context != null)
+		{
+			ctx.set(TYPE_SOLVER, context.getTypeSolver());
+			ctx.set(RESOLUTION_TIMEOUT, context.getResolutionTimeout());
+		}
+		return ExecutionContext.createForGraph(model.getGraph(), ctx);
+	}
 	
 	@Override
 	public Object print(ObjectPrinter<?> p) throws PrintException
@@ -228,7 +503,7 @@ public class SparqlTokenFinder implements TokenFinder
 		{
 			throw new ReadException("Missing 'found_tokens' entry");
 		}
-		SparqlTokenFinder tf = new SparqlTokenFinder(name, m_query, m_model);
+		SparqlTokenFinder tf = new SparqlTokenFinder(name, m_query, m_plan, m_model);
 		tf.m_found.addAll(found_tokens);
 		return tf;
 	}
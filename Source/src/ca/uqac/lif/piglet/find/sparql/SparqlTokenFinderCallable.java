@@ -22,10 +22,8 @@ import java.util.NoSuchElementException;
 import java.util.Set;
 
 import com.github.javaparser.ast.CompilationUnit;
-import com.github.javaparser.ast.Node;
 import com.github.javaparser.ast.body.MethodDeclaration;
 import com.github.javaparser.ast.expr.AnnotationExpr;
-import com.github.javaparser.printer.lexicalpreservation.LexicalPreservingPrinter;
 import com.github.javaparser.ParseProblemException;
 
 import ca.uqac.lif.piglet.find.FoundToken;
@@ -102,28 +100,8 @@ public class SparqlTokenFinderCallable extends TokenFinderCallable
 		}
 		try
 		{
-			CompilationUnit cu = context.getParser().parse(code).getResult().get();
-			LexicalPreservingPrinter.setup(cu);
-			PushPopVisitableNode pm = new PushPopVisitableNode(cu);
-			ModelBuilder.ModelBuilderResult r = ModelBuilder.buildModel(pm, follow, context, file);
-			if(Thread.currentThread().isInterrupted()) { 
-				return found;
-			}
-			LazyNodeIndex<Node,String> globalAstIndex = r.getIndex();
-			for (SparqlTokenFinderFactory fac : localFinders)
-			{
-				if(Thread.currentThread().isInterrupted()) { 
-					return found;
-				}
-				SparqlTokenFinder f = (SparqlTokenFinder) fac.newFinder();
-				f.setModel(r.getModel());
-				f.setIndex(globalAstIndex);
-				f.setFilename(file);
-				f.setContext(context);
-				f.process();
-				fac.registerFinished();
-				found.addAll(f.getFoundTokens());
-			}
+			CompilationUnit cu = parse(context, code);
+			processUnit(context, file, cu, new SparqlQueryBatch(localFinders), follow, found);
 		}
 		catch (ParseProblemException e)
 		{
@@ -140,6 +118,32 @@ public class SparqlTokenFinderCallable extends TokenFinderCallable
 		return found;
 	}
 
+	/**
+	 * Runs a batch of SPARQL finders on an already parsed compilation unit.
+	 * The RDF model of the unit is built once and shared by all the finders;
+	 * it only contains the part of the model that their queries can observe.
+	 * If the batch is {@linkplain SparqlQueryBatch#isVirtual() virtual} and
+	 * method calls are not followed, the model is an {@link AstGraph} instead.
+	 * Each factory is marked as finished after its query has been evaluated;
+	 * the caller is responsible for registering it as expected.
+	 * @param context The thread context
+	 * @param file The name of the file the unit comes from
+	 * @param cu The compilation unit
+	 * @param batch The batch of finders to use
+	 * @param follow Whether to follow method calls when building the model
+	 * @param found The set to which found tokens are added
+	 */
+	public static void processUnit(TokenFinderContext context, String file, CompilationUnit cu, SparqlQueryBatch batch, int follow, Set<FoundToken> found)
+	{
+		PushPopVisitableNode pm = new PushPopVisitableNode(cu);
+		ModelBuilder.ModelBuilderResult r = batch.isVirtual() && follow == 0 ? ModelBuilder.buildVirtualModel(pm, context, file)
+				: ModelBuilder.buildModel(pm, follow, context, file, batch.getFootprint());
+		if(Thread.currentThread().isInterrupted()) { 
+			return;
+		}
+		batch.process(context, file, r.getModel(), r.getIndex(), found);
+	}
+
 	/**
 	 * Determines whether a method is a test case.
 	 * @param m The method
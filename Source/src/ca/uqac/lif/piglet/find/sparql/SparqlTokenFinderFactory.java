@@ -8,8 +8,10 @@ import java.util.Scanner;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import org.apache.jena.query.Query;
 import org.apache.jena.query.QueryFactory;
 import org.apache.jena.query.QueryParseException;
+import org.apache.jena.sparql.algebra.Op;
 
 import ca.uqac.lif.fs.FileSystem;
 import ca.uqac.lif.fs.FileSystemException;
@@ -22,15 +24,146 @@ public class SparqlTokenFinderFactory extends TokenFinderFactory
 	 */
 	protected final String m_query;
 
+	/**
+	 * The optimized algebra of the query, compiled once and evaluated on the
+	 * model of every file, or <tt>null</tt> if the query cannot be parsed.
+	 */
+	protected final Op m_plan;
+
+	/**
+	 * The part of the RDF model that the query can observe.
+	 */
+	protected final QueryFootprint m_footprint;
+
+	/**
+	 * The maximum time, in milliseconds, the query may run on a file, or -1
+	 * if there is no limit.
+	 */
+	protected final long m_timeout;
+
+	/**
+	 * The maximum number of solutions of the query read on a file, or -1 if
+	 * there is no limit.
+	 */
+	protected final long m_budget;
+
 	/**
 	 * Pattern to extract the name of an assertion from a comment
 	 */
 	protected static final Pattern s_namePat = Pattern.compile("Name:([^\\*]+)");
 
+	/**
+	 * Pattern to extract the timeout of a query, in milliseconds, from a
+	 * comment
+	 */
+	protected static final Pattern s_timeoutPat = Pattern.compile("Timeout:\\s*(\\d+)");
+
+	/**
+	 * Pattern to extract the maximum number of solutions of a query from a
+	 * comment
+	 */
+	protected static final Pattern s_budgetPat = Pattern.compile("Budget:\\s*(\\d+)");
+
+	/**
+	 * Pattern detecting whether a query refers to comments, either through the
+	 * Javadoc property or through the node types of comments
+	 */
+	protected static final Pattern s_commentPat = Pattern.compile("javadoc|comment", Pattern.CASE_INSENSITIVE);
+
 	public SparqlTokenFinderFactory(String name, String query)
+	{
+		this(name, query, -1, -1);
+	}
+
+	/**
+	 * Creates a new factory whose finders stop evaluating their query on a
+	 * file when it runs for too long or has too many solutions. A finder
+	 * stopped in this way is not counted as finished for that file.
+	 * @param name The name of the finders
+	 * @param query The SPARQL query, without its prefixes
+	 * @param timeout The maximum time, in milliseconds, the query may run on
+	 * a file, or -1 for no limit
+	 * @param budget The maximum number of solutions of the query read on a
+	 * file, or -1 for no limit
+	 */
+	public SparqlTokenFinderFactory(String name, String query, long timeout, long budget)
+	{
+		this(name, query, parse(query), timeout, budget);
+	}
+
+	/**
+	 * Creates a new factory from a query that has already been parsed.
+	 * @param name The name of the finders
+	 * @param query The SPARQL query, without its prefixes
+	 * @param q The parsed query, or <tt>null</tt> if it cannot be parsed
+	 * @param timeout The maximum time, in milliseconds, the query may run on
+	 * a file, or -1 for no limit
+	 * @param budget The maximum number of solutions of the query read on a
+	 * file, or -1 for no limit
+	 */
+	protected SparqlTokenFinderFactory(String name, String query, Query q, long timeout, long budget)
 	{
 		super(name);
 		m_query = query;
+		m_timeout = timeout;
+		m_budget = budget;
+		if (q == null)
+		{
+			// The finders will report the error when they run the query
+			m_plan = null;
+			m_footprint = QueryFootprint.ALL;
+		}
+		else
+		{
+			m_plan = SparqlTokenFinder.compile(q);
+			m_footprint = QueryFootprint.of(q);
+		}
+	}
+
+	/**
+	 * Gets the part of the RDF model that the query of this factory can
+	 * observe.
+	 * @return The footprint of the query
+	 */
+	public QueryFootprint getFootprint()
+	{
+		return m_footprint;
+	}
+
+	/**
+	 * Gets the maximum time the query of this factory may run on a file.
+	 * @return The time in milliseconds, or -1 if there is no limit
+	 */
+	public long getTimeout()
+	{
+		return m_timeout;
+	}
+
+	/**
+	 * Gets the maximum number of solutions of the query of this factory read
+	 * on a file.
+	 * @return The number of solutions, or -1 if there is no limit
+	 */
+	public long getBudget()
+	{
+		return m_budget;
+	}
+
+	/**
+	 * Parses a query.
+	 * @param query The query, without its prefixes
+	 * @return The query, or <tt>null</tt> if it cannot be parsed
+	 */
+	protected static Query parse(String query)
+	{
+		try
+		{
+			return QueryFactory.create(SparqlTokenFinder.prefixes + query);
+		}
+		catch (QueryParseException e)
+		{
+			return null;
+		}
 	}
 
 	@Override
@@ -81,7 +214,23 @@ public class SparqlTokenFinderFactory extends TokenFinderFactory
 	@Override
 	public SparqlTokenFinder newFinder()
 	{
-		return new SparqlTokenFinder(m_name, m_query);
+		SparqlTokenFinder f = new SparqlTokenFinder(m_name, m_query, m_plan, null);
+		f.setTimeout(m_timeout);
+		f.setBudget(m_budget);
+		return f;
+	}
+
+	@Override
+	public boolean needsComments()
+	{
+		return s_commentPat.matcher(m_query).find();
+	}
+
+	@Override
+	public boolean needsSourceText()
+	{
+		// The RDF model of a file never refers to its tokens
+		return false;
 	}
 
 	/**
@@ -100,6 +249,7 @@ public class SparqlTokenFinderFactory extends TokenFinderFactory
 	{
 		StringBuilder sparql_code = new StringBuilder();
 		String name = null;
+		long timeout = -1, budget = -1;
 		try
 		{
 			Scanner scanner = new Scanner(hd.readFrom(getFilename(filename)));
@@ -118,14 +268,24 @@ public class SparqlTokenFinderFactory extends TokenFinderFactory
 							name = mat.group(1).trim();
 						}
 					}
+					Matcher limit = s_timeoutPat.matcher(line);
+					if (limit.find())
+					{
+						timeout = Long.parseLong(limit.group(1));
+					}
+					limit = s_budgetPat.matcher(line);
+					if (limit.find())
+					{
+						budget = Long.parseLong(limit.group(1));
+					}
 					continue;
 				}
 				sparql_code.append(line).append("\n");
 			}
 			scanner.close();
-			validate(sparql_code.toString());
+			String query = sparql_code.toString();
 			return new SparqlTokenFinderFactory(name == null ? "Unnamed SPARQL finder" : name,
-					sparql_code.toString());
+					query, validate(query), timeout, budget);
 		}
 		catch (FileSystemException e)
 		{
@@ -140,10 +300,11 @@ public class SparqlTokenFinderFactory extends TokenFinderFactory
 	/**
 	 * Validates a SPARQL query by trying to parse it.
 	 * @param query The query
+	 * @return The parsed query
 	 * @throws QueryParseException If the query is not valid
 	 */
-	protected static void validate(String query) throws QueryParseException
+	protected static Query validate(String query) throws QueryParseException
 	{
-		QueryFactory.create(SparqlTokenFinder.prefixes + query);
+		return QueryFactory.create(SparqlTokenFinder.prefixes + query);
 	}
 }
\ No newline at end of file
@@ -0,0 +1,189 @@
+/*
+    Analysis of assertions in Java programs
+    Copyright (C) 2025 Sylvain Hallé, Sarika Machhindra Kadam
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.piglet.find.sparql;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+
+/**
+ * The terms used in the RDF graphs built from Java ASTs, created once and
+ * shared by all the graphs. Graph nodes are immutable, so that the same
+ * instance can be used in any number of triples and by any number of
+ * threads. Building the graph of a file then only allocates the terms that
+ * are specific to that file: the IRIs of its AST nodes, blank nodes and the
+ * literals holding names and values.
+ */
+public final class Vocabulary
+{
+	/**
+	 * The properties <tt>arg1</tt>, <tt>arg2</tt>, etc. for the arguments of a
+	 * call. Calls with more arguments than this array holds are rare, and their
+	 * extra properties are created on demand.
+	 */
+	protected static final Node[] s_args = properties("arg", 16);
+
+	public static final Node ANNOTATIONS = property("annotations");
+
+	public static final Node NAME = property("name");
+
+	public static final Node IN = property("in");
+
+	public static final Node NODETYPE = property("nodetype");
+
+	public static final Node JAVADOC = property("javadoc");
+
+	public static final Node TYPE = property("type");
+
+	public static final Node MODIFIERS = property("modifiers");
+
+	public static final Node PARAMETERS = property("params");
+
+	public static final Node VALUE = property("value");
+
+	public static final Node RETURNS = property("returns");
+
+	public static final Node VARIABLES = property("variables");
+
+	public static final Node CONDITION = property("condition");
+
+	public static final Node INITIALIZER = property("initializer");
+
+	public static final Node SCOPE = property("scope");
+
+	public static final Node NEXT = property("next");
+
+	public static final Node OPERATOR = property("operator");
+
+	public static final Node DECLARATION = property("declaration");
+
+	public static final Node ARG_1 = s_args[0];
+
+	public static final Node ARG_2 = s_args[1];
+
+	/** The name of the file described by a graph of a {@link ProjectDataset} */
+	public static final Node FILENAME = property("filename");
+
+	/** The hash of a file, in the manifest of a {@link ProjectDataset} */
+	public static final Node HASH = property("hash");
+
+	/** The version of the translation, in the manifest of a {@link ProjectDataset} */
+	public static final Node VERSION = property("version");
+
+	/**
+	 * The number of graphs replaced or deleted since the last compaction, in
+	 * the manifest of a {@link ProjectDataset}
+	 */
+	public static final Node REPLACED = property("replaced");
+
+	/** The source code of the file described by a graph of a {@link ProjectDataset} */
+	public static final Node SOURCE = property("source");
+
+	/** The range of an AST node in its file, in a {@link ProjectDataset} */
+	public static final Node RANGE = property("range");
+
+	/** The node type of the blank node grouping the "then" branch of an if */
+	public static final Node THEN_EXPR = NodeFactory.createLiteralString("ThenExpr");
+
+	/** The node type of the blank node grouping the "else" branch of an if */
+	public static final Node ELSE_EXPR = NodeFactory.createLiteralString("ElseExpr");
+
+	public static final Node TYPE_INTEGER = NodeFactory.createLiteralString("Integer");
+
+	public static final Node TYPE_BOOLEAN = NodeFactory.createLiteralString("Boolean");
+
+	public static final Node TYPE_STRING = NodeFactory.createLiteralString("String");
+
+	public static final Node LITERAL_TRUE = NodeFactory.createLiteralString("true");
+
+	public static final Node LITERAL_FALSE = NodeFactory.createLiteralString("false");
+
+	public static final Node LITERAL_NULL = NodeFactory.createLiteralString("null");
+
+	/**
+	 * The node type literal of each class of AST node.
+	 */
+	protected static final ClassValue<Node> s_nodeTypes = new ClassValue<Node>()
+	{
+		@Override
+		protected Node computeValue(Class<?> type)
+		{
+			return NodeFactory.createLiteralString(type.getSimpleName());
+		}
+	};
+
+	private Vocabulary()
+	{
+		super();
+	}
+
+	/**
+	 * Gets the property linking a call to one of its arguments.
+	 * @param i The position of the argument, starting at 1
+	 * @return The property
+	 */
+	public static Node arg(int i)
+	{
+		return i >= 1 && i <= s_args.length ? s_args[i - 1] : property("arg" + i);
+	}
+
+	/**
+	 * Gets the literal giving the type of an AST node.
+	 * @param type The class of the AST node
+	 * @return The literal
+	 */
+	public static Node nodeType(Class<?> type)
+	{
+		return s_nodeTypes.get(type);
+	}
+
+	/**
+	 * Gets the literal giving the value of a boolean.
+	 * @param b The boolean
+	 * @return The literal
+	 */
+	public static Node literal(boolean b)
+	{
+		return b ? LITERAL_TRUE : LITERAL_FALSE;
+	}
+
+	/**
+	 * Creates numbered properties in the namespace of the vocabulary.
+	 * @param prefix The local name of the properties, before their number
+	 * @param n The number of properties, numbered from 1
+	 * @return The properties
+	 */
+	protected static Node[] properties(String prefix, int n)
+	{
+		Node[] props = new Node[n];
+		for (int i = 0; i < n; i++)
+		{
+			props[i] = property(prefix + (i + 1));
+		}
+		return props;
+	}
+
+	/**
+	 * Creates a property in the namespace of the vocabulary.
+	 * @param name The local name of the property
+	 * @return The property
+	 */
+	protected static Node property(String name)
+	{
+		return NodeFactory.createURI(ModelBuilder.NS + name);
+	}
+}
@@ -65,7 +65,7 @@ public class PushPopVisitableNode implements PushPopVisitable
 	 * @param v The visitor
 	 * @The value returned by the visitor
 	 */
-	protected void visitWithType(Node n, PushPopVisitor v)
+	public static void visitWithType(Node n, PushPopVisitor v)
 	{
 		if (n instanceof AnnotationDeclaration)
 			v.visit((AnnotationDeclaration) n);
@@ -274,7 +274,7 @@ public class PushPopVisitableNode implements PushPopVisitable
 	 * @param n The node to leave
 	 * @param v The visitor
 	 */
-	protected void leaveWithType(Node n, PushPopVisitor v)
+	public static void leaveWithType(Node n, PushPopVisitor v)
 	{
 		if (n instanceof AnnotationDeclaration)
 			v.leave((AnnotationDeclaration) n);
@@ -2,8 +2,12 @@ package ca.uqac.lif.piglet.find.visitor;
 
 import com.github.javaparser.ast.Node;
 import com.github.javaparser.ast.expr.*;
+import com.github.javaparser.resolution.types.ResolvedType;
 
 import ca.uqac.lif.piglet.find.TokenFinderContext;
+import ca.uqac.lif.piglet.util.ResolutionDeadline;
+import ca.uqac.lif.piglet.util.ResolutionTimeoutException;
+import ca.uqac.lif.piglet.util.TypeChecks;
 
 public abstract class TypeAwareAssertionFinder extends VisitorAssertionFinder
 {
@@ -19,160 +23,198 @@ public abstract class TypeAwareAssertionFinder extends VisitorAssertionFinder
 
 	protected abstract boolean visitTypedNode(Node n);
 
+	/**
+	 * Determines whether a type is, extends or implements a type with a given
+	 * name. The ancestors of the type are looked up in the hierarchy shared by
+	 * all threads, so that they are computed only once per analysis.
+	 * @param t The type
+	 * @param fqn The qualified name of the other type
+	 * @return <tt>true</tt> if the type is a subtype of the other,
+	 * <tt>false</tt> otherwise
+	 */
+	protected boolean isSubtypeOf(ResolvedType t, String fqn)
+	{
+		return TypeChecks.isSubtypeOf(t, fqn, m_context == null ? null : m_context.getTypeSolver());
+	}
+
+	/**
+	 * Visits a node whose type may be resolved by the finder. A resolution
+	 * that runs past the resolution timeout of the thread context is
+	 * abandoned, and the node is then skipped.
+	 * @param n The node
+	 */
+	@SuppressWarnings("try")
+	protected void visitTyped(Node n)
+	{
+		if (m_context == null)
+		{
+			visitTypedNode(n);
+			return;
+		}
+		try (ResolutionDeadline d = ResolutionDeadline.start(m_context.getTypeSolver(), m_context.getResolutionTimeout()))
+		{
+			visitTypedNode(n);
+		}
+		catch (ResolutionTimeoutException e)
+		{
+			// Skip this node
+		}
+	}
+
 	@Override
 	public void visit(AssignExpr n)
 	{
-		visitTypedNode(n);
+		visitTyped(n);
 	}
 
 	@Override
 	public void visit(BinaryExpr n) 
 	{
-		visitTypedNode(n);
+		visitTyped(n);
 	}
 
 	@Override
 	public void visit(BooleanLiteralExpr n) 
 	{
-		visitTypedNode(n);
+		visitTyped(n);
 	}
 
 	@Override
 	public void visit(CastExpr n) 
 	{
-		visitTypedNode(n);
+		visitTyped(n);
 	}
 
 	@Override
 	public void visit(CharLiteralExpr n) 
 	{
-		visitTypedNode(n);
+		visitTyped(n);
 	}
 
 	@Override
 	public void visit(ClassExpr n) 
 	{
-		visitTypedNode(n);
+		visitTyped(n);
 	}
 
 	@Override
 	public void visit(ConditionalExpr n) 
 	{
-		visitTypedNode(n);
+		visitTyped(n);
 	}
 
 	@Override
 	public void visit(DoubleLiteralExpr n) 
 	{
-		visitTypedNode(n);
+		visitTyped(n);
 	}
 
 	@Override
 	public void visit(EnclosedExpr n) 
 	{
-		visitTypedNode(n);
+		visitTyped(n);
 	}
 
 	@Override
 	public void visit(FieldAccessExpr n) 
 	{
-		visitTypedNode(n);
+		visitTyped(n);
 	}
 
 	@Override
 	public void visit(InstanceOfExpr n) 
 	{
-		visitTypedNode(n);
+		visitTyped(n);
 	}
 
 	@Override
 	public void visit(IntegerLiteralExpr n) 
 	{
-		visitTypedNode(n);
+		visitTyped(n);
 	}
 
 	@Override
 	public void visit(LambdaExpr n) 
 	{
-		visitTypedNode(n);
+		visitTyped(n);
 	}
 
 	@Override
 	public void visit(LongLiteralExpr n) 
 	{
-		visitTypedNode(n);
+		visitTyped(n);
 	}
 
 	@Override
 	public void visit(MethodCallExpr n) 
 	{
-		visitTypedNode(n);
+		visitTyped(n);
 	}
 
 	@Override
 	public void visit(MethodReferenceExpr n) 
 	{
-		visitTypedNode(n);
+		visitTyped(n);
 	}
 
 	@Override
 	public void visit(NameExpr n) 
 	{
-		visitTypedNode(n);
+		visitTyped(n);
 	}
 
 	@Override
 	public void visit(NullLiteralExpr n) 
 	{
-		visitTypedNode(n);
+		visitTyped(n);
 	}
 
 	@Override
 	public void visit(ObjectCreationExpr n) 
 	{
-		visitTypedNode(n);
+		visitTyped(n);
 	}
 
 	@Override
 	public void visit(StringLiteralExpr n) 
 	{
-		visitTypedNode(n);
+		visitTyped(n);
 	}
 
 	@Override
 	public void visit(SuperExpr n) 
 	{
-		visitTypedNode(n);
+		visitTyped(n);
 	}
 
 	@Override
 	public void visit(ThisExpr n) 
 	{
-		visitTypedNode(n);
+		visitTyped(n);
 	}
 
 	@Override
 	public void visit(TypeExpr n) 
 	{
-		visitTypedNode(n);
+		visitTyped(n);
 	}
 
 	@Override
 	public void visit(UnaryExpr n) 
 	{
-		visitTypedNode(n);
+		visitTyped(n);
 	}
 
 	@Override
 	public void visit(SwitchExpr n) 
 	{
-		visitTypedNode(n);
+		visitTyped(n);
 	}
 
 	@Override
 	public void visit(TextBlockLiteralExpr n) 
 	{
-		visitTypedNode(n);
+		visitTyped(n);
 	}
 
 }
@@ -18,6 +18,7 @@
 package ca.uqac.lif.piglet.find.visitor;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Set;
@@ -26,7 +27,6 @@ import com.github.javaparser.ParseProblemException;
 import com.github.javaparser.ast.CompilationUnit;
 import com.github.javaparser.ast.body.MethodDeclaration;
 import com.github.javaparser.ast.expr.AnnotationExpr;
-import com.github.javaparser.printer.lexicalpreservation.LexicalPreservingPrinter;
 
 import ca.uqac.lif.piglet.find.FoundToken;
 import ca.uqac.lif.piglet.find.TokenFinderCallable;
@@ -58,33 +58,24 @@ public class VisitorAssertionFinderCallable extends TokenFinderCallable
 	@Override
 	protected void doRun(TokenFinderContext context, String code, Set<FoundToken> found) throws TokenFinderException
 	{
-		try
+		Set<VisitorAssertionFinderFactory> local_finders = new HashSet<VisitorAssertionFinderFactory>();
+		for (TokenFinderFactory t_factory : m_finders)
 		{
-			CompilationUnit u = context.getParser().parse(code).getResult().get();
-			LexicalPreservingPrinter.setup(u);
-			List<MethodDeclaration> methods = getTestCases(u);
-			/*if (methods.isEmpty() && !quiet)
-			{
-				// No test cases in this file
-				System.err.println("WARNING: No test cases found in " + file);
-			}*/
-			for (MethodDeclaration m : methods)
+			if (t_factory instanceof VisitorAssertionFinderFactory)
 			{
-				PushPopVisitableNode pm = new PushPopVisitableNode(m);
-				for (TokenFinderFactory t_factory : m_finders)
-				{
-					if (!(t_factory instanceof VisitorAssertionFinderFactory))
-					{
-						continue;
-					}
-					VisitorAssertionFinder new_f = (VisitorAssertionFinder) t_factory.newFinder();
-					new_f.setFilename(m_file);
-					new_f.setContext(context);
-					pm.accept(new_f);
-					found.addAll(new_f.getFoundTokens());
-				}
+				local_finders.add((VisitorAssertionFinderFactory) t_factory);
+				t_factory.registerExpected();
 			}
 		}
+		if (local_finders.isEmpty())
+		{
+			return;
+		}
+		try
+		{
+			CompilationUnit u = parse(context, code);
+			processUnit(context, m_file, u, local_finders, found);
+		}
 		catch (ParseProblemException e)
 		{
 			throw new TokenFinderException("Error parsing " + m_file + ": " + e.getMessage(), e);
@@ -98,6 +89,48 @@ public class VisitorAssertionFinderCallable extends TokenFinderCallable
 			}
 		}
 	}
+
+	/**
+	 * Runs a set of visitor finders on an already parsed compilation unit. Each
+	 * factory is marked as finished once all the methods of the unit have been
+	 * visited; the caller is responsible for registering it as expected.
+	 * 
+	 * @param context
+	 *          The thread context
+	 * @param file
+	 *          The name of the file the unit comes from
+	 * @param u
+	 *          The compilation unit
+	 * @param finders
+	 *          The set of finders to use
+	 * @param found
+	 *          The set to which found tokens are added
+	 */
+	public static void processUnit(TokenFinderContext context, String file, CompilationUnit u, Set<VisitorAssertionFinderFactory> finders, Set<FoundToken> found)
+	{
+		List<MethodDeclaration> methods = getTestCases(u);
+		/*if (methods.isEmpty() && !quiet)
+		{
+			// No test cases in this file
+			System.err.println("WARNING: No test cases found in " + file);
+		}*/
+		for (MethodDeclaration m : methods)
+		{
+			PushPopVisitableNode pm = new PushPopVisitableNode(m);
+			for (VisitorAssertionFinderFactory t_factory : finders)
+			{
+				VisitorAssertionFinder new_f = t_factory.newFinder();
+				new_f.setFilename(file);
+				new_f.setContext(context);
+				pm.accept(new_f);
+				found.addAll(new_f.getFoundTokens());
+			}
+		}
+		for (VisitorAssertionFinderFactory t_factory : finders)
+		{
+			t_factory.registerFinished();
+		}
+	}
 	
 	/**
 	 * Gets the list of test cases in a compilation unit.
@@ -35,6 +35,29 @@ public class VisitorAssertionFinderFactory extends TokenFinderFactory
 	 * Pattern to extract the name of an assertion from a comment 
 	 */
 	protected static final Pattern s_namePat = Pattern.compile("Name:([^\\*]+)");
+
+	/**
+	 * Pattern detecting whether a script refers to comments, including
+	 * Javadoc
+	 */
+	protected static final Pattern s_commentPat = Pattern.compile("javadoc|comment", Pattern.CASE_INSENSITIVE);
+
+	/**
+	 * Pattern detecting whether a script refers to tokens or to the lexical
+	 * preserving printer
+	 */
+	protected static final Pattern s_sourceTextPat = Pattern.compile("LexicalPreserving|TokenRange|JavaToken");
+
+	/**
+	 * Whether the finders created by this factory need comments
+	 */
+	protected boolean m_needsComments = true;
+
+	/**
+	 * Whether the finders created by this factory need the exact source text
+	 * of nodes
+	 */
+	protected boolean m_needsSourceText = true;
 	
 	/**
 	 * Creates a new visitor-based token finder factory.
@@ -62,6 +85,18 @@ public class VisitorAssertionFinderFactory extends TokenFinderFactory
 		return null;
 	}
 
+	@Override
+	public boolean needsComments()
+	{
+		return m_needsComments;
+	}
+
+	@Override
+	public boolean needsSourceText()
+	{
+		return m_needsSourceText;
+	}
+
 	/**
 	 * Reads a BeanShell script from a file and instantiates a
 	 * @param hd
@@ -103,7 +138,11 @@ public class VisitorAssertionFinderFactory extends TokenFinderFactory
 			{
 				return null;
 			}
-			return (VisitorAssertionFinderFactory) o;
+			VisitorAssertionFinderFactory f = (VisitorAssertionFinderFactory) o;
+			// A script can only use what it mentions
+			f.m_needsComments = s_commentPat.matcher(bsh_code).find();
+			f.m_needsSourceText = s_sourceTextPat.matcher(bsh_code).find();
+			return f;
 		}
 		catch (FileSystemException | EvalError e)
 		{
@@ -43,4 +43,14 @@ public interface FileProvider
 	 * @return The number of files provided
 	 */
 	public int filesProvided();
+
+	/**
+	 * Indicates whether the provider knows all the files it will provide, in
+	 * which case the value returned by {@link #filesProvided()} is final.
+	 * Providers that discover files while they are consumed return
+	 * <tt>false</tt> until discovery is over.
+	 * @return <tt>true</tt> if the set of files is known, <tt>false</tt>
+	 * otherwise
+	 */
+	public boolean isComplete();
 }
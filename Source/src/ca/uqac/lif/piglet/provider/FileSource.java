@@ -17,10 +17,17 @@
  */
 package ca.uqac.lif.piglet.provider;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
 
 import ca.uqac.lif.fs.FileSystem;
 import ca.uqac.lif.fs.FileSystemException;
+import ca.uqac.lif.fs.FileUtils;
 
 /**
  * Represents a source file to be analyzed, encapsulating its name and input stream.
@@ -36,17 +43,32 @@ public class FileSource
 	/** The input stream to read the file's contents. */
 	protected InputStream m_stream;
 	
+	/** The character encoding of the file, unless it starts with a byte order mark. */
+	protected final Charset m_charset;
+	
 	/**
-	 * Constructs a FileSource with the given name and input stream.
+	 * Constructs a FileSource with the given name, encoded in UTF-8.
+	 * @param fs The file system the file belongs to
 	 * @param name The name of the file
-	 * @param stream The input stream to read the file's contents
 	 */
 	public FileSource(FileSystem fs, String name)
+	{
+		this(fs, name, StandardCharsets.UTF_8);
+	}
+	
+	/**
+	 * Constructs a FileSource with the given name and encoding.
+	 * @param fs The file system the file belongs to
+	 * @param name The name of the file
+	 * @param charset The character encoding of the file
+	 */
+	public FileSource(FileSystem fs, String name, Charset charset)
 	{
 		super();
 		m_fileSystem = fs;
 		m_name = name;
 		m_stream = null;
+		m_charset = charset;
 	}
 	
 	@Override
@@ -87,4 +109,82 @@ public class FileSource
 		return m_fileSystem.readFrom(m_name);
 		//return m_stream;
 	}
-}
\ No newline at end of file
+	
+	/**
+	 * Returns the character encoding of the file.
+	 * @return The charset
+	 */
+	public Charset getCharset()
+	{
+		return m_charset;
+	}
+	
+	/**
+	 * Returns the size of the file, if it is known without reading it.
+	 * @return The size in bytes, or -1 if unknown
+	 */
+	public long getSize()
+	{
+		return -1;
+	}
+	
+	/**
+	 * Reads and decodes the file's contents.
+	 * @return The source code
+	 * @throws FileSystemException If the file cannot be read
+	 * @throws IOException If the file cannot be read
+	 */
+	public String readCode() throws FileSystemException, IOException
+	{
+		try (InputStream is = getStream())
+		{
+			byte[] bytes = FileUtils.toBytes(is);
+			return decode(ByteBuffer.wrap(bytes), m_charset);
+		}
+	}
+	
+	/**
+	 * Decodes the contents of a file. If the contents start with a byte order
+	 * mark, the mark is skipped and the encoding it indicates takes precedence
+	 * over the given charset. Malformed input is replaced rather than rejected,
+	 * as with {@link String#String(byte[], Charset)}.
+	 * @param buf The contents of the file
+	 * @param charset The character encoding of the file
+	 * @return The decoded contents
+	 */
+	public static String decode(ByteBuffer buf, Charset charset)
+	{
+		int pos = buf.position();
+		int rem = buf.remaining();
+		if (rem >= 3 && buf.get(pos) == (byte) 0xEF && buf.get(pos + 1) == (byte) 0xBB && buf.get(pos + 2) == (byte) 0xBF)
+		{
+			charset = StandardCharsets.UTF_8;
+			buf.position(pos + 3);
+		}
+		else if (rem >= 2 && buf.get(pos) == (byte) 0xFE && buf.get(pos + 1) == (byte) 0xFF)
+		{
+			charset = StandardCharsets.UTF_16BE;
+			buf.position(pos + 2);
+		}
+		else if (rem >= 2 && buf.get(pos) == (byte) 0xFF && buf.get(pos + 1) == (byte) 0xFE)
+		{
+			charset = StandardCharsets.UTF_16LE;
+			buf.position(pos + 2);
+		}
+		if (buf.hasArray())
+		{
+			// Let the String constructor use its fast paths
+			return new String(buf.array(), buf.arrayOffset() + buf.position(), buf.remaining(), charset);
+		}
+		try
+		{
+			return charset.newDecoder().onMalformedInput(CodingErrorAction.REPLACE)
+					.onUnmappableCharacter(CodingErrorAction.REPLACE).decode(buf).toString();
+		}
+		catch (CharacterCodingException e)
+		{
+			// Cannot happen, since errors are replaced
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -87,4 +87,15 @@ public class FileSystemProvider implements FileProvider
 		return m_filenames.size();
 	}
 
+	/**
+	 * Indicates whether all files are known, which is always the case since
+	 * the file system is crawled upon construction.
+	 * @return <tt>true</tt>
+	 */
+	@Override
+	public boolean isComplete()
+	{
+		return true;
+	}
+
 }
\ No newline at end of file
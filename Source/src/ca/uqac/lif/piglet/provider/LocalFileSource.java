@@ -0,0 +1,115 @@
+/*
+    Analysis of assertions in Java programs
+    Copyright (C) 2025 Sylvain Hallé, Sarika Machhindra Kadam
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.piglet.provider;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import ca.uqac.lif.fs.FileSystem;
+
+/**
+ * A source file stored on the local disk, whose contents are read directly
+ * through a {@link FileChannel} instead of an input stream. Small files are
+ * read into a buffer of the exact file size, and files above a threshold are
+ * memory-mapped, so that their bytes are decoded without first being copied
+ * to the heap.
+ */
+public class LocalFileSource extends FileSource
+{
+	/**
+	 * The size (in bytes) above which a file is memory-mapped rather than
+	 * read.
+	 */
+	public static final long MAP_THRESHOLD = 1 << 20;
+
+	/** The path of the file on the local disk. */
+	protected final Path m_path;
+
+	/** The size of the file when it was discovered, or -1 if unknown. */
+	protected final long m_size;
+
+	/**
+	 * Constructs a LocalFileSource.
+	 * @param fs The file system the file belongs to
+	 * @param name The name of the file in the file system
+	 * @param path The path of the file on the local disk
+	 * @param charset The character encoding of the file
+	 */
+	public LocalFileSource(FileSystem fs, String name, Path path, Charset charset)
+	{
+		this(fs, name, path, charset, -1);
+	}
+
+	/**
+	 * Constructs a LocalFileSource whose size is already known.
+	 * @param fs The file system the file belongs to
+	 * @param name The name of the file in the file system
+	 * @param path The path of the file on the local disk
+	 * @param charset The character encoding of the file
+	 * @param size The size of the file in bytes, or -1 if unknown
+	 */
+	public LocalFileSource(FileSystem fs, String name, Path path, Charset charset, long size)
+	{
+		super(fs, name, charset);
+		m_path = path;
+		m_size = size;
+	}
+
+	@Override
+	public long getSize()
+	{
+		return m_size;
+	}
+
+	/**
+	 * Returns the path of the file on the local disk.
+	 * @return The path
+	 */
+	public Path getPath()
+	{
+		return m_path;
+	}
+
+	@Override
+	public String readCode() throws IOException
+	{
+		try (FileChannel ch = FileChannel.open(m_path, StandardOpenOption.READ))
+		{
+			long size = ch.size();
+			if (size > MAP_THRESHOLD)
+			{
+				return decode(ch.map(FileChannel.MapMode.READ_ONLY, 0, size), m_charset);
+			}
+			ByteBuffer buf = ByteBuffer.allocate((int) size);
+			while (buf.hasRemaining())
+			{
+				if (ch.read(buf) < 0)
+				{
+					// The file was truncated since its size was read
+					break;
+				}
+			}
+			buf.flip();
+			return decode(buf, m_charset);
+		}
+	}
+}
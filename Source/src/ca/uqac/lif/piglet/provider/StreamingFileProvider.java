@@ -0,0 +1,306 @@
+/*
+    Analysis of assertions in Java programs
+    Copyright (C) 2025 Sylvain Hallé, Sarika Machhindra Kadam
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.piglet.provider;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import ca.uqac.lif.fs.FileSystem;
+import ca.uqac.lif.fs.FileSystemException;
+
+/**
+ * A file provider that discovers Java files while they are being consumed.
+ * Instead of crawling the whole folder before providing the first file, the
+ * provider lists directories in parallel on a few background threads and
+ * places the files it finds in a bounded queue. A call to {@link #next()}
+ * returns as soon as a file is available, so that the analysis of the first
+ * files can start while the rest of the tree is still being explored. When
+ * the queue is full, discovery pauses until files are consumed.
+ * <p>
+ * As with {@link JavaFileFinder}, hidden folders are not explored. Symbolic
+ * links to folders are not followed.
+ */
+public class StreamingFileProvider implements FileProvider
+{
+	/** The default capacity of the queue of discovered files. */
+	public static final int DEFAULT_CAPACITY = 4096;
+
+	/** A marker placed in the queue when discovery is over. */
+	protected static final FileSource END = new FileSource(null, "");
+
+	/** The file system to read files from. */
+	protected final FileSystem m_fs;
+
+	/** The folder of the local disk corresponding to the file system's root. */
+	protected final Path m_root;
+
+	/** The character encoding of the files. */
+	protected final Charset m_charset;
+
+	/** The queue of discovered files. */
+	protected final BlockingQueue<FileSource> m_queue;
+
+	/** The threads listing directories. */
+	protected final ExecutorService m_crawlers;
+
+	/** The number of directories whose listing is not finished. */
+	protected final AtomicInteger m_pending;
+
+	/** The number of files discovered so far. */
+	protected final AtomicInteger m_discovered;
+
+	/** Whether discovery is over. */
+	protected volatile boolean m_complete;
+
+	/** The next file to provide, if already taken from the queue. */
+	protected FileSource m_next;
+
+	/** Whether the end marker has been taken from the queue. */
+	protected boolean m_exhausted;
+
+	/**
+	 * Constructs a provider for the given file system, with default capacity.
+	 * @param fs The file system to provide files from
+	 * @param root The folder of the local disk corresponding to the root of
+	 * the file system
+	 * @param charset The character encoding of the files
+	 * @param threads The number of threads used to list directories
+	 * @throws FileSystemException If the file system cannot be opened
+	 */
+	public StreamingFileProvider(FileSystem fs, Path root, Charset charset, int threads) throws FileSystemException
+	{
+		this(fs, root, charset, threads, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Constructs a provider for the given file system.
+	 * @param fs The file system to provide files from
+	 * @param root The folder of the local disk corresponding to the root of
+	 * the file system
+	 * @param charset The character encoding of the files
+	 * @param threads The number of threads used to list directories
+	 * @param capacity The maximum number of discovered files waiting to be
+	 * provided
+	 * @throws FileSystemException If the file system cannot be opened
+	 */
+	public StreamingFileProvider(FileSystem fs, Path root, Charset charset, int threads, int capacity) throws FileSystemException
+	{
+		super();
+		m_fs = fs;
+		m_fs.open();
+		m_root = root;
+		m_charset = charset;
+		m_queue = new ArrayBlockingQueue<FileSource>(capacity);
+		m_pending = new AtomicInteger(0);
+		m_discovered = new AtomicInteger(0);
+		m_complete = false;
+		m_exhausted = false;
+		m_crawlers = Executors.newFixedThreadPool(Math.max(1, threads), r -> {
+			Thread t = new Thread(r, "crawl-" + root.getFileName());
+			t.setDaemon(true);
+			return t;
+		});
+		submit(root);
+	}
+
+	/**
+	 * Indicates whether there are more files to be provided. This call blocks
+	 * until a file has been discovered or discovery is over.
+	 * @return <tt>true</tt> if there are more files, <tt>false</tt> otherwise
+	 */
+	@Override
+	public boolean hasNext()
+	{
+		if (m_next != null)
+		{
+			return true;
+		}
+		if (m_exhausted)
+		{
+			return false;
+		}
+		try
+		{
+			FileSource f = m_queue.take();
+			if (f == END)
+			{
+				m_exhausted = true;
+				return false;
+			}
+			m_next = f;
+			return true;
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+	/**
+	 * Provides the next file.
+	 * @return The next {@link FileSource}, or <tt>null</tt> if there are no more
+	 * files
+	 */
+	@Override
+	public FileSource next()
+	{
+		if (!hasNext())
+		{
+			return null;
+		}
+		FileSource f = m_next;
+		m_next = null;
+		return f;
+	}
+
+	/**
+	 * Returns the number of files discovered so far. This number only becomes
+	 * final once {@link #isComplete()} returns <tt>true</tt>.
+	 * @return The number of files discovered
+	 */
+	@Override
+	public int filesProvided()
+	{
+		return m_discovered.get();
+	}
+
+	@Override
+	public boolean isComplete()
+	{
+		return m_complete;
+	}
+
+	/**
+	 * Stops discovery. This should be called when the files remaining in the
+	 * provider are no longer needed, so that the listing threads do not stay
+	 * blocked on a full queue.
+	 */
+	public void close()
+	{
+		m_crawlers.shutdownNow();
+	}
+
+	/**
+	 * Schedules the listing of a directory.
+	 * @param dir The directory
+	 */
+	protected void submit(Path dir)
+	{
+		m_pending.incrementAndGet();
+		try
+		{
+			m_crawlers.execute(() -> crawl(dir));
+		}
+		catch (RejectedExecutionException e)
+		{
+			// The provider has been closed
+			m_pending.decrementAndGet();
+		}
+	}
+
+	/**
+	 * Lists a directory, schedules the listing of its sub-directories and
+	 * queues the Java files it contains.
+	 * @param dir The directory
+	 */
+	protected void crawl(Path dir)
+	{
+		boolean closed = false;
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir))
+		{
+			for (Path p : stream)
+			{
+				String name = p.getFileName().toString();
+				BasicFileAttributes attrs = Files.readAttributes(p, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+				if (attrs.isDirectory())
+				{
+					// Don't explore hidden folders
+					if (!name.startsWith("."))
+					{
+						submit(p);
+					}
+				}
+				else if (name.endsWith(".java"))
+				{
+					m_queue.put(new LocalFileSource(m_fs, getRelativeName(p), p, m_charset, attrs.size()));
+					m_discovered.incrementAndGet();
+				}
+			}
+		}
+		catch (IOException | DirectoryIteratorException e)
+		{
+			System.err.println("Cannot list " + dir + ": " + e.getMessage());
+		}
+		catch (InterruptedException e)
+		{
+			// The provider has been closed
+			closed = true;
+			Thread.currentThread().interrupt();
+		}
+		finally
+		{
+			// Whatever happened, the consumer must not wait for this directory
+			if (!closed && m_pending.decrementAndGet() == 0)
+			{
+				m_complete = true;
+				m_crawlers.shutdown();
+				try
+				{
+					m_queue.put(END);
+				}
+				catch (InterruptedException e)
+				{
+					Thread.currentThread().interrupt();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Gets the name of a file relative to the root of the file system, using
+	 * forward slashes as the separator.
+	 * @param p The path of the file on the local disk
+	 * @return The relative name
+	 */
+	protected String getRelativeName(Path p)
+	{
+		StringBuilder out = new StringBuilder();
+		for (Path part : m_root.relativize(p))
+		{
+			if (out.length() > 0)
+			{
+				out.append('/');
+			}
+			out.append(part.toString());
+		}
+		return out.toString();
+	}
+}
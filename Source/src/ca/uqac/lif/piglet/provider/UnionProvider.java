@@ -88,4 +88,21 @@ public class UnionProvider implements FileProvider
 		}
 		return files;
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Returns {@code true} if all the underlying providers know their files.
+	 * @return {@code true} if the set of files is known, {@code false} otherwise
+	 */
+	@Override
+	public boolean isComplete()
+	{
+		for (FileProvider p : m_providers)
+		{
+			if (!p.isComplete())
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -55,7 +55,7 @@ public class AnsiCallback extends StatusCallback
 	{
 		m_startTime = System.currentTimeMillis();
 		printBar();
-		while (m_currentlyDone.get() < m_total)
+		while (!isFinished())
 		{
 			try
 			{
@@ -94,7 +94,7 @@ public class AnsiCallback extends StatusCallback
 		m_out.setForegroundColor(Color.LIGHT_GRAY);
 		m_out.print("[");
 		m_out.setForegroundColor(Color.RED);
-		int chars = (int) Math.ceil(((float) done / (float) m_total) * s_barWidth);
+		int chars = m_total == 0 ? 0 : (int) Math.min(s_barWidth, Math.ceil(((float) done / (float) m_total) * s_barWidth));
 		for (int i = 0; i < chars; i++)
 		{
 			m_out.print("#");
@@ -106,8 +106,9 @@ public class AnsiCallback extends StatusCallback
 		m_out.setForegroundColor(Color.LIGHT_GRAY);
 		m_out.print("] ");
 		m_out.resetColors();
-		int width = Integer.toString(m_total).length();
-		m_out.print(String.format("%" + width + "d/%" + width + "d", done, m_total));
+		String total = formatTotal();
+		int width = total.length();
+		m_out.print(String.format("%" + width + "d/%s", done, total));
 		long elapsed = System.currentTimeMillis() - m_startTime;
 		m_out.print(String.format(" Elapsed: %s", AnsiPrinter.formatHms(elapsed)));
 		long eta = calculateEta(done);
@@ -0,0 +1,439 @@
+/*
+    Analysis of assertions in Java programs
+    Copyright (C) 2025 Sylvain Hallé, Sarika Machhindra Kadam
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.piglet.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+import com.github.javaparser.resolution.TypeSolver;
+import com.github.javaparser.resolution.declarations.ResolvedReferenceTypeDeclaration;
+import com.github.javaparser.resolution.model.SymbolReference;
+import com.github.javaparser.symbolsolver.javassistmodel.JavassistFactory;
+
+import javassist.ClassPool;
+import javassist.NotFoundException;
+
+/**
+ * The classes contained in a jar file, shared by the type solvers of all
+ * threads. Building the index of a jar requires reading all its entries, and
+ * each class looked up is then loaded in a class pool; with one
+ * <tt>JarTypeSolver</tt> per thread, both were duplicated for every thread.
+ * An index is built once and never modified afterwards, and the class pool
+ * it wraps is synchronized, so that it can safely be used by the lightweight
+ * type solvers created for each thread by {@link #newSolver()}.
+ * <p>
+ * The list of classes can be saved to a folder with {@link #load(Path, Path)},
+ * so that later runs do not have to scan the jar again as long as its size
+ * and modification time are unchanged. The jar itself is only opened when
+ * one of its classes is actually requested; a project depending on hundreds
+ * of jars therefore only opens the few that the analyzed code uses.
+ */
+public class JarIndex
+{
+	/** The extension of class files. */
+	protected static final String CLASS_EXTENSION = ".class";
+
+	/** The extension of saved indexes. */
+	protected static final String EXTENSION = ".idx";
+
+	/**
+	 * The version of the format of saved indexes. It must be incremented
+	 * whenever the format changes, so that stale indexes are ignored.
+	 */
+	protected static final int FORMAT_VERSION = 1;
+
+	/** The path of the jar file. */
+	protected final Path m_path;
+
+	/**
+	 * The pool from which the classes of the jar are loaded, created on the
+	 * first lookup.
+	 */
+	protected volatile ClassPool m_classPool;
+
+	/**
+	 * The classes of the jar, associating their qualified name to their name
+	 * in the class pool (which differs for nested classes).
+	 */
+	protected final Map<String,String> m_knownClasses;
+
+	/** The number of lookups of a class contained in the jar. */
+	protected final LongAdder m_hits = new LongAdder();
+
+	/**
+	 * Builds the index of a jar file by scanning its entries.
+	 * @param path The path of the jar file
+	 * @throws IOException If the jar file cannot be read
+	 */
+	public JarIndex(Path path) throws IOException
+	{
+		this(path, scan(path));
+	}
+
+	/**
+	 * Creates the index of a jar file from the list of its classes.
+	 * @param path The path of the jar file
+	 * @param pool_names The names of the classes in the class pool, i.e. with
+	 * a <tt>$</tt> separating nested classes from their parent
+	 */
+	protected JarIndex(Path path, List<String> pool_names)
+	{
+		super();
+		m_path = path;
+		Map<String,String> known = new HashMap<String,String>();
+		for (String pool_name : pool_names)
+		{
+			String qualified_name = pool_name.replace('$', '.');
+			// Reuse the same string instance when both names are equal
+			known.put(qualified_name.equals(pool_name) ? pool_name : qualified_name, pool_name);
+		}
+		m_knownClasses = Collections.unmodifiableMap(known);
+	}
+
+	/**
+	 * Gets the index of a jar file, reading it from a folder of saved indexes
+	 * if it is up to date, and building and saving it otherwise. An index is
+	 * up to date if it was saved for a jar with the same path, size and
+	 * modification time. A folder that cannot be written to is not an error;
+	 * the index is then simply built again on the next run.
+	 * @param path The path of the jar file
+	 * @param folder The folder of saved indexes, or <tt>null</tt> to always
+	 * build the index
+	 * @return The index
+	 * @throws IOException If the jar file cannot be read
+	 */
+	public static JarIndex load(Path path, Path folder) throws IOException
+	{
+		if (folder == null)
+		{
+			return new JarIndex(path);
+		}
+		Path abs_path = path.toAbsolutePath().normalize();
+		BasicFileAttributes attrs = Files.readAttributes(abs_path, BasicFileAttributes.class);
+		long size = attrs.size(), mtime = attrs.lastModifiedTime().toMillis();
+		Path file = folder.resolve(getKey(abs_path) + EXTENSION);
+		List<String> names = read(file, abs_path, size, mtime);
+		if (names == null)
+		{
+			names = scan(abs_path);
+			write(file, abs_path, size, mtime, names);
+		}
+		return new JarIndex(path, names);
+	}
+
+	/**
+	 * Gets the path of the jar file.
+	 * @return The path
+	 */
+	public Path getPath()
+	{
+		return m_path;
+	}
+
+	/**
+	 * Gets the number of classes in the jar.
+	 * @return The number of classes
+	 */
+	public int size()
+	{
+		return m_knownClasses.size();
+	}
+
+	/**
+	 * Gets the number of lookups of a class contained in the jar, across all
+	 * threads.
+	 * @return The number of lookups
+	 */
+	public long getHits()
+	{
+		return m_hits.sum();
+	}
+
+	/**
+	 * Determines whether the jar file has been opened, which happens the first
+	 * time one of its classes is looked up.
+	 * @return <tt>true</tt> if the jar is open, <tt>false</tt> otherwise
+	 */
+	public boolean isOpen()
+	{
+		return m_classPool != null;
+	}
+
+	/**
+	 * Gets the pool from which the classes of the jar are loaded, opening the
+	 * jar if this was not done yet.
+	 * @return The class pool
+	 * @throws IOException If the jar file cannot be opened
+	 */
+	protected ClassPool getClassPool() throws IOException
+	{
+		ClassPool pool = m_classPool;
+		if (pool != null)
+		{
+			return pool;
+		}
+		synchronized (this)
+		{
+			if (m_classPool == null)
+			{
+				pool = new ClassPool();
+				try
+				{
+					pool.appendClassPath(m_path.toString());
+				}
+				catch (NotFoundException e)
+				{
+					FileNotFoundException fnf = new FileNotFoundException(e.getMessage());
+					fnf.initCause(e);
+					throw fnf;
+				}
+				m_classPool = pool;
+			}
+			return m_classPool;
+		}
+	}
+
+	/**
+	 * Lists the classes contained in a jar file.
+	 * @param path The path of the jar file
+	 * @return The names of the classes in the class pool
+	 * @throws IOException If the jar file cannot be read
+	 */
+	protected static List<String> scan(Path path) throws IOException
+	{
+		List<String> names = new ArrayList<String>();
+		try (JarFile jar = new JarFile(path.toFile()))
+		{
+			Enumeration<JarEntry> entries = jar.entries();
+			while (entries.hasMoreElements())
+			{
+				JarEntry entry = entries.nextElement();
+				String name = entry.getName();
+				if (entry.isDirectory() || !name.endsWith(CLASS_EXTENSION))
+				{
+					continue;
+				}
+				names.add(name.substring(0, name.length() - CLASS_EXTENSION.length()).replace('/', '.'));
+			}
+		}
+		return names;
+	}
+
+	/**
+	 * Reads a saved index.
+	 * @param file The file containing the index
+	 * @param path The absolute path of the jar file
+	 * @param size The current size of the jar file
+	 * @param mtime The current modification time of the jar file
+	 * @return The names of the classes, or <tt>null</tt> if the file does not
+	 * exist, cannot be read or is not up to date
+	 */
+	protected static List<String> read(Path file, Path path, long size, long mtime)
+	{
+		if (!Files.isRegularFile(file))
+		{
+			return null;
+		}
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file))))
+		{
+			if (in.readInt() != FORMAT_VERSION || !in.readUTF().equals(path.toString())
+					|| in.readLong() != size || in.readLong() != mtime)
+			{
+				return null;
+			}
+			int n = in.readInt();
+			List<String> names = new ArrayList<String>(n);
+			for (int i = 0; i < n; i++)
+			{
+				names.add(in.readUTF());
+			}
+			return names;
+		}
+		catch (IOException | RuntimeException e)
+		{
+			return null;
+		}
+	}
+
+	/**
+	 * Saves an index, replacing any previous version atomically.
+	 * @param file The file in which to write the index
+	 * @param path The absolute path of the jar file
+	 * @param size The size of the jar file
+	 * @param mtime The modification time of the jar file
+	 * @param names The names of the classes
+	 */
+	protected static void write(Path file, Path path, long size, long mtime, List<String> names)
+	{
+		Path tmp = null;
+		try
+		{
+			Files.createDirectories(file.getParent());
+			tmp = Files.createTempFile(file.getParent(), "jar", ".tmp");
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp))))
+			{
+				out.writeInt(FORMAT_VERSION);
+				out.writeUTF(path.toString());
+				out.writeLong(size);
+				out.writeLong(mtime);
+				out.writeInt(names.size());
+				for (String name : names)
+				{
+					out.writeUTF(name);
+				}
+			}
+			try
+			{
+				Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			}
+			catch (AtomicMoveNotSupportedException e)
+			{
+				Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+			}
+		}
+		catch (IOException e)
+		{
+			// The index will be built again next time
+			if (tmp != null)
+			{
+				try
+				{
+					Files.deleteIfExists(tmp);
+				}
+				catch (IOException e2)
+				{
+					// Ignore
+				}
+			}
+		}
+	}
+
+	/**
+	 * Computes the name under which the index of a jar file is saved.
+	 * @param path The absolute path of the jar file
+	 * @return The name
+	 */
+	protected static String getKey(Path path)
+	{
+		try
+		{
+			byte[] digest = MessageDigest.getInstance("SHA-256").digest(path.toString().getBytes(StandardCharsets.UTF_8));
+			StringBuilder sb = new StringBuilder();
+			for (int i = 0; i < 16; i++)
+			{
+				sb.append(String.format("%02x", digest[i]));
+			}
+			return sb.toString();
+		}
+		catch (NoSuchAlgorithmException e)
+		{
+			// Every Java platform supports SHA-256
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Creates a type solver looking up classes in this index. Each thread must
+	 * use its own solver, since a solver is bound to the root of the thread's
+	 * type solver hierarchy.
+	 * @return The type solver
+	 */
+	public TypeSolver newSolver()
+	{
+		return new IndexTypeSolver();
+	}
+
+	/**
+	 * A type solver resolving the classes of a shared jar index. The solver
+	 * itself holds no data, so creating one per thread is cheap.
+	 */
+	protected class IndexTypeSolver implements TypeSolver
+	{
+		/** The parent of this solver */
+		protected TypeSolver m_parent;
+
+		@Override
+		public TypeSolver getParent()
+		{
+			return m_parent;
+		}
+
+		@Override
+		public void setParent(TypeSolver parent)
+		{
+			Objects.requireNonNull(parent);
+			if (m_parent != null)
+			{
+				throw new IllegalStateException("This TypeSolver already has a parent.");
+			}
+			if (parent == this)
+			{
+				throw new IllegalStateException("The parent of this TypeSolver cannot be itself.");
+			}
+			m_parent = parent;
+		}
+
+		@Override
+		public SymbolReference<ResolvedReferenceTypeDeclaration> tryToSolveType(String name)
+		{
+			String pool_name = m_knownClasses.get(name);
+			if (pool_name == null)
+			{
+				return SymbolReference.unsolved();
+			}
+			m_hits.increment();
+			try
+			{
+				return SymbolReference.solved(JavassistFactory.toTypeDeclaration(getClassPool().get(pool_name), getRoot()));
+			}
+			catch (IOException | NotFoundException e)
+			{
+				// All the names in the index come from the jar
+				throw new IllegalStateException("Class " + pool_name + " listed in " + m_path + " cannot be loaded", e);
+			}
+		}
+
+		@Override
+		public String toString()
+		{
+			return "JarIndex.IndexTypeSolver{" + m_path + "}";
+		}
+	}
+}
@@ -0,0 +1,276 @@
+/*
+    Analysis of assertions in Java programs
+    Copyright (C) 2025 Sylvain Hallé, Sarika Machhindra Kadam
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.piglet.util;
+
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A fixed-size thread pool that runs the waiting task with the largest
+ * estimated cost first. Starting long tasks early avoids ending a run with a
+ * single long task occupying one thread while the others are idle (the
+ * "longest processing time first" rule). Tasks of equal cost run in the
+ * order they were submitted. Tasks submitted without a cost are considered
+ * to have a cost of zero.
+ * <p>
+ * The executor can also enforce a deadline on each task. A watchdog starts
+ * counting when a task actually starts running, not when it is submitted,
+ * and cancels the task as soon as its time is up.
+ * <p>
+ * Finally, the executor measures its makespan, that is, the time elapsed
+ * between the start of its first task and the end of its last one.
+ */
+public class LargestFirstExecutor extends ThreadPoolExecutor
+{
+	/** A counter giving each task its submission rank. */
+	protected final AtomicLong m_sequence = new AtomicLong();
+
+	/** The thread cancelling tasks that exceed their deadline. */
+	protected final ScheduledThreadPoolExecutor m_watchdog;
+
+	/** The maximum running time of a task in milliseconds, or 0 for none. */
+	protected volatile long m_taskTimeout = 0;
+
+	/**
+	 * The time, as given by {@link System#nanoTime()}, at which the first task
+	 * started, or <tt>null</tt> if no task has started yet.
+	 */
+	protected final AtomicReference<Long> m_firstStart = new AtomicReference<Long>();
+
+	/**
+	 * The time, as given by {@link System#nanoTime()}, at which the last task
+	 * to end so far ended.
+	 */
+	protected final AtomicLong m_lastEnd = new AtomicLong();
+
+	/**
+	 * Creates a new executor.
+	 * @param threads The number of threads
+	 * @param factory The factory creating the threads
+	 */
+	public LargestFirstExecutor(int threads, ThreadFactory factory)
+	{
+		super(threads, threads, 0, TimeUnit.MILLISECONDS, new PriorityBlockingQueue<Runnable>(), factory);
+		m_watchdog = new ScheduledThreadPoolExecutor(1, r -> {
+			Thread t = new Thread(r, "watchdog");
+			t.setDaemon(true);
+			return t;
+		});
+		m_watchdog.setRemoveOnCancelPolicy(true);
+	}
+
+	/**
+	 * Sets the maximum time a task may run before being cancelled.
+	 * @param timeout The timeout, or 0 for no limit
+	 * @param unit The unit of the timeout
+	 */
+	public void setTaskTimeout(long timeout, TimeUnit unit)
+	{
+		m_taskTimeout = unit.toMillis(timeout);
+	}
+
+	/**
+	 * Gets the makespan of the tasks run so far: the time elapsed between the
+	 * start of the first task and the end of the last task to have ended.
+	 * @return The makespan in milliseconds, or 0 if no task has ended
+	 */
+	public long getMakespan()
+	{
+		Long first = m_firstStart.get();
+		if (first == null)
+		{
+			return 0;
+		}
+		return Math.max(0, TimeUnit.NANOSECONDS.toMillis(m_lastEnd.get() - first));
+	}
+
+	/**
+	 * Determines whether a task was cancelled because it exceeded its
+	 * deadline.
+	 * @param f The future of the task
+	 * @return <tt>true</tt> if the task timed out, <tt>false</tt> otherwise
+	 */
+	public static boolean isTimedOut(Future<?> f)
+	{
+		return f instanceof CostedTask && f.isCancelled() && ((CostedTask<?>) f).m_timedOut;
+	}
+
+	/**
+	 * Submits a task with an estimated cost.
+	 * @param <T> The type of the task's result
+	 * @param task The task
+	 * @param cost The estimated cost of the task, in any unit common to all
+	 * tasks
+	 * @return A future representing the pending result of the task
+	 */
+	public <T> Future<T> submit(Callable<T> task, double cost)
+	{
+		return submit(task, cost, null);
+	}
+
+	/**
+	 * Submits a task with an estimated cost, and adds its future to a queue
+	 * once it is done, whether it completed, failed or was cancelled.
+	 * @param <T> The type of the task's result
+	 * @param task The task
+	 * @param cost The estimated cost of the task, in any unit common to all
+	 * tasks
+	 * @param completed The queue to which the future is added when the task is
+	 * done, or <tt>null</tt>
+	 * @return A future representing the pending result of the task
+	 */
+	public <T> Future<T> submit(Callable<T> task, double cost, Queue<Future<T>> completed)
+	{
+		CostedTask<T> f = new CostedTask<T>(task, cost, m_sequence.getAndIncrement(), completed);
+		execute(f);
+		return f;
+	}
+
+	@Override
+	protected <T> CostedTask<T> newTaskFor(Callable<T> task)
+	{
+		return new CostedTask<T>(task, 0, m_sequence.getAndIncrement(), null);
+	}
+
+	@Override
+	protected <T> CostedTask<T> newTaskFor(Runnable task, T value)
+	{
+		return new CostedTask<T>(Executors.callable(task, value), 0, m_sequence.getAndIncrement(), null);
+	}
+
+	@Override
+	protected void beforeExecute(Thread t, Runnable r)
+	{
+		super.beforeExecute(t, r);
+		m_firstStart.compareAndSet(null, System.nanoTime());
+		long timeout = m_taskTimeout;
+		if (timeout > 0 && r instanceof CostedTask)
+		{
+			CostedTask<?> task = (CostedTask<?>) r;
+			task.m_deadline = m_watchdog.schedule(task::timeOut, timeout, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	@Override
+	protected void afterExecute(Runnable r, Throwable t)
+	{
+		super.afterExecute(r, t);
+		m_lastEnd.accumulateAndGet(System.nanoTime(), Math::max);
+		if (r instanceof CostedTask)
+		{
+			ScheduledFuture<?> deadline = ((CostedTask<?>) r).m_deadline;
+			if (deadline != null)
+			{
+				deadline.cancel(false);
+			}
+		}
+	}
+
+	@Override
+	protected void terminated()
+	{
+		m_watchdog.shutdownNow();
+		super.terminated();
+	}
+
+	/**
+	 * A task with an estimated cost, ordered by decreasing cost and then by
+	 * submission rank.
+	 * @param <T> The type of the task's result
+	 */
+	protected static class CostedTask<T> extends FutureTask<T> implements Comparable<CostedTask<?>>
+	{
+		/** The estimated cost of the task */
+		protected final double m_cost;
+
+		/** The submission rank of the task */
+		protected final long m_rank;
+
+		/** The queue to which the task is added when done, if any */
+		protected final Queue<Future<T>> m_completed;
+
+		/** The cancellation scheduled by the watchdog, if any */
+		protected volatile ScheduledFuture<?> m_deadline;
+
+		/** Whether the task was cancelled by the watchdog */
+		protected volatile boolean m_timedOut = false;
+
+		/**
+		 * Creates a new task.
+		 * @param task The callable to run
+		 * @param cost The estimated cost of the task
+		 * @param rank The submission rank of the task
+		 * @param completed The queue to which the task is added when done, or
+		 * <tt>null</tt>
+		 */
+		public CostedTask(Callable<T> task, double cost, long rank, Queue<Future<T>> completed)
+		{
+			super(task);
+			m_cost = cost;
+			m_rank = rank;
+			m_completed = completed;
+		}
+
+		/**
+		 * Cancels the task because it exceeded its deadline. The task is only
+		 * marked as timed out if it is actually cancelled; a task that completes
+		 * in the meantime keeps its result.
+		 * @return <tt>true</tt> if the task was cancelled, <tt>false</tt> if it
+		 * was already done
+		 */
+		protected boolean timeOut()
+		{
+			// The flag is raised first, so that it is visible to whoever takes the
+			// task from the completion queue filled by done()
+			m_timedOut = true;
+			if (!cancel(true))
+			{
+				m_timedOut = false;
+				return false;
+			}
+			return true;
+		}
+
+		@Override
+		protected void done()
+		{
+			if (m_completed != null)
+			{
+				m_completed.add(this);
+			}
+		}
+
+		@Override
+		public int compareTo(CostedTask<?> o)
+		{
+			int c = Double.compare(o.m_cost, m_cost);
+			return c != 0 ? c : Long.compare(m_rank, o.m_rank);
+		}
+	}
+}
@@ -0,0 +1,652 @@
+/*
+    Analysis of assertions in Java programs
+    Copyright (C) 2025 Sylvain Hallé, Sarika Machhindra Kadam
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.piglet.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.github.javaparser.ParserConfiguration;
+import com.github.javaparser.Position;
+import com.github.javaparser.Range;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.NodeList;
+import com.github.javaparser.ast.comments.Comment;
+import com.github.javaparser.metamodel.BaseNodeMetaModel;
+import com.github.javaparser.metamodel.JavaParserMetaModel;
+import com.github.javaparser.metamodel.PropertyMetaModel;
+
+/**
+ * A persistent cache of parsed compilation units, stored on disk and shared
+ * by all the threads of an analysis. Entries are addressed by a hash of the
+ * file's contents and of the parser options that change the resulting AST
+ * (language level and attribution of comments), so that an unchanged file is
+ * never parsed twice, regardless of its name or location.
+ * <p>
+ * Units are written in a compact binary form that walks JavaParser's
+ * metamodel: each node is written as its type followed by the values of its
+ * properties, its range and its orphan comments. Reading a unit back rebuilds
+ * the tree through the metamodel's constructors, which is several times
+ * faster than lexing and parsing the source again. Tokens are not stored;
+ * the units returned by the cache therefore have a range but no token range.
+ * <p>
+ * The total size of the cache is bounded. When it is exceeded, the least
+ * recently used entries are deleted until the cache is back to three
+ * quarters of its capacity.
+ */
+public class ParseCache
+{
+	/**
+	 * The version of the binary format. It must be incremented whenever the
+	 * encoding changes, so that stale entries are ignored.
+	 */
+	protected static final int FORMAT_VERSION = 1;
+
+	/**
+	 * A magic number at the start of each entry.
+	 */
+	protected static final int MAGIC = 0x50474153;
+
+	/**
+	 * The extension of cache entries.
+	 */
+	protected static final String EXTENSION = ".ast";
+
+	/**
+	 * The metamodels of all node types, in a fixed order. The position of a
+	 * metamodel in this list is the code used to write its type.
+	 */
+	protected static final List<BaseNodeMetaModel> s_metaModels = new ArrayList<>(JavaParserMetaModel.getNodeMetaModels());
+
+	/**
+	 * The code associated to each metamodel.
+	 */
+	protected static final Map<BaseNodeMetaModel,Integer> s_metaModelCodes = new IdentityHashMap<>();
+
+	static
+	{
+		s_metaModels.sort(Comparator.comparing(BaseNodeMetaModel::getTypeName));
+		for (int i = 0; i < s_metaModels.size(); i++)
+		{
+			s_metaModelCodes.put(s_metaModels.get(i), i);
+		}
+	}
+
+	/**
+	 * The folder where entries are stored.
+	 */
+	protected final Path m_folder;
+
+	/**
+	 * The maximum size of the cache, in bytes.
+	 */
+	protected final long m_maxSize;
+
+	/**
+	 * The current size of the cache, in bytes.
+	 */
+	protected final AtomicLong m_size = new AtomicLong();
+
+	/**
+	 * The number of units found in the cache.
+	 */
+	protected final LongAdder m_hits = new LongAdder();
+
+	/**
+	 * The number of units that had to be parsed.
+	 */
+	protected final LongAdder m_misses = new LongAdder();
+
+	/**
+	 * A lock preventing two threads from evicting entries at the same time.
+	 */
+	protected final Object m_evictionLock = new Object();
+
+	/**
+	 * A lock making the replacement of an entry and the update of the size of
+	 * the cache a single step.
+	 */
+	protected final Object m_writeLock = new Object();
+
+	/**
+	 * Creates a new parse cache.
+	 * @param folder The folder where entries are stored; it is created if it
+	 * does not exist
+	 * @param max_size The maximum size of the cache, in bytes
+	 * @throws IOException If the folder cannot be created or read
+	 */
+	public ParseCache(Path folder, long max_size) throws IOException
+	{
+		super();
+		m_folder = folder;
+		m_maxSize = max_size;
+		Files.createDirectories(folder);
+		long size = 0;
+		try (DirectoryStream<Path> ds = Files.newDirectoryStream(folder, "*" + EXTENSION))
+		{
+			for (Path p : ds)
+			{
+				size += Files.size(p);
+			}
+		}
+		m_size.set(size);
+	}
+
+	/**
+	 * Gets the compilation unit associated to a key, if it is in the cache.
+	 * @param key The key, obtained from {@link #getKey(String, ParserConfiguration)}
+	 * @return The compilation unit, or <tt>null</tt> if it is not in the cache
+	 */
+	public CompilationUnit get(String key)
+	{
+		Path p = m_folder.resolve(key + EXTENSION);
+		byte[] bytes;
+		try
+		{
+			bytes = Files.readAllBytes(p);
+		}
+		catch (IOException e)
+		{
+			// Not in the cache
+			m_misses.increment();
+			return null;
+		}
+		CompilationUnit u;
+		try
+		{
+			u = decode(bytes);
+		}
+		catch (IOException | RuntimeException e)
+		{
+			// Stale or corrupted entry: discard it
+			m_misses.increment();
+			delete(p);
+			return null;
+		}
+		try
+		{
+			// Used for LRU eviction
+			Files.setLastModifiedTime(p, FileTime.fromMillis(System.currentTimeMillis()));
+		}
+		catch (IOException e)
+		{
+			// Not critical
+		}
+		m_hits.increment();
+		return u;
+	}
+
+	/**
+	 * Puts a compilation unit in the cache.
+	 * @param key The key, obtained from {@link #getKey(String, ParserConfiguration)}
+	 * @param u The compilation unit
+	 */
+	public void put(String key, CompilationUnit u)
+	{
+		byte[] bytes;
+		try
+		{
+			bytes = encode(u);
+		}
+		catch (IOException | RuntimeException e)
+		{
+			// This unit cannot be cached; not critical
+			return;
+		}
+		if (bytes.length > m_maxSize)
+		{
+			return;
+		}
+		Path p = m_folder.resolve(key + EXTENSION);
+		Path tmp = m_folder.resolve(key + "." + Thread.currentThread().getId() + ".tmp");
+		long added;
+		try
+		{
+			Files.write(tmp, bytes);
+			synchronized (m_writeLock)
+			{
+				// The entry may have been written by another thread in the meantime;
+				// only the difference with the replaced file counts
+				long replaced = 0;
+				try
+				{
+					replaced = Files.size(p);
+				}
+				catch (IOException e)
+				{
+					// No previous entry
+				}
+				try
+				{
+					Files.move(tmp, p, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+				}
+				catch (AtomicMoveNotSupportedException e)
+				{
+					Files.move(tmp, p, StandardCopyOption.REPLACE_EXISTING);
+				}
+				added = m_size.addAndGet(bytes.length - replaced);
+			}
+		}
+		catch (IOException e)
+		{
+			delete(tmp);
+			return;
+		}
+		if (added > m_maxSize)
+		{
+			evict();
+		}
+	}
+
+	/**
+	 * Gets the number of units that were found in the cache.
+	 * @return The number of hits
+	 */
+	public long getHits()
+	{
+		return m_hits.sum();
+	}
+
+	/**
+	 * Gets the number of units that were not found in the cache.
+	 * @return The number of misses
+	 */
+	public long getMisses()
+	{
+		return m_misses.sum();
+	}
+
+	/**
+	 * Gets the current size of the cache.
+	 * @return The size, in bytes
+	 */
+	public long getSize()
+	{
+		return m_size.get();
+	}
+
+	/**
+	 * Computes the key of a cache entry.
+	 * @param code The source code
+	 * @param config The configuration of the parser
+	 * @return The key, as a string of hexadecimal digits
+	 */
+	public static String getKey(String code, ParserConfiguration config)
+	{
+		try
+		{
+			MessageDigest md = MessageDigest.getInstance("SHA-256");
+			md.update(config.getLanguageLevel().name().getBytes(StandardCharsets.UTF_8));
+			md.update((byte) (config.isAttributeComments() ? 1 : 0));
+			md.update(code.getBytes(StandardCharsets.UTF_8));
+			byte[] digest = md.digest();
+			StringBuilder out = new StringBuilder(digest.length * 2);
+			for (byte b : digest)
+			{
+				out.append(Character.forDigit((b >> 4) & 0xF, 16));
+				out.append(Character.forDigit(b & 0xF, 16));
+			}
+			return out.toString();
+		}
+		catch (NoSuchAlgorithmException e)
+		{
+			// Cannot happen, SHA-256 is mandatory in every JVM
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Deletes the least recently used entries until the cache is back to three
+	 * quarters of its maximum size.
+	 */
+	protected void evict()
+	{
+		synchronized (m_evictionLock)
+		{
+			if (m_size.get() <= m_maxSize)
+			{
+				// Another thread already did it
+				return;
+			}
+			List<Path> paths = new ArrayList<>();
+			Map<Path,BasicFileAttributes> attributes = new HashMap<>();
+			long total = 0;
+			try (DirectoryStream<Path> ds = Files.newDirectoryStream(m_folder, "*" + EXTENSION))
+			{
+				for (Path p : ds)
+				{
+					try
+					{
+						BasicFileAttributes att = Files.readAttributes(p, BasicFileAttributes.class);
+						paths.add(p);
+						attributes.put(p, att);
+						total += att.size();
+					}
+					catch (IOException e)
+					{
+						// Entry deleted in the meantime
+					}
+				}
+			}
+			catch (IOException e)
+			{
+				return;
+			}
+			paths.sort(Comparator.comparing(p -> attributes.get(p).lastModifiedTime()));
+			long low_mark = (m_maxSize / 4) * 3;
+			for (Path p : paths)
+			{
+				if (total <= low_mark)
+				{
+					break;
+				}
+				if (delete(p))
+				{
+					total -= attributes.get(p).size();
+				}
+			}
+			m_size.set(total);
+		}
+	}
+
+	/**
+	 * Deletes a file, ignoring errors.
+	 * @param p The file to delete
+	 * @return <tt>true</tt> if the file was deleted, <tt>false</tt> otherwise
+	 */
+	protected static boolean delete(Path p)
+	{
+		try
+		{
+			return Files.deleteIfExists(p);
+		}
+		catch (IOException e)
+		{
+			return false;
+		}
+	}
+
+	/**
+	 * Encodes a compilation unit into its binary form.
+	 * @param u The compilation unit
+	 * @return The encoded unit
+	 * @throws IOException If the unit contains a property that cannot be written
+	 */
+	protected static byte[] encode(CompilationUnit u) throws IOException
+	{
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(baos);
+		out.writeInt(MAGIC);
+		out.writeInt(FORMAT_VERSION);
+		out.writeInt(s_metaModels.size());
+		writeNode(u, out, new HashMap<String,Integer>());
+		out.flush();
+		return baos.toByteArray();
+	}
+
+	/**
+	 * Decodes a compilation unit from its binary form.
+	 * @param bytes The encoded unit
+	 * @return The compilation unit
+	 * @throws IOException If the data is not a valid encoded unit
+	 */
+	protected static CompilationUnit decode(byte[] bytes) throws IOException
+	{
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+		if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION || in.readInt() != s_metaModels.size())
+		{
+			throw new IOException("Incompatible cache entry");
+		}
+		Node n = readNode(in, new ArrayList<String>());
+		if (!(n instanceof CompilationUnit))
+		{
+			throw new IOException("Cache entry is not a compilation unit");
+		}
+		return (CompilationUnit) n;
+	}
+
+	/**
+	 * Writes a node and its descendants.
+	 * @param n The node, which may be <tt>null</tt>
+	 * @param out The stream to write to
+	 * @param strings The strings already written, associated to their index
+	 * @throws IOException If a write error occurs
+	 */
+	protected static void writeNode(Node n, DataOutputStream out, Map<String,Integer> strings) throws IOException
+	{
+		if (n == null)
+		{
+			out.writeShort(-1);
+			return;
+		}
+		BaseNodeMetaModel meta = n.getMetaModel();
+		out.writeShort(s_metaModelCodes.get(meta));
+		for (PropertyMetaModel prop : meta.getAllPropertyMetaModels())
+		{
+			Object value = prop.getValue(n);
+			if (prop.isNodeList())
+			{
+				NodeList<?> list = (NodeList<?>) value;
+				if (list == null)
+				{
+					out.writeInt(-1);
+					continue;
+				}
+				out.writeInt(list.size());
+				for (Node child : list)
+				{
+					writeNode(child, out, strings);
+				}
+			}
+			else if (prop.isNode())
+			{
+				writeNode((Node) value, out, strings);
+			}
+			else if (prop.getType() == String.class)
+			{
+				writeString((String) value, out, strings);
+			}
+			else if (prop.getType() == boolean.class || prop.getType() == Boolean.class)
+			{
+				out.writeBoolean((Boolean) value);
+			}
+			else if (prop.getType().isEnum())
+			{
+				out.writeShort(((Enum<?>) value).ordinal());
+			}
+			else
+			{
+				throw new IOException("Cannot write property " + prop.getName() + " of " + meta.getTypeName());
+			}
+		}
+		Optional<Range> range = n.getRange();
+		out.writeBoolean(range.isPresent());
+		if (range.isPresent())
+		{
+			Range r = range.get();
+			out.writeInt(r.begin.line);
+			out.writeInt(r.begin.column);
+			out.writeInt(r.end.line);
+			out.writeInt(r.end.column);
+		}
+		List<Comment> orphans = n.getOrphanComments();
+		out.writeInt(orphans.size());
+		for (Comment c : orphans)
+		{
+			writeNode(c, out, strings);
+		}
+	}
+
+	/**
+	 * Reads a node and its descendants.
+	 * @param in The stream to read from
+	 * @param strings The strings already read, in order
+	 * @return The node, or <tt>null</tt>
+	 * @throws IOException If a read error occurs
+	 */
+	protected static Node readNode(DataInputStream in, List<String> strings) throws IOException
+	{
+		int code = in.readShort();
+		if (code < 0)
+		{
+			return null;
+		}
+		BaseNodeMetaModel meta = s_metaModels.get(code);
+		Map<String,Object> params = new HashMap<>();
+		Comment comment = null;
+		for (PropertyMetaModel prop : meta.getAllPropertyMetaModels())
+		{
+			Object value;
+			if (prop.isNodeList())
+			{
+				int size = in.readInt();
+				if (size < 0)
+				{
+					value = null;
+				}
+				else
+				{
+					NodeList<Node> list = new NodeList<>();
+					for (int i = 0; i < size; i++)
+					{
+						list.add(readNode(in, strings));
+					}
+					value = list;
+				}
+			}
+			else if (prop.isNode())
+			{
+				value = readNode(in, strings);
+			}
+			else if (prop.getType() == String.class)
+			{
+				value = readString(in, strings);
+			}
+			else if (prop.getType() == boolean.class || prop.getType() == Boolean.class)
+			{
+				value = in.readBoolean();
+			}
+			else
+			{
+				value = prop.getType().getEnumConstants()[in.readShort()];
+			}
+			if (prop.getName().equals("comment"))
+			{
+				// Not a constructor parameter
+				comment = (Comment) value;
+			}
+			else
+			{
+				params.put(prop.getName(), value);
+			}
+		}
+		Node n = meta.construct(params);
+		if (comment != null)
+		{
+			n.setComment(comment);
+		}
+		if (in.readBoolean())
+		{
+			Position begin = new Position(in.readInt(), in.readInt());
+			Position end = new Position(in.readInt(), in.readInt());
+			n.setRange(new Range(begin, end));
+		}
+		int orphans = in.readInt();
+		for (int i = 0; i < orphans; i++)
+		{
+			n.addOrphanComment((Comment) readNode(in, strings));
+		}
+		return n;
+	}
+
+	/**
+	 * Writes a string. Each distinct string is written in full only once;
+	 * subsequent occurrences are written as a reference to the first one.
+	 * @param s The string, which may be <tt>null</tt>
+	 * @param out The stream to write to
+	 * @param strings The strings already written, associated to their index
+	 * @throws IOException If a write error occurs
+	 */
+	protected static void writeString(String s, DataOutputStream out, Map<String,Integer> strings) throws IOException
+	{
+		if (s == null)
+		{
+			out.writeInt(-1);
+			return;
+		}
+		Integer index = strings.get(s);
+		if (index != null)
+		{
+			out.writeInt(index);
+			return;
+		}
+		index = strings.size();
+		strings.put(s, index);
+		byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(index);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	/**
+	 * Reads a string written by {@link #writeString(String, DataOutputStream, Map)}.
+	 * @param in The stream to read from
+	 * @param strings The strings already read, in order
+	 * @return The string, or <tt>null</tt>
+	 * @throws IOException If a read error occurs
+	 */
+	protected static String readString(DataInputStream in, List<String> strings) throws IOException
+	{
+		int index = in.readInt();
+		if (index < 0)
+		{
+			return null;
+		}
+		if (index < strings.size())
+		{
+			return strings.get(index);
+		}
+		byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		String s = new String(bytes, StandardCharsets.UTF_8);
+		strings.add(s);
+		return s;
+	}
+}
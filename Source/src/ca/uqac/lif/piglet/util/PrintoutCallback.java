@@ -54,9 +54,9 @@ public class PrintoutCallback extends StatusCallback
 		{
 			m_out.println("Filter: " + m_filterCondition);
 		}
-		m_out.println("Starting processing of " + m_total + " items... (" + m_numThreads + " threads)");
+		m_out.println("Starting processing of " + formatTotal() + " items... (" + m_numThreads + " threads)");
 		printBar();
-		while (m_currentlyDone.get() < m_total)
+		while (!isFinished())
 		{
 			try
 			{
@@ -84,8 +84,9 @@ public class PrintoutCallback extends StatusCallback
 		int timeouts = m_resolutionTimeouts.get();
 		m_out.println("Timeouts: " + String.format("%3d", timeouts) + " ");
 		int done = m_currentlyDone.get();
-		int width = Integer.toString(m_total).length();
-		m_out.print(String.format("%" + width + "d/%" + width + "d", done, m_total));
+		String total = formatTotal();
+		int width = total.length();
+		m_out.print(String.format("%" + width + "d/%s", done, total));
 		long elapsed = System.currentTimeMillis() - m_startTime;
 		m_out.print(String.format(" Elapsed: %s", AnsiPrinter.formatHms(elapsed)));
 		long eta = calculateEta(done);
@@ -0,0 +1,141 @@
+/*
+    Analysis of assertions in Java programs
+    Copyright (C) 2025 Sylvain Hallé, Sarika Machhindra Kadam
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.piglet.util;
+
+import com.github.javaparser.resolution.TypeSolver;
+
+/**
+ * A deadline for the resolution of a type, enforced on the thread that
+ * performs it. While the deadline is open, the {@link ThreadTypeSolver} it
+ * was started on checks it every time a type is looked up, and throws a
+ * {@link ResolutionTimeoutException} once it has passed. The resolution is
+ * therefore abandoned at the next lookup, without handing it to another
+ * thread and without leaving a thread blocked behind.
+ * <p>
+ * Deadlines are meant to be used in a <tt>try</tt>-with-resources block.
+ * They can be nested; closing a deadline restores the one that was open
+ * when it was started.
+ */
+public class ResolutionDeadline implements AutoCloseable
+{
+	/**
+	 * The solver the deadline is started on, or <tt>null</tt> if it is not
+	 * enforced.
+	 */
+	protected final ThreadTypeSolver m_solver;
+
+	/** The deadline that was open when this one was started. */
+	protected final ResolutionDeadline m_previous;
+
+	/**
+	 * The time, as given by {@link System#nanoTime()}, after which the
+	 * resolution is abandoned.
+	 */
+	protected final long m_end;
+
+	/** Whether the deadline is enforced. */
+	protected final boolean m_enforced;
+
+	/**
+	 * Creates a new deadline.
+	 * @param solver The solver the deadline is started on, or <tt>null</tt>
+	 * @param previous The deadline that was open when this one was started
+	 * @param timeout The time in milliseconds the resolution may take, or a
+	 * value of 0 or less for no limit
+	 */
+	protected ResolutionDeadline(ThreadTypeSolver solver, ResolutionDeadline previous, long timeout)
+	{
+		super();
+		m_solver = solver;
+		m_previous = previous;
+		long end = System.nanoTime() + timeout * 1000000L;
+		if (previous != null && previous.m_enforced && previous.m_end - end < 0)
+		{
+			// A nested deadline cannot extend the one it is nested in
+			end = previous.m_end;
+		}
+		m_enforced = solver != null && timeout > 0;
+		m_end = end;
+	}
+
+	/**
+	 * Starts a deadline for a resolution performed with a type solver. The
+	 * deadline is only enforced if the solver is a {@link ThreadTypeSolver}.
+	 * @param ts The type solver
+	 * @param timeout The time in milliseconds the resolution may take, or a
+	 * value of 0 or less for no limit
+	 * @return The deadline
+	 */
+	public static ResolutionDeadline start(TypeSolver ts, long timeout)
+	{
+		if (ts instanceof ThreadTypeSolver && timeout > 0)
+		{
+			return ((ThreadTypeSolver) ts).startDeadline(timeout);
+		}
+		return new ResolutionDeadline(null, null, 0);
+	}
+
+	/**
+	 * Determines whether the deadline has passed.
+	 * @return <tt>true</tt> if the deadline is enforced and has passed,
+	 * <tt>false</tt> otherwise
+	 */
+	public boolean isExpired()
+	{
+		return m_enforced && System.nanoTime() - m_end > 0;
+	}
+
+	/**
+	 * Determines whether the deadline currently open on a type solver has
+	 * passed. Results computed by the solver after that point may come from
+	 * fallbacks that swallowed the timeout, and must not be kept.
+	 * @param ts The type solver
+	 * @return <tt>true</tt> if the solver is a {@link ThreadTypeSolver} whose
+	 * current deadline has passed, <tt>false</tt> otherwise
+	 */
+	public static boolean isExpired(TypeSolver ts)
+	{
+		if (ts instanceof ThreadTypeSolver)
+		{
+			ResolutionDeadline d = ((ThreadTypeSolver) ts).m_deadline;
+			return d != null && d.isExpired();
+		}
+		return false;
+	}
+
+	/**
+	 * Throws an exception if the deadline has passed.
+	 * @throws ResolutionTimeoutException If the deadline has passed
+	 */
+	public void check() throws ResolutionTimeoutException
+	{
+		if (isExpired())
+		{
+			throw new ResolutionTimeoutException();
+		}
+	}
+
+	@Override
+	public void close()
+	{
+		if (m_solver != null)
+		{
+			m_solver.m_deadline = m_previous;
+		}
+	}
+}
@@ -0,0 +1,38 @@
+/*
+    Analysis of assertions in Java programs
+    Copyright (C) 2025 Sylvain Hallé, Sarika Machhindra Kadam
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.piglet.util;
+
+/**
+ * Exception thrown by a {@link ThreadTypeSolver} when it is asked to look up
+ * a type after the deadline of the current resolution has passed.
+ */
+public class ResolutionTimeoutException extends RuntimeException
+{
+	/**
+	 * Dummy UID.
+	 */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Creates a new exception.
+	 */
+	public ResolutionTimeoutException()
+	{
+		super("Type resolution timed out");
+	}
+}
@@ -0,0 +1,355 @@
+/*
+    Analysis of assertions in Java programs
+    Copyright (C) 2025 Sylvain Hallé, Sarika Machhindra Kadam
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.piglet.util;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParserConfiguration;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.resolution.cache.Cache;
+import com.github.javaparser.resolution.cache.CacheStats;
+import com.github.javaparser.symbolsolver.cache.GuavaCache;
+import com.github.javaparser.symbolsolver.resolution.typesolvers.CombinedTypeSolver;
+import com.github.javaparser.symbolsolver.resolution.typesolvers.JavaParserTypeSolver;
+import com.github.javaparser.symbolsolver.resolution.typesolvers.ReflectionTypeSolver;
+import com.google.common.cache.CacheBuilder;
+
+import ca.uqac.lif.fs.FileSystemException;
+
+/**
+ * The part of the type solvers that is shared by all the threads of an
+ * analysis. JavaParser's symbol solver is not thread-safe: resolved types are
+ * stored on the nodes of the ASTs, and each declaration is bound to the root
+ * of the solver that produced it. Each thread must therefore keep its own
+ * {@link CombinedTypeSolver}, but everything that does not depend on it is
+ * computed once and shared:
+ * <ul>
+ * <li>the source folders and jar files to look into;</li>
+ * <li>the index and class pool of each jar file (see {@link JarIndex});</li>
+ * <li>the dependency source files parsed by any thread, kept in the binary
+ * form of the {@link ParseCache}, so that a file parsed by one thread only
+ * needs to be decoded by the others. The total size of this store is
+ * bounded; the least recently used files are evicted first, and are parsed
+ * again if they are needed later.</li>
+ * </ul>
+ * The ASTs obtained from the shared store are private to each thread, and
+ * each thread keeps a soft cache of them, as <tt>JavaParserTypeSolver</tt>
+ * does by default.
+ */
+public class SharedSolvers
+{
+	/**
+	 * A marker stored for files that do not exist or could not be parsed.
+	 */
+	protected static final byte[] MISSING = new byte[0];
+
+	/**
+	 * The default maximum size of the shared store of parsed files, in bytes.
+	 */
+	public static final long DEFAULT_STORE_SIZE = 64l * 1024 * 1024;
+
+	/** The source folders in which to look for types. */
+	protected final List<Path> m_sourceFolders;
+
+	/** The indexes of the jar files in which to look for types. */
+	protected final List<JarIndex> m_jars;
+
+	/** The encoded compilation units of dependency source files. */
+	protected final com.google.common.cache.Cache<Path,byte[]> m_units;
+
+	/** The number of files found in the shared store. */
+	protected final LongAdder m_hits = new LongAdder();
+
+	/** The number of files that had to be parsed. */
+	protected final LongAdder m_misses = new LongAdder();
+
+	/** The results of subtype checks, shared by the solvers of all threads. */
+	protected final SubtypeCache m_subtypes = new SubtypeCache();
+
+	/** The ancestors of types, shared by the solvers of all threads. */
+	protected final TypeHierarchy m_hierarchy = new TypeHierarchy();
+
+	/** The symbols known to be unsolvable, shared by the solvers of all threads. */
+	protected final UnresolvedSymbols m_unresolved = new UnresolvedSymbols();
+
+	/**
+	 * Creates the shared part of the type solvers.
+	 * @param sourceRoots Directories containing Java sources
+	 * @param root_package The names of the root packages to look for in the
+	 * source directories, or <tt>null</tt> to use the directories themselves
+	 * @param jarPaths Jar files, or directories containing jar files
+	 * @param index_folder The folder where the indexes of jar files are saved
+	 * between runs, or <tt>null</tt> to scan the jars on every run
+	 * @throws FileSystemException If a source directory cannot be read
+	 * @throws IOException If a jar file cannot be read
+	 */
+	public SharedSolvers(List<String> sourceRoots, String[] root_package, Set<String> jarPaths, Path index_folder) throws FileSystemException, IOException
+	{
+		this(sourceRoots, root_package, jarPaths, index_folder, DEFAULT_STORE_SIZE);
+	}
+
+	/**
+	 * Creates the shared part of the type solvers.
+	 * @param sourceRoots Directories containing Java sources
+	 * @param root_package The names of the root packages to look for in the
+	 * source directories, or <tt>null</tt> to use the directories themselves
+	 * @param jarPaths Jar files, or directories containing jar files
+	 * @param index_folder The folder where the indexes of jar files are saved
+	 * between runs, or <tt>null</tt> to scan the jars on every run
+	 * @param store_size The maximum size of the shared store of parsed files,
+	 * in bytes
+	 * @throws FileSystemException If a source directory cannot be read
+	 * @throws IOException If a jar file cannot be read
+	 */
+	public SharedSolvers(List<String> sourceRoots, String[] root_package, Set<String> jarPaths, Path index_folder, long store_size) throws FileSystemException, IOException
+	{
+		super();
+		m_sourceFolders = Collections.unmodifiableList(Solvers.getSourceFolders(sourceRoots, root_package));
+		List<JarIndex> jars = new ArrayList<JarIndex>();
+		for (Path jar : Solvers.getJarFiles(jarPaths))
+		{
+			jars.add(JarIndex.load(jar, index_folder));
+		}
+		m_jars = Collections.unmodifiableList(jars);
+		m_units = CacheBuilder.newBuilder().maximumWeight(store_size)
+				.weigher((Path k, byte[] v) -> v.length + 1).build();
+	}
+
+	/**
+	 * Creates a type solver for the current thread, with JDK types, the
+	 * source folders and the jar files. The solver shares the
+	 * {@link SubtypeCache}, the {@link TypeHierarchy} and the
+	 * {@link UnresolvedSymbols} of the other solvers.
+	 * @return The type solver
+	 */
+	public ThreadTypeSolver newSolver()
+	{
+		ThreadTypeSolver ts = new ThreadTypeSolver();
+		ts.add(new ReflectionTypeSolver());
+		for (Path folder : m_sourceFolders)
+		{
+			ts.add(new JavaParserTypeSolver(folder, new JavaParser(new ParserConfiguration()),
+					new SharedUnitCache(), softCache(), softCache()));
+		}
+		for (JarIndex jar : m_jars)
+		{
+			ts.add(jar.newSolver());
+		}
+		SubtypeCache.attach(ts, m_subtypes);
+		TypeHierarchy.attach(ts, m_hierarchy);
+		UnresolvedSymbols.attach(ts, m_unresolved);
+		return ts;
+	}
+
+	/**
+	 * Gets the number of dependency files that were found already parsed by
+	 * another thread.
+	 * @return The number of hits
+	 */
+	public long getHits()
+	{
+		return m_hits.sum();
+	}
+
+	/**
+	 * Gets the number of dependency files that had to be parsed.
+	 * @return The number of misses
+	 */
+	public long getMisses()
+	{
+		return m_misses.sum();
+	}
+
+	/**
+	 * Gets the cache of subtype checks shared by the solvers of all threads.
+	 * @return The cache
+	 */
+	public SubtypeCache getSubtypeCache()
+	{
+		return m_subtypes;
+	}
+
+	/**
+	 * Gets the table of the ancestors of types shared by the solvers of all
+	 * threads.
+	 * @return The table
+	 */
+	public TypeHierarchy getTypeHierarchy()
+	{
+		return m_hierarchy;
+	}
+
+	/**
+	 * Gets the record of the symbols known to be unsolvable, shared by the
+	 * solvers of all threads.
+	 * @return The record
+	 */
+	public UnresolvedSymbols getUnresolvedSymbols()
+	{
+		return m_unresolved;
+	}
+
+	/**
+	 * Gets the number of jar files in which types are looked up.
+	 * @return The number of jar files
+	 */
+	public int getJarCount()
+	{
+		return m_jars.size();
+	}
+
+	/**
+	 * Gets the number of jar files that had to be opened, because at least one
+	 * of their classes was requested.
+	 * @return The number of opened jar files
+	 */
+	public int getOpenedJarCount()
+	{
+		int n = 0;
+		for (JarIndex jar : m_jars)
+		{
+			if (jar.isOpen())
+			{
+				n++;
+			}
+		}
+		return n;
+	}
+
+	/**
+	 * Creates a thread-local cache whose values can be reclaimed by the
+	 * garbage collector, like the default caches of
+	 * <tt>JavaParserTypeSolver</tt>.
+	 * @param <K> The type of the keys
+	 * @param <V> The type of the values
+	 * @return The cache
+	 */
+	protected static <K,V> Cache<K,V> softCache()
+	{
+		return new GuavaCache<K,V>(CacheBuilder.newBuilder().softValues().build());
+	}
+
+	/**
+	 * The cache of parsed files of a thread's <tt>JavaParserTypeSolver</tt>.
+	 * Units are first looked up in a local soft cache, then in the shared
+	 * store; a unit parsed by this thread is added to both.
+	 */
+	protected class SharedUnitCache implements Cache<Path,Optional<CompilationUnit>>
+	{
+		/** The units already used by this thread. */
+		protected final Cache<Path,Optional<CompilationUnit>> m_local = softCache();
+
+		@Override
+		public void put(Path key, Optional<CompilationUnit> value)
+		{
+			m_local.put(key, value);
+			byte[] bytes = MISSING;
+			if (value.isPresent())
+			{
+				try
+				{
+					bytes = ParseCache.encode(value.get());
+				}
+				catch (IOException | RuntimeException e)
+				{
+					// Other threads will parse the file themselves
+					return;
+				}
+			}
+			if (m_units.asMap().putIfAbsent(key, bytes) == null)
+			{
+				m_misses.increment();
+			}
+		}
+
+		@Override
+		public Optional<Optional<CompilationUnit>> get(Path key)
+		{
+			Optional<Optional<CompilationUnit>> local = m_local.get(key);
+			if (local.isPresent())
+			{
+				return local;
+			}
+			byte[] bytes = m_units.getIfPresent(key);
+			if (bytes == null)
+			{
+				return Optional.empty();
+			}
+			Optional<CompilationUnit> value = Optional.empty();
+			if (bytes != MISSING)
+			{
+				try
+				{
+					value = Optional.of(ParseCache.decode(bytes).setStorage(key));
+				}
+				catch (IOException | RuntimeException e)
+				{
+					// Parse the file again
+					return Optional.empty();
+				}
+			}
+			m_hits.increment();
+			m_local.put(key, value);
+			return Optional.of(value);
+		}
+
+		@Override
+		public void remove(Path key)
+		{
+			m_local.remove(key);
+		}
+
+		@Override
+		public void removeAll()
+		{
+			m_local.removeAll();
+		}
+
+		@Override
+		public boolean contains(Path key)
+		{
+			return m_local.contains(key) || m_units.asMap().containsKey(key);
+		}
+
+		@Override
+		public long size()
+		{
+			return m_local.size();
+		}
+
+		@Override
+		public boolean isEmpty()
+		{
+			return m_local.isEmpty();
+		}
+
+		@Override
+		public CacheStats stats()
+		{
+			return m_local.stats();
+		}
+	}
+}
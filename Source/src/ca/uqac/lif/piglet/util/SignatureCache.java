@@ -0,0 +1,174 @@
+/*
+    Analysis of assertions in Java programs
+    Copyright (C) 2025 Sylvain Hallé, Sarika Machhindra Kadam
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.piglet.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParseProblemException;
+import com.github.javaparser.ParseResult;
+import com.github.javaparser.ParserConfiguration;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.body.FieldDeclaration;
+import com.github.javaparser.resolution.TypeSolver;
+import com.github.javaparser.resolution.types.ResolvedType;
+import com.github.javaparser.symbolsolver.javaparsermodel.JavaParserFacade;
+
+/**
+ * A cache of the types designated by signature strings, such as
+ * <tt>java.util.List&lt;? extends Number&gt;</tt>, for a single type solver.
+ * A resolved type refers to the declarations of the solver that produced it,
+ * and can only be used with that solver; each {@link ThreadTypeSolver}
+ * therefore has its own cache, which is discarded along with the solver. The
+ * cache keeps the most recently used types, up to a maximum number. A type
+ * resolved once the {@link ResolutionDeadline} of the solver has passed is
+ * not kept.
+ * <p>
+ * Signatures are parsed with a parser of their own, so that the global
+ * configuration of <tt>StaticJavaParser</tt> is neither used nor modified.
+ */
+public class SignatureCache
+{
+	/** The default maximum number of types kept by a cache. */
+	public static final int DEFAULT_CAPACITY = 4096;
+
+	/**
+	 * The configuration of the parsers reading signatures. Types are resolved
+	 * through the facade of a solver, so no symbol resolver is needed.
+	 */
+	protected static final ParserConfiguration s_config = new ParserConfiguration()
+			.setLanguageLevel(ParserConfiguration.LanguageLevel.JAVA_17);
+
+	/** The resolved types, from the least to the most recently used. */
+	protected final Map<String,ResolvedType> m_types;
+
+	/**
+	 * Creates a cache with the default capacity.
+	 */
+	public SignatureCache()
+	{
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates a cache.
+	 * @param capacity The maximum number of types kept
+	 */
+	public SignatureCache(int capacity)
+	{
+		super();
+		m_types = new LinkedHashMap<String,ResolvedType>(16, 0.75f, true)
+		{
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String,ResolvedType> eldest)
+			{
+				return size() > capacity;
+			}
+		};
+	}
+
+	/**
+	 * Resolves a signature with a type solver, using the cache of the solver
+	 * if it has one.
+	 * @param sig The signature
+	 * @param ts The type solver
+	 * @return The type
+	 */
+	public static ResolvedType resolve(String sig, TypeSolver ts)
+	{
+		if (ts instanceof ThreadTypeSolver)
+		{
+			return ((ThreadTypeSolver) ts).getSignatureCache().get(sig, ts);
+		}
+		return compute(sig, ts);
+	}
+
+	/**
+	 * Gets the type designated by a signature, resolving it if it is not in
+	 * the cache.
+	 * @param sig The signature
+	 * @param ts The type solver this cache belongs to
+	 * @return The type
+	 */
+	public ResolvedType get(String sig, TypeSolver ts)
+	{
+		synchronized (m_types)
+		{
+			ResolvedType t = m_types.get(sig);
+			if (t != null)
+			{
+				return t;
+			}
+		}
+		ResolvedType t = compute(sig, ts);
+		if (ResolutionDeadline.isExpired(ts))
+		{
+			return t;
+		}
+		synchronized (m_types)
+		{
+			m_types.put(sig, t);
+		}
+		return t;
+	}
+
+	/**
+	 * Gets the number of types currently in the cache.
+	 * @return The number of types
+	 */
+	public int size()
+	{
+		synchronized (m_types)
+		{
+			return m_types.size();
+		}
+	}
+
+	/**
+	 * Resolves a signature, by declaring a field of that type in a dummy class
+	 * and resolving the type of the field. Using a field, rather than a local
+	 * variable, makes raw types behave as in Java.
+	 * @param sig The signature
+	 * @param ts The type solver
+	 * @return The type
+	 */
+	protected static ResolvedType compute(String sig, TypeSolver ts)
+	{
+		return JavaParserFacade.get(ts).getType(parseField(sig).getVariable(0));
+	}
+
+	/**
+	 * Parses the declaration of a field whose type is given by a signature.
+	 * @param sig The signature
+	 * @return The declaration
+	 * @throws ParseProblemException If the signature cannot be parsed
+	 */
+	public static FieldDeclaration parseField(String sig)
+	{
+		ParseResult<CompilationUnit> r = new JavaParser(s_config).parse("class __T { " + sig + " __x; }");
+		if (!r.isSuccessful() || r.getResult().isEmpty())
+		{
+			throw new ParseProblemException(r.getProblems());
+		}
+		return r.getResult().get().findFirst(FieldDeclaration.class)
+				.orElseThrow(() -> new IllegalStateException("Failed to parse type signature: " + sig));
+	}
+}
@@ -31,6 +31,7 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -62,6 +63,33 @@ public final class Solvers
 		ts.add(new ReflectionTypeSolver());
 
 		// add sources
+		for (Path folder : getSourceFolders(sourceRoots, root_package))
+		{
+			ts.add(new JavaParserTypeSolver(folder));
+		}
+
+		// add jars
+		for (Path jar : getJarFiles(jarPaths))
+		{
+			ts.add(JarTypeSolver.getJarTypeSolver(jar.toString()));
+		}
+		return ts;
+	}
+
+	/**
+	 * Gets the folders in which a type solver should look for source files.
+	 * 
+	 * @param sourceRoots
+	 *          directories containing Java sources
+	 * @param root_package
+	 *          the names of the root packages to look for in these directories,
+	 *          or <tt>null</tt> to use the directories themselves
+	 * @return the list of folders
+	 * @throws FileSystemException
+	 */
+	public static List<Path> getSourceFolders(List<String> sourceRoots, String[] root_package) throws FileSystemException
+	{
+		List<Path> folders = new ArrayList<Path>();
 		for (String src : sourceRoots)
 		{
 			Path p = Paths.get(src).toAbsolutePath().normalize();
@@ -69,7 +97,7 @@ public final class Solvers
 				throw new IllegalArgumentException("Not a directory: " + p);
 			if (root_package == null)
 			{
-				ts.add(new JavaParserTypeSolver(p.toFile()));
+				folders.add(p);
 			}
 			else
 			{
@@ -82,12 +110,25 @@ public final class Solvers
 				hd.close();
 				for (String folder : set)
 				{
-					ts.add(new JavaParserTypeSolver(p.toString() + folder));
+					folders.add(Paths.get(p.toString() + folder));
 				}
 			}
 		}
+		return folders;
+	}
 
-		// add jars
+	/**
+	 * Gets the jar files in which a type solver should look for classes.
+	 * 
+	 * @param jarPaths
+	 *          jar files, or directories containing jar files (absolute or
+	 *          relative)
+	 * @return the list of jar files
+	 * @throws FileSystemException
+	 */
+	public static List<Path> getJarFiles(Set<String> jarPaths) throws FileSystemException
+	{
+		List<Path> jars = new ArrayList<Path>();
 		for (String jar : jarPaths)
 		{
 			Path p = Paths.get(jar).toAbsolutePath().normalize();
@@ -97,17 +138,17 @@ public final class Solvers
 				List<String> contents = FileUtils.ls(hd, "", ".*jar$");
 				for (String fn : contents)
 				{
-					ts.add(JarTypeSolver.getJarTypeSolver(p.toString() + "/" + fn));
+					jars.add(Paths.get(p.toString() + "/" + fn));
 				}
 			}
 			else
 			{
 				if (!Files.isRegularFile(p))
 					throw new IllegalArgumentException("Not a jar file: " + p);
-				ts.add(JarTypeSolver.getJarTypeSolver(p.toString()));
+				jars.add(p);
 			}
 		}
-		return ts;
+		return jars;
 	}
 
 	/** Create a parser configuration with this solver. */
@@ -32,8 +32,11 @@ public abstract class StatusCallback implements Runnable
 	/** The number of resolution timeouts encountered so far */
 	protected final AtomicInteger m_resolutionTimeouts;
 	
-	/** The total number of items */
-	protected final int m_total;
+	/** The total number of items, which may be an estimate */
+	protected volatile int m_total;
+	
+	/** Whether the total number of items is final or an estimate */
+	protected volatile boolean m_totalFinal = true;
 	
 	/** The output printer */
 	protected final AnsiPrinter m_out;
@@ -76,6 +79,40 @@ public abstract class StatusCallback implements Runnable
 		m_currentlyDone.incrementAndGet();
 	}	
 	
+	/**
+	 * Sets the total number of items to process. While items are still being
+	 * discovered, the total is only an estimate that is refined as discovery
+	 * progresses.
+	 * @param total The total number of items
+	 * @param is_final <tt>true</tt> if the total is final, <tt>false</tt> if it
+	 * is an estimate
+	 */
+	public void setTotal(int total, boolean is_final)
+	{
+		m_total = total;
+		m_totalFinal = is_final;
+	}
+	
+	/**
+	 * Determines whether all items have been processed, which can only be the
+	 * case once the total is final.
+	 * @return <tt>true</tt> if all items are done, <tt>false</tt> otherwise
+	 */
+	protected boolean isFinished()
+	{
+		return m_totalFinal && m_currentlyDone.get() >= m_total;
+	}
+	
+	/**
+	 * Formats the total number of items for display. An estimated total is
+	 * followed by a plus sign.
+	 * @return The formatted total
+	 */
+	protected String formatTotal()
+	{
+		return m_totalFinal ? Integer.toString(m_total) : m_total + "+";
+	}
+	
 	/**
 	 * Marks that a resolution timeout has occurred.
 	 */
@@ -114,7 +151,7 @@ public abstract class StatusCallback implements Runnable
 		long now = System.currentTimeMillis();
 		long elapsed = now - m_startTime;
 		double avg_time_per_item = (double) elapsed / (double) done;
-		return (long) (avg_time_per_item * (m_total - done));
+		return (long) (avg_time_per_item * Math.max(0, m_total - done));
 	}
 	
 	
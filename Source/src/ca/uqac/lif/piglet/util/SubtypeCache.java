@@ -0,0 +1,210 @@
+/*
+    Analysis of assertions in Java programs
+    Copyright (C) 2025 Sylvain Hallé, Sarika Machhindra Kadam
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.piglet.util;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+
+import com.github.javaparser.resolution.TypeSolver;
+
+/**
+ * A cache of the results of subtype checks between two type signatures.
+ * Whether a type is a subtype of another only depends on the source folders
+ * and jar files the types are looked up in; the results can therefore be
+ * shared by the type solvers of all the threads of an analysis, although
+ * each thread has its own solver. The {@link SharedSolvers} of an analysis
+ * attach a single cache to all the solvers they create; a solver created
+ * otherwise gets its own cache the first time it is looked up.
+ * <p>
+ * The cache is bounded: once it holds its maximum number of results, some of
+ * them are evicted to make room for new ones. A check that throws an
+ * exception is not cached, and neither is a check that ends after the
+ * {@link ResolutionDeadline} of its solver has passed.
+ */
+public class SubtypeCache
+{
+	/** The default maximum number of results kept by a cache. */
+	public static final int DEFAULT_CAPACITY = 1 << 16;
+
+	/** The cache attached to each type solver. */
+	protected static final Map<TypeSolver,SubtypeCache> s_caches = Collections.synchronizedMap(new WeakHashMap<TypeSolver,SubtypeCache>());
+
+	/** The results of the checks. */
+	protected final Map<Key,Boolean> m_results;
+
+	/** The maximum number of results kept. */
+	protected final int m_capacity;
+
+	/** The number of checks answered from the cache. */
+	protected final LongAdder m_hits = new LongAdder();
+
+	/** The number of checks that had to be computed. */
+	protected final LongAdder m_misses = new LongAdder();
+
+	/**
+	 * Creates a cache with the default capacity.
+	 */
+	public SubtypeCache()
+	{
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates a cache.
+	 * @param capacity The maximum number of results kept
+	 */
+	public SubtypeCache(int capacity)
+	{
+		super();
+		m_capacity = capacity;
+		m_results = new ConcurrentHashMap<Key,Boolean>();
+	}
+
+	/**
+	 * Gets the cache attached to a type solver, attaching a new one if there
+	 * is none.
+	 * @param ts The type solver
+	 * @return The cache
+	 */
+	public static SubtypeCache of(TypeSolver ts)
+	{
+		return s_caches.computeIfAbsent(ts, x -> new SubtypeCache());
+	}
+
+	/**
+	 * Attaches a cache to a type solver. Solvers that look up types in the
+	 * same places can share the same cache.
+	 * @param ts The type solver
+	 * @param cache The cache
+	 */
+	public static void attach(TypeSolver ts, SubtypeCache cache)
+	{
+		s_caches.put(ts, cache);
+	}
+
+	/**
+	 * Determines whether a type is a subtype of another, computing the result
+	 * only if it is not in the cache.
+	 * @param checker The object performing the check; checks made by
+	 * different objects are cached separately, as they may not give the same
+	 * result
+	 * @param sub_sig The signature of the type
+	 * @param super_sig The signature of the supposed ancestor type
+	 * @param check The check to perform if the result is not in the cache
+	 * @return <tt>true</tt> if the type is a subtype of the other,
+	 * <tt>false</tt> otherwise
+	 */
+	public boolean isSubtypeOf(Object checker, String sub_sig, String super_sig, BooleanSupplier check)
+	{
+		return isSubtypeOf(checker, sub_sig, super_sig, null, check);
+	}
+
+	/**
+	 * Determines whether a type is a subtype of another, computing the result
+	 * only if it is not in the cache. A result computed once the deadline open
+	 * on the solver has passed is returned but not cached.
+	 * @param checker The object performing the check; checks made by
+	 * different objects are cached separately, as they may not give the same
+	 * result
+	 * @param sub_sig The signature of the type
+	 * @param super_sig The signature of the supposed ancestor type
+	 * @param ts The type solver performing the check, or <tt>null</tt>
+	 * @param check The check to perform if the result is not in the cache
+	 * @return <tt>true</tt> if the type is a subtype of the other,
+	 * <tt>false</tt> otherwise
+	 */
+	public boolean isSubtypeOf(Object checker, String sub_sig, String super_sig, TypeSolver ts, BooleanSupplier check)
+	{
+		Key k = new Key(checker, sub_sig, super_sig);
+		Boolean b = m_results.get(k);
+		if (b != null)
+		{
+			m_hits.increment();
+			return b;
+		}
+		m_misses.increment();
+		boolean result = check.getAsBoolean();
+		if (ResolutionDeadline.isExpired(ts))
+		{
+			return result;
+		}
+		if (m_results.size() >= m_capacity)
+		{
+			evict();
+		}
+		m_results.put(k, result);
+		return result;
+	}
+
+	/**
+	 * Removes a quarter of the results of the cache, in no particular order.
+	 */
+	protected void evict()
+	{
+		int to_remove = Math.max(1, m_capacity / 4);
+		Iterator<Key> it = m_results.keySet().iterator();
+		while (to_remove > 0 && it.hasNext())
+		{
+			it.next();
+			it.remove();
+			to_remove--;
+		}
+	}
+
+	/**
+	 * Gets the number of checks answered from the cache.
+	 * @return The number of hits
+	 */
+	public long getHits()
+	{
+		return m_hits.sum();
+	}
+
+	/**
+	 * Gets the number of checks that had to be computed.
+	 * @return The number of misses
+	 */
+	public long getMisses()
+	{
+		return m_misses.sum();
+	}
+
+	/**
+	 * Gets the number of results currently in the cache.
+	 * @return The number of results
+	 */
+	public int size()
+	{
+		return m_results.size();
+	}
+
+	/**
+	 * The key of a cached result.
+	 * @param checker The object performing the check
+	 * @param sub The signature of the type
+	 * @param sup The signature of the supposed ancestor type
+	 */
+	protected record Key(Object checker, String sub, String sup)
+	{
+	}
+}
@@ -0,0 +1,94 @@
+/*
+    Analysis of assertions in Java programs
+    Copyright (C) 2025 Sylvain Hallé, Sarika Machhindra Kadam
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.piglet.util;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A completion service running its tasks on a {@link LargestFirstExecutor}.
+ * The standard <tt>ExecutorCompletionService</tt> cannot be used with that
+ * executor, as it wraps tasks in futures that carry no cost and cannot be
+ * ordered by its priority queue.
+ * @param <T> The type of the tasks' results
+ */
+public class TaskCompletionService<T> implements CompletionService<T>
+{
+	/** The executor running the tasks. */
+	protected final LargestFirstExecutor m_executor;
+
+	/** The futures of the tasks that are done, in completion order. */
+	protected final BlockingQueue<Future<T>> m_completed;
+
+	/**
+	 * Creates a new completion service.
+	 * @param executor The executor running the tasks
+	 */
+	public TaskCompletionService(LargestFirstExecutor executor)
+	{
+		super();
+		m_executor = executor;
+		m_completed = new LinkedBlockingQueue<Future<T>>();
+	}
+
+	/**
+	 * Submits a task with an estimated cost.
+	 * @param task The task
+	 * @param cost The estimated cost of the task
+	 * @return A future representing the pending result of the task
+	 */
+	public Future<T> submit(Callable<T> task, double cost)
+	{
+		return m_executor.submit(task, cost, m_completed);
+	}
+
+	@Override
+	public Future<T> submit(Callable<T> task)
+	{
+		return submit(task, 0);
+	}
+
+	@Override
+	public Future<T> submit(Runnable task, T result)
+	{
+		return submit(Executors.callable(task, result), 0);
+	}
+
+	@Override
+	public Future<T> take() throws InterruptedException
+	{
+		return m_completed.take();
+	}
+
+	@Override
+	public Future<T> poll()
+	{
+		return m_completed.poll();
+	}
+
+	@Override
+	public Future<T> poll(long timeout, TimeUnit unit) throws InterruptedException
+	{
+		return m_completed.poll(timeout, unit);
+	}
+}
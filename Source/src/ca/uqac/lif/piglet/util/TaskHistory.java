@@ -0,0 +1,241 @@
+/*
+    Analysis of assertions in Java programs
+    Copyright (C) 2025 Sylvain Hallé, Sarika Machhindra Kadam
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.piglet.util;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The time taken to process each file in a previous run of an analysis,
+ * used to estimate the cost of processing a file before it is submitted.
+ * Files known from the previous run are estimated by their past duration;
+ * other files are estimated by their size, converted to a duration using the
+ * average processing speed observed in the previous run.
+ * <p>
+ * The history is stored as a plain text file, with one line per file giving
+ * its size in bytes, its processing time in milliseconds and its name,
+ * separated by tabs.
+ */
+public class TaskHistory
+{
+	/**
+	 * The processing speed assumed when there is no history, in milliseconds
+	 * per byte.
+	 */
+	protected static final double DEFAULT_SPEED = 1d / 1024;
+
+	/** The file in which the history is stored. */
+	protected final Path m_file;
+
+	/** The entries read from the previous run. */
+	protected final Map<String,Entry> m_previous;
+
+	/** The entries recorded during the current run. */
+	protected final Map<String,Entry> m_current;
+
+	/** The observed processing speed, in milliseconds per byte. */
+	protected final double m_speed;
+
+	/**
+	 * Creates a history, reading the entries of the previous run if the file
+	 * exists. An unreadable file is treated as an empty history.
+	 * @param file The file in which the history is stored
+	 */
+	public TaskHistory(Path file)
+	{
+		super();
+		m_file = file;
+		m_previous = new ConcurrentHashMap<String,Entry>();
+		m_current = new ConcurrentHashMap<String,Entry>();
+		long total_size = 0, total_duration = 0;
+		if (Files.isRegularFile(file))
+		{
+			try
+			{
+				List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+				for (String line : lines)
+				{
+					String[] parts = line.split("\t", 3);
+					if (parts.length != 3)
+					{
+						continue;
+					}
+					try
+					{
+						Entry e = new Entry(Long.parseLong(parts[0]), Long.parseLong(parts[1]));
+						m_previous.put(parts[2], e);
+						if (e.m_size > 0)
+						{
+							total_size += e.m_size;
+							total_duration += e.m_duration;
+						}
+					}
+					catch (NumberFormatException ex)
+					{
+						// Ignore this line
+					}
+				}
+			}
+			catch (IOException e)
+			{
+				// Start from an empty history
+			}
+		}
+		m_speed = total_size > 0 && total_duration > 0 ? (double) total_duration / total_size : DEFAULT_SPEED;
+	}
+
+	/**
+	 * Estimates the time it will take to process a file, and remembers its
+	 * size so that it can be saved along with its duration.
+	 * @param filename The name of the file
+	 * @param size The size of the file in bytes, or -1 if unknown
+	 * @return The estimated duration, in milliseconds
+	 */
+	public double estimate(String filename, long size)
+	{
+		m_current.put(filename, new Entry(size, -1));
+		Entry e = m_previous.get(filename);
+		if (e != null && (size < 0 || e.m_size == size))
+		{
+			return e.m_duration;
+		}
+		return size < 0 ? 0 : size * m_speed;
+	}
+
+	/**
+	 * Records the time taken to process a file in the current run.
+	 * @param filename The name of the file
+	 * @param duration The duration, in milliseconds
+	 */
+	public void record(String filename, long duration)
+	{
+		Entry e = m_current.get(filename);
+		m_current.put(filename, new Entry(e == null ? -1 : e.m_size, duration));
+	}
+
+	/**
+	 * Saves the durations recorded in the current run, replacing the previous
+	 * history. Files that were submitted but not processed in this run (for
+	 * example because of a timeout) keep their previous entry.
+	 * @throws IOException If the history cannot be written
+	 */
+	public void save() throws IOException
+	{
+		for (Map.Entry<String,Entry> me : m_current.entrySet())
+		{
+			Entry prev = m_previous.get(me.getKey());
+			if (me.getValue().m_duration < 0 && prev != null)
+			{
+				me.setValue(prev);
+			}
+		}
+		Path parent = m_file.toAbsolutePath().getParent();
+		Files.createDirectories(parent);
+		Path tmp = Files.createTempFile(parent, "durations", ".tmp");
+		try (BufferedWriter w = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8))
+		{
+			for (Map.Entry<String,Entry> me : m_current.entrySet())
+			{
+				Entry e = me.getValue();
+				if (e.m_duration >= 0)
+				{
+					w.write(e.m_size + "\t" + e.m_duration + "\t" + me.getKey());
+					w.newLine();
+				}
+			}
+		}
+		Files.move(tmp, m_file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Computes the makespan of a list of tasks scheduled greedily on a number
+	 * of threads, each task being given to the first thread that becomes
+	 * free, in the order of the list.
+	 * @param durations The durations of the tasks, in scheduling order
+	 * @param threads The number of threads
+	 * @return The makespan, in the same unit as the durations
+	 */
+	public static long makespan(long[] durations, int threads)
+	{
+		PriorityQueue<Long> free_at = new PriorityQueue<Long>();
+		for (int i = 0; i < Math.max(1, threads); i++)
+		{
+			free_at.add(0l);
+		}
+		long makespan = 0;
+		for (long d : durations)
+		{
+			long end = free_at.poll() + d;
+			makespan = Math.max(makespan, end);
+			free_at.add(end);
+		}
+		return makespan;
+	}
+
+	/**
+	 * Computes the makespan of a set of tasks scheduled largest first.
+	 * @param durations The durations of the tasks
+	 * @param threads The number of threads
+	 * @return The makespan, in the same unit as the durations
+	 */
+	public static long makespanLargestFirst(long[] durations, int threads)
+	{
+		long[] sorted = durations.clone();
+		Arrays.sort(sorted);
+		for (int i = 0, j = sorted.length - 1; i < j; i++, j--)
+		{
+			long tmp = sorted[i];
+			sorted[i] = sorted[j];
+			sorted[j] = tmp;
+		}
+		return makespan(sorted, threads);
+	}
+
+	/**
+	 * The size and processing time of a file.
+	 */
+	protected static class Entry
+	{
+		/** The size of the file in bytes, or -1 if unknown */
+		protected final long m_size;
+
+		/** The processing time in milliseconds, or -1 if not processed */
+		protected final long m_duration;
+
+		/**
+		 * Creates a new entry.
+		 * @param size The size of the file in bytes
+		 * @param duration The processing time in milliseconds
+		 */
+		public Entry(long size, long duration)
+		{
+			super();
+			m_size = size;
+			m_duration = duration;
+		}
+	}
+}
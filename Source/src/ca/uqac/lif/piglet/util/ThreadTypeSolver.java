@@ -0,0 +1,86 @@
+/*
+    Analysis of assertions in Java programs
+    Copyright (C) 2025 Sylvain Hallé, Sarika Machhindra Kadam
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.piglet.util;
+
+import com.github.javaparser.resolution.TypeSolver;
+import com.github.javaparser.resolution.declarations.ResolvedReferenceTypeDeclaration;
+import com.github.javaparser.resolution.model.SymbolReference;
+import com.github.javaparser.symbolsolver.resolution.typesolvers.CombinedTypeSolver;
+
+/**
+ * The type solver of one thread of an analysis. Besides the solvers it
+ * combines, it holds the caches whose contents are only valid for this
+ * solver, so that they are scoped to it and discarded along with it.
+ * <p>
+ * As the root of the solvers it combines, it also sees every type looked up
+ * during a resolution, including the lookups made by the other solvers; it
+ * checks the {@link ResolutionDeadline} currently open on it before each of
+ * them.
+ */
+public class ThreadTypeSolver extends CombinedTypeSolver
+{
+	/** The types designated by signature strings. */
+	protected final SignatureCache m_signatures;
+
+	/**
+	 * The deadline of the current resolution, or <tt>null</tt> if there is
+	 * none.
+	 */
+	protected ResolutionDeadline m_deadline;
+
+	/**
+	 * Creates a new solver.
+	 * @param elements The solvers to combine
+	 */
+	public ThreadTypeSolver(TypeSolver ... elements)
+	{
+		super(elements);
+		m_signatures = new SignatureCache();
+		m_deadline = null;
+	}
+
+	/**
+	 * Starts a deadline for the resolutions performed with this solver.
+	 * @param timeout The time in milliseconds the resolutions may take
+	 * @return The deadline, to be closed when the resolution is over
+	 */
+	public ResolutionDeadline startDeadline(long timeout)
+	{
+		m_deadline = new ResolutionDeadline(this, m_deadline, timeout);
+		return m_deadline;
+	}
+
+	@Override
+	public SymbolReference<ResolvedReferenceTypeDeclaration> tryToSolveType(String name)
+	{
+		if (m_deadline != null)
+		{
+			m_deadline.check();
+		}
+		return super.tryToSolveType(name);
+	}
+
+	/**
+	 * Gets the cache of the types designated by signature strings.
+	 * @return The cache
+	 */
+	public SignatureCache getSignatureCache()
+	{
+		return m_signatures;
+	}
+}
@@ -17,9 +17,6 @@
  */
 package ca.uqac.lif.piglet.util;
 
-import com.github.javaparser.StaticJavaParser;
-import com.github.javaparser.ast.CompilationUnit;
-import com.github.javaparser.ast.body.FieldDeclaration;
 import com.github.javaparser.resolution.TypeSolver;
 import com.github.javaparser.resolution.declarations.ResolvedTypeParameterDeclaration;
 import com.github.javaparser.resolution.types.ResolvedPrimitiveType;
@@ -27,20 +24,14 @@ import com.github.javaparser.resolution.types.ResolvedReferenceType;
 import com.github.javaparser.resolution.types.ResolvedType;
 import com.github.javaparser.resolution.types.ResolvedTypeVariable;
 import com.github.javaparser.resolution.types.ResolvedWildcard;
-import com.github.javaparser.symbolsolver.JavaSymbolSolver;
-import com.github.javaparser.symbolsolver.javaparsermodel.JavaParserFacade;
 
-import java.util.Map;
 import java.util.Objects;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Utility methods to check types.
  */
 public final class TypeChecks
 {
-  private static final Map<String, ResolvedType> CACHE = new ConcurrentHashMap<>();
-  
 	private TypeChecks()
 	{
 		super();
@@ -51,6 +42,21 @@ public final class TypeChecks
 	 * "java.util.Map").
 	 */
 	public static boolean isSubtypeOf(ResolvedType t, String targetFqn)
+	{
+		return hasAncestor(t, targetFqn, null);
+	}
+
+	/**
+	 * True if `t` is (or extends/implements) the target FQN (e.g.,
+	 * "java.util.Map"). The ancestors of class/interface types are looked up
+	 * in the {@link TypeHierarchy} of the solver.
+	 */
+	public static boolean isSubtypeOf(ResolvedType t, String targetFqn, TypeSolver typeSolver)
+	{
+		return hasAncestor(t, targetFqn, typeSolver == null ? null : TypeHierarchy.of(typeSolver));
+	}
+
+	private static boolean hasAncestor(ResolvedType t, String targetFqn, TypeHierarchy hierarchy)
 	{
 		Objects.requireNonNull(t, "type");
 		Objects.requireNonNull(targetFqn, "targetFqn");
@@ -61,6 +67,8 @@ public final class TypeChecks
 			ResolvedReferenceType ref = t.asReferenceType();
 			if (targetFqn.equals(ref.getQualifiedName()))
 				return true;
+			if (hierarchy != null)
+				return hierarchy.isSubtypeOf(ref, targetFqn);
 			// check all ancestors (superclass + interfaces)
 			for (ResolvedReferenceType a : ref.getAllAncestors())
 			{
@@ -77,7 +85,7 @@ public final class TypeChecks
 			ResolvedTypeParameterDeclaration tp = tv.asTypeParameter();
 			for (ResolvedTypeParameterDeclaration.Bound b : tp.getBounds())
 			{
-				if (b.isExtends() && isSubtypeOf(b.getType(), targetFqn))
+				if (b.isExtends() && hasAncestor(b.getType(), targetFqn, hierarchy))
 					return true;
 			}
 			return false;
@@ -92,7 +100,7 @@ public final class TypeChecks
 			if (w.isExtends() && w.isBounded())
 			{
 				ResolvedType bt = w.getBoundedType();
-				return isSubtypeOf(bt, targetFqn);
+				return hasAncestor(bt, targetFqn, hierarchy);
 			}
 			// '? super X' or unbounded doesn't make the wildcard a subtype of target
 			return false;
@@ -129,9 +137,19 @@ public final class TypeChecks
 	    }
 	  }
 	
-	@SuppressWarnings("deprecation")
+	/**
+	 * True if the type with signature `subSig` is assignable to the type with
+	 * signature `superSig`. The result is looked up first in the
+	 * {@link SubtypeCache} of the solver.
+	 */
 	public static boolean isSubtypeOf(String subSig, String superSig, TypeSolver typeSolver) {
-    StaticJavaParser.getConfiguration().setSymbolResolver(new JavaSymbolSolver(typeSolver));
+		if (typeSolver == null || subSig == null || superSig == null) {
+			return checkSubtype(subSig, superSig, typeSolver);
+		}
+		return SubtypeCache.of(typeSolver).isSubtypeOf(TypeChecks.class, subSig, superSig, typeSolver, () -> checkSubtype(subSig, superSig, typeSolver));
+	}
+
+	private static boolean checkSubtype(String subSig, String superSig, TypeSolver typeSolver) {
 		if (subSig.contains("?") || superSig.contains("?") || subSig.compareTo("null") == 0 || superSig.compareTo("null") == 0)
 		{
 			return false;
@@ -159,18 +177,9 @@ public final class TypeChecks
     return false;
   }
 
-  /** Resolve a Java type signature (FQN, generic, wildcard, array, primitive) to a ResolvedType, with simple caching. */
+  /** Resolve a Java type signature (FQN, generic, wildcard, array, primitive) to a ResolvedType, cached by the solver (see SignatureCache). */
   private static ResolvedType resolveTypeSignature(String typeSig, TypeSolver ts) {
-    // Small cache to avoid reparsing common targets like "java.util.List<? extends Number>"
-    return CACHE.computeIfAbsent(typeSig, sig -> {
-      // Build a tiny class with one field of the desired type; then resolve that field's type.
-      // Using a field (not a local) makes raw types behave like Java (e.g., "List" is raw).
-      String src = "class __T { " + sig + " __x; }";
-      CompilationUnit cu = StaticJavaParser.parse(src);
-      FieldDeclaration fd = cu.findFirst(FieldDeclaration.class)
-          .orElseThrow(() -> new IllegalStateException("Failed to parse type signature: " + sig));
-      return JavaParserFacade.get(ts).getType(fd.getVariable(0));
-    });
+    return SignatureCache.resolve(typeSig, ts);
   }
 
   private static boolean isArrayTopInterface(ResolvedType sup) {
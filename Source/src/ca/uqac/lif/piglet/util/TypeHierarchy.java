@@ -0,0 +1,208 @@
+/*
+    Analysis of assertions in Java programs
+    Copyright (C) 2025 Sylvain Hallé, Sarika Machhindra Kadam
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.piglet.util;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.github.javaparser.resolution.TypeSolver;
+import com.github.javaparser.resolution.types.ResolvedReferenceType;
+
+/**
+ * A table of the ancestors of the types of a project, shared by the type
+ * solvers of all the threads of an analysis. Each qualified name is given an
+ * integer ID; each type is associated with the set of the IDs of its
+ * ancestors, including itself, in the form of a bit set. Once the ancestors
+ * of a type are in the table, checking whether it has a given ancestor only
+ * takes a lookup of the ID of the ancestor and a test of a bit, instead of a
+ * walk of its hierarchy with JavaParser.
+ * <p>
+ * The table is filled as types are checked: the first check involving a type
+ * asks JavaParser for all its ancestors, and records them. Scanning all the
+ * source folders and jar files beforehand would defeat the lazy opening of
+ * jars and parsing of dependencies (see {@link JarIndex} and
+ * {@link SharedSolvers}); in this way, the hierarchy of each type is still
+ * walked only once per analysis, rather than once per expression, per file
+ * and per thread. The set of ancestors of a type never changes once
+ * recorded. Only raw types are recorded; type arguments are left to
+ * JavaParser.
+ * <p>
+ * The {@link SharedSolvers} of an analysis attach a single table to all the
+ * solvers they create, as the hierarchy of a type only depends on the places
+ * where types are looked up; a solver created otherwise gets its own table
+ * the first time it is looked up.
+ */
+public class TypeHierarchy
+{
+	/** The table attached to each type solver. */
+	protected static final Map<TypeSolver,TypeHierarchy> s_tables = Collections.synchronizedMap(new WeakHashMap<TypeSolver,TypeHierarchy>());
+
+	/** The ID of each qualified name. */
+	protected final Map<String,Integer> m_ids;
+
+	/** The qualified names, indexed by their ID. */
+	protected final List<String> m_names;
+
+	/**
+	 * The IDs of the ancestors of each recorded type, including its own. A
+	 * set is never modified once put in this map.
+	 */
+	protected final Map<Integer,BitSet> m_ancestors;
+
+	/** The number of checks answered from the table. */
+	protected final LongAdder m_hits = new LongAdder();
+
+	/** The number of types whose ancestors had to be recorded. */
+	protected final LongAdder m_misses = new LongAdder();
+
+	/**
+	 * Creates an empty table.
+	 */
+	public TypeHierarchy()
+	{
+		super();
+		m_ids = new ConcurrentHashMap<String,Integer>();
+		m_names = new ArrayList<String>();
+		m_ancestors = new ConcurrentHashMap<Integer,BitSet>();
+	}
+
+	/**
+	 * Gets the table attached to a type solver, attaching a new one if there
+	 * is none.
+	 * @param ts The type solver
+	 * @return The table
+	 */
+	public static TypeHierarchy of(TypeSolver ts)
+	{
+		return s_tables.computeIfAbsent(ts, x -> new TypeHierarchy());
+	}
+
+	/**
+	 * Attaches a table to a type solver. Solvers that look up types in the
+	 * same places can share the same table.
+	 * @param ts The type solver
+	 * @param table The table
+	 */
+	public static void attach(TypeSolver ts, TypeHierarchy table)
+	{
+		s_tables.put(ts, table);
+	}
+
+	/**
+	 * Determines whether a type has an ancestor with a given name, or has
+	 * this name itself. The ancestors of the type are recorded if they are
+	 * not in the table yet.
+	 * @param t The type
+	 * @param ancestor The qualified name of the ancestor
+	 * @return <tt>true</tt> if the raw type is a subtype of the ancestor,
+	 * <tt>false</tt> otherwise
+	 */
+	public boolean isSubtypeOf(ResolvedReferenceType t, String ancestor)
+	{
+		int id = idOf(t.getQualifiedName());
+		BitSet ancestors = m_ancestors.get(id);
+		if (ancestors == null)
+		{
+			m_misses.increment();
+			ancestors = record(id, t);
+		}
+		else
+		{
+			m_hits.increment();
+		}
+		Integer a_id = m_ids.get(ancestor);
+		// A name without an ID is the ancestor of no recorded type
+		return a_id != null && ancestors.get(a_id);
+	}
+
+	/**
+	 * Gets the number of types whose ancestors are in the table.
+	 * @return The number of types
+	 */
+	public int getTypeCount()
+	{
+		return m_ancestors.size();
+	}
+
+	/**
+	 * Gets the number of checks answered from the table.
+	 * @return The number of hits
+	 */
+	public long getHits()
+	{
+		return m_hits.sum();
+	}
+
+	/**
+	 * Gets the number of types whose ancestors had to be asked to JavaParser.
+	 * @return The number of misses
+	 */
+	public long getMisses()
+	{
+		return m_misses.sum();
+	}
+
+	/**
+	 * Records the ancestors of a type.
+	 * @param id The ID of the type
+	 * @param t The type
+	 * @return The IDs of the ancestors of the type
+	 */
+	protected BitSet record(int id, ResolvedReferenceType t)
+	{
+		BitSet ancestors = new BitSet();
+		ancestors.set(id);
+		for (ResolvedReferenceType a : t.getAllAncestors())
+		{
+			ancestors.set(idOf(a.getQualifiedName()));
+		}
+		BitSet previous = m_ancestors.putIfAbsent(id, ancestors);
+		return previous == null ? ancestors : previous;
+	}
+
+	/**
+	 * Gets the ID of a qualified name, giving it a new one if it has none.
+	 * @param name The name
+	 * @return The ID
+	 */
+	protected int idOf(String name)
+	{
+		Integer id = m_ids.get(name);
+		if (id != null)
+		{
+			return id;
+		}
+		synchronized (m_names)
+		{
+			id = m_ids.get(name);
+			if (id == null)
+			{
+				id = m_names.size();
+				m_names.add(name);
+				m_ids.put(name, id);
+			}
+			return id;
+		}
+	}
+}
@@ -1,10 +1,6 @@
 package ca.uqac.lif.piglet.util;
 
-import com.github.javaparser.StaticJavaParser;
-import com.github.javaparser.ParserConfiguration;
-import com.github.javaparser.ast.CompilationUnit;
 import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
-import com.github.javaparser.ast.body.FieldDeclaration;
 import com.github.javaparser.ast.type.*;
 import com.github.javaparser.ast.expr.Expression;
 import com.github.javaparser.ast.expr.MethodCallExpr;
@@ -16,17 +12,18 @@ import com.github.javaparser.resolution.UnsolvedSymbolException;
 import com.github.javaparser.resolution.declarations.*;
 import com.github.javaparser.resolution.model.SymbolReference;
 import com.github.javaparser.resolution.model.typesystem.ReferenceTypeImpl;
-import com.github.javaparser.symbolsolver.JavaSymbolSolver;
 import com.github.javaparser.symbolsolver.javaparsermodel.JavaParserFacade;
 import com.github.javaparser.resolution.MethodAmbiguityException;
 
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Two public APIs: 1) resolveTypeToString(Object symbolOrType, TypeSolver) ->
  * canonical, capture-free string for RDF 2) isSubtypeOf(String subSig, String
  * superSig, TypeSolver) -> generic-aware assignability
+ * Symbols that cannot be resolved are recorded in the
+ * {@link UnresolvedSymbols} of the solver, so that later lookups of the same
+ * symbol in the same context give up right away.
  */
 public final class TypeRdf
 {
@@ -35,9 +32,6 @@ public final class TypeRdf
 	{
 	}
 
-	// Cache for “signature string → ResolvedType” (used when re-resolving strings)
-	private static final Map<String, ResolvedType> SIG_RESOLVE_CACHE = new ConcurrentHashMap<>();
-
 	/* ===================== PUBLIC API ===================== */
 
 	/**
@@ -46,7 +40,6 @@ public final class TypeRdf
 	 */
 	public static String resolveTypeToString(Object symbolOrType, TypeSolver ts)
 	{
-		//configure(ts);
 		try
 		{
 			ResolvedType rt = toResolvedType(symbolOrType, ts);
@@ -60,16 +53,25 @@ public final class TypeRdf
 		}
 	}
 
-	/** Generic-aware: returns true iff subSig <: superSig (assignable to). */
+	/**
+	 * Generic-aware: returns true iff subSig <: superSig (assignable to). The
+	 * result is looked up first in the {@link SubtypeCache} of the solver.
+	 */
 	public static boolean isSubtypeOf(String subSig, String superSig, TypeSolver ts)
 	{
-		//configure(ts);
+		String sub = cleanSig(subSig);
+		String sup = cleanSig(superSig);
+		if (ts == null || sub == null || sup == null)
+		{
+			return checkSubtype(sub, sup, ts);
+		}
+		return SubtypeCache.of(ts).isSubtypeOf(TypeRdf.class, sub, sup, ts, () -> checkSubtype(sub, sup, ts));
+	}
 
+	private static boolean checkSubtype(String subSig, String superSig, TypeSolver ts)
+	{
 		try
 		{
-			subSig = cleanSig(subSig);
-			superSig = cleanSig(superSig);
-
 			if (subSig.contains("?") || superSig.contains("?"))
 			{
 				// We don't handle wildcards in the input signatures
@@ -97,6 +99,9 @@ public final class TypeRdf
 			}
 
 			// SUPER has args: need substituted ancestor of sub matching raw SUPER
+			// The raw types are checked first; type arguments are left to JavaParser
+			if (!rawAssignable(sub, superPat.rawFqn, ts))
+				return false;
 			ResolvedReferenceTypeDeclaration superDecl = ts.solveType(superPat.rawFqn);
 			ResolvedReferenceType anc = findAncestor(sub, superDecl);
 			if (anc == null)
@@ -123,16 +128,14 @@ public final class TypeRdf
 
 	/* ===================== RESOLUTION ===================== */
 
-	@SuppressWarnings("deprecation")
-	private static void configure(TypeSolver ts)
-	{
-		StaticJavaParser.getConfiguration().setLanguageLevel(ParserConfiguration.LanguageLevel.JAVA_17)
-		.setSymbolResolver(new JavaSymbolSolver(ts));
-	}
-
 	private static ResolvedType toResolvedType(Object o, TypeSolver ts) {
 		if (o instanceof ResolvedType rt) return rt;
 
+		// Symbols already known to be unsolvable in their context skip the fallbacks
+		UnresolvedSymbols unresolved = UnresolvedSymbols.of(ts);
+		if (unresolved.isUnsolvable(o)) return resolveSignatureToType("java.lang.Object", ts);
+		long start = System.nanoTime();
+
 		// --- Method calls: most fragile path in JP when generics + wildcards appear ---
 		if (o instanceof MethodCallExpr call) {
 			// (1) Normal path
@@ -153,6 +156,7 @@ public final class TypeRdf
 						}
 					} catch (Throwable ignore) { /* fall through */ }
 					// (4) Last resort
+					unresolved.record(call, e1, System.nanoTime() - start);
 					return resolveSignatureToType("java.lang.Object", ts);
 				}
 			}
@@ -177,6 +181,7 @@ public final class TypeRdf
 					var tpe = newExpr.getType();
 					return eraseToRaw(JavaParserFacade.get(ts).convertToUsage(tpe), ts);
 				} catch (Throwable t2) {
+					unresolved.record(newExpr, t, System.nanoTime() - start);
 					return resolveSignatureToType("java.lang.Object", ts);
 				}
 			}
@@ -204,6 +209,7 @@ public final class TypeRdf
 					return resolveSignatureToType("java.lang.Object", ts);
 				}
 			} catch (UnsupportedOperationException | IllegalArgumentException | UnsolvedSymbolException | MethodAmbiguityException e) {
+				unresolved.record(typeAst, e, System.nanoTime() - start);
 				return resolveSignatureToType("java.lang.Object", ts);
 			}
 		}
@@ -401,10 +407,7 @@ public final class TypeRdf
 		if (trimmed.equals("?") || trimmed.equals("null"))
 			return new TypePattern("java.lang.Object", List.of());
 
-		String src = "class __T { " + superSig + " __x; }";
-		CompilationUnit cu = StaticJavaParser.parse(src);
-		FieldDeclaration fd = cu.findFirst(FieldDeclaration.class).orElseThrow();
-		Type t = fd.getElementType();
+		Type t = SignatureCache.parseField(superSig).getElementType();
 		return toPattern(t);
 	}
 
@@ -492,8 +495,8 @@ public final class TypeRdf
 		{
 			if (sub.asReferenceType().getQualifiedName().equals(superRawFqn))
 				return true;
-			ResolvedReferenceTypeDeclaration superDecl = ts.solveType(superRawFqn);
-			return findAncestor(sub, superDecl) != null;
+			// Looked up in the hierarchy shared by all threads (see TypeHierarchy)
+			return TypeHierarchy.of(ts).isSubtypeOf(sub.asReferenceType(), superRawFqn);
 		}
 		if (sub.isArray())
 			return isArrayTop(superRawFqn);
@@ -515,18 +518,14 @@ public final class TypeRdf
 
 	/* ===================== STRING → ResolvedType ===================== */
 
+	// Resolved types are cached by the solver (see SignatureCache)
 	private static ResolvedType resolveSignatureToType(String typeSig, TypeSolver ts)
 	{
-		return SIG_RESOLVE_CACHE.computeIfAbsent(typeSig, sig -> {
-			if (sig == null || sig.isEmpty() || sig.equals("null") || sig.equals("?"))
-			{
-				return null;
-			}
-			String src = "class __T { " + sig + " __x; }";
-			CompilationUnit cu = StaticJavaParser.parse(src);
-			FieldDeclaration fd = cu.findFirst(FieldDeclaration.class).orElseThrow();
-			return JavaParserFacade.get(ts).getType(fd.getVariable(0));
-		});
+		if (typeSig == null || typeSig.isEmpty() || typeSig.equals("null") || typeSig.equals("?"))
+		{
+			return null;
+		}
+		return SignatureCache.resolve(typeSig, ts);
 	}
 
 	/* ===================== UTILITIES ===================== */
@@ -1,7 +1,6 @@
 package ca.uqac.lif.piglet.util;
 
 import java.util.Optional;
-import java.util.concurrent.*;
 
 import com.github.javaparser.ast.expr.Expression;
 import com.github.javaparser.resolution.TypeSolver;
@@ -77,53 +76,36 @@ public final class Types
 
 	/* ========= Timeout variant ========= */
 
-	// One single-thread executor per *worker thread* so we can cancel deep
-	// resolution safely.
-	private static final ThreadLocal<ExecutorService> RESOLVE_EXEC = ThreadLocal
-			.withInitial(() -> Executors.newSingleThreadExecutor(r -> {
-				Thread t = new Thread(r, "resolve-" + Thread.currentThread().getName());
-				t.setDaemon(true);
-				return t;
-			}));
-
-	/** Optional: call once at program end to cleanup the per-thread executors. */
-	public static void shutdownResolveExecutor()
-	{
-		ExecutorService ex = RESOLVE_EXEC.get();
-		ex.shutdownNow();
-	}
-
 	/**
-	 * Resolve the type with a hard timeout. Returns RESOLVED / TIMEOUT / UNSOLVED.
+	 * Resolve the type with a timeout. Returns RESOLVED / TIMEOUT / UNSOLVED.
+	 * The resolution runs on the calling thread; the timeout is enforced by
+	 * the solver (see {@link ResolutionDeadline}), so it only applies if the
+	 * solver is a {@link ThreadTypeSolver}.
 	 */
 	public static ResolveResult<ResolvedType> typeOfWithTimeout(Expression expr, TypeSolver ts,
 			long timeoutMillis)
 	{
-		Future<ResolvedType> f = RESOLVE_EXEC.get()
-				.submit(() -> JavaParserFacade.get(ts).getType(expr));
-		try
+		try (ResolutionDeadline d = ResolutionDeadline.start(ts, timeoutMillis))
 		{
-			ResolvedType t = f.get(timeoutMillis, TimeUnit.MILLISECONDS);
+			ResolvedType t = JavaParserFacade.get(ts).getType(expr);
+			if (d.isExpired())
+			{
+				// Some fallbacks of the facade swallow exceptions
+				return ResolveResult.timeout();
+			}
 			return (t != null) ? ResolveResult.resolved(t) : ResolveResult.unsolved();
 		}
-		catch (TimeoutException te)
+		catch (ResolutionTimeoutException e)
 		{
-			f.cancel(true); // interrupt deep resolution
 			return ResolveResult.timeout();
 		}
-		catch (ExecutionException ee)
+		catch (RuntimeException e)
 		{
-			Throwable c = ee.getCause();
-			if (c instanceof UnsolvedSymbolException || c instanceof UnsupportedOperationException)
+			if (e.getCause() instanceof ResolutionTimeoutException)
 			{
-				return ResolveResult.unsolved();
+				return ResolveResult.timeout();
 			}
 			return ResolveResult.unsolved();
 		}
-		catch (InterruptedException ie)
-		{
-			Thread.currentThread().interrupt();
-			return ResolveResult.unsolved();
-		}
 	}
 }
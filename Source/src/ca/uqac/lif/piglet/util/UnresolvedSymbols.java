@@ -0,0 +1,533 @@
+/*
+    Analysis of assertions in Java programs
+    Copyright (C) 2025 Sylvain Hallé, Sarika Machhindra Kadam
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.piglet.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.DataKey;
+import com.github.javaparser.ast.ImportDeclaration;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
+import com.github.javaparser.ast.body.TypeDeclaration;
+import com.github.javaparser.ast.expr.Expression;
+import com.github.javaparser.ast.expr.MethodCallExpr;
+import com.github.javaparser.ast.expr.NameExpr;
+import com.github.javaparser.ast.expr.ObjectCreationExpr;
+import com.github.javaparser.ast.nodeTypes.NodeWithImplements;
+import com.github.javaparser.ast.nodeTypes.NodeWithTypeParameters;
+import com.github.javaparser.ast.type.ClassOrInterfaceType;
+import com.github.javaparser.ast.type.TypeParameter;
+import com.github.javaparser.resolution.TypeSolver;
+import com.github.javaparser.resolution.UnsolvedSymbolException;
+
+/**
+ * A record of the symbols that could not be resolved, shared by the type
+ * solvers of all the threads of an analysis. When a type is missing from
+ * the source folders and jar files, {@link TypeRdf} tries all its fallbacks
+ * before giving up, and does so again for every occurrence of the same
+ * symbol, in every file. Once a symbol is known to be unsolvable in a given
+ * context, later lookups of this symbol in the same context fail right away.
+ * <p>
+ * A symbol is identified by its text and by the context it appears in,
+ * namely the package and the imports of its file. Only the symbols whose
+ * resolution depends on this context alone are recorded:
+ * <ul>
+ * <li>class or interface types, and the types of object creations that do
+ * not use the diamond operator;</li>
+ * <li>calls on a type-like scope, such as <tt>Assert.assertEquals(...)</tt>;</li>
+ * <li>unqualified calls, such as <tt>assertThat(...)</tt>;</li>
+ * <li>calls chained to one of the above, which are identified by the first
+ * call of the chain.</li>
+ * </ul>
+ * Since a type or a method may be inherited, all these symbols are further
+ * identified by the types extended and implemented by their enclosing
+ * classes.
+ * Moreover, a failure is recorded only if the name reported as unsolvable
+ * is one of the names of the symbol or of the imports of its file; a
+ * failure caused by the type of a local variable or of an argument depends
+ * on more than the context, and is not recorded. Symbols that may refer to
+ * a type parameter, a type declared in their file, or a nested type or a
+ * method of their enclosing classes are not recorded either, and neither
+ * are the symbols inside anonymous classes.
+ * <p>
+ * The record also counts, for each missing name, how many times a lookup
+ * failed because of it, and how much time was spent trying the fallbacks of
+ * {@link TypeRdf} before giving up. The {@link SharedSolvers} of an analysis
+ * attach a single record to all the solvers they create; a solver created
+ * otherwise gets its own record the first time it is looked up.
+ */
+public class UnresolvedSymbols
+{
+	/** The record attached to each type solver. */
+	protected static final Map<TypeSolver,UnresolvedSymbols> s_records = Collections.synchronizedMap(new WeakHashMap<TypeSolver,UnresolvedSymbols>());
+
+	/** The key under which the context of a compilation unit is stored. */
+	protected static final DataKey<String> s_contextKey = new DataKey<String>() {};
+
+	/** The missing name associated with each unsolvable symbol. */
+	protected final Map<Key,String> m_symbols;
+
+	/** The statistics for each missing name. */
+	protected final Map<String,Stats> m_names;
+
+	/**
+	 * Creates an empty record.
+	 */
+	public UnresolvedSymbols()
+	{
+		super();
+		m_symbols = new ConcurrentHashMap<Key,String>();
+		m_names = new ConcurrentHashMap<String,Stats>();
+	}
+
+	/**
+	 * Gets the record attached to a type solver, attaching a new one if there
+	 * is none.
+	 * @param ts The type solver
+	 * @return The record
+	 */
+	public static UnresolvedSymbols of(TypeSolver ts)
+	{
+		return s_records.computeIfAbsent(ts, x -> new UnresolvedSymbols());
+	}
+
+	/**
+	 * Attaches a record to a type solver. Solvers that look up types in the
+	 * same places can share the same record.
+	 * @param ts The type solver
+	 * @param record The record
+	 */
+	public static void attach(TypeSolver ts, UnresolvedSymbols record)
+	{
+		s_records.put(ts, record);
+	}
+
+	/**
+	 * Determines whether a symbol is known to be unsolvable. If so, the
+	 * occurrence is counted for the missing name that caused the failure.
+	 * @param o The symbol
+	 * @return <tt>true</tt> if the symbol is known to be unsolvable,
+	 * <tt>false</tt> otherwise
+	 */
+	public boolean isUnsolvable(Object o)
+	{
+		if (m_symbols.isEmpty())
+		{
+			return false;
+		}
+		Key k = keyOf(o);
+		if (k == null)
+		{
+			return false;
+		}
+		String name = m_symbols.get(k);
+		if (name == null)
+		{
+			return false;
+		}
+		m_names.get(name).m_occurrences.increment();
+		return true;
+	}
+
+	/**
+	 * Records the failure to resolve a symbol. The failure is ignored if it
+	 * does not only depend on the context of the symbol.
+	 * @param o The symbol
+	 * @param t The exception thrown when resolving the symbol
+	 * @param nanos The time spent trying to resolve the symbol, in
+	 * nanoseconds
+	 */
+	public void record(Object o, Throwable t, long nanos)
+	{
+		if (!(t instanceof UnsolvedSymbolException e) || e.getName() == null)
+		{
+			return;
+		}
+		if (o instanceof MethodCallExpr call && call.getScope().isPresent() && call.getScope().get() instanceof MethodCallExpr)
+		{
+			// Chained calls are recorded through the first call of the chain
+			return;
+		}
+		Key k = keyOf(o);
+		if (k == null || !isFromContext(e.getName(), (Node) o))
+		{
+			return;
+		}
+		String name = e.getName();
+		m_symbols.putIfAbsent(k, name);
+		Stats s = m_names.computeIfAbsent(name, x -> new Stats());
+		s.m_occurrences.increment();
+		s.m_time.add(nanos);
+	}
+
+	/**
+	 * Gets the number of symbols known to be unsolvable.
+	 * @return The number of symbols
+	 */
+	public int size()
+	{
+		return m_symbols.size();
+	}
+
+	/**
+	 * Gets the missing names that caused symbols to be unsolvable, sorted by
+	 * decreasing time spent on them, and then by decreasing number of
+	 * occurrences.
+	 * @return The list of missing names
+	 */
+	public List<Entry> getEntries()
+	{
+		List<Entry> out = new ArrayList<Entry>(m_names.size());
+		for (Map.Entry<String,Stats> e : m_names.entrySet())
+		{
+			out.add(new Entry(e.getKey(), e.getValue().m_occurrences.sum(), e.getValue().m_time.sum() / 1000000));
+		}
+		out.sort((a, b) -> a.time() != b.time() ? Long.compare(b.time(), a.time()) : Long.compare(b.occurrences(), a.occurrences()));
+		return out;
+	}
+
+	/**
+	 * Computes the key identifying a symbol in its context.
+	 * @param o The symbol
+	 * @return The key, or <tt>null</tt> if the resolution of the symbol does
+	 * not only depend on its context
+	 */
+	protected static Key keyOf(Object o)
+	{
+		if (o instanceof ClassOrInterfaceType t)
+		{
+			return typeKey(t, t);
+		}
+		if (o instanceof ObjectCreationExpr e)
+		{
+			if (e.getType().isUsingDiamondOperator())
+			{
+				// The type arguments are inferred from more than the context
+				return null;
+			}
+			return typeKey(e.getType(), e);
+		}
+		if (o instanceof MethodCallExpr call)
+		{
+			while (call.getScope().isPresent() && call.getScope().get() instanceof MethodCallExpr m)
+			{
+				call = m;
+			}
+			String symbol = call.getNameAsString() + "/" + call.getArguments().size();
+			if (call.getScope().isEmpty())
+			{
+				return methodKey(call, symbol);
+			}
+			Expression scope = call.getScope().get();
+			if (scope instanceof NameExpr n && isTypeLike(n.getNameAsString()) && !isDeclared(call, n.getNameAsString()))
+			{
+				String parents = parentsOf(call);
+				return parents == null ? null : key(call, "S:" + n.getNameAsString() + "." + symbol, parents);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Computes the key identifying a type. The types extended by the enclosing
+	 * classes of the type are part of its context, as it may be a member type
+	 * inherited from one of them.
+	 * @param t The type
+	 * @param n The node where the type appears
+	 * @return The key, or <tt>null</tt> if the type may be declared in its
+	 * file or in its enclosing classes
+	 */
+	protected static Key typeKey(ClassOrInterfaceType t, Node n)
+	{
+		ClassOrInterfaceType head = t;
+		while (head.getScope().isPresent())
+		{
+			head = head.getScope().get();
+		}
+		if (isDeclared(n, head.getNameAsString()))
+		{
+			return null;
+		}
+		String parents = parentsOf(n);
+		return parents == null ? null : key(n, "T:" + t.toString(), parents);
+	}
+
+	/**
+	 * Computes the key identifying an unqualified method call. The types
+	 * extended by the enclosing classes of the call are part of its context,
+	 * as the method may be inherited from one of them.
+	 * @param call The call
+	 * @param symbol The name and the number of arguments of the method
+	 * @return The key, or <tt>null</tt> if the method may be declared in an
+	 * enclosing class
+	 */
+	protected static Key methodKey(MethodCallExpr call, String symbol)
+	{
+		Optional<Node> p = call.getParentNode();
+		while (p.isPresent())
+		{
+			Node n = p.get();
+			if (n instanceof TypeDeclaration<?> td && !td.getMethodsByName(call.getNameAsString()).isEmpty())
+			{
+				return null;
+			}
+			p = n.getParentNode();
+		}
+		String parents = parentsOf(call);
+		return parents == null ? null : key(call, "M:" + symbol, parents);
+	}
+
+	/**
+	 * Gets the types extended and implemented by the enclosing classes of a
+	 * node.
+	 * @param n The node
+	 * @return The types, as a string, or <tt>null</tt> if the node is inside an
+	 * anonymous class, whose members depend on the type it is created from
+	 */
+	protected static String parentsOf(Node n)
+	{
+		StringBuilder parents = new StringBuilder();
+		Optional<Node> p = n.getParentNode();
+		while (p.isPresent())
+		{
+			Node parent = p.get();
+			if (parent instanceof ObjectCreationExpr oce && oce.getAnonymousClassBody().isPresent())
+			{
+				return null;
+			}
+			if (parent instanceof ClassOrInterfaceDeclaration cd)
+			{
+				parents.append(cd.getExtendedTypes()).append(cd.getImplementedTypes());
+			}
+			else if (parent instanceof NodeWithImplements<?> ni)
+			{
+				// Enums and records
+				parents.append(ni.getImplementedTypes());
+			}
+			p = parent.getParentNode();
+		}
+		return parents.toString();
+	}
+
+	/**
+	 * Creates a key for a symbol, in the context of its compilation unit.
+	 * @param n The node of the symbol
+	 * @param symbol The text of the symbol
+	 * @param extra Additional context
+	 * @return The key, or <tt>null</tt> if the node is not in a compilation
+	 * unit
+	 */
+	protected static Key key(Node n, String symbol, String extra)
+	{
+		Optional<CompilationUnit> o_cu = n.findCompilationUnit();
+		if (o_cu.isEmpty())
+		{
+			return null;
+		}
+		return new Key(symbol, contextOf(o_cu.get()) + extra);
+	}
+
+	/**
+	 * Gets the context of a compilation unit, namely its package and its
+	 * imports. The context is computed once and stored in the unit.
+	 * @param cu The compilation unit
+	 * @return The context
+	 */
+	protected static String contextOf(CompilationUnit cu)
+	{
+		if (cu.containsData(s_contextKey))
+		{
+			return cu.getData(s_contextKey);
+		}
+		StringBuilder out = new StringBuilder();
+		cu.getPackageDeclaration().ifPresent(p -> out.append(p.getNameAsString()));
+		for (ImportDeclaration i : cu.getImports())
+		{
+			out.append(';').append(i.isStatic() ? "static " : "").append(i.getNameAsString()).append(i.isAsterisk() ? ".*" : "");
+		}
+		String context = out.toString();
+		cu.setData(s_contextKey, context);
+		return context;
+	}
+
+	/**
+	 * Determines whether a name reported as unsolvable only depends on the
+	 * context of a symbol. This is the case if it is the scope of a call, or
+	 * for a type, one of its names or one of the imports of its file. For an
+	 * unqualified call, it must be one of the static imports of the file.
+	 * @param name The name reported as unsolvable
+	 * @param n The node of the symbol
+	 * @return <tt>true</tt> if the name depends on the context,
+	 * <tt>false</tt> otherwise
+	 */
+	protected static boolean isFromContext(String name, Node n)
+	{
+		List<String> names = new ArrayList<String>();
+		boolean static_only = false;
+		if (n instanceof MethodCallExpr call)
+		{
+			if (call.getScope().isPresent())
+			{
+				// The arguments may be imported as well; only the scope counts
+				String scope = ((NameExpr) call.getScope().get()).getNameAsString();
+				return name.equals(scope) || name.endsWith("." + scope);
+			}
+			static_only = true;
+		}
+		else
+		{
+			ClassOrInterfaceType t = n instanceof ObjectCreationExpr e ? e.getType() : (ClassOrInterfaceType) n;
+			for (ClassOrInterfaceType c : t.findAll(ClassOrInterfaceType.class))
+			{
+				names.add(c.getNameAsString());
+				names.add(c.getNameWithScope());
+			}
+		}
+		for (String s : names)
+		{
+			if (name.equals(s) || name.endsWith("." + s))
+			{
+				return true;
+			}
+		}
+		Optional<CompilationUnit> o_cu = n.findCompilationUnit();
+		if (o_cu.isEmpty())
+		{
+			return false;
+		}
+		for (ImportDeclaration i : o_cu.get().getImports())
+		{
+			if (static_only && !i.isStatic())
+			{
+				continue;
+			}
+			String imported = i.getNameAsString();
+			if (name.equals(imported) || imported.startsWith(name + ".") || imported.endsWith("." + name))
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Determines whether a name may refer to a type parameter or a type
+	 * declared by one of the enclosing declarations of a node, or to one of
+	 * the top-level types of its file.
+	 * @param n The node
+	 * @param name The name
+	 * @return <tt>true</tt> if the name is declared, <tt>false</tt> otherwise
+	 */
+	protected static boolean isDeclared(Node n, String name)
+	{
+		Optional<Node> p = n.getParentNode();
+		while (p.isPresent())
+		{
+			Node parent = p.get();
+			if (parent instanceof NodeWithTypeParameters<?> ntp)
+			{
+				for (TypeParameter tp : ntp.getTypeParameters())
+				{
+					if (tp.getNameAsString().equals(name))
+					{
+						return true;
+					}
+				}
+			}
+			if (parent instanceof TypeDeclaration<?> td)
+			{
+				if (td.getNameAsString().equals(name))
+				{
+					return true;
+				}
+				for (Node member : td.getMembers())
+				{
+					if (member instanceof TypeDeclaration<?> inner && inner.getNameAsString().equals(name))
+					{
+						return true;
+					}
+				}
+			}
+			p = parent.getParentNode();
+		}
+		Optional<CompilationUnit> o_cu = n.findCompilationUnit();
+		if (o_cu.isPresent())
+		{
+			for (TypeDeclaration<?> td : o_cu.get().getTypes())
+			{
+				if (td.getNameAsString().equals(name))
+				{
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Determines whether a name looks like the name of a type, that is,
+	 * whether it starts with an uppercase letter.
+	 * @param name The name
+	 * @return <tt>true</tt> if the name looks like a type name,
+	 * <tt>false</tt> otherwise
+	 */
+	protected static boolean isTypeLike(String name)
+	{
+		return !name.isEmpty() && Character.isUpperCase(name.charAt(0));
+	}
+
+	/**
+	 * The key identifying a symbol in its context.
+	 * @param symbol The text of the symbol
+	 * @param context The context of the symbol
+	 */
+	protected record Key(String symbol, String context)
+	{
+	}
+
+	/**
+	 * The statistics associated with a missing name.
+	 */
+	protected static class Stats
+	{
+		/** The number of failed lookups caused by the name. */
+		protected final LongAdder m_occurrences = new LongAdder();
+
+		/** The time spent on these lookups, in nanoseconds. */
+		protected final LongAdder m_time = new LongAdder();
+	}
+
+	/**
+	 * A missing name that caused symbols to be unsolvable.
+	 * @param name The name
+	 * @param occurrences The number of failed lookups caused by the name
+	 * @param time The time spent trying to resolve these symbols before
+	 * giving up, in milliseconds
+	 */
+	public record Entry(String name, long occurrences, long time)
+	{
+	}
+}
@@ -0,0 +1,156 @@
+/*
+    Analysis of assertions in Java programs
+    Copyright (C) 2025 Sylvain Hallé, Sarika Machhindra Kadam
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.codefinder.find.sparql;
+
+import static org.junit.Assert.*;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.junit.Test;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ast.CompilationUnit;
+
+import ca.uqac.lif.piglet.find.FoundToken;
+import ca.uqac.lif.piglet.find.sparql.AstGraph;
+import ca.uqac.lif.piglet.find.sparql.ModelBuilder;
+import ca.uqac.lif.piglet.find.sparql.ModelBuilder.ModelBuilderResult;
+import ca.uqac.lif.piglet.find.sparql.SparqlQueryBatch;
+import ca.uqac.lif.piglet.find.sparql.SparqlTokenFinderFactory;
+import ca.uqac.lif.piglet.find.sparql.Vocabulary;
+import ca.uqac.lif.piglet.find.visitor.PushPopVisitableNode;
+
+/**
+ * Unit tests for {@link AstGraph}.
+ */
+public class AstGraphTest
+{
+	protected static final String s_code = """
+			package foo;
+
+			import java.util.List;
+
+			/** A test class */
+			@SuppressWarnings("unused")
+			public class MyTest {
+			  private static final int MAX = 3, MIN;
+
+			  @Test
+			  public void test(int x, String y) throws Exception {
+			    // A call
+			    assertEquals(1, foo(x));
+			    int a = 1 + 2, b;
+			    if (x > 0 && !y.isEmpty()) {
+			      assertTrue(bar().baz(a));
+			    } else if (x < 0) {
+			      System.out.println("neg");
+			    } else
+			      assertNull(null);
+			    for (String s : List.of("a", "b")) { }
+			    Runnable r = () -> { return; };
+			    this.x = y.length;
+			  }
+
+			  abstract int other();
+			}
+			""";
+
+	@Test
+	public void testSameTriples()
+	{
+		CompilationUnit u = new JavaParser().parse(s_code).getResult().get();
+		Graph materialized = ModelBuilder.buildModel(new PushPopVisitableNode(u), 0, null, "MyTest.java").getModel().getGraph();
+		Graph virtual = ModelBuilder.buildVirtualModel(new PushPopVisitableNode(u), null, "MyTest.java").getModel().getGraph();
+		assertEquals(materialized.size(), virtual.size());
+		assertTrue(virtual.isIsomorphicWith(materialized));
+	}
+
+	@Test
+	public void testPatterns()
+	{
+		CompilationUnit u = new JavaParser().parse(s_code).getResult().get();
+		Graph materialized = ModelBuilder.buildModel(new PushPopVisitableNode(u), 0, null, "MyTest.java").getModel().getGraph();
+		Graph virtual = ModelBuilder.buildVirtualModel(new PushPopVisitableNode(u), null, "MyTest.java").getModel().getGraph();
+		// The IRIs of the AST nodes are the same in both graphs
+		for (Triple t : materialized.find().toList())
+		{
+			if (t.getSubject().isURI())
+			{
+				assertEquals(count(materialized, t.getSubject(), Node.ANY, Node.ANY), count(virtual, t.getSubject(), Node.ANY, Node.ANY));
+				assertEquals(count(materialized, t.getSubject(), Vocabulary.NEXT, Node.ANY), count(virtual, t.getSubject(), Vocabulary.NEXT, Node.ANY));
+			}
+			if (t.getObject().isURI())
+			{
+				assertEquals(count(materialized, Node.ANY, Node.ANY, t.getObject()), count(virtual, Node.ANY, Node.ANY, t.getObject()));
+			}
+			if (t.getObject().isLiteral())
+			{
+				assertEquals(count(materialized, Node.ANY, t.getPredicate(), t.getObject()), count(virtual, Node.ANY, t.getPredicate(), t.getObject()));
+			}
+		}
+	}
+
+	@Test
+	public void testSameResults()
+	{
+		CompilationUnit u = new JavaParser().parse(s_code).getResult().get();
+		ModelBuilderResult materialized = ModelBuilder.buildModel(new PushPopVisitableNode(u), 0, null, "MyTest.java");
+		ModelBuilderResult virtual = ModelBuilder.buildVirtualModel(new PushPopVisitableNode(u), null, "MyTest.java");
+		// Which solution a query with a limit keeps depends on the order of the triples
+		Set<SparqlTokenFinderFactory> factories = SparqlQueryBatchTest.factories();
+		factories.removeIf(f -> SparqlQueryBatchTest.s_queries[Integer.parseInt(f.getName().substring(1))].contains("LIMIT"));
+		Set<FoundToken> expected = new HashSet<FoundToken>();
+		new SparqlQueryBatch(factories).process(null, "MyTest.java", materialized.getModel(), materialized.getIndex(), expected);
+		Set<FoundToken> actual = new HashSet<FoundToken>();
+		new SparqlQueryBatch(factories, true).process(null, "MyTest.java", virtual.getModel(), virtual.getIndex(), actual);
+		assertFalse(expected.isEmpty());
+		assertEquals(locations(expected), locations(actual));
+	}
+
+	/**
+	 * Gets the name and the location of each found token.
+	 * @param found The tokens
+	 * @return The set of names and locations
+	 */
+	protected static Set<String> locations(Set<FoundToken> found)
+	{
+		Set<String> out = new HashSet<String>();
+		for (FoundToken t : found)
+		{
+			out.add(t.getAssertionName() + "@" + t.getLocation());
+		}
+		return out;
+	}
+
+	/**
+	 * Counts the triples of a graph matching a pattern.
+	 * @param g The graph
+	 * @param s The subject
+	 * @param p The predicate
+	 * @param o The object
+	 * @return The number of triples
+	 */
+	protected static int count(Graph g, Node s, Node p, Node o)
+	{
+		return g.find(s, p, o).toList().size();
+	}
+}
@@ -0,0 +1,177 @@
+/*
+    Analysis of assertions in Java programs
+    Copyright (C) 2025 Sylvain Hallé, Sarika Machhindra Kadam
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.codefinder.find.sparql;
+
+import static org.junit.Assert.*;
+
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.query.QueryFactory;
+import org.apache.jena.sparql.algebra.Op;
+import org.apache.jena.sparql.algebra.op.OpBGP;
+import org.apache.jena.sparql.algebra.op.OpProject;
+import org.apache.jena.sparql.algebra.op.OpPropFunc;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.engine.ExecutionContext;
+import org.apache.jena.sparql.engine.QueryIterator;
+import org.apache.jena.sparql.engine.binding.BindingFactory;
+import org.junit.Test;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.expr.MethodCallExpr;
+
+import ca.uqac.lif.piglet.find.sparql.LazyNodeFunction;
+import ca.uqac.lif.piglet.find.sparql.LazyNodeIndex;
+import ca.uqac.lif.piglet.find.sparql.ModelBuilder;
+import ca.uqac.lif.piglet.find.sparql.ModelBuilder.ModelBuilderResult;
+import ca.uqac.lif.piglet.find.sparql.SparqlTokenFinder;
+import ca.uqac.lif.piglet.find.visitor.PushPopVisitableNode;
+
+/**
+ * Unit tests for {@link LazyNodeFunction}.
+ */
+public class LazyNodeFunctionTest
+{
+	protected static final String s_code = """
+			public class MyTest {
+			  public void test() {
+			    assertEquals(1, foo());
+			    assertTrue(1 + 1 == 2);
+			    assertTrue(bar());
+			  }
+			}
+			""";
+
+	@Test
+	public void testCandidates()
+	{
+		ModelBuilderResult r = buildModel();
+		CallName f = new CallName(r.getIndex(), "?");
+		assertEquals(2, count(f, r, NodeFactory.createLiteralString("assertTrue"), -1));
+		// Only the calls are looked at
+		assertEquals(5, f.m_calls);
+	}
+
+	@Test
+	public void testLazy()
+	{
+		ModelBuilderResult r = buildModel();
+		CallName f = new CallName(r.getIndex(), null);
+		assertEquals(1, count(f, r, Var.alloc("x"), 1));
+		assertEquals(1, f.m_calls);
+	}
+
+	@Test
+	public void testDefaultValue()
+	{
+		ModelBuilderResult r = buildModel();
+		CallName f = new CallName(r.getIndex(), "?");
+		int others = 0;
+		for (int i = 0; i < r.getIndex().getNodeCount(0); i++)
+		{
+			if (!(r.getIndex().get(0, i) instanceof MethodCallExpr))
+			{
+				others++;
+			}
+		}
+		assertTrue(others > 0);
+		assertEquals(others, count(f, r, NodeFactory.createLiteralString("?"), -1));
+		// The value of a call could also be the default value
+		assertEquals(5, f.m_calls);
+	}
+
+	@Test
+	public void testNodeTypesFirst()
+	{
+		Op op = SparqlTokenFinder.compile(QueryFactory.create(SparqlTokenFinder.prefixes
+				+ "SELECT ?n WHERE { ?n :resolvedtype \"java.lang.String\" . ?n :nodetype \"MethodCallExpr\" }"));
+		// The node type is matched before the property function is called
+		Op sub = ((OpProject) op).getSubOp();
+		assertTrue(sub instanceof OpPropFunc);
+		assertTrue(((OpPropFunc) sub).getSubOp() instanceof OpBGP);
+	}
+
+	/**
+	 * Counts the solutions of a function whose subject is unbound.
+	 * @param f The function
+	 * @param r The model and its index
+	 * @param object The object of the function
+	 * @param limit The maximum number of solutions to read, or -1 for all
+	 * @return The number of solutions read
+	 */
+	protected static int count(CallName f, ModelBuilderResult r, org.apache.jena.graph.Node object, int limit)
+	{
+		ExecutionContext exec = SparqlTokenFinder.createExecutionContext(r.getModel(), r.getIndex(), null);
+		QueryIterator it = f.execEvaluated(BindingFactory.root(), Var.alloc("n"), NodeFactory.createURI(ModelBuilder.NS + "callname"), object, exec);
+		int count = 0;
+		while ((limit < 0 || count < limit) && it.hasNext())
+		{
+			it.next();
+			count++;
+		}
+		it.close();
+		return count;
+	}
+
+	/**
+	 * Builds the RDF model of the test code.
+	 * @return The model
+	 */
+	protected static ModelBuilderResult buildModel()
+	{
+		CompilationUnit u = new JavaParser().parse(s_code).getResult().get();
+		return ModelBuilder.buildModel(new PushPopVisitableNode(u), 0, null, "MyTest.java");
+	}
+
+	/**
+	 * A function giving the name of a method call, and counting how many
+	 * times it computes one.
+	 */
+	protected static class CallName extends LazyNodeFunction<Node,String>
+	{
+		protected int m_calls = 0;
+
+		protected final String m_default;
+
+		public CallName(LazyNodeIndex<Node,String> idx, String default_value)
+		{
+			super(idx);
+			m_default = default_value;
+		}
+
+		@Override
+		protected boolean appliesTo(Class<?> kind)
+		{
+			return MethodCallExpr.class.isAssignableFrom(kind);
+		}
+
+		@Override
+		protected String getDefaultValue()
+		{
+			return m_default;
+		}
+
+		@Override
+		protected String calculateValue(Node n)
+		{
+			m_calls++;
+			return ((MethodCallExpr) n).getNameAsString();
+		}
+	}
+}
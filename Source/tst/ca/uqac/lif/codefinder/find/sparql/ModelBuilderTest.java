@@ -0,0 +1,133 @@
+/*
+    Analysis of assertions in Java programs
+    Copyright (C) 2025 Sylvain Hallé, Sarika Machhindra Kadam
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.codefinder.find.sparql;
+
+import static org.junit.Assert.*;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.junit.Test;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParserConfiguration;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.symbolsolver.JavaSymbolSolver;
+import com.github.javaparser.symbolsolver.javaparsermodel.JavaParserFacade;
+import com.github.javaparser.symbolsolver.resolution.typesolvers.CombinedTypeSolver;
+import com.github.javaparser.symbolsolver.resolution.typesolvers.ReflectionTypeSolver;
+
+import ca.uqac.lif.piglet.find.PassthroughFileFilter;
+import ca.uqac.lif.piglet.find.TokenFinderContext;
+import ca.uqac.lif.piglet.find.sparql.ModelBuilder;
+import ca.uqac.lif.piglet.find.sparql.Vocabulary;
+import ca.uqac.lif.piglet.find.visitor.PushPopVisitableNode;
+
+/**
+ * Unit tests for the models built when following method calls. The expected
+ * sizes are those of the models built when nodes were identified by their
+ * file, range and kind.
+ */
+public class ModelBuilderTest
+{
+	/**
+	 * A class whose methods are called before they are declared.
+	 */
+	protected static final String s_callsFirst = """
+			public class MyTest {
+			  public void test() {
+			    helper();
+			  }
+			  public void helper() {
+			    assertTrue(check());
+			  }
+			  public boolean check() {
+			    return "foo".isEmpty();
+			  }
+			}
+			""";
+
+	/**
+	 * The same class, with its methods declared before they are called.
+	 */
+	protected static final String s_declarationsFirst = """
+			public class MyTest {
+			  public boolean check() {
+			    return "foo".isEmpty();
+			  }
+			  public void helper() {
+			    assertTrue(check());
+			  }
+			  public void test() {
+			    helper();
+			  }
+			}
+			""";
+
+	@Test
+	public void testNoFollow()
+	{
+		Graph g = buildModel(s_callsFirst, 0);
+		assertEquals(57, g.size());
+		assertEquals(0, count(g, Vocabulary.DECLARATION));
+	}
+
+	@Test
+	public void testFollowCallsFirst()
+	{
+		// The declaration of helper() is reached from a call first, and must
+		// still be translated in full by the traversal of the file, which
+		// follows the call to check() it contains
+		Graph g = buildModel(s_callsFirst, 1);
+		assertEquals(95, g.size());
+		assertEquals(2, count(g, Vocabulary.DECLARATION));
+	}
+
+	@Test
+	public void testFollowDeclarationsFirst()
+	{
+		Graph g = buildModel(s_declarationsFirst, 1);
+		assertEquals(95, g.size());
+		assertEquals(2, count(g, Vocabulary.DECLARATION));
+	}
+
+	/**
+	 * Counts the triples of a graph with a given predicate.
+	 * @param g The graph
+	 * @param predicate The predicate
+	 * @return The number of triples
+	 */
+	protected static int count(Graph g, Node predicate)
+	{
+		return g.find(Node.ANY, predicate, Node.ANY).toList().size();
+	}
+
+	/**
+	 * Builds the model of a piece of code.
+	 * @param code The code
+	 * @param follow How many levels of method calls to follow
+	 * @return The graph of the model
+	 */
+	protected static Graph buildModel(String code, int follow)
+	{
+		CombinedTypeSolver ts = new CombinedTypeSolver(new ReflectionTypeSolver());
+		JavaParser parser = new JavaParser(new ParserConfiguration().setSymbolResolver(new JavaSymbolSolver(ts)));
+		TokenFinderContext context = new TokenFinderContext(ts, parser, JavaParserFacade.get(ts), -1, new PassthroughFileFilter());
+		CompilationUnit u = parser.parse(code).getResult().get();
+		return ModelBuilder.buildModel(new PushPopVisitableNode(u), follow, context, "MyTest.java").getModel().getGraph();
+	}
+}
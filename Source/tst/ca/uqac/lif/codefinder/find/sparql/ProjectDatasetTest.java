@@ -0,0 +1,216 @@
+/*
+    Analysis of assertions in Java programs
+    Copyright (C) 2025 Sylvain Hallé, Sarika Machhindra Kadam
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.codefinder.find.sparql;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.github.javaparser.JavaParser;
+
+import ca.uqac.lif.piglet.find.FoundToken;
+import ca.uqac.lif.piglet.find.sparql.ProjectDataset;
+import ca.uqac.lif.piglet.find.sparql.SparqlTokenFinderFactory;
+
+/**
+ * Unit tests for {@link ProjectDataset}.
+ */
+public class ProjectDatasetTest
+{
+	protected static final String s_code1 = """
+			public class A {
+			  public void test() {
+			    assertTrue(1 + 1 == 2);
+			  }
+			}
+			""";
+
+	protected static final String s_code2 = """
+			public class B {
+			  public void test() {
+			    assertTrue(foo());
+			    assertEquals(1, bar());
+			  }
+			}
+			""";
+
+	protected static final List<SparqlTokenFinderFactory> s_factories = List.of(
+			new SparqlTokenFinderFactory("True", "SELECT ?n WHERE { ?n :nodetype \"MethodCallExpr\" . ?n :name \"assertTrue\" }"));
+
+	@Rule
+	public TemporaryFolder m_folder = new TemporaryFolder();
+
+	@Test
+	public void testProcess() throws IOException
+	{
+		Path folder = m_folder.getRoot().toPath();
+		ProjectDataset ds = new ProjectDataset(folder);
+		put(ds, "A.java", s_code1);
+		put(ds, "B.java", s_code2);
+		Set<String> found = process(ds);
+		ds.close();
+		assertEquals(Set.of("A.java:L3", "B.java:L3"), found);
+	}
+
+	@Test
+	public void testReuse() throws IOException
+	{
+		Path folder = m_folder.getRoot().toPath();
+		ProjectDataset ds = new ProjectDataset(folder);
+		put(ds, "A.java", s_code1);
+		put(ds, "B.java", s_code2);
+		ds.flush();
+		ds.close();
+		// A second analysis only translates the files that changed
+		ds = new ProjectDataset(folder);
+		assertFalse(ds.needsUpdate("A.java", ProjectDataset.hash(s_code1)));
+		assertTrue(ds.needsUpdate("B.java", ProjectDataset.hash(s_code1)));
+		put(ds, "B.java", s_code1);
+		ds.flush();
+		assertEquals(1, ds.getTranslatedCount());
+		assertEquals(1, ds.getReusedCount());
+		assertEquals(Set.of("A.java:L3", "B.java:L3"), process(ds));
+		ds.close();
+	}
+
+	@Test
+	public void testPrune() throws IOException
+	{
+		Path folder = m_folder.getRoot().toPath();
+		ProjectDataset ds = new ProjectDataset(folder);
+		put(ds, "A.java", s_code1);
+		put(ds, "B.java", s_code2);
+		ds.flush();
+		ds.close();
+		// B.java is no longer part of the project
+		ds = new ProjectDataset(folder);
+		assertFalse(ds.needsUpdate("A.java", ProjectDataset.hash(s_code1)));
+		assertEquals(1, ds.prune());
+		assertEquals(Set.of("A.java:L3"), process(ds));
+		ds.close();
+	}
+
+	@Test
+	public void testOnlySeen() throws IOException
+	{
+		Path folder = m_folder.getRoot().toPath();
+		ProjectDataset ds = new ProjectDataset(folder);
+		put(ds, "A.java", s_code1);
+		put(ds, "B.java", s_code2);
+		put(ds, "C.java", s_code1);
+		ds.close();
+		ds = new ProjectDataset(folder);
+		// A.java is unchanged; B.java changed but its new graph was never
+		// written; C.java is not part of this analysis and was not pruned
+		assertFalse(ds.needsUpdate("A.java", ProjectDataset.hash(s_code1)));
+		assertTrue(ds.needsUpdate("B.java", ProjectDataset.hash(s_code1 + " ")));
+		assertEquals(Set.of("A.java:L3"), process(ds));
+		ds.close();
+	}
+
+	@Test
+	public void testNoneSeen() throws IOException
+	{
+		Path folder = m_folder.getRoot().toPath();
+		ProjectDataset ds = new ProjectDataset(folder);
+		put(ds, "A.java", s_code1);
+		ds.close();
+		ds = new ProjectDataset(folder);
+		assertEquals(Set.of(), process(ds));
+		ds.close();
+	}
+
+	@Test
+	public void testReplace() throws IOException
+	{
+		Path folder = m_folder.getRoot().toPath();
+		ProjectDataset ds = new ProjectDataset(folder);
+		put(ds, "A.java", s_code1);
+		put(ds, "B.java", s_code2);
+		// Two versions of the same file written in the same transaction
+		put(ds, "B.java", s_code1);
+		assertEquals(Set.of("A.java:L3", "B.java:L3"), process(ds));
+		put(ds, "B.java", "public class B { }");
+		assertEquals(Set.of("A.java:L3"), process(ds));
+		ds.close();
+	}
+
+	@Test
+	public void testCompact() throws IOException
+	{
+		Path folder = m_folder.getRoot().toPath();
+		ProjectDataset ds = new ProjectDataset(folder);
+		put(ds, "A.java", s_code1);
+		put(ds, "B.java", s_code2);
+		ds.close();
+		ds = new ProjectDataset(folder);
+		put(ds, "B.java", s_code1);
+		ds.close();
+		// One graph replaced out of two: nothing to reclaim yet
+		assertFalse(Files.exists(folder.resolve("Data-0002")));
+		ds = new ProjectDataset(folder);
+		put(ds, "B.java", s_code2);
+		put(ds, "A.java", s_code2);
+		ds.close();
+		assertTrue(Files.exists(folder.resolve("Data-0002")));
+		ds = new ProjectDataset(folder);
+		assertFalse(ds.needsUpdate("A.java", ProjectDataset.hash(s_code2)));
+		assertFalse(ds.needsUpdate("B.java", ProjectDataset.hash(s_code2)));
+		assertEquals(Set.of("A.java:L3", "B.java:L3"), process(ds));
+		ds.close();
+	}
+
+	/**
+	 * Hands a file to a dataset.
+	 * @param ds The dataset
+	 * @param filename The name of the file
+	 * @param code The contents of the file
+	 */
+	protected static void put(ProjectDataset ds, String filename, String code)
+	{
+		String hash = ProjectDataset.hash(code);
+		assertTrue(ds.needsUpdate(filename, hash));
+		ds.put(null, filename, hash, code, new JavaParser().parse(code).getResult().get());
+	}
+
+	/**
+	 * Runs the test queries on a dataset.
+	 * @param ds The dataset
+	 * @return The file and line of each token found
+	 */
+	protected static Set<String> process(ProjectDataset ds)
+	{
+		Set<FoundToken> found = new HashSet<FoundToken>();
+		ds.process(s_factories, null, found);
+		Set<String> out = new HashSet<String>();
+		for (FoundToken t : found)
+		{
+			out.add(t.getFilename() + ":" + t.getLocation());
+		}
+		return out;
+	}
+}
@@ -0,0 +1,123 @@
+/*
+    Analysis of assertions in Java programs
+    Copyright (C) 2025 Sylvain Hallé, Sarika Machhindra Kadam
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.codefinder.find.sparql;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.expr.MethodCallExpr;
+import com.github.javaparser.ast.stmt.IfStmt;
+
+import ca.uqac.lif.piglet.find.sparql.QueryFootprint;
+import ca.uqac.lif.piglet.find.sparql.SparqlTokenFinder;
+import ca.uqac.lif.piglet.find.sparql.Vocabulary;
+
+/**
+ * Unit tests for {@link QueryFootprint}.
+ */
+public class QueryFootprintTest
+{
+	@Test
+	public void testAnchored()
+	{
+		QueryFootprint f = footprint("""
+				SELECT ?n WHERE {
+				?n :nodetype "MethodDeclaration" .
+				?n :annotations ?a .
+				?a :name "Test"
+				}
+				""");
+		assertTrue(f.emits(Vocabulary.NODETYPE));
+		assertTrue(f.emits(Vocabulary.ANNOTATIONS));
+		assertFalse(f.emits(Vocabulary.IN));
+		assertFalse(f.emits(Vocabulary.JAVADOC));
+		assertTrue(f.translates(MethodDeclaration.class));
+		assertFalse(f.translates(IfStmt.class));
+	}
+
+	@Test
+	public void testStructural()
+	{
+		// Nodes of any type can be on the path between the two nodes
+		QueryFootprint f = footprint("""
+				SELECT ?n WHERE {
+				?c :nodetype "CompilationUnit" .
+				?c :in+ ?n .
+				?n :nodetype "MethodDeclaration"
+				}
+				""");
+		assertTrue(f.emits(Vocabulary.IN));
+		assertFalse(f.emits(Vocabulary.NAME));
+		assertTrue(f.translates(IfStmt.class));
+	}
+
+	@Test
+	public void testUntyped()
+	{
+		QueryFootprint f = footprint("""
+				SELECT ?n WHERE {
+				?n :name "foo" .
+				OPTIONAL { ?n :nodetype "MethodCallExpr" }
+				}
+				""");
+		assertTrue(f.translates(IfStmt.class));
+	}
+
+	@Test
+	public void testVariablePredicate()
+	{
+		QueryFootprint f = footprint("""
+				SELECT ?n WHERE {
+				?n :nodetype "IfStmt" .
+				?n ?p ?o
+				}
+				""");
+		assertTrue(f.isAll());
+	}
+
+	@Test
+	public void testUnion()
+	{
+		QueryFootprint f1 = footprint("""
+				SELECT ?n WHERE { ?n :nodetype "IfStmt" }
+				""");
+		QueryFootprint f2 = footprint("""
+				SELECT ?n WHERE {
+				?n :nodetype "MethodCallExpr" .
+				?n :resolvedtype "java.lang.String"
+				}
+				""");
+		QueryFootprint f = f1.union(f2);
+		assertTrue(f.translates(IfStmt.class));
+		assertTrue(f.translates(MethodCallExpr.class));
+		assertFalse(f.translates(MethodDeclaration.class));
+		assertFalse(f.emits(Vocabulary.NAME));
+	}
+
+	/**
+	 * Computes the footprint of a query.
+	 * @param query The query, without its prefixes
+	 * @return The footprint
+	 */
+	protected static QueryFootprint footprint(String query)
+	{
+		return QueryFootprint.of(SparqlTokenFinder.prefixes + query);
+	}
+}
@@ -0,0 +1,214 @@
+/*
+    Analysis of assertions in Java programs
+    Copyright (C) 2025 Sylvain Hallé, Sarika Machhindra Kadam
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.codefinder.find.sparql;
+
+import static org.junit.Assert.*;
+
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ast.CompilationUnit;
+
+import ca.uqac.lif.piglet.find.FoundToken;
+import ca.uqac.lif.piglet.find.sparql.ModelBuilder;
+import ca.uqac.lif.piglet.find.sparql.ModelBuilder.ModelBuilderResult;
+import ca.uqac.lif.piglet.find.sparql.SparqlQueryBatch;
+import ca.uqac.lif.piglet.find.sparql.SparqlTokenFinder;
+import ca.uqac.lif.piglet.find.sparql.SparqlTokenFinderFactory;
+import ca.uqac.lif.piglet.find.visitor.PushPopVisitableNode;
+
+/**
+ * Unit tests for {@link SparqlQueryBatch}.
+ */
+public class SparqlQueryBatchTest
+{
+	/**
+	 * Queries looking for calls, and one that looks for something else.
+	 */
+	protected static final String[] s_queries = {
+			"SELECT ?n WHERE { ?n :nodetype \"MethodCallExpr\" . ?n :name \"assertEquals\" }",
+			"SELECT ?n WHERE { ?n :nodetype \"MethodCallExpr\" . ?n :name \"assertTrue\" }",
+			"SELECT ?n WHERE { ?n :nodetype \"MethodCallExpr\" . ?n :name ?y . FILTER(STRSTARTS(?y, \"assert\")) }",
+			"SELECT ?n WHERE { ?n :nodetype \"MethodCallExpr\" . ?n :name \"assertTrue\" . ?n :params ?p . ?p :arg1 ?a . ?a :nodetype \"BinaryExpr\" }",
+			"SELECT ?n WHERE { ?n :nodetype \"MethodCallExpr\" . ?n :name ?x . MINUS { ?n :name \"assertTrue\" } }",
+			"SELECT ?n WHERE { ?n :nodetype \"MethodCallExpr\" . ?n :name ?x } LIMIT 1",
+			"SELECT ?n WHERE { ?n :nodetype \"IfStmt\" }"
+	};
+
+	@Test
+	public void testShared()
+	{
+		Set<SparqlTokenFinderFactory> factories = factories();
+		SparqlQueryBatch batch = new SparqlQueryBatch(factories);
+		int shared = 0;
+		for (SparqlTokenFinderFactory fac : factories)
+		{
+			if (batch.isShared(fac))
+			{
+				shared++;
+			}
+		}
+		// All the queries on calls but the one with a limit; the two queries on
+		// assertTrue share more than the others
+		assertEquals(5, shared);
+		assertEquals(2, batch.getSharedPatterns().size());
+		assertEquals(2, batch.getSharedPatterns().get(0).size());
+		assertEquals(2, batch.getSharedPatterns().get(1).size());
+	}
+
+	@Test
+	public void testSameResults()
+	{
+		ModelBuilderResult r = buildModel("""
+				public class MyTest {
+				  public void test() {
+				    assertEquals(1, foo());
+				    assertTrue(1 + 1 == 2);
+				    assertTrue(bar());
+				    if (foo() > 0) {
+				      assertFalse(bar());
+				    }
+				  }
+				}
+				""");
+		Set<SparqlTokenFinderFactory> factories = factories();
+		Set<String> expected = new HashSet<String>();
+		for (SparqlTokenFinderFactory fac : factories)
+		{
+			SparqlTokenFinder f = fac.newFinder();
+			f.setModel(r.getModel());
+			f.setIndex(r.getIndex());
+			f.setFilename("MyTest.java");
+			f.process();
+			for (FoundToken t : f.getFoundTokens())
+			{
+				expected.add(t.getAssertionName() + "@" + t.getLocation());
+			}
+		}
+		Set<FoundToken> found = new HashSet<FoundToken>();
+		new SparqlQueryBatch(factories).process(null, "MyTest.java", r.getModel(), r.getIndex(), found);
+		Set<String> actual = new HashSet<String>();
+		for (FoundToken t : found)
+		{
+			actual.add(t.getAssertionName() + "@" + t.getLocation());
+		}
+		assertEquals(expected, actual);
+		assertEquals(14, actual.size());
+	}
+
+	@Test
+	public void testLimits()
+	{
+		ModelBuilderResult r = buildModel("""
+				public class MyTest {
+				  public void test() {
+				    assertTrue(1 + 1 == 2);
+				    assertTrue(bar());
+				  }
+				}
+				""");
+		// A cross product of the model with itself, three times
+		SparqlTokenFinderFactory slow = new SparqlTokenFinderFactory("slow", "SELECT ?n WHERE { ?n ?p ?x . ?y ?q ?z . ?u ?v ?w }", 50, -1);
+		SparqlTokenFinderFactory many = new SparqlTokenFinderFactory("many", s_queries[1], -1, 1);
+		SparqlTokenFinderFactory enough = new SparqlTokenFinderFactory("enough", s_queries[1], -1, 2);
+		Set<SparqlTokenFinderFactory> factories = new LinkedHashSet<SparqlTokenFinderFactory>();
+		factories.add(slow);
+		factories.add(many);
+		factories.add(enough);
+		for (SparqlTokenFinderFactory fac : factories)
+		{
+			fac.registerExpected();
+		}
+		Set<FoundToken> found = new HashSet<FoundToken>();
+		long start = System.currentTimeMillis();
+		new SparqlQueryBatch(factories).process(null, "MyTest.java", r.getModel(), r.getIndex(), found);
+		assertTrue(System.currentTimeMillis() - start < 10000);
+		assertEquals(1, slow.notFinishedCount());
+		assertEquals(1, many.notFinishedCount());
+		assertEquals(0, enough.notFinishedCount());
+		int enough_found = 0;
+		for (FoundToken t : found)
+		{
+			if (t.getAssertionName().equals("enough"))
+			{
+				enough_found++;
+			}
+		}
+		assertEquals(2, enough_found);
+	}
+
+	@Test
+	public void testSharedTimeout()
+	{
+		ModelBuilderResult r = buildModel("""
+				public class MyTest {
+				  public void test() {
+				    assertTrue(1 + 1 == 2);
+				    assertTrue(bar());
+				  }
+				}
+				""");
+		// Both queries share a cross product of the model with itself
+		SparqlTokenFinderFactory slow1 = new SparqlTokenFinderFactory("slow1", "SELECT ?n WHERE { ?n ?p ?x . ?y ?q ?z . ?u ?v ?w . ?s ?t ?o }", 50, -1);
+		SparqlTokenFinderFactory slow2 = new SparqlTokenFinderFactory("slow2", "SELECT DISTINCT ?n WHERE { ?n ?p ?x . ?y ?q ?z . ?u ?v ?w . ?s ?t ?o }", 100, -1);
+		Set<SparqlTokenFinderFactory> factories = new LinkedHashSet<SparqlTokenFinderFactory>();
+		factories.add(slow1);
+		factories.add(slow2);
+		SparqlQueryBatch batch = new SparqlQueryBatch(factories);
+		assertTrue(batch.isShared(slow1));
+		assertTrue(batch.isShared(slow2));
+		for (SparqlTokenFinderFactory fac : factories)
+		{
+			fac.registerExpected();
+		}
+		long start = System.currentTimeMillis();
+		batch.process(null, "MyTest.java", r.getModel(), r.getIndex(), new HashSet<FoundToken>());
+		assertTrue(System.currentTimeMillis() - start < 10000);
+		assertEquals(1, slow1.notFinishedCount());
+		assertEquals(1, slow2.notFinishedCount());
+	}
+
+	/**
+	 * Creates one factory for each of the test queries.
+	 * @return The set of factories
+	 */
+	protected static Set<SparqlTokenFinderFactory> factories()
+	{
+		Set<SparqlTokenFinderFactory> factories = new LinkedHashSet<SparqlTokenFinderFactory>();
+		for (int i = 0; i < s_queries.length; i++)
+		{
+			factories.add(new SparqlTokenFinderFactory("Q" + i, s_queries[i]));
+		}
+		return factories;
+	}
+
+	/**
+	 * Builds the RDF model of a piece of code.
+	 * @param code The code
+	 * @return The model
+	 */
+	protected static ModelBuilderResult buildModel(String code)
+	{
+		CompilationUnit u = new JavaParser().parse(code).getResult().get();
+		return ModelBuilder.buildModel(new PushPopVisitableNode(u), 0, null, "MyTest.java");
+	}
+}
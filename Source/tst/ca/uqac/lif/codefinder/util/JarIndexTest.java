@@ -0,0 +1,208 @@
+/*
+    Analysis of assertions in Java programs
+    Copyright (C) 2025 Sylvain Hallé, Sarika Machhindra Kadam
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.codefinder.util;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.github.javaparser.resolution.TypeSolver;
+import com.github.javaparser.resolution.declarations.ResolvedReferenceTypeDeclaration;
+import com.github.javaparser.resolution.model.SymbolReference;
+
+import ca.uqac.lif.piglet.util.JarIndex;
+
+/**
+ * Unit tests for the indexes of jar files saved between runs.
+ */
+public class JarIndexTest
+{
+	@Rule
+	public TemporaryFolder m_folder = new TemporaryFolder();
+
+	/**
+	 * A fixed modification time for the jar files of the tests.
+	 */
+	protected static final FileTime MTIME = FileTime.fromMillis(1700000000000l);
+
+	@Test
+	public void testUpToDate() throws IOException
+	{
+		Path folder = m_folder.newFolder("idx").toPath();
+		Path jar = folder.resolve("lib.jar");
+		writeJar(jar, "a/A.class");
+		assertEquals(1, JarIndex.load(jar, folder.resolve("index")).size());
+		// Same size and modification time: the saved index is used, even if the
+		// contents of the jar are different
+		writeJar(jar, "a/B.class");
+		JarIndex index = JarIndex.load(jar, folder.resolve("index"));
+		assertEquals(1, index.size());
+		assertFalse(index.newSolver().tryToSolveType("a.B").isSolved());
+		assertFalse(index.isOpen());
+	}
+
+	@Test
+	public void testStaleMtime() throws IOException
+	{
+		Path folder = m_folder.newFolder("idx").toPath();
+		Path jar = folder.resolve("lib.jar");
+		writeJar(jar, "a/A.class");
+		JarIndex.load(jar, folder.resolve("index"));
+		writeJar(jar, "a/B.class");
+		Files.setLastModifiedTime(jar, FileTime.fromMillis(MTIME.toMillis() + 1000));
+		JarIndex index = JarIndex.load(jar, folder.resolve("index"));
+		assertEquals(1, index.size());
+		assertFalse(index.newSolver().tryToSolveType("a.A").isSolved());
+	}
+
+	@Test
+	public void testStaleSize() throws IOException
+	{
+		Path folder = m_folder.newFolder("idx").toPath();
+		Path jar = folder.resolve("lib.jar");
+		writeJar(jar, "a/A.class");
+		JarIndex.load(jar, folder.resolve("index"));
+		writeJar(jar, "a/B.class", "a/C.class");
+		JarIndex index = JarIndex.load(jar, folder.resolve("index"));
+		assertEquals(2, index.size());
+		assertFalse(index.newSolver().tryToSolveType("a.A").isSolved());
+	}
+
+	@Test
+	public void testCorrupt() throws IOException
+	{
+		Path folder = m_folder.newFolder("idx").toPath();
+		Path jar = folder.resolve("lib.jar");
+		writeJar(jar, "a/A.class", "a/B.class");
+		JarIndex.load(jar, folder.resolve("index"));
+		Path idx = getIndexFile(folder.resolve("index"));
+		Files.write(idx, "not an index".getBytes());
+		assertEquals(2, JarIndex.load(jar, folder.resolve("index")).size());
+	}
+
+	@Test
+	public void testTruncated() throws IOException
+	{
+		Path folder = m_folder.newFolder("idx").toPath();
+		Path jar = folder.resolve("lib.jar");
+		writeJar(jar, "a/A.class", "a/B.class");
+		JarIndex.load(jar, folder.resolve("index"));
+		Path idx = getIndexFile(folder.resolve("index"));
+		byte[] bytes = Files.readAllBytes(idx);
+		byte[] half = new byte[bytes.length - 5];
+		System.arraycopy(bytes, 0, half, 0, half.length);
+		Files.write(idx, half);
+		assertEquals(2, JarIndex.load(jar, folder.resolve("index")).size());
+		// The index is saved again
+		assertArrayEquals(bytes, Files.readAllBytes(idx));
+	}
+
+	@Test
+	public void testNestedLazy() throws IOException
+	{
+		Path folder = m_folder.newFolder("idx").toPath();
+		Path jar = folder.resolve("lib.jar");
+		String pool_name = Nested.class.getName();
+		String entry = pool_name.replace('.', '/') + ".class";
+		try (InputStream is = JarIndexTest.class.getResourceAsStream("/" + entry);
+				JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar)))
+		{
+			out.putNextEntry(new JarEntry(entry));
+			is.transferTo(out);
+			out.closeEntry();
+		}
+		for (int i = 0; i < 2; i++)
+		{
+			// Once when the index is built, once when it is read back
+			JarIndex index = JarIndex.load(jar, folder.resolve("index"));
+			assertEquals(1, index.size());
+			assertFalse(index.isOpen());
+			TypeSolver ts = index.newSolver();
+			assertFalse(ts.tryToSolveType("java.lang.String").isSolved());
+			assertFalse(index.isOpen());
+			SymbolReference<ResolvedReferenceTypeDeclaration> ref = ts.tryToSolveType(Nested.class.getCanonicalName());
+			assertTrue(ref.isSolved());
+			assertTrue(index.isOpen());
+			assertEquals(Nested.class.getCanonicalName(), ref.getCorrespondingDeclaration().getQualifiedName());
+			assertFalse(ts.tryToSolveType(pool_name).isSolved());
+		}
+	}
+
+	/**
+	 * Writes a jar whose entries are stored without compression and have the
+	 * same contents and time, so that two jars with names of the same length
+	 * have the same size.
+	 * @param jar The path of the jar
+	 * @param entries The names of the entries
+	 * @throws IOException If the jar cannot be written
+	 */
+	protected static void writeJar(Path jar, String ... entries) throws IOException
+	{
+		byte[] contents = new byte[] {0, 1, 2, 3};
+		CRC32 crc = new CRC32();
+		crc.update(contents);
+		try (OutputStream os = Files.newOutputStream(jar); JarOutputStream out = new JarOutputStream(os))
+		{
+			for (String name : entries)
+			{
+				JarEntry e = new JarEntry(name);
+				e.setMethod(JarEntry.STORED);
+				e.setSize(contents.length);
+				e.setCrc(crc.getValue());
+				e.setTime(MTIME.toMillis());
+				out.putNextEntry(e);
+				out.write(contents);
+				out.closeEntry();
+			}
+		}
+		Files.setLastModifiedTime(jar, MTIME);
+	}
+
+	protected static Path getIndexFile(Path folder) throws IOException
+	{
+		try (Stream<Path> files = Files.list(folder))
+		{
+			List<Path> list = files.filter(p -> p.toString().endsWith(".idx")).collect(Collectors.toList());
+			assertEquals(1, list.size());
+			return list.get(0);
+		}
+	}
+
+	/**
+	 * A nested class looked up in a jar.
+	 */
+	public static class Nested
+	{
+		public int x;
+	}
+}
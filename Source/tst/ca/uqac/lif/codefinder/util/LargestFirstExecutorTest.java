@@ -0,0 +1,148 @@
+/*
+    Analysis of assertions in Java programs
+    Copyright (C) 2025 Sylvain Hallé, Sarika Machhindra Kadam
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.codefinder.util;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import ca.uqac.lif.piglet.util.LargestFirstExecutor;
+import ca.uqac.lif.piglet.util.TaskCompletionService;
+
+/**
+ * Unit tests for the executor running the most expensive tasks first.
+ */
+public class LargestFirstExecutorTest
+{
+	@Test
+	public void testLargestFirst() throws Exception
+	{
+		LargestFirstExecutor executor = new LargestFirstExecutor(1, Thread::new);
+		CountDownLatch latch = new CountDownLatch(1);
+		List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+		// Occupies the only thread while the other tasks are queued
+		executor.submit(() -> {
+			latch.await();
+			return 0;
+		}, 0);
+		List<Future<Integer>> futures = new ArrayList<>();
+		for (int cost : new int[] {2, 5, 1, 5, 3})
+		{
+			futures.add(executor.submit(() -> {
+				order.add(cost);
+				return cost;
+			}, cost));
+		}
+		latch.countDown();
+		for (Future<Integer> f : futures)
+		{
+			f.get(5, TimeUnit.SECONDS);
+		}
+		executor.shutdown();
+		assertEquals(Arrays.asList(5, 5, 3, 2, 1), order);
+	}
+
+	@Test
+	public void testMakespan() throws Exception
+	{
+		LargestFirstExecutor executor = new LargestFirstExecutor(1, Thread::new);
+		assertEquals(0, executor.getMakespan());
+		List<Future<Integer>> futures = new ArrayList<>();
+		for (int i = 0; i < 2; i++)
+		{
+			futures.add(executor.submit(() -> {
+				Thread.sleep(50);
+				return 0;
+			}, 1));
+		}
+		for (Future<Integer> f : futures)
+		{
+			f.get(5, TimeUnit.SECONDS);
+		}
+		executor.shutdown();
+		assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+		// Both tasks ran one after the other on the only thread
+		long makespan = executor.getMakespan();
+		assertTrue(makespan >= 100);
+		assertTrue(makespan < 5000);
+	}
+
+	@Test
+	public void testTimeout() throws Exception
+	{
+		LargestFirstExecutor executor = new LargestFirstExecutor(2, Thread::new);
+		executor.setTaskTimeout(50, TimeUnit.MILLISECONDS);
+		TaskCompletionService<Integer> service = new TaskCompletionService<>(executor);
+		Future<Integer> slow = service.submit(() -> {
+			Thread.sleep(10000);
+			return 1;
+		}, 1);
+		Future<Integer> fast = service.submit(() -> 2, 1);
+		assertEquals(2, (int) fast.get(5, TimeUnit.SECONDS));
+		assertFalse(LargestFirstExecutor.isTimedOut(fast));
+		Future<Integer> first = service.poll(5, TimeUnit.SECONDS);
+		Future<Integer> second = service.poll(5, TimeUnit.SECONDS);
+		assertTrue(first == fast || second == fast);
+		assertTrue(first == slow || second == slow);
+		assertTrue(slow.isCancelled());
+		assertTrue(LargestFirstExecutor.isTimedOut(slow));
+		try
+		{
+			slow.get();
+			fail("The task should have been cancelled");
+		}
+		catch (CancellationException e)
+		{
+			// Expected
+		}
+		executor.shutdown();
+	}
+
+	@Test
+	public void testGlobalCancel() throws Exception
+	{
+		LargestFirstExecutor executor = new LargestFirstExecutor(1, Thread::new);
+		executor.setTaskTimeout(10, TimeUnit.SECONDS);
+		CountDownLatch started = new CountDownLatch(1);
+		Future<Integer> running = executor.submit(() -> {
+			started.countDown();
+			Thread.sleep(10000);
+			return 1;
+		}, 1);
+		Future<Integer> queued = executor.submit(() -> 2, 1);
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+		// Cancelled by the caller, not by the watchdog
+		running.cancel(true);
+		queued.cancel(true);
+		executor.shutdownNow();
+		assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+		assertTrue(running.isCancelled());
+		assertTrue(queued.isCancelled());
+		assertFalse(LargestFirstExecutor.isTimedOut(running));
+		assertFalse(LargestFirstExecutor.isTimedOut(queued));
+	}
+}
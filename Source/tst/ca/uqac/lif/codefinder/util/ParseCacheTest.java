@@ -0,0 +1,126 @@
+/*
+    Analysis of assertions in Java programs
+    Copyright (C) 2025 Sylvain Hallé, Sarika Machhindra Kadam
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.codefinder.util;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParserConfiguration;
+import com.github.javaparser.ParserConfiguration.LanguageLevel;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.body.MethodDeclaration;
+
+import ca.uqac.lif.fs.FileSystemException;
+import ca.uqac.lif.fs.FileUtils;
+import ca.uqac.lif.piglet.util.ParseCache;
+
+/**
+ * Unit tests for the cache of parsed compilation units.
+ */
+public class ParseCacheTest
+{
+	@Rule
+	public TemporaryFolder m_folder = new TemporaryFolder();
+
+	@Test
+	public void testRoundTrip() throws IOException, FileSystemException
+	{
+		String code = readCode("MyClass1.java.src");
+		CompilationUnit u = parse(code);
+		ParseCache cache = new ParseCache(m_folder.newFolder("ast").toPath(), 1024 * 1024);
+		String key = ParseCache.getKey(code, config(LanguageLevel.JAVA_17));
+		assertNull(cache.get(key));
+		cache.put(key, u);
+		CompilationUnit u2 = cache.get(key);
+		assertNotNull(u2);
+		assertEquals(u, u2);
+		assertEquals(u.getAllContainedComments().size(), u2.getAllContainedComments().size());
+		assertEquals(u.findFirst(MethodDeclaration.class).get().getRange(),
+				u2.findFirst(MethodDeclaration.class).get().getRange());
+		assertEquals(1, cache.getHits());
+		assertEquals(1, cache.getMisses());
+	}
+
+	@Test
+	public void testKey()
+	{
+		String code = "class A {}";
+		ParserConfiguration pc = config(LanguageLevel.JAVA_17);
+		assertEquals(ParseCache.getKey(code, pc), ParseCache.getKey(code, config(LanguageLevel.JAVA_17)));
+		assertNotEquals(ParseCache.getKey(code, pc), ParseCache.getKey(code, config(LanguageLevel.JAVA_11)));
+		assertNotEquals(ParseCache.getKey(code, pc), ParseCache.getKey(code + " ", pc));
+		assertNotEquals(ParseCache.getKey(code, pc), ParseCache.getKey(code, config(LanguageLevel.JAVA_17).setAttributeComments(false)));
+	}
+
+	@Test
+	public void testEviction() throws IOException
+	{
+		Path folder = m_folder.newFolder("ast").toPath();
+		ParseCache cache = new ParseCache(folder, 4096);
+		for (int i = 0; i < 50; i++)
+		{
+			String code = "class A" + i + " { int f() { return " + i + "; } }";
+			cache.put(ParseCache.getKey(code, config(LanguageLevel.JAVA_17)), parse(code));
+		}
+		assertTrue(cache.getSize() <= 4096);
+		long on_disk = 0;
+		try (var files = Files.list(folder))
+		{
+			on_disk = files.mapToLong(p -> p.toFile().length()).sum();
+		}
+		assertTrue(on_disk <= 4096);
+	}
+
+	@Test
+	public void testSameKey() throws IOException
+	{
+		Path folder = m_folder.newFolder("ast").toPath();
+		ParseCache cache = new ParseCache(folder, 1 << 20);
+		String code = "class A { int f() { return 0; } }";
+		String key = ParseCache.getKey(code, config(LanguageLevel.JAVA_17));
+		cache.put(key, parse(code));
+		long size = cache.getSize();
+		assertTrue(size > 0);
+		cache.put(key, parse(code));
+		cache.put(key, parse(code));
+		assertEquals(size, cache.getSize());
+	}
+
+	protected static CompilationUnit parse(String code)
+	{
+		return new JavaParser(config(LanguageLevel.JAVA_17)).parse(code).getResult().get();
+	}
+
+	protected static ParserConfiguration config(LanguageLevel level)
+	{
+		return new ParserConfiguration().setLanguageLevel(level);
+	}
+
+	protected static String readCode(String path) throws FileSystemException
+	{
+		return new String(FileUtils.toBytes(ParseCacheTest.class.getResourceAsStream("/ca/uqac/lif/codefinder/find/sparql/" + path)));
+	}
+}
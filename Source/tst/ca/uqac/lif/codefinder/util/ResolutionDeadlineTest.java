@@ -0,0 +1,79 @@
+/*
+    Analysis of assertions in Java programs
+    Copyright (C) 2025 Sylvain Hallé, Sarika Machhindra Kadam
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.codefinder.util;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import com.github.javaparser.symbolsolver.resolution.typesolvers.ReflectionTypeSolver;
+
+import ca.uqac.lif.piglet.util.ResolutionDeadline;
+import ca.uqac.lif.piglet.util.ResolutionTimeoutException;
+import ca.uqac.lif.piglet.util.ThreadTypeSolver;
+
+/**
+ * Unit tests for the deadlines of type resolutions.
+ */
+public class ResolutionDeadlineTest
+{
+	@Test
+	public void testExpired() throws InterruptedException
+	{
+		ThreadTypeSolver ts = new ThreadTypeSolver(new ReflectionTypeSolver());
+		try (ResolutionDeadline d = ResolutionDeadline.start(ts, 1))
+		{
+			Thread.sleep(10);
+			assertTrue(d.isExpired());
+			ts.solveType("java.lang.String");
+			fail("The lookup should have been abandoned");
+		}
+		catch (ResolutionTimeoutException e)
+		{
+			// Expected
+		}
+		// The deadline no longer applies once closed
+		assertNotNull(ts.solveType("java.lang.String"));
+	}
+
+	@Test
+	public void testNested() throws InterruptedException
+	{
+		ThreadTypeSolver ts = new ThreadTypeSolver(new ReflectionTypeSolver());
+		try (ResolutionDeadline outer = ResolutionDeadline.start(ts, 1))
+		{
+			Thread.sleep(10);
+			try (ResolutionDeadline inner = ResolutionDeadline.start(ts, 60000))
+			{
+				assertTrue(inner.isExpired());
+			}
+			assertTrue(outer.isExpired());
+		}
+		try (ResolutionDeadline d = ResolutionDeadline.start(ts, 60000))
+		{
+			assertFalse(d.isExpired());
+			assertNotNull(ts.solveType("java.lang.String"));
+		}
+		// Deadlines are not enforced on other solvers
+		try (ResolutionDeadline d = ResolutionDeadline.start(new ReflectionTypeSolver(), 1))
+		{
+			Thread.sleep(10);
+			assertFalse(d.isExpired());
+		}
+	}
+}
@@ -0,0 +1,77 @@
+/*
+    Analysis of assertions in Java programs
+    Copyright (C) 2025 Sylvain Hallé, Sarika Machhindra Kadam
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.codefinder.util;
+
+import static org.junit.Assert.*;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.github.javaparser.resolution.model.SymbolReference;
+
+import ca.uqac.lif.piglet.util.SharedSolvers;
+import ca.uqac.lif.piglet.util.ThreadTypeSolver;
+
+/**
+ * Unit tests for the part of the type solvers shared by all threads.
+ */
+public class SharedSolversTest
+{
+	@Rule
+	public TemporaryFolder m_folder = new TemporaryFolder();
+
+	@Test
+	public void testSharedStore() throws Exception
+	{
+		Path folder = m_folder.newFolder("src").toPath();
+		Files.createDirectories(folder.resolve("foo"));
+		Files.write(folder.resolve("foo/A.java"), "package foo; public class A { int x; }".getBytes(StandardCharsets.UTF_8));
+		SharedSolvers solvers = new SharedSolvers(Arrays.asList(folder.toString()), null, new HashSet<String>(), null);
+		ThreadTypeSolver ts1 = solvers.newSolver();
+		assertTrue(ts1.tryToSolveType("foo.A").isSolved());
+		assertEquals(1, solvers.getMisses());
+		assertEquals(0, solvers.getHits());
+		// The second solver decodes the file parsed by the first one
+		ThreadTypeSolver ts2 = solvers.newSolver();
+		SymbolReference<?> ref = ts2.tryToSolveType("foo.A");
+		assertTrue(ref.isSolved());
+		assertEquals(1, solvers.getMisses());
+		assertEquals(1, solvers.getHits());
+	}
+
+	@Test
+	public void testBoundedStore() throws Exception
+	{
+		Path folder = m_folder.newFolder("src").toPath();
+		Files.createDirectories(folder.resolve("foo"));
+		Files.write(folder.resolve("foo/A.java"), "package foo; public class A { int x; }".getBytes(StandardCharsets.UTF_8));
+		// A store too small to hold any file
+		SharedSolvers solvers = new SharedSolvers(Arrays.asList(folder.toString()), null, new HashSet<String>(), null, 1);
+		assertTrue(solvers.newSolver().tryToSolveType("foo.A").isSolved());
+		// The file is parsed again by the second solver
+		assertTrue(solvers.newSolver().tryToSolveType("foo.A").isSolved());
+		assertEquals(0, solvers.getHits());
+	}
+}
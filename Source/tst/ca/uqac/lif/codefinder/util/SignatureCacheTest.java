@@ -0,0 +1,81 @@
+/*
+    Analysis of assertions in Java programs
+    Copyright (C) 2025 Sylvain Hallé, Sarika Machhindra Kadam
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.codefinder.util;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import com.github.javaparser.resolution.types.ResolvedType;
+import com.github.javaparser.symbolsolver.resolution.typesolvers.ReflectionTypeSolver;
+
+import ca.uqac.lif.piglet.util.ResolutionDeadline;
+import ca.uqac.lif.piglet.util.SignatureCache;
+import ca.uqac.lif.piglet.util.ThreadTypeSolver;
+import ca.uqac.lif.piglet.util.TypeChecks;
+
+/**
+ * Unit tests for the cache of resolved signatures.
+ */
+public class SignatureCacheTest
+{
+	@Test
+	public void testScoped()
+	{
+		ThreadTypeSolver ts1 = new ThreadTypeSolver(new ReflectionTypeSolver());
+		ThreadTypeSolver ts2 = new ThreadTypeSolver(new ReflectionTypeSolver());
+		ResolvedType t1 = SignatureCache.resolve("java.util.List<? extends java.lang.Number>", ts1);
+		assertSame(t1, SignatureCache.resolve("java.util.List<? extends java.lang.Number>", ts1));
+		assertNotSame(t1, SignatureCache.resolve("java.util.List<? extends java.lang.Number>", ts2));
+		assertEquals(1, ts1.getSignatureCache().size());
+		assertTrue(TypeChecks.isSubtypeOf("int", "java.lang.Number", ts1));
+		assertFalse(TypeChecks.isSubtypeOf("java.lang.String", "java.lang.Number", ts1));
+	}
+
+	@Test
+	public void testBounded()
+	{
+		ThreadTypeSolver ts = new ThreadTypeSolver(new ReflectionTypeSolver());
+		SignatureCache cache = new SignatureCache(2);
+		ResolvedType t = cache.get("java.lang.String", ts);
+		cache.get("java.lang.Integer", ts);
+		assertSame(t, cache.get("java.lang.String", ts));
+		cache.get("java.lang.Long", ts);
+		assertEquals(2, cache.size());
+		// The least recently used type was evicted
+		assertSame(t, cache.get("java.lang.String", ts));
+		assertEquals(2, cache.size());
+	}
+
+	@Test
+	public void testExpired() throws InterruptedException
+	{
+		ThreadTypeSolver ts = new ThreadTypeSolver(new ReflectionTypeSolver());
+		SignatureCache cache = new SignatureCache();
+		try (ResolutionDeadline d = ts.startDeadline(1))
+		{
+			Thread.sleep(20);
+			assertTrue(d.isExpired());
+			// A primitive type is resolved without looking up any type
+			assertNotNull(cache.get("int", ts));
+			assertEquals(0, cache.size());
+		}
+		cache.get("int", ts);
+		assertEquals(1, cache.size());
+	}
+}
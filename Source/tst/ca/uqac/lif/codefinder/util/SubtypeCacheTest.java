@@ -0,0 +1,84 @@
+/*
+    Analysis of assertions in Java programs
+    Copyright (C) 2025 Sylvain Hallé, Sarika Machhindra Kadam
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.codefinder.util;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import com.github.javaparser.symbolsolver.resolution.typesolvers.ReflectionTypeSolver;
+
+import ca.uqac.lif.piglet.util.ResolutionDeadline;
+import ca.uqac.lif.piglet.util.SubtypeCache;
+import ca.uqac.lif.piglet.util.ThreadTypeSolver;
+import ca.uqac.lif.piglet.util.TypeRdf;
+
+/**
+ * Unit tests for the cache of subtype checks.
+ */
+public class SubtypeCacheTest
+{
+	@Test
+	public void testHits()
+	{
+		ReflectionTypeSolver ts = new ReflectionTypeSolver();
+		SubtypeCache cache = new SubtypeCache();
+		SubtypeCache.attach(ts, cache);
+		assertTrue(TypeRdf.isSubtypeOf("java.util.ArrayList<java.lang.String>", "java.util.List<java.lang.String>", ts));
+		assertFalse(TypeRdf.isSubtypeOf("java.lang.String", "java.util.List", ts));
+		assertEquals(0, cache.getHits());
+		assertEquals(2, cache.getMisses());
+		assertTrue(TypeRdf.isSubtypeOf("java.util.ArrayList<java.lang.String>", "java.util.List<java.lang.String>", ts));
+		assertFalse(TypeRdf.isSubtypeOf("\"java.lang.String\"", "java.util.List", ts));
+		assertEquals(2, cache.getHits());
+		assertEquals(2, cache.getMisses());
+	}
+
+	@Test
+	public void testBounded()
+	{
+		SubtypeCache cache = new SubtypeCache(8);
+		for (int i = 0; i < 100; i++)
+		{
+			final int j = i;
+			assertEquals(j % 2 == 0, cache.isSubtypeOf(this, "T" + i, "U", () -> j % 2 == 0));
+		}
+		assertTrue(cache.size() <= 8);
+		// Results from different checkers are kept apart
+		assertTrue(cache.isSubtypeOf(this, "A", "B", () -> true));
+		assertFalse(cache.isSubtypeOf(cache, "A", "B", () -> false));
+		assertEquals(102, cache.getMisses());
+	}
+
+	@Test
+	public void testExpired() throws InterruptedException
+	{
+		ThreadTypeSolver ts = new ThreadTypeSolver(new ReflectionTypeSolver());
+		SubtypeCache cache = new SubtypeCache();
+		try (ResolutionDeadline d = ts.startDeadline(1))
+		{
+			Thread.sleep(20);
+			assertTrue(d.isExpired());
+			// A result obtained after the deadline is not kept
+			assertFalse(cache.isSubtypeOf(this, "A", "B", ts, () -> false));
+			assertEquals(0, cache.size());
+		}
+		assertTrue(cache.isSubtypeOf(this, "A", "B", ts, () -> true));
+		assertEquals(1, cache.size());
+	}
+}
@@ -0,0 +1,97 @@
+/*
+    Analysis of assertions in Java programs
+    Copyright (C) 2025 Sylvain Hallé, Sarika Machhindra Kadam
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.codefinder.util;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import ca.uqac.lif.piglet.util.TaskHistory;
+
+/**
+ * Unit tests for the history of the processing time of each file.
+ */
+public class TaskHistoryTest
+{
+	@Rule
+	public TemporaryFolder m_folder = new TemporaryFolder();
+
+	@Test
+	public void testSaveAndReload() throws IOException
+	{
+		Path file = m_folder.newFolder("history").toPath().resolve("project.durations");
+		TaskHistory h1 = new TaskHistory(file);
+		h1.estimate("A.java", 1000);
+		h1.estimate("B.java", 3000);
+		h1.estimate("C.java", 500);
+		h1.record("A.java", 100);
+		h1.record("B.java", 300);
+		// C.java is never processed, e.g. because of a timeout
+		h1.save();
+		TaskHistory h2 = new TaskHistory(file);
+		// Known files are estimated by their past duration
+		assertEquals(100, h2.estimate("A.java", 1000), 0);
+		assertEquals(300, h2.estimate("B.java", 3000), 0);
+		// Other files are estimated at the observed speed of 0.1 ms per byte
+		assertEquals(50, h2.estimate("C.java", 500), 1e-6);
+		// A file whose size changed is estimated by its new size
+		assertEquals(200, h2.estimate("A.java", 2000), 1e-6);
+		assertEquals(0, h2.estimate("D.java", -1), 0);
+	}
+
+	@Test
+	public void testKeepPrevious() throws IOException
+	{
+		Path file = m_folder.newFolder("history").toPath().resolve("project.durations");
+		TaskHistory h1 = new TaskHistory(file);
+		h1.estimate("A.java", 1000);
+		h1.record("A.java", 100);
+		h1.save();
+		TaskHistory h2 = new TaskHistory(file);
+		// Submitted but not processed in this run: the previous entry is kept
+		h2.estimate("A.java", 1000);
+		h2.save();
+		assertEquals(100, new TaskHistory(file).estimate("A.java", 1000), 0);
+	}
+
+	@Test
+	public void testUnreadable() throws IOException
+	{
+		Path file = m_folder.newFile("history.durations").toPath();
+		Files.write(file, "garbage\nx\ty\tA.java\n".getBytes(StandardCharsets.UTF_8));
+		TaskHistory h = new TaskHistory(file);
+		// Default speed of one millisecond per kilobyte
+		assertEquals(2, h.estimate("A.java", 2048), 1e-6);
+	}
+
+	@Test
+	public void testMakespan()
+	{
+		long[] durations = new long[] {1, 1, 1, 1, 4};
+		assertEquals(6, TaskHistory.makespan(durations, 2));
+		assertEquals(4, TaskHistory.makespanLargestFirst(durations, 2));
+		assertEquals(8, TaskHistory.makespan(durations, 1));
+	}
+}
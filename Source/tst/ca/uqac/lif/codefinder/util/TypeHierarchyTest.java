@@ -0,0 +1,72 @@
+/*
+    Analysis of assertions in Java programs
+    Copyright (C) 2025 Sylvain Hallé, Sarika Machhindra Kadam
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.codefinder.util;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import com.github.javaparser.resolution.types.ResolvedReferenceType;
+import com.github.javaparser.symbolsolver.resolution.typesolvers.ReflectionTypeSolver;
+
+import ca.uqac.lif.piglet.util.SignatureCache;
+import ca.uqac.lif.piglet.util.TypeChecks;
+import ca.uqac.lif.piglet.util.TypeHierarchy;
+import ca.uqac.lif.piglet.util.TypeRdf;
+
+/**
+ * Unit tests for the table of the ancestors of types.
+ */
+public class TypeHierarchyTest
+{
+	@Test
+	public void testAncestors()
+	{
+		ReflectionTypeSolver ts = new ReflectionTypeSolver();
+		TypeHierarchy h = new TypeHierarchy();
+		ResolvedReferenceType list = SignatureCache.resolve("java.util.ArrayList<java.lang.String>", ts).asReferenceType();
+		assertTrue(h.isSubtypeOf(list, "java.util.List"));
+		assertEquals(1, h.getMisses());
+		assertTrue(h.isSubtypeOf(list, "java.util.ArrayList"));
+		assertTrue(h.isSubtypeOf(list, "java.lang.Iterable"));
+		assertTrue(h.isSubtypeOf(list, "java.lang.Object"));
+		assertFalse(h.isSubtypeOf(list, "java.util.Map"));
+		assertFalse(h.isSubtypeOf(list, "java.lang.String"));
+		// The ancestors were only asked once
+		assertEquals(1, h.getMisses());
+		assertEquals(5, h.getHits());
+		assertEquals(1, h.getTypeCount());
+	}
+
+	@Test
+	public void testShared()
+	{
+		ReflectionTypeSolver ts = new ReflectionTypeSolver();
+		TypeHierarchy h = new TypeHierarchy();
+		TypeHierarchy.attach(ts, h);
+		ResolvedReferenceType set = SignatureCache.resolve("java.util.HashSet", ts).asReferenceType();
+		assertTrue(TypeChecks.isSubtypeOf(set, "java.util.Collection", ts));
+		assertFalse(TypeChecks.isSubtypeOf(set, "java.util.List", ts));
+		assertTrue(TypeRdf.isSubtypeOf("java.util.HashSet", "java.util.Set", ts));
+		// Generic arguments are still checked
+		assertTrue(TypeRdf.isSubtypeOf("java.util.HashSet<java.lang.String>", "java.util.Set<java.lang.String>", ts));
+		assertFalse(TypeRdf.isSubtypeOf("java.util.HashSet<java.lang.String>", "java.util.Set<java.lang.Integer>", ts));
+		assertFalse(TypeRdf.isSubtypeOf("java.util.HashSet<java.lang.String>", "java.util.List<java.lang.String>", ts));
+		assertEquals(1, h.getMisses());
+	}
+}
@@ -0,0 +1,159 @@
+/*
+    Analysis of assertions in Java programs
+    Copyright (C) 2025 Sylvain Hallé, Sarika Machhindra Kadam
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.codefinder.util;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParserConfiguration;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.expr.MethodCallExpr;
+import com.github.javaparser.ast.expr.ObjectCreationExpr;
+import com.github.javaparser.symbolsolver.JavaSymbolSolver;
+import com.github.javaparser.symbolsolver.resolution.typesolvers.ReflectionTypeSolver;
+
+import ca.uqac.lif.piglet.util.TypeRdf;
+import ca.uqac.lif.piglet.util.UnresolvedSymbols;
+
+/**
+ * Unit tests for the record of unsolvable symbols.
+ */
+public class UnresolvedSymbolsTest
+{
+	protected static final String s_code = """
+			package foo;
+
+			import org.missing.Foo;
+			import java.util.List;
+
+			public class %s {
+			  public void test(Foo f) {
+			    Foo g = new Foo();
+			    List<String> l = new java.util.ArrayList<String>();
+			    f.bar();
+			    l.size();
+			  }
+			}
+			""";
+
+	@Test
+	public void testShared()
+	{
+		ReflectionTypeSolver ts = new ReflectionTypeSolver();
+		UnresolvedSymbols u = new UnresolvedSymbols();
+		UnresolvedSymbols.attach(ts, u);
+		for (String name : new String[] {"ATest", "BTest"})
+		{
+			JavaParser parser = new JavaParser(new ParserConfiguration().setSymbolResolver(new JavaSymbolSolver(ts)));
+			CompilationUnit cu = parser.parse(String.format(s_code, name)).getResult().get();
+			for (ObjectCreationExpr e : cu.findAll(ObjectCreationExpr.class))
+			{
+				TypeRdf.resolveTypeToString(e, ts);
+			}
+			for (MethodCallExpr e : cu.findAll(MethodCallExpr.class))
+			{
+				TypeRdf.resolveTypeToString(e, ts);
+			}
+		}
+		// Only the creation of Foo is recorded; the call on a variable depends
+		// on more than the imports
+		assertEquals(1, u.size());
+		List<UnresolvedSymbols.Entry> entries = u.getEntries();
+		assertEquals(1, entries.size());
+		assertTrue(entries.get(0).name().endsWith("Foo"));
+		assertEquals(2, entries.get(0).occurrences());
+	}
+
+	@Test
+	public void testContext()
+	{
+		ReflectionTypeSolver ts = new ReflectionTypeSolver();
+		UnresolvedSymbols u = new UnresolvedSymbols();
+		UnresolvedSymbols.attach(ts, u);
+		JavaParser parser = new JavaParser(new ParserConfiguration().setSymbolResolver(new JavaSymbolSolver(ts)));
+		CompilationUnit cu = parser.parse(String.format(s_code, "ATest")).getResult().get();
+		ObjectCreationExpr e = cu.findFirst(ObjectCreationExpr.class).get();
+		TypeRdf.resolveTypeToString(e, ts);
+		assertTrue(u.isUnsolvable(e));
+		// The same symbol with other imports is not known to be unsolvable
+		cu = parser.parse(String.format(s_code, "ATest").replace("org.missing.Foo", "org.other.Foo")).getResult().get();
+		assertFalse(u.isUnsolvable(cu.findFirst(ObjectCreationExpr.class).get()));
+	}
+
+	@Test
+	public void testInherited()
+	{
+		String code = """
+				package foo;
+
+				import org.missing.Base;
+
+				public class %s extends %s {
+				  public void test() {
+				    Inner i = new Inner();
+				  }
+				}
+				""";
+		ReflectionTypeSolver ts = new ReflectionTypeSolver();
+		UnresolvedSymbols u = new UnresolvedSymbols();
+		UnresolvedSymbols.attach(ts, u);
+		JavaParser parser = new JavaParser(new ParserConfiguration().setSymbolResolver(new JavaSymbolSolver(ts)));
+		CompilationUnit cu = parser.parse(String.format(code, "ATest", "Base")).getResult().get();
+		ObjectCreationExpr e = cu.findFirst(ObjectCreationExpr.class).get();
+		TypeRdf.resolveTypeToString(e, ts);
+		assertTrue(u.isUnsolvable(e));
+		// Another class with the same superclass has the same member types
+		cu = parser.parse(String.format(code, "BTest", "Base")).getResult().get();
+		assertTrue(u.isUnsolvable(cu.findFirst(ObjectCreationExpr.class).get()));
+		// A member type inherited from another superclass may be solvable
+		cu = parser.parse(String.format(code, "CTest", "Object")).getResult().get();
+		assertFalse(u.isUnsolvable(cu.findFirst(ObjectCreationExpr.class).get()));
+	}
+
+	@Test
+	public void testTopLevel()
+	{
+		String code = """
+				package foo;
+
+				public class %s {
+				  public void test() {
+				    Helper h = new Helper();
+				  }
+				}
+
+				class Helper extends org.missing.Base {
+				}
+				""";
+		ReflectionTypeSolver ts = new ReflectionTypeSolver();
+		UnresolvedSymbols u = new UnresolvedSymbols();
+		UnresolvedSymbols.attach(ts, u);
+		JavaParser parser = new JavaParser(new ParserConfiguration().setSymbolResolver(new JavaSymbolSolver(ts)));
+		CompilationUnit cu = parser.parse(String.format(code, "ATest")).getResult().get();
+		for (ObjectCreationExpr e : cu.findAll(ObjectCreationExpr.class))
+		{
+			TypeRdf.resolveTypeToString(e, ts);
+		}
+		// A type declared in the same file is never recorded
+		assertEquals(0, u.size());
+	}
+}